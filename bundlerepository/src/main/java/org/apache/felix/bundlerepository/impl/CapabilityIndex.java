@@ -0,0 +1,457 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.bundlerepository.impl;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.felix.bundlerepository.Capability;
+import org.apache.felix.bundlerepository.Repository;
+import org.apache.felix.bundlerepository.Requirement;
+import org.apache.felix.bundlerepository.Resource;
+
+/**
+ * Index of the capabilities of the resources of a repository, by capability
+ * name and by the attribute identifying a capability of a given name: the
+ * package name, the bundle symbolic name or the service interface. Resources
+ * are also indexed by symbolic name, on first use.
+ * <p>
+ * The index only narrows down the candidates for a requirement or a filter,
+ * the candidates still have to be matched. A requirement whose filter does
+ * not test the identifying attribute for equality gets all the capabilities
+ * with its name.
+ */
+public class CapabilityIndex
+{
+    private static final Map<String, String> KEY_ATTRIBUTES = new HashMap<String, String>();
+
+    static
+    {
+        KEY_ATTRIBUTES.put(Capability.PACKAGE, Capability.PACKAGE);
+        KEY_ATTRIBUTES.put(Capability.BUNDLE, Resource.SYMBOLIC_NAME);
+        KEY_ATTRIBUTES.put(Capability.SERVICE, Capability.SERVICE);
+    }
+
+    /**
+     * An equality test of an attribute with a value which needs no escaping.
+     */
+    private static final Pattern EQUALITY = Pattern.compile("\\(([^()=<>~*\\\\\\s]+)=([^()=<>~*\\\\\\s]+)\\)");
+
+    private final Resource[] m_resources;
+    private final Map<String, Capabilities> m_capabilities = new HashMap<String, Capabilities>();
+    private Map<String, List<Resource>> m_symbolicNames;
+    private List<Resource> m_unkeyedResources;
+
+    public CapabilityIndex(Resource[] resources)
+    {
+        m_resources = (resources == null) ? new Resource[0] : resources;
+        int ordinal = 0;
+        for (int resIdx = 0; resIdx < m_resources.length; resIdx++)
+        {
+            Resource resource = m_resources[resIdx];
+            if (resource == null)
+            {
+                continue;
+            }
+            Capability[] caps = resource.getCapabilities();
+            for (int capIdx = 0; (caps != null) && (capIdx < caps.length); capIdx++)
+            {
+                String name = caps[capIdx].getName();
+                Capabilities capabilities = m_capabilities.get(name);
+                if (capabilities == null)
+                {
+                    capabilities = new Capabilities(KEY_ATTRIBUTES.get(name));
+                    m_capabilities.put(name, capabilities);
+                }
+                capabilities.add(new IndexedCapability(resource, caps[capIdx], ordinal++));
+            }
+        }
+    }
+
+    /**
+     * Returns the index of a repository, which is kept by the repository if it
+     * is a {@link RepositoryImpl}.
+     */
+    public static CapabilityIndex getIndex(Repository repository)
+    {
+        if (repository instanceof RepositoryImpl)
+        {
+            return ((RepositoryImpl) repository).getCapabilityIndex();
+        }
+        return new CapabilityIndex(repository.getResources());
+    }
+
+    /**
+     * Returns the value a requirement requires for the identifying attribute
+     * of its capability name, or <code>null</code> if there is none.
+     */
+    public static String getKey(Requirement requirement)
+    {
+        String attribute = KEY_ATTRIBUTES.get(requirement.getName());
+        return (attribute == null) ? null : getKey(attribute, requirement.getFilter());
+    }
+
+    /**
+     * Returns the value a filter requires for an attribute, if the filter or one
+     * of the operands of a top level conjunction is an equality test of the
+     * attribute with a plain value.
+     */
+    public static String getKey(String attribute, String filter)
+    {
+        if (filter == null)
+        {
+            return null;
+        }
+        if (!filter.startsWith("(&"))
+        {
+            return getValue(attribute, filter);
+        }
+        int depth = 0;
+        int start = 0;
+        for (int i = 2; i < filter.length() - 1; i++)
+        {
+            char c = filter.charAt(i);
+            if (c == '\\')
+            {
+                i++;
+            }
+            else if (c == '(')
+            {
+                if (depth++ == 0)
+                {
+                    start = i;
+                }
+            }
+            else if ((c == ')') && (--depth == 0))
+            {
+                String value = getValue(attribute, filter.substring(start, i + 1));
+                if (value != null)
+                {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String getValue(String attribute, String filter)
+    {
+        Matcher matcher = EQUALITY.matcher(filter);
+        if (matcher.matches() && matcher.group(1).equalsIgnoreCase(attribute))
+        {
+            return matcher.group(2);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the capabilities with the given name which may satisfy a
+     * requirement with the given key, in the order of the resources.
+     *
+     * @param name the name of the capabilities
+     * @param key the value of the identifying attribute as returned by
+     *        {@link #getKey(Requirement)}, <code>null</code> for all
+     *        capabilities with the name
+     */
+    public List<ResourceCapability> getCapabilities(String name, String key)
+    {
+        Capabilities capabilities = m_capabilities.get(name);
+        if (capabilities == null)
+        {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(capabilities.get(key));
+    }
+
+    /**
+     * Returns the resources with the given symbolic name, and those for which
+     * the symbolic name is not a string.
+     */
+    public synchronized Resource[] getResources(String symbolicName)
+    {
+        if (m_symbolicNames == null)
+        {
+            indexResources();
+        }
+        List<Resource> resources = m_symbolicNames.get(symbolicName);
+        List<Resource> result = new ArrayList<Resource>(m_unkeyedResources);
+        if (resources != null)
+        {
+            result.addAll(resources);
+        }
+        return result.toArray(new Resource[result.size()]);
+    }
+
+    /**
+     * Returns the resources which have capabilities satisfying all the given
+     * requirements, in the order of the resources.
+     */
+    public Resource[] getResources(Requirement[] requirements)
+    {
+        if ((requirements == null) || (requirements.length == 0))
+        {
+            return m_resources;
+        }
+
+        // Start with the requirement having the fewest candidates.
+        Requirement first = null;
+        List<ResourceCapability> candidates = null;
+        for (int reqIdx = 0; reqIdx < requirements.length; reqIdx++)
+        {
+            List<ResourceCapability> caps = getCapabilities(requirements[reqIdx].getName(), getKey(requirements[reqIdx]));
+            if ((candidates == null) || (caps.size() < candidates.size()))
+            {
+                first = requirements[reqIdx];
+                candidates = caps;
+            }
+        }
+
+        Set<Resource> matches = new LinkedHashSet<Resource>();
+        for (ResourceCapability candidate : candidates)
+        {
+            Resource resource = candidate.getResource();
+            if (!matches.contains(resource) && first.isSatisfied(candidate.getCapability())
+                && isSatisfied(resource, requirements, first))
+            {
+                matches.add(resource);
+            }
+        }
+        return matches.toArray(new Resource[matches.size()]);
+    }
+
+    private static boolean isSatisfied(Resource resource, Requirement[] requirements, Requirement satisfied)
+    {
+        Capability[] caps = resource.getCapabilities();
+        for (int reqIdx = 0; reqIdx < requirements.length; reqIdx++)
+        {
+            if (requirements[reqIdx] == satisfied)
+            {
+                continue;
+            }
+            boolean reqMatch = false;
+            for (int capIdx = 0; (caps != null) && (capIdx < caps.length); capIdx++)
+            {
+                if (requirements[reqIdx].isSatisfied(caps[capIdx]))
+                {
+                    reqMatch = true;
+                    break;
+                }
+            }
+            if (!reqMatch)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void indexResources()
+    {
+        m_symbolicNames = new HashMap<String, List<Resource>>();
+        m_unkeyedResources = new ArrayList<Resource>();
+        for (int resIdx = 0; resIdx < m_resources.length; resIdx++)
+        {
+            Resource resource = m_resources[resIdx];
+            Map properties = (resource == null) ? null : resource.getProperties();
+            if (properties == null)
+            {
+                continue;
+            }
+            // Filters match property names regardless of case
+            for (Iterator it = properties.entrySet().iterator(); it.hasNext();)
+            {
+                Map.Entry entry = (Map.Entry) it.next();
+                if (Resource.SYMBOLIC_NAME.equalsIgnoreCase(String.valueOf(entry.getKey())))
+                {
+                    if (entry.getValue() instanceof String)
+                    {
+                        add(m_symbolicNames, (String) entry.getValue(), resource);
+                    }
+                    else if (!m_unkeyedResources.contains(resource))
+                    {
+                        m_unkeyedResources.add(resource);
+                    }
+                }
+            }
+        }
+    }
+
+    private static <T> void add(Map<String, List<T>> map, String key, T value)
+    {
+        List<T> list = map.get(key);
+        if (list == null)
+        {
+            list = new ArrayList<T>(1);
+            map.put(key, list);
+        }
+        // A value can be listed more than once in a collection
+        if (list.isEmpty() || (list.get(list.size() - 1) != value))
+        {
+            list.add(value);
+        }
+    }
+
+    /**
+     * The capabilities with a given name.
+     */
+    private static class Capabilities
+    {
+        private final String m_keyAttribute;
+        private final List<ResourceCapability> m_all = new ArrayList<ResourceCapability>();
+        private final Map<String, List<ResourceCapability>> m_byKey = new HashMap<String, List<ResourceCapability>>();
+        // Capabilities with a key attribute which is not a string, they may satisfy any key
+        private final List<ResourceCapability> m_unkeyed = new ArrayList<ResourceCapability>();
+
+        Capabilities(String keyAttribute)
+        {
+            m_keyAttribute = keyAttribute;
+        }
+
+        void add(IndexedCapability capability)
+        {
+            m_all.add(capability);
+            if (m_keyAttribute == null)
+            {
+                return;
+            }
+            // Filters match attribute names regardless of case
+            Map<String, Object> properties = capability.getCapability().getPropertiesAsMap();
+            for (Map.Entry<String, Object> entry : properties.entrySet())
+            {
+                if (m_keyAttribute.equalsIgnoreCase(entry.getKey()))
+                {
+                    addKeys(capability, entry.getValue());
+                }
+            }
+        }
+
+        private void addKeys(IndexedCapability capability, Object value)
+        {
+            if (value == null)
+            {
+                return;
+            }
+            if (value instanceof String)
+            {
+                CapabilityIndex.add(m_byKey, (String) value, capability);
+            }
+            else if (value instanceof Collection)
+            {
+                for (Iterator it = ((Collection) value).iterator(); it.hasNext();)
+                {
+                    addKeys(capability, it.next());
+                }
+            }
+            else if (value.getClass().isArray())
+            {
+                for (int i = 0; i < Array.getLength(value); i++)
+                {
+                    addKeys(capability, Array.get(value, i));
+                }
+            }
+            else if (m_unkeyed.isEmpty() || (m_unkeyed.get(m_unkeyed.size() - 1) != capability))
+            {
+                m_unkeyed.add(capability);
+            }
+        }
+
+        List<ResourceCapability> get(String key)
+        {
+            if ((key == null) || (m_keyAttribute == null))
+            {
+                return m_all;
+            }
+            List<ResourceCapability> keyed = m_byKey.get(key);
+            if (keyed == null)
+            {
+                return m_unkeyed;
+            }
+            if (m_unkeyed.isEmpty())
+            {
+                return keyed;
+            }
+            return merge(keyed, m_unkeyed);
+        }
+
+        /**
+         * Merges two lists of capabilities keeping the order of the resources.
+         */
+        private static List<ResourceCapability> merge(List<ResourceCapability> l1, List<ResourceCapability> l2)
+        {
+            List<ResourceCapability> result = new ArrayList<ResourceCapability>(l1.size() + l2.size());
+            int i1 = 0;
+            int i2 = 0;
+            while ((i1 < l1.size()) || (i2 < l2.size()))
+            {
+                if (i2 >= l2.size())
+                {
+                    result.add(l1.get(i1++));
+                }
+                else if (i1 >= l1.size())
+                {
+                    result.add(l2.get(i2++));
+                }
+                else
+                {
+                    IndexedCapability c1 = (IndexedCapability) l1.get(i1);
+                    IndexedCapability c2 = (IndexedCapability) l2.get(i2);
+                    if (c1 == c2)
+                    {
+                        // Listed with a string key and a non string one
+                        result.add(c1);
+                        i1++;
+                        i2++;
+                    }
+                    else if (c1.m_ordinal < c2.m_ordinal)
+                    {
+                        result.add(c1);
+                        i1++;
+                    }
+                    else
+                    {
+                        result.add(c2);
+                        i2++;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    private static class IndexedCapability extends ResourceCapabilityImpl
+    {
+        private final int m_ordinal;
+
+        IndexedCapability(Resource resource, Capability capability, int ordinal)
+        {
+            super(resource, capability);
+            m_ordinal = ordinal;
+        }
+    }
+}
@@ -31,7 +31,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 
-import org.apache.felix.bundlerepository.Capability;
 import org.apache.felix.bundlerepository.DataModelHelper;
 import org.apache.felix.bundlerepository.Repository;
 import org.apache.felix.bundlerepository.RepositoryAdmin;
@@ -114,6 +113,8 @@ public class RepositoryAdminImpl implements RepositoryAdmin
                     return m_helper.repository(url);
                 }
             });
+            // Index the capabilities before the repository is used
+            repository.getCapabilityIndex();
             m_repoMap.put(url.toExternalForm(), repository);
 
             // resolve referrals
@@ -189,13 +190,17 @@ public class RepositoryAdminImpl implements RepositoryAdmin
         initialize();
 
         Filter filter = filterExpr != null ? m_helper.filter(filterExpr) : null;
+        // Only look at the resources with the symbolic name required by the filter, if any
+        String symbolicName = filter != null ? CapabilityIndex.getKey(Resource.SYMBOLIC_NAME, filter.toString()) : null;
         Resource[] resources;
         MapToDictionary dict = new MapToDictionary(null);
         Repository[] repos = listRepositories();
         List matchList = new ArrayList();
         for (int repoIdx = 0; (repos != null) && (repoIdx < repos.length); repoIdx++)
         {
-            resources = repos[repoIdx].getResources();
+            resources = symbolicName != null
+                ? CapabilityIndex.getIndex(repos[repoIdx]).getResources(symbolicName)
+                : repos[repoIdx].getResources();
             for (int resIdx = 0; (resources != null) && (resIdx < resources.length); resIdx++)
             {
                 dict.setSourceMap(resources[resIdx].getProperties());
@@ -221,33 +226,8 @@ public class RepositoryAdminImpl implements RepositoryAdmin
         List matchList = new ArrayList();
         for (int repoIdx = 0; (repos != null) && (repoIdx < repos.length); repoIdx++)
         {
-            resources = repos[repoIdx].getResources();
-            for (int resIdx = 0; (resources != null) && (resIdx < resources.length); resIdx++)
-            {
-                boolean match = true;
-                for (int reqIdx = 0; (requirements != null) && (reqIdx < requirements.length); reqIdx++)
-                {
-                    boolean reqMatch = false;
-                    Capability[] caps = resources[resIdx].getCapabilities();
-                    for (int capIdx = 0; (caps != null) && (capIdx < caps.length); capIdx++)
-                    {
-                        if (requirements[reqIdx].isSatisfied(caps[capIdx]))
-                        {
-                            reqMatch = true;
-                            break;
-                        }
-                    }
-                    match &= reqMatch;
-                    if (!match)
-                    {
-                        break;
-                    }
-                }
-                if (match)
-                {
-                    matchList.add(resources[resIdx]);
-                }
-            }
+            resources = CapabilityIndex.getIndex(repos[repoIdx]).getResources(requirements);
+            matchList.addAll(Arrays.asList(resources));
         }
 
         // Convert matching resources to an array an sort them by name.
@@ -35,6 +35,7 @@ public class RepositoryImpl implements Repository
     private Resource[] m_resources = null;
     private Referral[] m_referrals = null;
     private Set m_resourceSet = new HashSet();
+    private CapabilityIndex m_index = null;
 
     public RepositoryImpl()
     {
@@ -66,6 +67,20 @@ public class RepositoryImpl implements Repository
         return m_resources;
     }
 
+    /**
+     * Returns the index of the capabilities of the resources, which is built
+     * once the repository has been parsed and on the first use after a
+     * resource has been added.
+     */
+    public CapabilityIndex getCapabilityIndex()
+    {
+        if (m_index == null)
+        {
+            m_index = new CapabilityIndex(getResources());
+        }
+        return m_index;
+    }
+
     public void addResource(Resource resource)
     {
         // Set resource's repository.
@@ -78,6 +93,7 @@ public class RepositoryImpl implements Repository
         m_resourceSet.remove(resource);
         m_resourceSet.add(resource);
         m_resources = null;
+        m_index = null;
     }
 
     public Referral[] getReferrals()
@@ -106,10 +106,14 @@ public class RequirementImpl implements Requirement
 
     public boolean isSatisfied(Capability capability)
     {
+        if (!m_name.equals(capability.getName()))
+        {
+            return false;
+        }
+
         Dictionary propertyDict = new MapToDictionary(capability.getPropertiesAsMap());
 
-        return m_name.equals(capability.getName()) &&
-                m_filter.match(propertyDict) &&
+        return m_filter.match(propertyDict) &&
                 (m_filter.toString().contains("(mandatory:<*") || propertyDict.get("mandatory:") == null);
     }
 
@@ -43,6 +43,7 @@ public class ResolverImpl implements Resolver
     private final Set<Resource> m_optionalSet = new HashSet<Resource>();
     private final Map<Resource, List<Reason>> m_reasonMap = new HashMap<Resource, List<Reason>>();
     private final Set<Reason> m_unsatisfiedSet = new HashSet<Reason>();
+    private CapabilityIndex[] m_indexes = new CapabilityIndex[0];
     private boolean m_resolved = false;
     private long m_resolveTimeStamp;
     private int m_resolutionFlags;
@@ -136,22 +137,30 @@ public class ResolverImpl implements Resolver
         return resources.toArray(new LocalResource[resources.size()]);
     }
 
-    private Resource[] getRemoteResources()
+    private Resource[] getResources()
     {
         List<Resource> resources = new ArrayList<Resource>();
-        for (Resource resource : getResources())
+        for (Repository repository : getRepositories())
         {
-            if (resource != null && !resource.isLocal())
-            {
-                resources.add(resource);
-            }
+            Collections.addAll(resources, repository.getResources());
         }
         return resources.toArray(new Resource[resources.size()]);
     }
 
-    private Resource[] getResources()
+    private CapabilityIndex[] getCapabilityIndexes()
     {
-        List<Resource> resources = new ArrayList<Resource>();
+        List<Repository> repositories = getRepositories();
+        CapabilityIndex[] indexes = new CapabilityIndex[repositories.size()];
+        for (int i = 0; i < indexes.length; i++)
+        {
+            indexes[i] = CapabilityIndex.getIndex(repositories.get(i));
+        }
+        return indexes;
+    }
+
+    private List<Repository> getRepositories()
+    {
+        List<Repository> repositories = new ArrayList<Repository>();
         for (int repoIdx = 0; (m_repositories != null) && (repoIdx < m_repositories.length); repoIdx++)
         {
             boolean isLocal = m_repositories[repoIdx].getURI().equals(Repository.LOCAL);
@@ -162,9 +171,9 @@ public class ResolverImpl implements Resolver
             if (isSystem && (m_resolutionFlags & NO_SYSTEM_BUNDLE) != 0) {
                 continue;
             }
-            Collections.addAll(resources, m_repositories[repoIdx].getResources());
+            repositories.add(m_repositories[repoIdx]);
         }
-        return resources.toArray(new Resource[resources.size()]);
+        return repositories;
     }
 
     public synchronized boolean resolve()
@@ -176,7 +185,7 @@ public class ResolverImpl implements Resolver
     {
         // Find resources
         Resource[] locals = getLocalResources();
-        Resource[] remotes = getRemoteResources();
+        m_indexes = getCapabilityIndexes();
 
         // time of the resolution process start
         m_resolveTimeStamp = 0;
@@ -207,7 +216,7 @@ public class ResolverImpl implements Resolver
             for (Requirement req : m_addedRequirementSet) {
                 fake.addRequire(req);
             }
-            if (!resolve(fake, locals, remotes, false))
+            if (!resolve(fake, false))
             {
                 result = false;
             }
@@ -215,7 +224,7 @@ public class ResolverImpl implements Resolver
 
         // Loop through each resource in added list and resolve.
         for (Resource aM_addedSet : m_addedSet) {
-            if (!resolve(aM_addedSet, locals, remotes, false)) {
+            if (!resolve(aM_addedSet, false)) {
                 // If any resource does not resolve, then the
                 // entire result will be false.
                 result = false;
@@ -239,7 +248,7 @@ public class ResolverImpl implements Resolver
         return result;
     }
 
-    private boolean resolve(Resource resource, Resource[] locals, Resource[] remotes, boolean optional)
+    private boolean resolve(Resource resource, boolean optional)
     {
         boolean result = true;
 
@@ -279,8 +288,7 @@ public class ResolverImpl implements Resolver
                     candidate = searchResources(req, m_resolveSet);
                 }
                 if (candidate == null) {
-                    List<ResourceCapability> candidateCapabilities = searchResources(req, locals);
-                    candidateCapabilities.addAll(searchResources(req, remotes));
+                    List<ResourceCapability> candidateCapabilities = searchResources(req);
 
                     // Determine the best candidate available that
                     // can resolve.
@@ -288,7 +296,7 @@ public class ResolverImpl implements Resolver
                         ResourceCapability bestCapability = getBestCandidate(candidateCapabilities);
 
                         // Try to resolve the best resource.
-                        if (resolve(bestCapability.getResource(), locals, remotes, optional || req.isOptional())) {
+                        if (resolve(bestCapability.getResource(), optional || req.isOptional())) {
                             candidate = bestCapability.getResource();
                         } else {
                             candidateCapabilities.remove(bestCapability);
@@ -305,7 +313,7 @@ public class ResolverImpl implements Resolver
                 } else if (candidate != null) {
 
                     // Try to resolve the candidate.
-                    if (resolve(candidate, locals, remotes, optional || req.isOptional())) {
+                    if (resolve(candidate, optional || req.isOptional())) {
                         // The resolved succeeded; record the candidate
                         // as either optional or required.
                         if (optional || req.isOptional()) {
@@ -362,31 +370,33 @@ public class ResolverImpl implements Resolver
     }
 
     /**
-     * Searches for resources that do meet the given requirement
+     * Searches for resources that do meet the given requirement, local
+     * resources first, using the capability indexes of the repositories
      * @param req the the requirement that must be satisfied by resources
-     * @param resources list of resources to look at
      * @return all resources meeting the given requirement
      */
-    private List<ResourceCapability> searchResources(Requirement req, Resource[] resources)
+    private List<ResourceCapability> searchResources(Requirement req)
     {
         List<ResourceCapability> matchingCapabilities = new ArrayList<ResourceCapability>();
+        List<ResourceCapability> remoteCapabilities = new ArrayList<ResourceCapability>();
 
-        if (resources != null) {
-            for (Resource resource : resources) {
+        String key = CapabilityIndex.getKey(req);
+        for (CapabilityIndex index : m_indexes) {
+            for (ResourceCapability candidate : index.getCapabilities(req.getName(), key)) {
                 checkInterrupt();
+                Resource resource = candidate.getResource();
                 // We don't need to look at resources we've already looked at.
-                if (!m_failedSet.contains(resource)) {
-                    Capability[] caps = resource.getCapabilities();
-                    if (caps != null) {
-                        for (Capability cap : caps) {
-                            if (req.isSatisfied(cap))
-                                matchingCapabilities.add(new ResourceCapabilityImpl(resource, cap));
-                        }
+                if (!m_failedSet.contains(resource) && req.isSatisfied(candidate.getCapability())) {
+                    if (resource.isLocal()) {
+                        matchingCapabilities.add(candidate);
+                    } else {
+                        remoteCapabilities.add(candidate);
                     }
                 }
             }
         }
 
+        matchingCapabilities.addAll(remoteCapabilities);
         return matchingCapabilities;
     }
 
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.bundlerepository.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.felix.bundlerepository.Capability;
+import org.apache.felix.bundlerepository.Requirement;
+import org.apache.felix.bundlerepository.Resource;
+
+public class CapabilityIndexTest extends TestCase
+{
+    public void testGetKey()
+    {
+        assertEquals("org.foo", CapabilityIndex.getKey("package", "(package=org.foo)"));
+        assertEquals("org.foo", CapabilityIndex.getKey("package", "(&(version>=1.0.0)(package=org.foo))"));
+        assertEquals("org.foo", CapabilityIndex.getKey("package", "(&(Package=org.foo)(!(version>=2.0.0)))"));
+        assertNull(CapabilityIndex.getKey("package", "(package=org.*)"));
+        assertNull(CapabilityIndex.getKey("package", "(|(package=org.foo)(package=org.bar))"));
+        assertNull(CapabilityIndex.getKey("package", "(&(|(package=org.foo)(package=org.bar))(version>=1.0.0))"));
+        assertNull(CapabilityIndex.getKey("package", "(&(package~=org.foo)(version>=1.0.0))"));
+        assertNull(CapabilityIndex.getKey("package", "(!(package=org.foo))"));
+        assertNull(CapabilityIndex.getKey("package", "(symbolicname=org.foo)"));
+        assertNull(CapabilityIndex.getKey("package", null));
+
+        RequirementImpl req = new RequirementImpl(Capability.BUNDLE);
+        req.setFilter("(&(symbolicname=org.foo)(version>=1.0.0))");
+        assertEquals("org.foo", CapabilityIndex.getKey(req));
+
+        req = new RequirementImpl("ee");
+        req.setFilter("(ee=JavaSE-1.8)");
+        assertNull(CapabilityIndex.getKey(req));
+    }
+
+    public void testGetCapabilities()
+    {
+        ResourceImpl r1 = createResource("r1", new String[] { "org.foo", "org.bar" });
+        ResourceImpl r2 = createResource("r2", new String[] { "org.bar" });
+        ResourceImpl r3 = createResource("r3", new String[] { "org.baz" });
+        // A capability with several values is indexed by each of them
+        CapabilityImpl set = new CapabilityImpl(Capability.PACKAGE);
+        set.addProperty(Capability.PACKAGE, "set", "org.foo,org.bar");
+        r3.addCapability(set);
+        // A capability with a value which is not a string is a candidate for any key
+        ResourceImpl r4 = createResource("r4", new String[0]);
+        CapabilityImpl version = new CapabilityImpl(Capability.PACKAGE);
+        version.addProperty(Capability.PACKAGE, "version", "1.0.0");
+        r4.addCapability(version);
+        CapabilityIndex index = new CapabilityIndex(new Resource[] { r1, r2, r3, r4 });
+
+        assertEquals(Arrays.asList(new Resource[] { r1, r2, r3, r4 }),
+            getResources(index.getCapabilities(Capability.PACKAGE, "org.bar")));
+        assertEquals(Arrays.asList(new Resource[] { r1, r3, r4 }),
+            getResources(index.getCapabilities(Capability.PACKAGE, "org.foo")));
+        assertEquals(Arrays.asList(new Resource[] { r3, r4 }),
+            getResources(index.getCapabilities(Capability.PACKAGE, "org.baz")));
+        assertEquals(Arrays.asList(new Resource[] { r4 }),
+            getResources(index.getCapabilities(Capability.PACKAGE, "org.none")));
+        assertEquals(6, index.getCapabilities(Capability.PACKAGE, null).size());
+        assertEquals(0, index.getCapabilities(Capability.SERVICE, null).size());
+        assertEquals(Arrays.asList(new Resource[] { r2 }),
+            getResources(index.getCapabilities(Capability.BUNDLE, "r2")));
+
+        Requirement bar = createRequirement("org.bar");
+        Requirement foo = createRequirement("org.foo");
+        assertEquals(Arrays.asList(new Resource[] { r1, r2, r3 }),
+            Arrays.asList(index.getResources(new Requirement[] { bar })));
+        assertEquals(Arrays.asList(new Resource[] { r1, r3 }),
+            Arrays.asList(index.getResources(new Requirement[] { bar, foo })));
+        assertEquals(4, index.getResources(new Requirement[0]).length);
+
+        assertEquals(Arrays.asList(new Resource[] { r3 }), Arrays.asList(index.getResources("r3")));
+        assertEquals(0, index.getResources("r5").length);
+    }
+
+    private static ResourceImpl createResource(String symbolicName, String[] packages)
+    {
+        ResourceImpl resource = new ResourceImpl();
+        resource.put(Resource.SYMBOLIC_NAME, symbolicName);
+        resource.addCapability(new CapabilityImpl(Capability.BUNDLE,
+            new PropertyImpl[] { new PropertyImpl(Resource.SYMBOLIC_NAME, null, symbolicName) }));
+        for (int i = 0; i < packages.length; i++)
+        {
+            resource.addCapability(new CapabilityImpl(Capability.PACKAGE,
+                new PropertyImpl[] { new PropertyImpl(Capability.PACKAGE, null, packages[i]) }));
+        }
+        return resource;
+    }
+
+    private static Requirement createRequirement(String pkg)
+    {
+        RequirementImpl req = new RequirementImpl(Capability.PACKAGE);
+        req.setFilter("(package=" + pkg + ")");
+        return req;
+    }
+
+    private static List<Resource> getResources(List<ResourceCapability> capabilities)
+    {
+        Resource[] resources = new Resource[capabilities.size()];
+        for (int i = 0; i < resources.length; i++)
+        {
+            resources[i] = capabilities.get(i).getResource();
+        }
+        return Arrays.asList(resources);
+    }
+}
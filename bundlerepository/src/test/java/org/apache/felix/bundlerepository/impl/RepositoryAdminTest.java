@@ -25,6 +25,7 @@ import java.util.Hashtable;
 import junit.framework.TestCase;
 
 import org.apache.felix.bundlerepository.Repository;
+import org.apache.felix.bundlerepository.Requirement;
 import org.apache.felix.bundlerepository.Resource;
 import org.apache.felix.utils.filter.FilterImpl;
 import org.apache.felix.utils.log.Logger;
@@ -57,6 +58,35 @@ public class RepositoryAdminTest extends TestCase
         assertEquals(1, resources.length);
     }
     
+    public void testDiscoverResources() throws Exception
+    {
+        URL url = getClass().getResource("/repo_for_resolvertest.xml");
+
+        RepositoryAdminImpl repoAdmin = createRepositoryAdmin();
+        repoAdmin.addRepository(url);
+
+        Resource[] resources = repoAdmin.discoverResources("(symbolicname=com.springsource.org.apache.commons.dbcp)");
+        assertEquals(1, resources.length);
+        assertEquals("com.springsource.org.apache.commons.dbcp", resources[0].getSymbolicName());
+
+        resources = repoAdmin.discoverResources("(&(SymbolicName=com.springsource.org.apache.commons.dbcp)(version>=2.0.0))");
+        assertEquals(0, resources.length);
+
+        resources = repoAdmin.discoverResources("(symbolicname=com.springsource.*)");
+        assertEquals(2, resources.length);
+
+        DataModelHelperImpl helper = new DataModelHelperImpl();
+        Requirement dbcp = helper.requirement("package", "(&(package=org.apache.commons.dbcp)(version>=1.0.0))");
+        Requirement jocl = helper.requirement("package", "(package=org.apache.commons.jocl)");
+        Requirement pool = helper.requirement("package", "(package=org.apache.commons.pool)");
+        resources = repoAdmin.discoverResources(new Requirement[] { dbcp, jocl });
+        assertEquals(1, resources.length);
+        assertEquals("com.springsource.org.apache.commons.dbcp", resources[0].getSymbolicName());
+
+        resources = repoAdmin.discoverResources(new Requirement[] { dbcp, pool });
+        assertEquals(0, resources.length);
+    }
+
     public void testRemoveRepository() throws Exception {
         URL url = getClass().getResource("/repo_for_resolvertest.xml");
 
@@ -19,12 +19,12 @@
 package org.apache.felix.cm.file;
 
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.security.AccessControlContext;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
@@ -130,6 +130,13 @@ public class FilePersistenceManager implements PersistenceManager
      */
     private static final String TMP_EXT = ".tmp";
 
+    /**
+     * The extension of the journal file of the
+     * {@link JournalingFilePersistenceManager} (value is ".journal"). Files
+     * with this extension are never returned as configurations.
+     */
+    static final String JOURNAL_EXT = ".journal";
+
     private static final BitSet VALID_PATH_CHARS;
 
     /**
@@ -705,7 +712,30 @@ public class FilePersistenceManager implements PersistenceManager
     @SuppressWarnings("rawtypes")
     private void _store( final String pid, final Dictionary props ) throws IOException
     {
-        OutputStream out = null;
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        ConfigurationHandler.write( buf, props );
+        _store( pid, buf.toByteArray(), false );
+    }
+
+
+    /**
+     * Replaces the configuration file for the given identifier with the
+     * already serialized configuration <code>data</code>.
+     *
+     * @param pid The identifier of the configuration file to write.
+     * @param data The configuration data as written by the
+     *      {@link ConfigurationHandler}.
+     * @param sync Whether to force the data to the storage device before
+     *      the file is renamed.
+     *
+     * @throws IOException If an error occurrs writing the configuration data.
+     */
+    void _store( final String pid, final byte[] data, final boolean sync ) throws IOException
+    {
+        // this method is not part of the API of this class but is made
+        // package private for use by the JournalingFilePersistenceManager
+
+        FileOutputStream out = null;
         File tmpFile = null;
         try
         {
@@ -718,7 +748,11 @@ public class FilePersistenceManager implements PersistenceManager
             // write the configuration to a temporary file
             tmpFile = File.createTempFile( cfgFile.getName(), TMP_EXT, cfgDir );
             out = new FileOutputStream( tmpFile );
-            ConfigurationHandler.write( out, props );
+            out.write( data );
+            if ( sync )
+            {
+                out.getFD().sync();
+            }
             out.close();
 
             // after writing the file, rename it but ensure, that no other
@@ -879,7 +913,8 @@ public class FilePersistenceManager implements PersistenceManager
                 {
 
                     File cfgFile = fileList[idx++];
-                    if ( cfgFile.isFile() && !cfgFile.getName().endsWith( TMP_EXT ))
+                    if ( cfgFile.isFile() && !cfgFile.getName().endsWith( TMP_EXT )
+                        && !cfgFile.getName().endsWith( JOURNAL_EXT ) )
                     {
                         try
                         {
@@ -0,0 +1,701 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.file;
+
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.apache.felix.cm.PersistenceManager;
+import org.apache.felix.cm.impl.Log;
+import org.osgi.framework.Constants;
+import org.osgi.service.log.LogService;
+
+
+/**
+ * The <code>JournalingFilePersistenceManager</code> is a persistence manager
+ * which keeps the configuration files of a {@link FilePersistenceManager} but
+ * does not write them on each change. Instead stores and deletes are appended
+ * to a journal file in the configuration directory and are only applied to
+ * the configuration files when the journal is compacted.
+ * <p>
+ * <b>Group Commit</b>
+ * <p>
+ * A change is durable once it has been forced to the journal. Changes from
+ * concurrent callers are collected while the journal is being forced and are
+ * then written and forced together by one of the waiting callers. Thus bulk
+ * updates from many threads need much less disk synchronization than with
+ * the {@link FilePersistenceManager}, which creates and renames a file per
+ * change.
+ * <p>
+ * <b>Compaction</b>
+ * <p>
+ * Changes in the journal are kept in memory until the journal is compacted.
+ * The journal is compacted when it exceeds the compaction threshold and when
+ * this persistence manager is {@link #close() closed}: the latest change of
+ * each configuration is written to its configuration file and the journal is
+ * truncated. The configuration files and the directories containing them are
+ * forced to disk before the journal is truncated, where the platform supports
+ * forcing directories.
+ * <p>
+ * <b>Recovery</b>
+ * <p>
+ * When an instance is created for a directory containing a journal, for
+ * example after a crash, the journal is read and compacted. Each journal
+ * record is protected by a checksum, reading stops at the first incomplete
+ * or corrupt record, which may be left by a crash while writing.
+ */
+public class JournalingFilePersistenceManager implements PersistenceManager
+{
+
+    /**
+     * The default size of the journal in bytes, after which the journal
+     * is compacted (value is 1MB).
+     */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024;
+
+    /**
+     * The name of the journal file in the configuration directory.
+     */
+    static final String JOURNAL_FILE = "configuration" + FilePersistenceManager.JOURNAL_EXT;
+
+    private static final byte OP_STORE = 1;
+
+    private static final byte OP_DELETE = 2;
+
+    /**
+     * The marker for a deleted configuration in the {@link #pending} map.
+     */
+    private static final byte[] DELETED = new byte[0];
+
+    /** The persistence manager of the configuration files. */
+    private final FilePersistenceManager files;
+
+    /** The size of the journal after which it is compacted. */
+    private final long compactionThreshold;
+
+    /** The journal file. */
+    private final RandomAccessFile journal;
+
+    /** The channel of the journal file. */
+    private final FileChannel channel;
+
+    /**
+     * The serialized configurations which are in the journal but not yet in
+     * the configuration files, guarded by this. Deleted configurations are
+     * marked with {@link #DELETED}.
+     */
+    private final Map<String, byte[]> pending = new HashMap<>();
+
+    /** The lock for the group commit. */
+    private final Object commitLock = new Object();
+
+    /** The records waiting to be written, guarded by the commit lock. */
+    private List<Record> queue = new ArrayList<>();
+
+    /** Whether a caller is writing records, guarded by the commit lock. */
+    private boolean committing;
+
+    /** Whether this instance has been closed, guarded by the commit lock. */
+    private boolean closed;
+
+    /**
+     * Whether the last compaction failed, only accessed by the caller
+     * writing records.
+     */
+    private boolean compactionFailed;
+
+
+    /**
+     * Creates an instance journaling the changes to the configuration files
+     * of the given persistence manager, using the
+     * {@link #DEFAULT_COMPACTION_THRESHOLD}.
+     *
+     * @param files The persistence manager of the configuration files
+     *
+     * @throws IOException If the journal cannot be opened or recovered
+     */
+    public JournalingFilePersistenceManager( final FilePersistenceManager files ) throws IOException
+    {
+        this( files, DEFAULT_COMPACTION_THRESHOLD );
+    }
+
+
+    /**
+     * Creates an instance journaling the changes to the configuration files
+     * of the given persistence manager. Any existing journal in the
+     * configuration directory is recovered.
+     *
+     * @param files The persistence manager of the configuration files
+     * @param compactionThreshold The size of the journal in bytes after
+     *      which the journal is compacted.
+     *
+     * @throws IOException If the journal cannot be opened or recovered
+     */
+    public JournalingFilePersistenceManager( final FilePersistenceManager files, final long compactionThreshold )
+        throws IOException
+    {
+        this.files = files;
+        this.compactionThreshold = compactionThreshold;
+
+        final File journalFile = getJournalFile();
+        if ( journalFile.isFile() )
+        {
+            recover( journalFile );
+        }
+        this.journal = new RandomAccessFile( journalFile, "rw" );
+        this.channel = journal.getChannel();
+        try
+        {
+            compact();
+        }
+        catch ( IOException ioe )
+        {
+            journal.close();
+            throw ioe;
+        }
+    }
+
+
+    /**
+     * Returns the journal file inside the configuration directory.
+     */
+    public File getJournalFile()
+    {
+        return new File( files.getLocation(), JOURNAL_FILE );
+    }
+
+
+    /**
+     * Compacts the journal and closes it. Afterwards changes to the
+     * configurations fail with an <code>IOException</code>.
+     *
+     * @throws IOException If the journal cannot be compacted. The journal
+     *      is recovered when a new instance is created.
+     */
+    public void close() throws IOException
+    {
+        synchronized ( commitLock )
+        {
+            if ( closed )
+            {
+                return;
+            }
+            closed = true;
+            boolean interrupted = false;
+            while ( committing )
+            {
+                try
+                {
+                    commitLock.wait();
+                }
+                catch ( InterruptedException ie )
+                {
+                    interrupted = true;
+                }
+            }
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        try
+        {
+            compact();
+        }
+        finally
+        {
+            journal.close();
+        }
+    }
+
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Enumeration getDictionaries() throws IOException
+    {
+        final Map<String, byte[]> changes;
+        synchronized ( this )
+        {
+            changes = new HashMap<>( pending );
+        }
+        if ( changes.isEmpty() )
+        {
+            return files.getDictionaries();
+        }
+
+        final List<Dictionary> result = new ArrayList<>();
+        final Enumeration fileDictionaries = files.getDictionaries();
+        while ( fileDictionaries.hasMoreElements() )
+        {
+            final Dictionary dict = ( Dictionary ) fileDictionaries.nextElement();
+            final Object pid = dict.get( Constants.SERVICE_PID );
+            if ( !( pid instanceof String ) || !changes.containsKey( pid ) )
+            {
+                result.add( dict );
+            }
+        }
+        for ( final byte[] data : changes.values() )
+        {
+            if ( data != DELETED )
+            {
+                result.add( read( data ) );
+            }
+        }
+        return Collections.enumeration( result );
+    }
+
+
+    @Override
+    public boolean exists( final String pid )
+    {
+        final byte[] data = getPending( pid );
+        if ( data != null )
+        {
+            return data != DELETED;
+        }
+        return files.exists( pid );
+    }
+
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Dictionary load( final String pid ) throws IOException
+    {
+        final byte[] data = getPending( pid );
+        if ( data == DELETED )
+        {
+            throw new FileNotFoundException( files.getFile( pid ).getPath() );
+        }
+        else if ( data != null )
+        {
+            return read( data );
+        }
+        return files.load( pid );
+    }
+
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void store( final String pid, final Dictionary properties ) throws IOException
+    {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        ConfigurationHandler.write( buf, properties );
+        commit( new Record( OP_STORE, pid, buf.toByteArray() ) );
+    }
+
+
+    @Override
+    public void delete( final String pid ) throws IOException
+    {
+        commit( new Record( OP_DELETE, pid, DELETED ) );
+    }
+
+
+    private synchronized byte[] getPending( final String pid )
+    {
+        return pending.get( pid );
+    }
+
+
+    @SuppressWarnings("rawtypes")
+    private static Dictionary read( final byte[] data ) throws IOException
+    {
+        return ConfigurationHandler.read( new ByteArrayInputStream( data ) );
+    }
+
+
+    /**
+     * Appends the record to the journal and returns once it is durable.
+     * The first caller finding no commit in progress becomes the writer and
+     * writes all queued records at once. The other callers wait until their
+     * record has been written by some writer.
+     */
+    private void commit( final Record record ) throws IOException
+    {
+        List<Record> batch = null;
+        boolean interrupted = false;
+        synchronized ( commitLock )
+        {
+            if ( closed )
+            {
+                throw new IOException( "Persistence manager for " + files.getLocation() + " has been closed" );
+            }
+            queue.add( record );
+            while ( !record.done )
+            {
+                if ( !committing )
+                {
+                    committing = true;
+                    batch = queue;
+                    queue = new ArrayList<>();
+                    break;
+                }
+                try
+                {
+                    commitLock.wait();
+                }
+                catch ( InterruptedException ie )
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        if ( batch != null )
+        {
+            IOException failure = null;
+            try
+            {
+                write( batch );
+                if ( channel.size() >= compactionThreshold )
+                {
+                    compactAfterCommit();
+                }
+            }
+            catch ( IOException ioe )
+            {
+                failure = ioe;
+            }
+            finally
+            {
+                synchronized ( commitLock )
+                {
+                    for ( final Record r : batch )
+                    {
+                        r.failure = failure;
+                        r.done = true;
+                    }
+                    committing = false;
+                    commitLock.notifyAll();
+                }
+            }
+        }
+
+        if ( record.failure != null )
+        {
+            throw new IOException( "Cannot persist configuration " + record.pid + ": " + record.failure.getMessage(),
+                record.failure );
+        }
+    }
+
+
+    private void compactAfterCommit()
+    {
+        try
+        {
+            compact();
+            compactionFailed = false;
+        }
+        catch ( IOException ioe )
+        {
+            // the changes are safe in the journal and compaction is tried
+            // again with the next commit, so only warn about the first failure
+            Log.logger.log( compactionFailed ? LogService.LOG_DEBUG : LogService.LOG_WARNING,
+                "Cannot compact the configuration journal " + getJournalFile() + ", retrying with the next change",
+                ioe );
+            compactionFailed = true;
+        }
+    }
+
+
+    /**
+     * Appends the records to the journal and forces them to disk. If
+     * writing fails, the journal is truncated to its previous size such
+     * that later records are not hidden by an incomplete record.
+     */
+    private void write( final List<Record> batch ) throws IOException
+    {
+        int size = 0;
+        for ( final Record r : batch )
+        {
+            size += r.entry.length;
+        }
+        final ByteBuffer buf = ByteBuffer.allocate( size );
+        for ( final Record r : batch )
+        {
+            buf.put( r.entry );
+        }
+        buf.flip();
+
+        final long start = channel.size();
+        try
+        {
+            long position = start;
+            while ( buf.hasRemaining() )
+            {
+                position += channel.write( buf, position );
+            }
+            channel.force( false );
+        }
+        catch ( IOException ioe )
+        {
+            try
+            {
+                channel.truncate( start );
+            }
+            catch ( IOException ignore )
+            {
+                // the incomplete record is dropped by the recovery
+            }
+            throw ioe;
+        }
+
+        synchronized ( this )
+        {
+            for ( final Record r : batch )
+            {
+                pending.put( r.pid, r.data );
+            }
+        }
+    }
+
+
+    /**
+     * Writes the pending changes to the configuration files and truncates
+     * the journal. This must only be called while no records are written.
+     */
+    private void compact() throws IOException
+    {
+        if ( System.getSecurityManager() != null )
+        {
+            try
+            {
+                AccessController.doPrivileged( new PrivilegedExceptionAction<Object>()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        _compact();
+                        return null;
+                    }
+                } );
+            }
+            catch ( PrivilegedActionException pae )
+            {
+                throw ( IOException ) pae.getException();
+            }
+        }
+        else
+        {
+            _compact();
+        }
+    }
+
+
+    private void _compact() throws IOException
+    {
+        final Map<String, byte[]> changes;
+        synchronized ( this )
+        {
+            changes = new HashMap<>( pending );
+        }
+
+        final Set<File> directories = new HashSet<>();
+        for ( final Map.Entry<String, byte[]> entry : changes.entrySet() )
+        {
+            final String pid = entry.getKey();
+            if ( entry.getValue() == DELETED )
+            {
+                files.delete( pid );
+                if ( files.exists( pid ) )
+                {
+                    throw new IOException( "Cannot remove configuration file '" + files.getFile( pid ) + "'" );
+                }
+            }
+            else
+            {
+                files._store( pid, entry.getValue(), true );
+            }
+            directories.add( files.getFile( pid ).getParentFile() );
+        }
+
+        // the renames and deletes must be durable before the journal
+        // records describing them are dropped
+        for ( final File directory : directories )
+        {
+            sync( directory );
+        }
+
+        synchronized ( this )
+        {
+            channel.truncate( 0 );
+            channel.force( true );
+            pending.clear();
+        }
+    }
+
+
+    /**
+     * Forces the entries of the directory to disk. Not all platforms
+     * support this: on Windows, for example, a directory cannot be opened
+     * as a file. There, syncing is skipped and renames and deletes are only
+     * as durable as the file system makes them.
+     */
+    private static void sync( final File directory )
+    {
+        if ( !directory.isDirectory() )
+        {
+            return;
+        }
+        try ( FileChannel dirChannel = FileChannel.open( directory.toPath(), StandardOpenOption.READ ) )
+        {
+            dirChannel.force( true );
+        }
+        catch ( IOException ioe )
+        {
+            Log.logger.log( LogService.LOG_DEBUG, "Cannot sync configuration directory " + directory, ioe );
+        }
+    }
+
+
+    /**
+     * Reads the records of the journal into the pending changes. Reading
+     * stops at the end of the file or at the first incomplete or corrupt
+     * record.
+     */
+    private void recover( final File journalFile ) throws IOException
+    {
+        final long length = journalFile.length();
+        final DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( journalFile ) ) );
+        try
+        {
+            final CRC32 crc = new CRC32();
+            long position = 0;
+            while ( position + 8 <= length )
+            {
+                final int size = in.readInt();
+                final int checksum = in.readInt();
+                if ( size <= 0 || position + 8 + size > length )
+                {
+                    break;
+                }
+                final byte[] payload = new byte[size];
+                in.readFully( payload );
+                crc.reset();
+                crc.update( payload, 0, size );
+                if ( ( int ) crc.getValue() != checksum )
+                {
+                    break;
+                }
+                position += 8 + size;
+
+                final ByteArrayInputStream bytes = new ByteArrayInputStream( payload );
+                final DataInputStream record = new DataInputStream( bytes );
+                final byte op = record.readByte();
+                final String pid = record.readUTF();
+                if ( op == OP_DELETE )
+                {
+                    pending.put( pid, DELETED );
+                }
+                else
+                {
+                    final byte[] data = new byte[bytes.available()];
+                    record.readFully( data );
+                    pending.put( pid, data );
+                }
+            }
+        }
+        catch ( EOFException eof )
+        {
+            // incomplete last record
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+
+    /**
+     * A change to be written to the journal.
+     */
+    private static final class Record
+    {
+        final String pid;
+
+        /** The serialized configuration or {@link JournalingFilePersistenceManager#DELETED} */
+        final byte[] data;
+
+        /** The journal entry: size, checksum, operation, PID and data */
+        final byte[] entry;
+
+        /** Whether the record has been written, guarded by the commit lock */
+        boolean done;
+
+        /** The failure writing the record, guarded by the commit lock */
+        IOException failure;
+
+
+        Record( final byte op, final String pid, final byte[] data ) throws IOException
+        {
+            this.pid = pid;
+            this.data = data;
+
+            final ByteArrayOutputStream payload = new ByteArrayOutputStream( data.length + pid.length() + 16 );
+            final DataOutputStream out = new DataOutputStream( payload );
+            out.writeByte( op );
+            out.writeUTF( pid );
+            out.write( data );
+            out.flush();
+            final byte[] bytes = payload.toByteArray();
+
+            final CRC32 crc = new CRC32();
+            crc.update( bytes, 0, bytes.length );
+
+            final ByteArrayOutputStream entryBuf = new ByteArrayOutputStream( bytes.length + 8 );
+            final DataOutputStream entryOut = new DataOutputStream( entryBuf );
+            entryOut.writeInt( bytes.length );
+            entryOut.writeInt( ( int ) crc.getValue() );
+            entryOut.write( bytes );
+            entryOut.flush();
+            this.entry = entryBuf.toByteArray();
+        }
+    }
+}
@@ -18,6 +18,7 @@
  */
 package org.apache.felix.cm.impl;
 
+import java.io.IOException;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.Dictionary;
@@ -25,6 +26,7 @@ import java.util.Hashtable;
 
 import org.apache.felix.cm.PersistenceManager;
 import org.apache.felix.cm.file.FilePersistenceManager;
+import org.apache.felix.cm.file.JournalingFilePersistenceManager;
 import org.apache.felix.cm.impl.persistence.PersistenceManagerTracker;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleActivator;
@@ -50,6 +52,10 @@ import org.osgi.service.log.LogService;
  * this property is not set the <code>config</code> directory in the current
  * working directory as specified in the <code>user.dir</code> system property
  * is used.
+ * <p>
+ * If the <code>felix.cm.journal</code> framework property is set to
+ * <code>true</code>, changes to the configuration files are journaled by a
+ * {@link JournalingFilePersistenceManager}.
  */
 public class Activator implements BundleActivator
 {
@@ -73,11 +79,22 @@ public class Activator implements BundleActivator
      */
     private static final String CM_CONFIG_PM = "felix.cm.pm";
 
+    /**
+     * The name of the framework context property enabling the journal for
+     * the configuration files (value is "felix.cm.journal").
+     *
+     * @see JournalingFilePersistenceManager
+     */
+    private static final String CM_CONFIG_JOURNAL = "felix.cm.journal";
+
     private volatile PersistenceManagerTracker tracker;
 
     // the service registration of the default file persistence manager
     private volatile ServiceRegistration<PersistenceManager> filepmRegistration;
 
+    // the journal of the default file persistence manager if enabled
+    private volatile JournalingFilePersistenceManager journalingPM;
+
     @Override
     public void start( final BundleContext bundleContext ) throws BundleException
     {
@@ -131,14 +148,27 @@ public class Activator implements BundleActivator
         {
             final FilePersistenceManager fpm = new FilePersistenceManager( bundleContext,
                     bundleContext.getProperty( CM_CONFIG_DIR ) );
+            PersistenceManager pm = fpm;
+            if ( Boolean.valueOf( bundleContext.getProperty( CM_CONFIG_JOURNAL ) ) )
+            {
+                try
+                {
+                    this.journalingPM = new JournalingFilePersistenceManager( fpm );
+                    pm = this.journalingPM;
+                }
+                catch ( final IOException ioe )
+                {
+                    Log.logger.log( LogService.LOG_ERROR, "Cannot open the configuration journal, using the FilePersistenceManager without journal", ioe );
+                }
+            }
             final Dictionary<String, Object> props = new Hashtable<>();
             props.put( Constants.SERVICE_DESCRIPTION, "Platform Filesystem Persistence Manager" );
             props.put( Constants.SERVICE_VENDOR, "The Apache Software Foundation" );
             props.put( Constants.SERVICE_RANKING, new Integer( Integer.MIN_VALUE ) );
             props.put( PersistenceManager.PROPERTY_NAME, FilePersistenceManager.DEFAULT_PERSISTENCE_MANAGER_NAME);
-            filepmRegistration = bundleContext.registerService( PersistenceManager.class, fpm, props );
+            filepmRegistration = bundleContext.registerService( PersistenceManager.class, pm, props );
 
-            return fpm;
+            return pm;
 
         }
         catch ( final IllegalArgumentException iae )
@@ -155,6 +185,18 @@ public class Activator implements BundleActivator
             this.filepmRegistration.unregister();
             this.filepmRegistration = null;
         }
+        if ( this.journalingPM != null )
+        {
+            try
+            {
+                this.journalingPM.close();
+            }
+            catch ( final IOException ioe )
+            {
+                Log.logger.log( LogService.LOG_ERROR, "Cannot compact the configuration journal", ioe );
+            }
+            this.journalingPM = null;
+        }
     }
 
     public static String getLocation(final Bundle bundle)
@@ -544,7 +544,8 @@ public class ConfigurationManager implements BundleListener
             {
                 cfg = getCachedConfiguration( pid );
                 if (cfg == null) {
-                    cfg = new ConfigurationImpl(this, this.persistenceManager, config);
+                    // the caching persistence manager returns read-only dictionaries
+                    cfg = new ConfigurationImpl(this, this.persistenceManager, new CaseInsensitiveDictionary(config));
                     // add the to configurations cache if it wasn't in the cache
                     cacheConfiguration(cfg);
                 }
@@ -30,6 +30,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -46,6 +47,13 @@ import org.osgi.service.cm.ConfigurationAdmin;
  * underlying actual {@link PersistenceManager} implementation. All API calls
  * are also (or primarily) routed through a local cache of dictionaries indexed
  * by the <code>service.pid</code>.
+ * <p>
+ * The cached dictionaries are never modified, an update replaces the cached
+ * dictionary. This allows to hand out read-only views of the cached
+ * dictionaries from {@link #getDictionaries(SimpleFilter)}. For equality
+ * filters on the <code>service.pid</code>, the <code>service.factoryPid</code>
+ * and additionally configured properties, the matching dictionaries are looked
+ * up in an index instead of testing all cached dictionaries.
  */
 public class CachingPersistenceManagerProxy implements ExtPersistenceManager
 {
@@ -66,16 +74,44 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
      */
     private volatile boolean fullyLoaded;
 
-    /** Factory configuration cache. */
-    private final Map<String, Set<String>> factoryConfigCache = new HashMap<>();
+    /** The property indexes by property name. */
+    private final Map<String, PropertyIndex> indexes = new TreeMap<>( CaseInsensitiveDictionary.CASE_INSENSITIVE_ORDER );
+
+    /** Factory configuration index. */
+    private final PropertyIndex factoryConfigIndex;
 
     /**
      * Creates a new caching layer for the given actual {@link PersistenceManager}.
      * @param pm The actual {@link PersistenceManager}
      */
     public CachingPersistenceManagerProxy( final PersistenceManager pm )
+    {
+        this( pm, null );
+    }
+
+    /**
+     * Creates a new caching layer for the given actual {@link PersistenceManager}
+     * which indexes the given properties in addition to the <code>service.pid</code>
+     * and the <code>service.factoryPid</code>.
+     * @param pm The actual {@link PersistenceManager}
+     * @param indexedProperties Additional property names to index, may be <code>null</code>
+     */
+    public CachingPersistenceManagerProxy( final PersistenceManager pm, final Collection<String> indexedProperties )
     {
         this.pm = pm;
+        this.indexes.put( Constants.SERVICE_PID, new PropertyIndex( Constants.SERVICE_PID ) );
+        this.factoryConfigIndex = new PropertyIndex( ConfigurationAdmin.SERVICE_FACTORYPID );
+        this.indexes.put( ConfigurationAdmin.SERVICE_FACTORYPID, this.factoryConfigIndex );
+        if ( indexedProperties != null )
+        {
+            for ( final String name : indexedProperties )
+            {
+                if ( !this.indexes.containsKey( name ) )
+                {
+                    this.indexes.put( name, new PropertyIndex( name ) );
+                }
+            }
+        }
     }
 
     @Override
@@ -96,23 +132,7 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
         try
         {
             lock.lock();
-            final Dictionary props = cache.remove( pid );
-            if ( props != null )
-            {
-                final String factoryPid = (String)props.get(ConfigurationAdmin.SERVICE_FACTORYPID);
-                if ( factoryPid != null )
-                {
-                    final Set<String> factoryPids = this.factoryConfigCache.get(factoryPid);
-                    if ( factoryPids != null )
-                    {
-                        factoryPids.remove(pid);
-                        if ( factoryPids.isEmpty() )
-                        {
-                            this.factoryConfigCache.remove(factoryPid);
-                        }
-                    }
-                }
-            }
+            this.uncache( pid );
             pm.delete(pid);
         }
         finally
@@ -156,7 +176,13 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
     @Override
     public Enumeration getDictionaries() throws IOException
     {
-        return Collections.enumeration(getDictionaries( null ));
+        // Deep copy the configuration to avoid any threading issue
+        final List<Dictionary> configs = new ArrayList<>();
+        for (final Dictionary d : getDictionaries( null ))
+        {
+            configs.add( new CaseInsensitiveDictionary( d ) );
+        }
+        return Collections.enumeration( configs );
     }
 
     private final CaseInsensitiveDictionary cache(final Dictionary props)
@@ -170,22 +196,80 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
             {
                 dict = new CaseInsensitiveDictionary(props);
                 cache.put( pid, dict );
-                final String factoryPid = (String)props.get(ConfigurationAdmin.SERVICE_FACTORYPID);
-                if ( factoryPid != null )
+                for ( final PropertyIndex index : this.indexes.values() )
                 {
-                    Set<String> factoryPids = this.factoryConfigCache.get(factoryPid);
-                    if ( factoryPids == null )
-                    {
-                        factoryPids = new HashSet<>();
-                        this.factoryConfigCache.put(factoryPid, factoryPids);
-                    }
-                    factoryPids.add(pid);
+                    index.add( pid, dict );
                 }
             }
         }
         return dict;
     }
 
+    private final void uncache(final String pid)
+    {
+        final Dictionary props = cache.remove( pid );
+        if ( props != null )
+        {
+            for ( final PropertyIndex index : this.indexes.values() )
+            {
+                index.remove( pid, props );
+            }
+        }
+    }
+
+    /**
+     * Returns the PIDs of the cached dictionaries which may match the filter
+     * according to the property indexes or <code>null</code> if the filter
+     * can't be answered from the indexes.
+     */
+    private Collection<String> getCandidates( final SimpleFilter filter )
+    {
+        switch ( filter.getOperation() )
+        {
+            case SimpleFilter.EQ:
+                final PropertyIndex index = this.indexes.get( filter.getName() );
+                if ( index != null && filter.getValue() instanceof String )
+                {
+                    return index.getCandidates( ( String ) filter.getValue() );
+                }
+                return null;
+
+            case SimpleFilter.AND:
+                // all dictionaries matching the filter are in each indexed operand
+                Collection<String> smallest = null;
+                for ( final Object operand : ( List ) filter.getValue() )
+                {
+                    final Collection<String> candidates = getCandidates( ( SimpleFilter ) operand );
+                    if ( candidates != null && ( smallest == null || candidates.size() < smallest.size() ) )
+                    {
+                        smallest = candidates;
+                    }
+                }
+                return smallest;
+
+            case SimpleFilter.OR:
+                final Set<String> union = new HashSet<>();
+                for ( final Object operand : ( List ) filter.getValue() )
+                {
+                    final Collection<String> candidates = getCandidates( ( SimpleFilter ) operand );
+                    if ( candidates == null )
+                    {
+                        return null;
+                    }
+                    union.addAll( candidates );
+                }
+                return union;
+
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the cached dictionaries matching the filter. The returned
+     * dictionaries are read-only views of the cached dictionaries, callers
+     * must copy a dictionary before modifying it.
+     */
     @Override
     public Collection<Dictionary> getDictionaries( final SimpleFilter filter ) throws IOException
     {
@@ -212,13 +296,22 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
                 }
             }
 
-            // Deep copy the configuration to avoid any threading issue
+            // The cached dictionaries are never modified, so read-only
+            // views can be handed out instead of copies
+            final Collection<String> candidates = filter == null ? null : getCandidates( filter );
             final List<Dictionary> configs = new ArrayList<>();
-            for (final Dictionary d : cache.values())
+            if ( candidates == null )
+            {
+                for (final CaseInsensitiveDictionary d : cache.values())
+                {
+                    addIfMatching( configs, d, filter );
+                }
+            }
+            else
             {
-                if ( d.get( Constants.SERVICE_PID ) != null && ( filter == null || filter.matches( d ) ) )
+                for (final String pid : candidates)
                 {
-                    configs.add( new CaseInsensitiveDictionary( d ) );
+                    addIfMatching( configs, cache.get( pid ), filter );
                 }
             }
             return configs;
@@ -230,6 +323,15 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
     }
 
 
+    private static void addIfMatching( final List<Dictionary> configs, final CaseInsensitiveDictionary d, final SimpleFilter filter )
+    {
+        if ( d != null && d.get( Constants.SERVICE_PID ) != null && ( filter == null || filter.matches( d ) ) )
+        {
+            configs.add( CaseInsensitiveDictionary.unmodifiable( d ) );
+        }
+    }
+
+
     /**
      * Returns the dictionary for the given PID or <code>null</code> if no
      * such dictionary is stored by the underlying persistence manager. This
@@ -289,7 +391,7 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
         {
             lock.lock();
             pm.store( pid, properties );
-            this.cache.remove(pid);
+            this.uncache(pid);
             this.cache(properties);
         }
         finally
@@ -328,11 +430,7 @@ public class CachingPersistenceManagerProxy implements ExtPersistenceManager
             }
             for(final String targetFactoryPid : targetedFactoryPids)
             {
-                final Set<String> cachedPids = this.factoryConfigCache.get(targetFactoryPid);
-                if ( cachedPids != null )
-                {
-                    pids.addAll(cachedPids);
-                }
+                pids.addAll(this.factoryConfigIndex.get(targetFactoryPid));
             }
         }
         finally
@@ -49,6 +49,14 @@ import org.osgi.util.tracker.ServiceTrackerCustomizer;
 public class PersistenceManagerTracker
     implements ServiceTrackerCustomizer<PersistenceManager, PersistenceManagerTracker.Holder>
 {
+    /**
+     * The name of the framework context property listing the configuration
+     * properties to index in addition to <code>service.pid</code> and
+     * <code>service.factoryPid</code> (value is "felix.cm.index"). The value
+     * is a comma separated list of property names.
+     */
+    private static final String CM_CONFIG_INDEX = "felix.cm.index";
+
     /** Tracker for the persistence manager. */
     private final ServiceTracker<PersistenceManager, Holder> persistenceManagerTracker;
 
@@ -144,11 +152,28 @@ public class PersistenceManagerTracker
         }
         else
         {
-            extPM = new CachingPersistenceManagerProxy( pm );
+            extPM = new CachingPersistenceManagerProxy( pm, getIndexedProperties() );
         }
         return extPM;
     }
 
+    private List<String> getIndexedProperties()
+    {
+        final List<String> names = new ArrayList<>();
+        final String value = this.bundleContext.getProperty( CM_CONFIG_INDEX );
+        if ( value != null )
+        {
+            for ( final String name : value.split( "," ) )
+            {
+                if ( !name.trim().isEmpty() )
+                {
+                    names.add( name.trim() );
+                }
+            }
+        }
+        return names;
+    }
+
     @Override
     public Holder addingService(final ServiceReference<PersistenceManager> reference)
     {
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.impl.persistence;
+
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * The <code>PropertyIndex</code> is an equality index on one property of the
+ * cached configurations. It maps each string value of the property to the
+ * PIDs of the configurations having this value. Configurations with other
+ * values for the property, for example numbers, can't be looked up by value
+ * and are always returned as candidates.
+ * <p>
+ * This class is not thread safe, it is guarded by the lock of the
+ * {@link CachingPersistenceManagerProxy}.
+ */
+class PropertyIndex
+{
+
+    /** The name of the indexed property */
+    private final String name;
+
+    /** The PIDs by string value */
+    private final Map<String, Set<String>> pidsByValue = new HashMap<>();
+
+    /** The PIDs with a value which is not indexed */
+    private final Set<String> unindexedPids = new HashSet<>();
+
+
+    PropertyIndex( final String name )
+    {
+        this.name = name;
+    }
+
+
+    String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     * Adds the configuration to the index.
+     */
+    void add( final String pid, final Dictionary props )
+    {
+        update( pid, props.get( name ), true );
+    }
+
+
+    /**
+     * Removes the configuration from the index.
+     */
+    void remove( final String pid, final Dictionary props )
+    {
+        update( pid, props.get( name ), false );
+    }
+
+
+    /**
+     * Returns the PIDs of the configurations having the given value. The
+     * returned set must not be modified.
+     */
+    Set<String> get( final String value )
+    {
+        final Set<String> pids = pidsByValue.get( value );
+        return pids == null ? Collections.<String>emptySet() : pids;
+    }
+
+
+    /**
+     * Returns the PIDs of the configurations which might have the given
+     * value: the configurations having the value plus the configurations
+     * whose value is not indexed.
+     */
+    Collection<String> getCandidates( final String value )
+    {
+        final Set<String> pids = get( value );
+        if ( unindexedPids.isEmpty() )
+        {
+            return pids;
+        }
+        final Set<String> candidates = new HashSet<>( pids );
+        candidates.addAll( unindexedPids );
+        return candidates;
+    }
+
+
+    private void update( final String pid, final Object value, final boolean add )
+    {
+        if ( value == null )
+        {
+            return;
+        }
+        if ( value instanceof String )
+        {
+            update( pid, ( String ) value, add );
+        }
+        else if ( value.getClass().isArray() && !value.getClass().getComponentType().isPrimitive() )
+        {
+            final int length = Array.getLength( value );
+            for ( int i = 0; i < length; i++ )
+            {
+                update( pid, Array.get( value, i ), add );
+            }
+        }
+        else if ( value instanceof Collection )
+        {
+            for ( final Object element : ( Collection ) value )
+            {
+                update( pid, element, add );
+            }
+        }
+        else if ( add )
+        {
+            unindexedPids.add( pid );
+        }
+        else
+        {
+            unindexedPids.remove( pid );
+        }
+    }
+
+
+    private void update( final String pid, final String value, final boolean add )
+    {
+        Set<String> pids = pidsByValue.get( value );
+        if ( add )
+        {
+            if ( pids == null )
+            {
+                pids = new HashSet<>();
+                pidsByValue.put( value, pids );
+            }
+            pids.add( pid );
+        }
+        else if ( pids != null )
+        {
+            pids.remove( pid );
+            if ( pids.isEmpty() )
+            {
+                pidsByValue.remove( value );
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.cm.file;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.felix.cm.PersistenceManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Constants;
+
+public class JournalingFilePersistenceManagerTest
+{
+    private File file = new File( System.getProperty( "java.io.tmpdir" ), "config-journal" );
+
+    private FilePersistenceManager fpm;
+
+    private JournalingFilePersistenceManager jpm;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        fpm = new FilePersistenceManager( file.getAbsolutePath() );
+        jpm = new JournalingFilePersistenceManager( fpm, Long.MAX_VALUE );
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        jpm.close();
+        delete( file );
+    }
+
+    @Test
+    public void testStoreLoadDelete() throws IOException
+    {
+        jpm.store( "a", config( "a", "value" ) );
+
+        assertTrue( jpm.exists( "a" ) );
+        assertEquals( "value", jpm.load( "a" ).get( "prop" ) );
+        // not compacted yet
+        assertFalse( fpm.exists( "a" ) );
+
+        jpm.delete( "a" );
+        assertFalse( jpm.exists( "a" ) );
+        try
+        {
+            jpm.load( "a" );
+            fail( "Expected FileNotFoundException" );
+        }
+        catch ( FileNotFoundException fnfe )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testGetDictionaries() throws IOException
+    {
+        fpm.store( "file", config( "file", "file" ) );
+        fpm.store( "deleted", config( "deleted", "file" ) );
+        fpm.store( "updated", config( "updated", "file" ) );
+
+        jpm.delete( "deleted" );
+        jpm.store( "updated", config( "updated", "journal" ) );
+        jpm.store( "journal", config( "journal", "journal" ) );
+
+        final Map<String, Object> expected = new HashMap<>();
+        expected.put( "file", "file" );
+        expected.put( "updated", "journal" );
+        expected.put( "journal", "journal" );
+        assertEquals( expected, getDictionaries( jpm ) );
+    }
+
+    @Test
+    public void testCompactOnClose() throws IOException
+    {
+        jpm.store( "a", config( "a", "value" ) );
+        jpm.store( "b", config( "b", "value" ) );
+        jpm.delete( "b" );
+        jpm.close();
+
+        assertEquals( 0, jpm.getJournalFile().length() );
+        assertEquals( "value", fpm.load( "a" ).get( "prop" ) );
+        assertFalse( fpm.exists( "b" ) );
+        assertEquals( 1, getDictionaries( fpm ).size() );
+
+        try
+        {
+            jpm.store( "c", config( "c", "value" ) );
+            fail( "Expected IOException after close" );
+        }
+        catch ( IOException ioe )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCompactionThreshold() throws IOException
+    {
+        jpm.close();
+        jpm = new JournalingFilePersistenceManager( fpm, 1 );
+
+        jpm.store( "a", config( "a", "value" ) );
+        assertTrue( fpm.exists( "a" ) );
+        assertEquals( 0, jpm.getJournalFile().length() );
+    }
+
+    @Test
+    public void testRecovery() throws IOException
+    {
+        jpm.store( "a", config( "a", "first" ) );
+        jpm.store( "a", config( "a", "second" ) );
+        jpm.store( "b", config( "b", "value" ) );
+        jpm.delete( "b" );
+        final long length = jpm.getJournalFile().length();
+
+        // simulate a crash: the journal is not compacted
+        final JournalingFilePersistenceManager recovered = new JournalingFilePersistenceManager(
+            new FilePersistenceManager( file.getAbsolutePath() ), Long.MAX_VALUE );
+        try
+        {
+            assertTrue( length > 0 );
+            assertEquals( "second", fpm.load( "a" ).get( "prop" ) );
+            assertFalse( fpm.exists( "b" ) );
+            assertEquals( "second", recovered.load( "a" ).get( "prop" ) );
+        }
+        finally
+        {
+            recovered.close();
+        }
+    }
+
+    @Test
+    public void testRecoveryIgnoresIncompleteRecord() throws IOException
+    {
+        jpm.store( "a", config( "a", "value" ) );
+        jpm.store( "b", config( "b", "value" ) );
+
+        // cut the last record and append garbage
+        final File journalFile = jpm.getJournalFile();
+        final long length = journalFile.length();
+        final RandomAccessFile raf = new RandomAccessFile( journalFile, "rw" );
+        try
+        {
+            raf.setLength( length - 3 );
+        }
+        finally
+        {
+            raf.close();
+        }
+        final FileOutputStream out = new FileOutputStream( journalFile, true );
+        try
+        {
+            out.write( new byte[] { 0, 0, 0, 1, 2, 3 } );
+        }
+        finally
+        {
+            out.close();
+        }
+
+        final JournalingFilePersistenceManager recovered = new JournalingFilePersistenceManager(
+            new FilePersistenceManager( file.getAbsolutePath() ), Long.MAX_VALUE );
+        try
+        {
+            assertTrue( recovered.exists( "a" ) );
+            assertFalse( recovered.exists( "b" ) );
+        }
+        finally
+        {
+            recovered.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentStores() throws Exception
+    {
+        final int threads = 8;
+        final int pids = 50;
+        final List<Throwable> failures = new ArrayList<>();
+        final List<Thread> workers = new ArrayList<>();
+        for ( int t = 0; t < threads; t++ )
+        {
+            final int thread = t;
+            final Thread worker = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for ( int i = 0; i < pids; i++ )
+                        {
+                            final String pid = "pid" + thread + "." + i;
+                            jpm.store( pid, config( pid, "value" + i ) );
+                        }
+                    }
+                    catch ( Throwable e )
+                    {
+                        synchronized ( failures )
+                        {
+                            failures.add( e );
+                        }
+                    }
+                }
+            };
+            workers.add( worker );
+            worker.start();
+        }
+        for ( final Thread worker : workers )
+        {
+            worker.join();
+        }
+
+        assertTrue( failures.toString(), failures.isEmpty() );
+        assertEquals( threads * pids, getDictionaries( jpm ).size() );
+
+        jpm.close();
+        final Map<String, Object> files = getDictionaries( fpm );
+        assertEquals( threads * pids, files.size() );
+        assertEquals( "value7", files.get( "pid3.7" ) );
+        assertNull( files.get( "pid3.50" ) );
+    }
+
+    private static Dictionary<String, Object> config( final String pid, final String value )
+    {
+        final Dictionary<String, Object> props = new Hashtable<>();
+        props.put( Constants.SERVICE_PID, pid );
+        props.put( "prop", value );
+        return props;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Map<String, Object> getDictionaries( final PersistenceManager pm ) throws IOException
+    {
+        final Map<String, Object> result = new HashMap<>();
+        final Enumeration dictionaries = pm.getDictionaries();
+        while ( dictionaries.hasMoreElements() )
+        {
+            final Dictionary dict = ( Dictionary ) dictionaries.nextElement();
+            result.put( ( String ) dict.get( Constants.SERVICE_PID ), dict.get( "prop" ) );
+        }
+        return result;
+    }
+
+    private static void delete( final File file )
+    {
+        final File[] children = file.listFiles();
+        for ( int i = 0; children != null && i < children.length; i++ )
+        {
+            delete( children[i] );
+        }
+        file.delete();
+    }
+}
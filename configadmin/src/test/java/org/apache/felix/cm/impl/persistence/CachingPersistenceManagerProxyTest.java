@@ -23,9 +23,11 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Dictionary;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Set;
 
@@ -178,4 +180,74 @@ public class CachingPersistenceManagerProxyTest
         assertTrue(pids.contains("new_pid_for_newf1"));
         assertTrue(pids.contains("new_pid_for_newf2"));
     }
-}
\ No newline at end of file
+
+    private static Set<String> pids(final Collection<Dictionary> dicts)
+    {
+        final Set<String> pids = new HashSet<>();
+        for(final Dictionary dict : dicts)
+        {
+            pids.add((String) dict.get(Constants.SERVICE_PID));
+        }
+        return pids;
+    }
+
+    @Test public void testIndexedFilters() throws Exception
+    {
+        final CachingPersistenceManagerProxy cpm = new CachingPersistenceManagerProxy(this.createAndPopulatePersistenceManager(),
+                Collections.singletonList("value"));
+
+        assertEquals(Collections.singleton(PID_B),
+                pids(cpm.getDictionaries(SimpleFilter.parse("(service.pid=" + PID_B + ")"))));
+        assertEquals(new HashSet<>(Arrays.asList(FB_PID_A, FB_PID_B)),
+                pids(cpm.getDictionaries(SimpleFilter.parse("(SERVICE.FACTORYPID=" + FACTORY_PID_B + ")"))));
+        assertEquals(Collections.singleton(FA_PID_B),
+                pids(cpm.getDictionaries(SimpleFilter.parse("(&(service.factoryPid=" + FACTORY_PID_A + ")(value=" + PREFIX + FA_PID_B + "))"))));
+        assertEquals(new HashSet<>(Arrays.asList(PID_A, FB_PID_B)),
+                pids(cpm.getDictionaries(SimpleFilter.parse("(|(service.pid=" + PID_A + ")(value=" + PREFIX + FB_PID_B + "))"))));
+        assertTrue(cpm.getDictionaries(SimpleFilter.parse("(service.pid=unknown)")).isEmpty());
+
+        // not indexed operands still work
+        assertEquals(new HashSet<>(Arrays.asList(FA_PID_A, FA_PID_B, FA_PID_C)),
+                pids(cpm.getDictionaries(SimpleFilter.parse("(&(service.factoryPid=" + FACTORY_PID_A + ")(value=" + PREFIX + "*))"))));
+        assertEquals(8, cpm.getDictionaries(SimpleFilter.parse("(|(service.pid=" + PID_A + ")(value=*))")).size());
+    }
+
+    @Test public void testIndexMaintenance() throws Exception
+    {
+        final CachingPersistenceManagerProxy cpm = new CachingPersistenceManagerProxy(this.createAndPopulatePersistenceManager(),
+                Collections.singletonList("value"));
+        final SimpleFilter filter = SimpleFilter.parse("(value=changed)");
+        assertTrue(cpm.getDictionaries(filter).isEmpty());
+
+        final Dictionary<String, Object> changed = createConfiguration(PID_A, null);
+        changed.put("value", new String[] {"other", "changed"});
+        cpm.store(PID_A, changed);
+        assertEquals(Collections.singleton(PID_A), pids(cpm.getDictionaries(filter)));
+
+        // values which are not strings are always candidates
+        final Dictionary<String, Object> number = createConfiguration(PID_B, null);
+        number.put("value", 5);
+        cpm.store(PID_B, number);
+        assertEquals(Collections.singleton(PID_B), pids(cpm.getDictionaries(SimpleFilter.parse("(value=5)"))));
+
+        cpm.delete(PID_A);
+        assertTrue(cpm.getDictionaries(filter).isEmpty());
+        assertTrue(cpm.getDictionaries(SimpleFilter.parse("(service.pid=" + PID_A + ")")).isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test public void testReadOnlyDictionaries() throws Exception
+    {
+        final CachingPersistenceManagerProxy cpm = new CachingPersistenceManagerProxy(this.createAndPopulatePersistenceManager());
+        final SimpleFilter filter = SimpleFilter.parse("(service.pid=" + PID_A + ")");
+
+        final Dictionary<String, Object> listed = cpm.getDictionaries(filter).iterator().next();
+        listed.put("value", "modified");
+        assertEquals(PREFIX + PID_A, cpm.getDictionaries(filter).iterator().next().get("value"));
+
+        final Dictionary<String, Object> copy = (Dictionary<String, Object>) cpm.getDictionaries().nextElement();
+        copy.put("value", "modified");
+        assertEquals("modified", copy.get("value"));
+        assertEquals(PREFIX + PID_A, cpm.load(PID_A).get("value"));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin;
+
+/**
+ * Statistics about the asynchronous event delivery of the event admin.
+ * The event admin registers a service with this interface while it is active.
+ * All counters are accumulated since the event admin has been started.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+public interface AsyncDeliveryMetrics
+{
+    /**
+     * The number of posted events which are queued and not yet delivered.
+     */
+    int getQueueDepth();
+
+    /**
+     * The maximum number of queued events per posting thread,
+     * <code>0</code> if the queues are unbounded.
+     */
+    int getQueueCapacity();
+
+    /**
+     * The policy applied if a queue is full, one of
+     * <code>block</code>, <code>drop-oldest</code> or <code>caller-runs</code>.
+     */
+    String getQueuePolicy();
+
+    /**
+     * The number of posted events which have been delivered.
+     */
+    long getDeliveredCount();
+
+    /**
+     * The number of posted events which have been dropped
+     * because a queue was full.
+     */
+    long getDroppedCount();
+
+    /**
+     * The number of posted events which have been delivered by the
+     * posting thread because its queue was full.
+     */
+    long getCallerRunsCount();
+
+    /**
+     * The average time in nanoseconds an event has been queued before
+     * its delivery started.
+     */
+    long getAverageQueueLatency();
+
+    /**
+     * The maximum time in nanoseconds an event has been queued before
+     * its delivery started.
+     */
+    long getMaxQueueLatency();
+}
@@ -25,6 +25,7 @@ import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.StringTokenizer;
 
+import org.apache.felix.eventadmin.AsyncDeliveryMetrics;
 import org.apache.felix.eventadmin.impl.adapter.AbstractAdapter;
 import org.apache.felix.eventadmin.impl.adapter.BundleEventAdapter;
 import org.apache.felix.eventadmin.impl.adapter.FrameworkEventAdapter;
@@ -32,6 +33,7 @@ import org.apache.felix.eventadmin.impl.adapter.LogEventAdapter;
 import org.apache.felix.eventadmin.impl.adapter.ServiceEventAdapter;
 import org.apache.felix.eventadmin.impl.handler.EventAdminImpl;
 import org.apache.felix.eventadmin.impl.security.SecureEventAdminFactory;
+import org.apache.felix.eventadmin.impl.tasks.AsyncDeliverTasks;
 import org.apache.felix.eventadmin.impl.tasks.DefaultThreadPool;
 import org.apache.felix.eventadmin.impl.util.LogWrapper;
 import org.osgi.framework.BundleContext;
@@ -116,6 +118,31 @@ import org.osgi.service.metatype.MetaTypeProvider;
  * </p>
  * <p>
  * <p>
+ *      <tt>org.apache.felix.eventadmin.AsyncQueueCapacity</tt> - The maximum number
+ *          of posted events queued per posting thread.
+ * </p>
+ * The default value is 0 which means the queues are unbounded. If a queue is full,
+ * the <tt>org.apache.felix.eventadmin.AsyncQueuePolicy</tt> is applied.
+ * </p>
+ * <p>
+ * <p>
+ *      <tt>org.apache.felix.eventadmin.AsyncQueuePolicy</tt> - The policy applied if
+ *          the queue of a posting thread is full.
+ * </p>
+ * With <tt>block</tt> (the default) the posting thread waits until the queue has room,
+ * with <tt>drop-oldest</tt> the oldest queued event of the thread is dropped and with
+ * <tt>caller-runs</tt> the posting thread delivers its oldest queued events itself.
+ * In all cases the events of a thread are delivered in the order they have been posted.
+ * </p>
+ * <p>
+ * <p>
+ *      <tt>org.apache.felix.eventadmin.AsyncBatchSize</tt> - The maximum number of
+ *          queued events taken from a queue at once.
+ * </p>
+ * The default value is 16.
+ * </p>
+ * <p>
+ * <p>
  * These properties are read at startup and serve as a default configuration.
  * If a configuration admin is configured, the event admin can be configured
  * through the config admin.
@@ -135,6 +162,9 @@ public class Configuration
     static final String PROP_IGNORE_TIMEOUT = "org.apache.felix.eventadmin.IgnoreTimeout";
     static final String PROP_IGNORE_TOPIC = "org.apache.felix.eventadmin.IgnoreTopic";
     static final String PROP_LOG_LEVEL = "org.apache.felix.eventadmin.LogLevel";
+    static final String PROP_ASYNC_QUEUE_CAPACITY = "org.apache.felix.eventadmin.AsyncQueueCapacity";
+    static final String PROP_ASYNC_QUEUE_POLICY = "org.apache.felix.eventadmin.AsyncQueuePolicy";
+    static final String PROP_ASYNC_BATCH_SIZE = "org.apache.felix.eventadmin.AsyncBatchSize";
 
     /** The bundle context. */
     private final BundleContext m_bundleContext;
@@ -155,6 +185,12 @@ public class Configuration
 
     private int m_logLevel;
 
+    private int m_asyncQueueCapacity;
+
+    private AsyncDeliverTasks.QueuePolicy m_asyncQueuePolicy;
+
+    private int m_asyncBatchSize;
+
     // The thread pool used - this is a member because we need to close it on stop
     private volatile DefaultThreadPool m_sync_pool;
 
@@ -169,6 +205,9 @@ public class Configuration
     // The registration of the security decorator factory (i.e., the service)
     private volatile ServiceRegistration m_registration;
 
+    // The registration of the async delivery metrics
+    private volatile ServiceRegistration m_metricsRegistration;
+
     // all adapters
     private AbstractAdapter[] m_adapters;
 
@@ -329,6 +368,15 @@ public class Configuration
                     m_bundleContext.getProperty(PROP_LOG_LEVEL),
                     LogWrapper.LOG_WARNING, // default log level is WARNING
                     LogWrapper.LOG_ERROR);
+
+            // The bound of the async queue per posting thread - A value of 0
+            // means unbounded. If the queue is full, the policy is applied.
+            m_asyncQueueCapacity = getIntProperty(PROP_ASYNC_QUEUE_CAPACITY,
+                    m_bundleContext.getProperty(PROP_ASYNC_QUEUE_CAPACITY), 0, 0);
+            m_asyncQueuePolicy = getQueuePolicyProperty(PROP_ASYNC_QUEUE_POLICY,
+                    m_bundleContext.getProperty(PROP_ASYNC_QUEUE_POLICY));
+            m_asyncBatchSize = getIntProperty(PROP_ASYNC_BATCH_SIZE,
+                    m_bundleContext.getProperty(PROP_ASYNC_BATCH_SIZE), 16, 1);
         }
         else
         {
@@ -371,6 +419,12 @@ public class Configuration
                     config.get(PROP_LOG_LEVEL),
                     LogWrapper.LOG_WARNING, // default log level is WARNING
                     LogWrapper.LOG_ERROR);
+            m_asyncQueueCapacity = getIntProperty(PROP_ASYNC_QUEUE_CAPACITY,
+                    config.get(PROP_ASYNC_QUEUE_CAPACITY), 0, 0);
+            m_asyncQueuePolicy = getQueuePolicyProperty(PROP_ASYNC_QUEUE_POLICY,
+                    config.get(PROP_ASYNC_QUEUE_POLICY));
+            m_asyncBatchSize = getIntProperty(PROP_ASYNC_BATCH_SIZE,
+                    config.get(PROP_ASYNC_BATCH_SIZE), 16, 1);
         }
         // a timeout less or equals to 100 means : disable timeout
         if ( m_timeout <= 100 )
@@ -395,6 +449,12 @@ public class Configuration
             PROP_TIMEOUT + "=" + m_timeout);
         LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
             PROP_REQUIRE_TOPIC + "=" + m_requireTopic);
+        LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
+            PROP_ASYNC_QUEUE_CAPACITY + "=" + m_asyncQueueCapacity);
+        LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
+            PROP_ASYNC_QUEUE_POLICY + "=" + m_asyncQueuePolicy.getValue());
+        LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
+            PROP_ASYNC_BATCH_SIZE + "=" + m_asyncBatchSize);
 
         // Note that this uses a lazy thread pool that will create new threads on
         // demand - in case none of its cached threads is free - until threadPoolSize
@@ -427,6 +487,7 @@ public class Configuration
                     m_ignoreTimeout,
                     m_requireTopic,
                     m_ignoreTopics);
+            m_admin.updateAsyncQueue(m_asyncQueueCapacity, m_asyncQueuePolicy, m_asyncBatchSize);
 
             // Finally, adapt the outside events to our kind of events as per spec
             adaptEvents(m_admin);
@@ -436,10 +497,14 @@ public class Configuration
             // appropriated permissions of each calling bundle
             m_registration = m_bundleContext.registerService(EventAdmin.class.getName(),
                     new SecureEventAdminFactory(m_admin), null);
+
+            m_metricsRegistration = m_bundleContext.registerService(AsyncDeliveryMetrics.class.getName(),
+                    m_admin.getAsyncDeliveryMetrics(), null);
         }
         else
         {
             m_admin.update(m_timeout, m_ignoreTimeout, m_requireTopic, m_ignoreTopics);
+            m_admin.updateAsyncQueue(m_asyncQueueCapacity, m_asyncQueuePolicy, m_asyncBatchSize);
         }
 
     }
@@ -474,6 +539,11 @@ public class Configuration
                 m_registration.unregister();
                 m_registration = null;
             }
+            if ( m_metricsRegistration != null )
+            {
+                m_metricsRegistration.unregister();
+                m_metricsRegistration = null;
+            }
             if ( m_admin != null )
             {
                 m_admin.stop();
@@ -510,7 +580,8 @@ public class Configuration
         {
             return new MetaTypeProviderImpl((ManagedService)managedService,
                     m_threadPoolSize, m_timeout, m_requireTopic,
-                    m_ignoreTimeout, m_ignoreTopics, m_asyncToSyncThreadRatio);
+                    m_ignoreTimeout, m_ignoreTopics, m_asyncToSyncThreadRatio,
+                    m_asyncQueueCapacity, m_asyncQueuePolicy.getValue(), m_asyncBatchSize);
         }
         catch (final Throwable t)
         {
@@ -580,6 +651,26 @@ public class Configuration
         return defaultValue;
     }
 
+    /**
+     * Returns either the queue policy for the value of the property if it is set
+     * and valid or the default policy <tt>block</tt>. Additionally, a warning is
+     * generated in case the value is erroneous.
+     */
+    private AsyncDeliverTasks.QueuePolicy getQueuePolicyProperty(final String key, final Object value)
+    {
+        if ( null != value )
+        {
+            final AsyncDeliverTasks.QueuePolicy result = AsyncDeliverTasks.QueuePolicy.fromValue(value.toString());
+            if ( result != null )
+            {
+                return result;
+            }
+            LogWrapper.getLogger().log(LogWrapper.LOG_WARNING,
+                    "Value for property: " + key + " is not a valid policy - Using default");
+        }
+        return AsyncDeliverTasks.QueuePolicy.BLOCK;
+    }
+
     /**
      * Returns either the parsed double from the value of the property if it is set and
      * not less then the min value or the default. Additionally, a warning is
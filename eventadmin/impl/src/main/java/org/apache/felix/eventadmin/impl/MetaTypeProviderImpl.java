@@ -42,6 +42,9 @@ public class MetaTypeProviderImpl
     private final String[] m_ignoreTimeout;
     private final String[] m_ignoreTopic;
     private final double m_asyncThreadPoolRatio;
+    private final int m_asyncQueueCapacity;
+    private final String m_asyncQueuePolicy;
+    private final int m_asyncBatchSize;
 
     private final ManagedService m_delegatee;
 
@@ -50,7 +53,10 @@ public class MetaTypeProviderImpl
             final int timeout, final boolean requireTopic,
             final String[] ignoreTimeout,
             final String[] ignoreTopic,
-            final double asyncThreadPoolRatio)
+            final double asyncThreadPoolRatio,
+            final int asyncQueueCapacity,
+            final String asyncQueuePolicy,
+            final int asyncBatchSize)
     {
         m_threadPoolSize = threadPoolSize;
         m_timeout = timeout;
@@ -59,6 +65,9 @@ public class MetaTypeProviderImpl
         m_ignoreTimeout = ignoreTimeout;
         m_ignoreTopic = ignoreTopic;
         m_asyncThreadPoolRatio = asyncThreadPoolRatio;
+        m_asyncQueueCapacity = asyncQueueCapacity;
+        m_asyncQueuePolicy = asyncQueuePolicy;
+        m_asyncBatchSize = asyncBatchSize;
     }
 
     private ObjectClassDefinition ocd;
@@ -143,6 +152,20 @@ public class MetaTypeProviderImpl
                     "are ignored. If a single value neither ends with a dot nor with a start, this is assumed " +
                     "to define an exact topic. A single star can be used to disable delivery completely.",
                     AttributeDefinition.STRING, m_ignoreTopic, Integer.MAX_VALUE, null, null));
+            adList.add( new AttributeDefinitionImpl( Configuration.PROP_ASYNC_QUEUE_CAPACITY, "Async Queue Capacity",
+                    "The maximum number of posted events queued per posting thread. The default value is 0 " +
+                    "which means the queues are unbounded. If a queue is full, the async queue policy is applied.",
+                    m_asyncQueueCapacity ) );
+            adList.add( new AttributeDefinitionImpl( Configuration.PROP_ASYNC_QUEUE_POLICY, "Async Queue Policy",
+                    "The policy applied if the queue of a posting thread is full: the posting thread either " +
+                    "waits until the queue has room, the oldest queued event is dropped or the posting thread " +
+                    "delivers its oldest queued events itself. Events of a thread are always delivered in order.",
+                    AttributeDefinition.STRING, new String[] {m_asyncQueuePolicy}, 0,
+                    new String[] {"Block", "Drop oldest", "Caller runs"},
+                    new String[] {"block", "drop-oldest", "caller-runs"}));
+            adList.add( new AttributeDefinitionImpl( Configuration.PROP_ASYNC_BATCH_SIZE, "Async Batch Size",
+                    "The maximum number of queued events taken from a queue at once. The default value is 16.",
+                    m_asyncBatchSize ) );
             ocd = new ObjectClassDefinition()
             {
 
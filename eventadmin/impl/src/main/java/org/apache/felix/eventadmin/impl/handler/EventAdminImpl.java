@@ -18,6 +18,7 @@
  */
 package org.apache.felix.eventadmin.impl.handler;
 
+import org.apache.felix.eventadmin.AsyncDeliveryMetrics;
 import org.apache.felix.eventadmin.impl.tasks.AsyncDeliverTasks;
 import org.apache.felix.eventadmin.impl.tasks.DefaultThreadPool;
 import org.apache.felix.eventadmin.impl.tasks.SyncDeliverTasks;
@@ -172,6 +173,24 @@ public class EventAdminImpl implements EventAdmin
         this.m_ignoreTopics = Matchers.createEventTopicMatchers(ignoreTopics);
     }
 
+    /**
+     * Update the async delivery queue with new configuration.
+     */
+    public void updateAsyncQueue(final int capacity,
+                    final AsyncDeliverTasks.QueuePolicy policy,
+                    final int batchSize)
+    {
+        this.m_postManager.update(capacity, policy, batchSize);
+    }
+
+    /**
+     * Get the statistics of the async delivery.
+     */
+    public AsyncDeliveryMetrics getAsyncDeliveryMetrics()
+    {
+        return this.m_postManager;
+    }
+
     /**
      * This is a utility method that will throw a <tt>NullPointerException</tt>
      * in case that the given object is null. The message will be of the form
@@ -18,6 +18,7 @@
  */
 package org.apache.felix.eventadmin.impl.handler;
 
+import java.security.Permission;
 import java.util.Collection;
 import java.util.Iterator;
 
@@ -325,6 +326,15 @@ public class EventHandlerProxy {
         return this.topics;
     }
 
+    /**
+     * Get the filter of this handler.
+     * If this handler has no filter <code>null</code> is returned
+     */
+    public Filter getFilter()
+    {
+        return this.filter;
+    }
+
     /**
      * Check if this handler is allowed to receive the event
      * - blacklisted
@@ -332,6 +342,26 @@ public class EventHandlerProxy {
      * - check permission
      */
     public boolean canDeliver(final Event event)
+    {
+        // filter match
+        final Filter eventFilter = this.filter;
+        if ( eventFilter != null && !event.matches(eventFilter) )
+        {
+            return false;
+        }
+
+        return this.canDeliver(PermissionsUtil.createSubscribePermission(event.getTopic()));
+    }
+
+    /**
+     * Check if this handler is allowed to receive an event
+     * whose filter has already been checked.
+     * - blacklisted
+     * - check permission
+     *
+     * @param permission The subscribe permission for the event topic or <code>null</code>
+     */
+    public boolean canDeliver(final Permission permission)
     {
         if ( this.blacklisted )
         {
@@ -344,16 +374,8 @@ public class EventHandlerProxy {
             return false;
         }
 
-        // filter match
-        final Filter eventFilter = this.filter;
-        if ( eventFilter != null && !event.matches(eventFilter) )
-        {
-            return false;
-        }
-
         // permission check
-        final Object p = PermissionsUtil.createSubscribePermission(event.getTopic());
-        if (p != null && !bundle.hasPermission(p) )
+        if (permission != null && !bundle.hasPermission(permission) )
         {
             return false;
         }
@@ -19,12 +19,8 @@
 package org.apache.felix.eventadmin.impl.handler;
 
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
+import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.felix.eventadmin.impl.util.Matchers;
 import org.osgi.framework.BundleContext;
@@ -40,19 +36,11 @@ import org.osgi.util.tracker.ServiceTracker;
  */
 public class EventHandlerTracker extends ServiceTracker<EventHandler, EventHandlerProxy> {
 
-    /** The proxies in this list match all events. */
-	private final List<EventHandlerProxy> matchingAllEvents;
-
-    /** This is a map for exact topic matches. The key is the topic,
-     * the value is a list of proxies.
-     */
-    private final Map<String, List<EventHandlerProxy>> matchingTopic;
-
-	/** This is a map for wildcard topics. The key is the prefix of the topic,
-	 * the value is a list of proxies
-	 */
-	private final Map<String, List<EventHandlerProxy>> matchingPrefixTopic;
+    /** All proxies with a valid configuration. */
+    private final Set<EventHandlerProxy> proxies;
 
+    /** The index for the current proxies, built on demand. */
+    private volatile HandlerIndex index;
 
 	/** The context for the proxies. */
 	private HandlerContext handlerContext;
@@ -60,10 +48,9 @@ public class EventHandlerTracker extends ServiceTracker<EventHandler, EventHandl
     public EventHandlerTracker(final BundleContext context) {
 		super(context, EventHandler.class.getName(), null);
 
-		// we start with empty collections
-		this.matchingAllEvents = new CopyOnWriteArrayList<>();
-		this.matchingTopic = new ConcurrentHashMap<>();
-		this.matchingPrefixTopic = new ConcurrentHashMap<>();
+		// we start with an empty index
+		this.proxies = new LinkedHashSet<>();
+		this.index = new HandlerIndex(this.proxies);
 	}
 
     /**
@@ -107,90 +94,44 @@ public class EventHandlerTracker extends ServiceTracker<EventHandler, EventHandl
         proxy.dispose();
 	}
 
-	private void updateMap(final Map<String, List<EventHandlerProxy>> proxyListMap, final String key, final EventHandlerProxy proxy, final boolean add) {
-        List<EventHandlerProxy> proxies = proxyListMap.get(key);
-        if (proxies == null)
-        {
-            if ( !add )
-            {
-                return;
-            }
-            proxies = new CopyOnWriteArrayList<>();
-            proxyListMap.put(key, proxies);
-        }
-
-        if ( add )
-        {
-            proxies.add(proxy);
-        }
-        else
-        {
-            proxies.remove(proxy);
-            if ( proxies.size() == 0 )
-            {
-                proxyListMap.remove(key);
-            }
-        }
-	}
-
 	/**
-	 * Check the topics of the event handler and put it into the
-	 * corresponding collections.
+	 * Add the proxy and drop the current index.
 	 */
 	private synchronized void put(final EventHandlerProxy proxy) {
-		final String[] topics = proxy.getTopics();
-		if ( topics == null )
-		{
-		    this.matchingAllEvents.add(proxy);
-		}
-		else
-		{
-    		for(int i = 0; i < topics.length; i++) {
-    			final String topic = topics[i];
-
-    			if ( topic.endsWith("/*") )
-    			{
-                    // prefix topic: we remove the /*
-    				final String prefix = topic.substring(0, topic.length() - 2);
-                    this.updateMap(this.matchingPrefixTopic, prefix, proxy, true);
-    			}
-    			else
-    			{
-    			    // exact match
-                    this.updateMap(this.matchingTopic, topic, proxy, true);
-    			}
-    		}
-		}
+	    this.proxies.add(proxy);
+	    this.index = null;
 	}
 
     /**
-     * Check the topics of the event handler and remove it from the
-     * corresponding collections.
+     * Remove the proxy and drop the current index.
      */
 	private synchronized void remove(final EventHandlerProxy proxy) {
-        final String[] topics = proxy.getTopics();
-        if ( topics == null )
+        if ( this.proxies.remove(proxy) )
         {
-            this.matchingAllEvents.remove(proxy);
-        } else {
-            for(int i = 0; i < topics.length; i++) {
-                final String topic = topics[i];
-
-                if ( topic.endsWith("/*") )
-                {
-                    // prefix topic: we remove the /*
-                    final String prefix = topic.substring(0, topic.length() - 2);
-                    this.updateMap(this.matchingPrefixTopic, prefix, proxy, false);
-                }
-                else
-                {
-                    // exact match
-                    this.updateMap(this.matchingTopic, topic, proxy, false);
-                }
-            }
+            this.index = null;
         }
 	}
 
+	/**
+	 * Get the current index, building it if the proxies have changed.
+	 */
+	private HandlerIndex getIndex() {
+	    HandlerIndex current = this.index;
+	    if ( current == null )
+	    {
+	        synchronized ( this )
+	        {
+	            current = this.index;
+	            if ( current == null )
+	            {
+	                current = new HandlerIndex(this.proxies);
+	                this.index = current;
+	            }
+	        }
+	    }
+	    return current;
+	}
+
 	/**
 	 * Get all handlers for this event
 	 *
@@ -198,50 +139,7 @@ public class EventHandlerTracker extends ServiceTracker<EventHandler, EventHandl
 	 * @return All handlers for the event
 	 */
 	public Collection<EventHandlerProxy> getHandlers(final Event event) {
-	    final String topic = event.getTopic();
-
-		final Set<EventHandlerProxy> handlers = new HashSet<>();
-
-		// Add all handlers matching everything
-        this.checkHandlerAndAdd(handlers, this.matchingAllEvents, event);
-
-		// Now check for prefix matches
-		if ( !this.matchingPrefixTopic.isEmpty() )
-		{
-		    int pos = topic.lastIndexOf('/');
-			while (pos != -1)
-			{
-			    final String prefix = topic.substring(0, pos);
-		        this.checkHandlerAndAdd(handlers, this.matchingPrefixTopic.get(prefix), event);
-
-				pos = prefix.lastIndexOf('/');
-			}
-		}
-
-		// Add the handlers for matching topic names
-		this.checkHandlerAndAdd(handlers, this.matchingTopic.get(topic), event);
-
-		return handlers;
-	}
-
-	/**
-	 * Checks each handler from the proxy list if it can deliver the event
-	 * If the event can be delivered, the proxy is added to the handlers.
-	 */
-	private void checkHandlerAndAdd( final Set<EventHandlerProxy> handlers,
-	        final List<EventHandlerProxy> proxies,
-	        final Event event)
-	{
-	    if ( proxies != null )
-	    {
-            for(final EventHandlerProxy p : proxies)
-            {
-                if ( p.canDeliver(event) )
-                {
-                    handlers.add(p);
-                }
-            }
-	    }
+	    return this.getIndex().get(event.getTopic()).select(event);
 	}
 
     /**
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.eventadmin.impl.handler;
+
+import java.security.Permission;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.felix.eventadmin.impl.security.PermissionsUtil;
+import org.osgi.framework.Filter;
+import org.osgi.service.event.Event;
+
+/**
+ * An immutable snapshot of the registered event handlers, organized as a
+ * trie over the topic segments. A new index is built whenever the set of
+ * handlers changes, so the handlers resolved for a topic can be cached
+ * until then.
+ *
+ * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
+ */
+final class HandlerIndex
+{
+    /** The maximum number of topics for which the handlers are cached. */
+    static final int MAX_CACHED_TOPICS = 1024;
+
+    /** The root of the topic trie. */
+    private final Node root = new Node();
+
+    /** The proxies matching all events. */
+    private final List<EventHandlerProxy> matchingAllEvents = new ArrayList<>();
+
+    /** The resolved handlers per topic. */
+    private final ConcurrentMap<String, Handlers> topicCache = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new index for the given proxies.
+     * @param proxies The proxies with a valid configuration.
+     */
+    HandlerIndex(final Collection<EventHandlerProxy> proxies)
+    {
+        for(final EventHandlerProxy proxy : proxies)
+        {
+            final String[] topics = proxy.getTopics();
+            if ( topics == null )
+            {
+                this.matchingAllEvents.add(proxy);
+            }
+            else
+            {
+                for(final String topic : topics)
+                {
+                    if ( topic.endsWith("/*") )
+                    {
+                        // prefix topic: we remove the /*
+                        this.root.getOrCreate(topic.substring(0, topic.length() - 2)).matchingPrefix.add(proxy);
+                    }
+                    else
+                    {
+                        // exact match
+                        this.root.getOrCreate(topic).matchingTopic.add(proxy);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the candidate handlers for the topic.
+     * @param topic The event topic
+     * @return The handlers, the filters are not checked yet.
+     */
+    Handlers get(final String topic)
+    {
+        Handlers handlers = this.topicCache.get(topic);
+        if ( handlers == null )
+        {
+            handlers = this.resolve(topic);
+            if ( this.topicCache.size() >= MAX_CACHED_TOPICS )
+            {
+                this.topicCache.clear();
+            }
+            this.topicCache.put(topic, handlers);
+        }
+        return handlers;
+    }
+
+    /**
+     * Walk the trie for the topic and collect all handlers.
+     * A prefix registration (a/b/*) matches every topic with more
+     * segments below the prefix, but not the prefix itself.
+     */
+    private Handlers resolve(final String topic)
+    {
+        final Set<EventHandlerProxy> proxies = new LinkedHashSet<>(this.matchingAllEvents);
+
+        Node node = this.root;
+        int start = 0;
+        while ( node != null )
+        {
+            final int end = topic.indexOf('/', start);
+            node = node.children.get(end == -1 ? topic.substring(start) : topic.substring(start, end));
+            if ( node != null )
+            {
+                if ( end == -1 )
+                {
+                    proxies.addAll(node.matchingTopic);
+                    break;
+                }
+                proxies.addAll(node.matchingPrefix);
+                start = end + 1;
+            }
+        }
+
+        return new Handlers(proxies);
+    }
+
+    /**
+     * A node of the topic trie.
+     */
+    private static final class Node
+    {
+        /** The child nodes by topic segment. */
+        final Map<String, Node> children = new HashMap<>();
+
+        /** The proxies registered for exactly this topic. */
+        final List<EventHandlerProxy> matchingTopic = new ArrayList<>();
+
+        /** The proxies registered for this topic followed by /* */
+        final List<EventHandlerProxy> matchingPrefix = new ArrayList<>();
+
+        Node getOrCreate(final String topic)
+        {
+            Node node = this;
+            int start = 0;
+            int end;
+            do
+            {
+                end = topic.indexOf('/', start);
+                final String segment = end == -1 ? topic.substring(start) : topic.substring(start, end);
+                Node child = node.children.get(segment);
+                if ( child == null )
+                {
+                    child = new Node();
+                    node.children.put(segment, child);
+                }
+                node = child;
+                start = end + 1;
+            } while ( end != -1 );
+            return node;
+        }
+    }
+
+    /**
+     * The handlers matching a topic. Handlers with equal filters share
+     * the filter, so it is evaluated only once per event.
+     */
+    static final class Handlers
+    {
+        /** The handlers. */
+        private final EventHandlerProxy[] proxies;
+
+        /** The distinct filters of the handlers. */
+        private final Filter[] filters;
+
+        /** The index into the filters per handler or -1 if there is no filter. */
+        private final int[] filterIndex;
+
+        Handlers(final Collection<EventHandlerProxy> handlers)
+        {
+            this.proxies = handlers.toArray(new EventHandlerProxy[handlers.size()]);
+            this.filterIndex = new int[this.proxies.length];
+
+            final Map<Filter, Integer> distinct = new HashMap<>();
+            for(int i=0; i<this.proxies.length; i++)
+            {
+                final Filter filter = this.proxies[i].getFilter();
+                if ( filter == null )
+                {
+                    this.filterIndex[i] = -1;
+                }
+                else
+                {
+                    Integer index = distinct.get(filter);
+                    if ( index == null )
+                    {
+                        index = distinct.size();
+                        distinct.put(filter, index);
+                    }
+                    this.filterIndex[i] = index;
+                }
+            }
+            this.filters = new Filter[distinct.size()];
+            for(final Map.Entry<Filter, Integer> entry : distinct.entrySet())
+            {
+                this.filters[entry.getValue()] = entry.getKey();
+            }
+        }
+
+        /**
+         * Get all handlers which can receive the event.
+         * @param event The event
+         * @return The handlers
+         */
+        Collection<EventHandlerProxy> select(final Event event)
+        {
+            if ( this.proxies.length == 0 )
+            {
+                return Collections.emptyList();
+            }
+            // 0: not evaluated yet, 1: matches, 2: does not match
+            final byte[] matches = new byte[this.filters.length];
+            final Permission permission = PermissionsUtil.createSubscribePermission(event.getTopic());
+
+            final List<EventHandlerProxy> result = new ArrayList<>(this.proxies.length);
+            for(int i=0; i<this.proxies.length; i++)
+            {
+                final int index = this.filterIndex[i];
+                if ( index != -1 )
+                {
+                    if ( matches[index] == 0 )
+                    {
+                        matches[index] = (byte) (event.matches(this.filters[index]) ? 1 : 2);
+                    }
+                    if ( matches[index] == 2 )
+                    {
+                        continue;
+                    }
+                }
+                if ( this.proxies[i].canDeliver(permission) )
+                {
+                    result.add(this.proxies[i]);
+                }
+            }
+            return result;
+        }
+    }
+}
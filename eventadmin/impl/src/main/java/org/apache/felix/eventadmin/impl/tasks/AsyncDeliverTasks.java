@@ -18,20 +18,77 @@
  */
 package org.apache.felix.eventadmin.impl.tasks;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.felix.eventadmin.AsyncDeliveryMetrics;
 import org.apache.felix.eventadmin.impl.handler.EventHandlerProxy;
+import org.apache.felix.eventadmin.impl.util.LogWrapper;
 import org.osgi.service.event.Event;
 
 /**
  * This class does the actual work of the asynchronous event dispatch.
  *
+ * The events posted by a thread are queued in order and delivered by
+ * a thread from the pool. If a queue capacity is configured, the
+ * {@link QueuePolicy} defines what happens if the queue of a posting
+ * thread is full. In any case the events of a thread are delivered in
+ * the order they have been posted.
+ *
  * @author <a href="mailto:dev@felix.apache.org">Felix Project Team</a>
  */
-public class AsyncDeliverTasks
+public class AsyncDeliverTasks implements AsyncDeliveryMetrics
 {
+    /**
+     * The policy applied if the queue of a posting thread is full.
+     */
+    public enum QueuePolicy
+    {
+        /** The posting thread waits until the queue has room. */
+        BLOCK("block"),
+
+        /** The oldest queued event of the posting thread is dropped. */
+        DROP_OLDEST("drop-oldest"),
+
+        /** The posting thread delivers the oldest queued events itself. */
+        CALLER_RUNS("caller-runs");
+
+        private final String value;
+
+        private QueuePolicy(final String value)
+        {
+            this.value = value;
+        }
+
+        public String getValue()
+        {
+            return this.value;
+        }
+
+        /**
+         * Get the policy for the configuration value.
+         * @return The policy or <code>null</code> if the value is unknown.
+         */
+        public static QueuePolicy fromValue(final String value)
+        {
+            for(final QueuePolicy policy : values())
+            {
+                if ( policy.value.equalsIgnoreCase(value) )
+                {
+                    return policy;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** Marks threads currently delivering async events. */
+    private static final ThreadLocal<Boolean> DELIVERING = new ThreadLocal<Boolean>();
+
     /** The thread pool to use to spin-off new threads. */
     private final DefaultThreadPool m_pool;
 
@@ -44,6 +101,27 @@ public class AsyncDeliverTasks
     /** A map of running threads currently delivering async events. */
     private final Map<Long, TaskExecuter> m_running_threads = new ConcurrentHashMap<Long, TaskExecuter>();
 
+    /** The maximum number of queued events per posting thread, 0 for unbounded. */
+    private volatile int m_capacity;
+
+    /** The policy if a queue is full. */
+    private volatile QueuePolicy m_policy = QueuePolicy.BLOCK;
+
+    /** The maximum number of events taken from a queue at once. */
+    private volatile int m_batchSize = 1;
+
+    private final AtomicInteger m_queueDepth = new AtomicInteger();
+
+    private final AtomicLong m_delivered = new AtomicLong();
+
+    private final AtomicLong m_dropped = new AtomicLong();
+
+    private final AtomicLong m_callerRuns = new AtomicLong();
+
+    private final AtomicLong m_latencySum = new AtomicLong();
+
+    private final AtomicLong m_latencyMax = new AtomicLong();
+
     /**
      * The constructor of the class that will use the asynchronous.
      *
@@ -58,6 +136,20 @@ public class AsyncDeliverTasks
         m_deliver_task = deliverTask;
     }
 
+    /**
+     * Update the queue configuration.
+     *
+     * @param capacity The maximum number of queued events per posting thread, 0 for unbounded
+     * @param policy The policy applied if a queue is full
+     * @param batchSize The maximum number of events delivered per queue wakeup
+     */
+    public void update(final int capacity, final QueuePolicy policy, final int batchSize)
+    {
+        m_capacity = capacity;
+        m_policy = policy;
+        m_batchSize = batchSize;
+    }
+
     /**
      * This does not block an unrelated thread used to send a synchronous event.
      *
@@ -66,74 +158,187 @@ public class AsyncDeliverTasks
      */
     public void execute(final Collection<EventHandlerProxy> tasks, final Event event)
     {
-        /*
-        final Iterator i = tasks.iterator();
-        boolean hasOrdered = false;
-        while ( i.hasNext() )
+        final TaskInfo info = new TaskInfo(tasks, event);
+        final Long currentThreadId = Thread.currentThread().getId();
+        TaskExecuter executer = m_running_threads.get(currentThreadId);
+        if ( executer == null )
         {
-            final EventHandlerProxy task = (EventHandlerProxy)i.next();
-            if ( !task.isAsyncOrderedDelivery() )
-            {
-                // do somethimg
-            }
-            else
+            executer = new TaskExecuter(currentThreadId);
+        }
+        final int capacity = m_capacity;
+        if ( capacity > 0 )
+        {
+            this.makeRoom(executer, capacity);
+        }
+        synchronized ( executer )
+        {
+            executer.add(info);
+            m_queueDepth.incrementAndGet();
+            if ( !executer.isActive() )
             {
-                hasOrdered = true;
+                // reactivate thread
+                executer.setSyncDeliverTasks(m_deliver_task);
+                if ( !m_pool.executeTask(executer) )
+                {
+                    // scheduling failed: last resort, call directly
+                    executer.run();
+                }
+                m_running_threads.put(currentThreadId, executer);
             }
+        }
+    }
 
+    /**
+     * Apply the queue policy until the queue of the executer has room
+     * for another event. Only the posting thread adds to its queue, so
+     * the queue can't grow while this method is running.
+     */
+    private void makeRoom(final TaskExecuter executer, final int capacity)
+    {
+        QueuePolicy policy = m_policy;
+        // a delivery thread waiting for room might wait for itself
+        if ( policy == QueuePolicy.BLOCK && DELIVERING.get() != null )
+        {
+            policy = QueuePolicy.CALLER_RUNS;
         }
-        if ( hasOrdered )
-        {*/
-            final TaskInfo info = new TaskInfo(tasks, event);
-            final Long currentThreadId = Thread.currentThread().getId();
-            TaskExecuter executer = m_running_threads.get(currentThreadId);
-            if ( executer == null )
-            {
-                executer = new TaskExecuter(currentThreadId, m_running_threads);
-            }
-            synchronized ( executer )
-            {
-                executer.add(info);
-                if ( !executer.isActive() )
+        switch ( policy )
+        {
+            case BLOCK:
+                synchronized ( executer )
                 {
-                    // reactivate thread
-                    executer.setSyncDeliverTasks(m_deliver_task);
-                    if ( !m_pool.executeTask(executer) )
+                    boolean interrupted = false;
+                    while ( executer.size() >= capacity && executer.isActive() )
                     {
-                        // scheduling failed: last resort, call directly
-                        executer.run();
+                        try
+                        {
+                            executer.wait();
+                        }
+                        catch (final InterruptedException ie)
+                        {
+                            interrupted = true;
+                        }
+                    }
+                    if ( interrupted )
+                    {
+                        Thread.currentThread().interrupt();
                     }
-                    m_running_threads.put(currentThreadId, executer);
                 }
-            }
-        //}
+                break;
+
+            case DROP_OLDEST:
+                synchronized ( executer )
+                {
+                    while ( executer.size() >= capacity )
+                    {
+                        final TaskInfo dropped = executer.poll();
+                        m_queueDepth.decrementAndGet();
+                        m_dropped.incrementAndGet();
+                        LogWrapper.getLogger().log(LogWrapper.LOG_DEBUG,
+                                "Async event queue full - Dropping event " + dropped.event);
+                    }
+                }
+                break;
+
+            case CALLER_RUNS:
+                while ( executer.size() >= capacity )
+                {
+                    m_callerRuns.addAndGet(executer.deliverBatch());
+                }
+                break;
+        }
+    }
+
+    /**
+     * Deliver a queued event and update the statistics.
+     */
+    private void deliver(final TaskInfo info)
+    {
+        final long latency = System.nanoTime() - info.queued;
+        m_latencySum.addAndGet(latency);
+        long max = m_latencyMax.get();
+        while ( latency > max && !m_latencyMax.compareAndSet(max, latency) )
+        {
+            max = m_latencyMax.get();
+        }
+
+        m_deliver_task.execute(info.tasks, info.event, true);
+        m_delivered.incrementAndGet();
+    }
+
+    @Override
+    public int getQueueDepth()
+    {
+        return m_queueDepth.get();
+    }
+
+    @Override
+    public int getQueueCapacity()
+    {
+        return m_capacity;
+    }
+
+    @Override
+    public String getQueuePolicy()
+    {
+        return m_policy.getValue();
+    }
+
+    @Override
+    public long getDeliveredCount()
+    {
+        return m_delivered.get();
+    }
+
+    @Override
+    public long getDroppedCount()
+    {
+        return m_dropped.get();
+    }
+
+    @Override
+    public long getCallerRunsCount()
+    {
+        return m_callerRuns.get();
+    }
+
+    @Override
+    public long getAverageQueueLatency()
+    {
+        final long delivered = m_delivered.get();
+        return delivered == 0 ? 0 : m_latencySum.get() / delivered;
+    }
+
+    @Override
+    public long getMaxQueueLatency()
+    {
+        return m_latencyMax.get();
     }
 
     private final static class TaskInfo {
         public final Collection<EventHandlerProxy> tasks;
         public final Event event;
-
-        public TaskInfo next;
+        public final long queued;
 
         public TaskInfo(final Collection<EventHandlerProxy> tasks, final Event event) {
             this.tasks = tasks;
             this.event = event;
+            this.queued = System.nanoTime();
         }
     }
 
-    private final static class TaskExecuter implements Runnable
+    private final class TaskExecuter implements Runnable
     {
-        private volatile TaskInfo first;
-        private volatile TaskInfo last;
+        /** The queued events, guarded by this. */
+        private final ArrayDeque<TaskInfo> queue = new ArrayDeque<TaskInfo>();
 
-        private volatile SyncDeliverTasks m_deliver_task;
+        /** Held while delivering, so events are never delivered concurrently. */
+        private final Object deliveryLock = new Object();
 
-        private final Map<Long, TaskExecuter> m_running_threads;
+        private volatile SyncDeliverTasks m_deliver_task;
 
         private final long threadId;
 
-        public TaskExecuter(final long threadId, final Map<Long, TaskExecuter> runningThreads) {
-            m_running_threads = runningThreads;
+        public TaskExecuter(final long threadId) {
             this.threadId = threadId;
         }
 
@@ -150,43 +355,84 @@ public class AsyncDeliverTasks
         @Override
         public void run()
         {
-            boolean running;
-            do
+            final Boolean wasDelivering = DELIVERING.get();
+            DELIVERING.set(Boolean.TRUE);
+            try
             {
-                TaskInfo info = null;
-                synchronized ( this )
+                boolean running;
+                do
                 {
-                    info = first;
-                    first = info.next;
-                    if ( first == null )
+                    this.deliverBatch();
+                    synchronized ( this )
                     {
-                        last = null;
+                        running = !this.queue.isEmpty();
+                        if ( !running )
+                        {
+                            this.m_deliver_task = null;
+                            m_running_threads.remove(threadId);
+                            this.notifyAll();
+                        }
                     }
+                } while ( running );
+            }
+            finally
+            {
+                if ( wasDelivering == null )
+                {
+                    DELIVERING.remove();
                 }
-                m_deliver_task.execute(info.tasks, info.event, true);
+            }
+        }
+
+        /**
+         * Take up to batch size events from the queue and deliver them.
+         * @return The number of delivered events
+         */
+        public int deliverBatch()
+        {
+            synchronized ( this.deliveryLock )
+            {
+                final TaskInfo[] batch = new TaskInfo[Math.max(1, m_batchSize)];
+                int count = 0;
                 synchronized ( this )
                 {
-                    running = first != null;
-                    if ( !running )
+                    TaskInfo info;
+                    while ( count < batch.length && (info = this.queue.poll()) != null )
+                    {
+                        batch[count] = info;
+                        count++;
+                    }
+                    if ( count > 0 )
                     {
-                        this.m_deliver_task = null;
-                        this.m_running_threads.remove(threadId);
+                        m_queueDepth.addAndGet(-count);
+                        this.notifyAll();
                     }
                 }
-            } while ( running );
+                for(int i=0; i<count; i++)
+                {
+                    deliver(batch[i]);
+                }
+                return count;
+            }
         }
 
+        /** Guarded by this. */
         public void add(final TaskInfo info)
         {
-            if ( first == null )
-            {
-                first = info;
-                last = info;
-            }
-            else
+            this.queue.add(info);
+        }
+
+        /** Guarded by this. */
+        public TaskInfo poll()
+        {
+            return this.queue.poll();
+        }
+
+        public int size()
+        {
+            synchronized ( this )
             {
-                last.next = info;
-                last = info;
+                return this.queue.size();
             }
         }
     }
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.eventadmin.impl.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+import org.junit.Test;
+
+public class HandlerIndexTest {
+
+    private final AtomicInteger filterEvaluations = new AtomicInteger();
+
+    private final List<EventHandlerProxy> proxies = new ArrayList<>();
+
+    @Test public void testTopicMatching()
+    {
+        final EventHandlerProxy all = this.createProxy("*", null);
+        final EventHandlerProxy exact = this.createProxy("org/apache/felix", null);
+        final EventHandlerProxy prefix = this.createProxy("org/apache/*", null);
+        final EventHandlerProxy rootPrefix = this.createProxy("org/*", null);
+        final EventHandlerProxy other = this.createProxy("com/example/*", null);
+        final HandlerIndex index = new HandlerIndex(this.proxies);
+
+        assertEquals(set(all, exact, prefix, rootPrefix), this.select(index, "org/apache/felix"));
+        assertEquals(set(all, prefix, rootPrefix), this.select(index, "org/apache/felix/event"));
+        assertEquals(set(all, rootPrefix), this.select(index, "org/apache"));
+        assertEquals(set(all), this.select(index, "org"));
+        assertEquals(set(all, other), this.select(index, "com/example/test"));
+        assertEquals(set(all), this.select(index, "net/example"));
+    }
+
+    @Test public void testMultipleTopics()
+    {
+        final EventHandlerProxy proxy = this.createProxy(new String[] {"org/apache/*", "org/apache/felix"}, null);
+        final HandlerIndex index = new HandlerIndex(this.proxies);
+
+        final Collection<EventHandlerProxy> handlers = index.get("org/apache/felix").select(new Event("org/apache/felix", (Map<String, ?>)null));
+        assertEquals(1, handlers.size());
+        assertSame(proxy, handlers.iterator().next());
+    }
+
+    @Test public void testCachedPerTopic()
+    {
+        this.createProxy("org/apache/*", null);
+        final HandlerIndex index = new HandlerIndex(this.proxies);
+
+        assertSame(index.get("org/apache/felix"), index.get("org/apache/felix"));
+        for(int i=0; i<HandlerIndex.MAX_CACHED_TOPICS * 2; i++)
+        {
+            assertEquals(1, this.select(index, "org/apache/topic" + i).size());
+        }
+    }
+
+    @Test public void testSharedFilterEvaluation()
+    {
+        final EventHandlerProxy match1 = this.createProxy("org/apache/*", "(level=high)");
+        final EventHandlerProxy match2 = this.createProxy("org/apache/felix", "(level=high)");
+        this.createProxy("org/apache/felix", "(level=low)");
+        final EventHandlerProxy noFilter = this.createProxy("org/apache/felix", null);
+        final HandlerIndex index = new HandlerIndex(this.proxies);
+
+        final Map<String, Object> props = new HashMap<>();
+        props.put("level", "high");
+        final Collection<EventHandlerProxy> handlers = index.get("org/apache/felix").select(new Event("org/apache/felix", props));
+        assertEquals(set(match1, match2, noFilter), new HashSet<>(handlers));
+        assertEquals(2, this.filterEvaluations.get());
+    }
+
+    @Test public void testEmptyIndex()
+    {
+        final HandlerIndex index = new HandlerIndex(Collections.<EventHandlerProxy>emptyList());
+        assertTrue(this.select(index, "org/apache/felix").isEmpty());
+    }
+
+    private Set<EventHandlerProxy> select(final HandlerIndex index, final String topic)
+    {
+        return new HashSet<>(index.get(topic).select(new Event(topic, (Map<String, ?>)null)));
+    }
+
+    private static Set<EventHandlerProxy> set(final EventHandlerProxy... proxies)
+    {
+        final Set<EventHandlerProxy> result = new HashSet<>();
+        Collections.addAll(result, proxies);
+        return result;
+    }
+
+    private EventHandlerProxy createProxy(final Object topics, final String filter)
+    {
+        final Bundle bundle = mock(Bundle.class, new InvocationHandler()
+        {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args)
+            {
+                if ( method.getName().equals("hasPermission") )
+                {
+                    return Boolean.TRUE;
+                }
+                return null;
+            }
+        });
+        final ServiceReference<EventHandler> reference = mock(ServiceReference.class, new InvocationHandler()
+        {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args)
+            {
+                if ( method.getName().equals("getBundle") )
+                {
+                    return bundle;
+                }
+                if ( method.getName().equals("getProperty") )
+                {
+                    if ( EventConstants.EVENT_TOPIC.equals(args[0]) )
+                    {
+                        return topics;
+                    }
+                    if ( EventConstants.EVENT_FILTER.equals(args[0]) )
+                    {
+                        return filter;
+                    }
+                }
+                return null;
+            }
+        });
+        final BundleContext context = mock(BundleContext.class, new InvocationHandler()
+        {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) throws Exception
+            {
+                if ( method.getName().equals("createFilter") )
+                {
+                    return new CountingFilter(FrameworkUtil.createFilter((String)args[0]));
+                }
+                return null;
+            }
+        });
+
+        final EventHandlerProxy proxy = new EventHandlerProxy(
+                new EventHandlerTracker.HandlerContext(context, null, false), reference);
+        assertTrue(proxy.update());
+        this.proxies.add(proxy);
+        return proxy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T mock(final Class<?> type, final InvocationHandler handler)
+    {
+        return (T) Proxy.newProxyInstance(HandlerIndexTest.class.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+    /**
+     * A filter counting its evaluations, equal to every filter with the same string representation.
+     */
+    private final class CountingFilter implements Filter
+    {
+        private final Filter delegate;
+
+        CountingFilter(final Filter delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean match(final ServiceReference<?> reference)
+        {
+            filterEvaluations.incrementAndGet();
+            return delegate.match(reference);
+        }
+
+        @Override
+        public boolean match(final Dictionary<String, ?> dictionary)
+        {
+            filterEvaluations.incrementAndGet();
+            return delegate.match(dictionary);
+        }
+
+        @Override
+        public boolean matchCase(final Dictionary<String, ?> dictionary)
+        {
+            filterEvaluations.incrementAndGet();
+            return delegate.matchCase(dictionary);
+        }
+
+        @Override
+        public boolean matches(final Map<String, ?> map)
+        {
+            filterEvaluations.incrementAndGet();
+            return delegate.matches(map);
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            return obj instanceof Filter && obj.toString().equals(this.toString());
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.toString().hashCode();
+        }
+
+        @Override
+        public String toString()
+        {
+            return delegate.toString();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.eventadmin.impl.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.eventadmin.impl.handler.EventHandlerProxy;
+import org.apache.felix.eventadmin.impl.handler.TestEventHandlerProxy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+
+public class AsyncDeliverTasksTest {
+
+    private DefaultThreadPool pool;
+
+    private AsyncDeliverTasks tasks;
+
+    private final List<Integer> received = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final EventHandlerProxy handler = new TestEventHandlerProxy()
+    {
+        @Override
+        public void sendEvent(final Event event)
+        {
+            try
+            {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            catch (final InterruptedException ie)
+            {
+                Thread.currentThread().interrupt();
+            }
+            received.add((Integer)event.getProperty("index"));
+        }
+    };
+
+    @Before public void setUp()
+    {
+        this.pool = new DefaultThreadPool(4, false);
+        this.tasks = new AsyncDeliverTasks(this.pool, new SyncDeliverTasks(this.pool, 0));
+    }
+
+    @After public void tearDown()
+    {
+        this.pool.close();
+    }
+
+    @Test public void testCallerRunsKeepsOrder() throws Exception
+    {
+        this.tasks.update(4, AsyncDeliverTasks.QueuePolicy.CALLER_RUNS, 2);
+        this.release.countDown();
+        this.post(0, 500);
+        this.awaitReceived(500);
+
+        for(int i=0; i<500; i++)
+        {
+            assertEquals(Integer.valueOf(i), this.received.get(i));
+        }
+        assertEquals(500, this.tasks.getDeliveredCount());
+        assertEquals(0, this.tasks.getDroppedCount());
+        assertEquals(0, this.tasks.getQueueDepth());
+    }
+
+    @Test public void testDropOldest() throws Exception
+    {
+        this.tasks.update(3, AsyncDeliverTasks.QueuePolicy.DROP_OLDEST, 1);
+        this.post(0, 1);
+        // wait until the first event is taken from the queue
+        while ( this.tasks.getQueueDepth() > 0 )
+        {
+            Thread.sleep(5);
+        }
+        this.post(1, 10);
+        assertEquals(3, this.tasks.getQueueDepth());
+        assertEquals(7, this.tasks.getDroppedCount());
+
+        this.release.countDown();
+        this.awaitReceived(4);
+        assertEquals(Arrays.asList(0, 8, 9, 10), this.received);
+        assertEquals(0, this.tasks.getQueueDepth());
+    }
+
+    @Test public void testBlock() throws Exception
+    {
+        this.tasks.update(2, AsyncDeliverTasks.QueuePolicy.BLOCK, 16);
+        final Thread producer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                post(0, 10);
+            }
+        };
+        producer.start();
+        producer.join(200);
+        // the producer waits for the blocked handler
+        assertTrue(producer.isAlive());
+        assertTrue(this.tasks.getQueueDepth() <= 2);
+
+        this.release.countDown();
+        producer.join(10000);
+        this.awaitReceived(10);
+        for(int i=0; i<10; i++)
+        {
+            assertEquals(Integer.valueOf(i), this.received.get(i));
+        }
+        assertEquals(0, this.tasks.getDroppedCount());
+        assertTrue(this.tasks.getMaxQueueLatency() >= this.tasks.getAverageQueueLatency());
+    }
+
+    private void post(final int first, final int count)
+    {
+        for(int i=first; i<first + count; i++)
+        {
+            final Map<String, Object> props = Collections.<String, Object>singletonMap("index", i);
+            this.tasks.execute(Collections.singletonList(this.handler), new Event("test/topic", props));
+        }
+    }
+
+    private void awaitReceived(final int count) throws InterruptedException
+    {
+        final long end = System.currentTimeMillis() + 10000;
+        while ( this.received.size() < count && System.currentTimeMillis() < end )
+        {
+            Thread.sleep(5);
+        }
+        assertEquals(count, this.received.size());
+    }
+}
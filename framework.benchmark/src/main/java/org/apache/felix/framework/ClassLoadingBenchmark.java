@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.framework.benchmark.payload.Payload;
+import org.apache.felix.framework.util.FelixConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+import org.osgi.framework.wiring.BundleWiring;
+
+/**
+ * Measures loading classes through the imports of a bundle wiring in an
+ * embedded framework, for a class of the imported package and for classes
+ * which do not exist, with and without the negative lookup cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassLoadingBenchmark
+{
+    private static final String PKG = Payload.class.getPackage().getName();
+
+    @Param({"0", "256"})
+    public String negativeCacheSize;
+
+    private EmbeddedFramework m_framework;
+    private ClassLoader m_loader;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        m_framework = new EmbeddedFramework(Collections.singletonMap(
+            FelixConstants.CLASSLOADER_NEGATIVE_CACHE_SIZE_PROP, negativeCacheSize));
+
+        m_framework.install("benchmark.provider",
+            Collections.singletonMap(Constants.EXPORT_PACKAGE, PKG), Payload.class);
+        Bundle consumer = m_framework.install("benchmark.consumer",
+            Collections.singletonMap(Constants.IMPORT_PACKAGE, PKG));
+        consumer.start();
+        m_loader = consumer.adapt(BundleWiring.class).getClassLoader();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        m_framework.stop();
+    }
+
+    @Benchmark
+    public Class<?> importedClass() throws ClassNotFoundException
+    {
+        return m_loader.loadClass(PKG + ".Payload");
+    }
+
+    @Benchmark
+    public Object missingImportedClass()
+    {
+        return load(PKG + ".Missing");
+    }
+
+    @Benchmark
+    public Object missingLocalClass()
+    {
+        return load("org.apache.felix.benchmark.consumer.Missing");
+    }
+
+    private Object load(String name)
+    {
+        try
+        {
+            return m_loader.loadClass(name);
+        }
+        catch (ClassNotFoundException ex)
+        {
+            return ex;
+        }
+    }
+}
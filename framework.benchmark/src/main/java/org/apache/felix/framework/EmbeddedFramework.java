@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import org.apache.felix.framework.util.FelixConstants;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+
+/**
+ * Starts a Felix instance with a private bundle cache for benchmarks and
+ * installs bundles built in memory, so no network or repository is needed.
+ */
+class EmbeddedFramework
+{
+    private final File m_cacheDir;
+    private final Felix m_felix;
+
+    EmbeddedFramework(Map<String, String> config) throws Exception
+    {
+        m_cacheDir = File.createTempFile("felix-benchmark", ".dir");
+        if (!m_cacheDir.delete() || !m_cacheDir.mkdirs())
+        {
+            throw new IOException("Unable to create " + m_cacheDir);
+        }
+
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put(Constants.FRAMEWORK_STORAGE, m_cacheDir.getPath());
+        params.put(Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+        // Don't touch the JVM wide URL handler factories.
+        params.put(FelixConstants.SERVICE_URLHANDLERS_PROP, "false");
+        params.putAll(config);
+        m_felix = new Felix(params);
+        m_felix.start();
+    }
+
+    Felix getFramework()
+    {
+        return m_felix;
+    }
+
+    /**
+     * Installs a bundle with the given manifest headers, containing the
+     * given classes from the benchmark's own class path.
+     */
+    Bundle install(String name, Map<String, String> headers, Class<?>... classes)
+        throws Exception
+    {
+        Manifest mf = new Manifest();
+        mf.getMainAttributes().putValue("Manifest-Version", "1.0");
+        mf.getMainAttributes().putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+        mf.getMainAttributes().putValue(Constants.BUNDLE_SYMBOLICNAME, name);
+        for (Map.Entry<String, String> entry : headers.entrySet())
+        {
+            mf.getMainAttributes().putValue(entry.getKey(), entry.getValue());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JarOutputStream os = new JarOutputStream(bytes, mf);
+        for (Class<?> clazz : classes)
+        {
+            String path = clazz.getName().replace('.', '/') + ".class";
+            os.putNextEntry(new ZipEntry(path));
+            InputStream is = clazz.getClassLoader().getResourceAsStream(path);
+            try
+            {
+                byte[] buf = new byte[4096];
+                for (int n = is.read(buf); n >= 0; n = is.read(buf))
+                {
+                    os.write(buf, 0, n);
+                }
+            }
+            finally
+            {
+                is.close();
+            }
+        }
+        os.close();
+
+        return m_felix.getBundleContext().installBundle(
+            name, new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    void stop() throws BundleException, InterruptedException
+    {
+        m_felix.stop();
+        m_felix.waitForStop(10000);
+        delete(m_cacheDir);
+    }
+
+    private static void delete(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null)
+        {
+            for (File child : children)
+            {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
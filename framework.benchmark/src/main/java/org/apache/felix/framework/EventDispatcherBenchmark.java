@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework;
+
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+
+/**
+ * Measures {@link EventDispatcher#fireServiceEvent} with a growing number
+ * of service listeners registered by bundles of an embedded framework, half
+ * of which filter the event out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDispatcherBenchmark
+{
+    @Param({"1", "10", "100"})
+    public int listeners;
+
+    private EmbeddedFramework m_framework;
+    private EventDispatcher m_dispatcher;
+    private ServiceEvent m_event;
+    private Blackhole m_blackhole;
+
+    @Setup
+    public void setUp(Blackhole blackhole) throws Exception
+    {
+        m_blackhole = blackhole;
+        m_framework = new EmbeddedFramework(Collections.<String, String>emptyMap());
+        Felix felix = m_framework.getFramework();
+        m_dispatcher = new EventDispatcher(
+            felix.getLogger(), new ServiceRegistry(felix.getLogger(), null));
+
+        ServiceListener listener = new ServiceListener()
+        {
+            public void serviceChanged(ServiceEvent event)
+            {
+                m_blackhole.consume(event);
+            }
+        };
+        for (int i = 0; i < listeners; i++)
+        {
+            Bundle bundle = m_framework.install(
+                "benchmark.listener" + i, Collections.<String, String>emptyMap());
+            bundle.start();
+            String filter = (i % 2 == 0)
+                ? "(objectClass=java.lang.Runnable)" : "(service.pid=other)";
+            m_dispatcher.addListener(bundle.getBundleContext(), ServiceListener.class,
+                listener, new FilterImpl(filter));
+        }
+
+        Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put("service.pid", "org.example.pid");
+        m_event = new ServiceEvent(ServiceEvent.MODIFIED,
+            felix.getBundleContext().registerService(Runnable.class.getName(), new Runnable()
+            {
+                public void run()
+                {
+                }
+            }, props).getReference());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        m_framework.stop();
+    }
+
+    @Benchmark
+    public void fireServiceEvent()
+    {
+        m_dispatcher.fireServiceEvent(m_event, null, m_framework.getFramework());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework;
+
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Measures {@link FilterImpl#match(ServiceReference)} and
+ * {@link FilterImpl#match(Dictionary)} for typical service filters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark
+{
+    @Param({
+        "(service.pid=org.example.pid)",
+        "(&(objectClass=java.lang.Runnable)(service.pid=org.example.pid)(service.ranking>=10))",
+        "(|(component.name=other)(component.name=org.example.*))"
+    })
+    public String filter;
+
+    private EmbeddedFramework m_framework;
+    private FilterImpl m_filter;
+    private ServiceReference<?> m_reference;
+    private Dictionary<String, Object> m_properties;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        m_framework = new EmbeddedFramework(Collections.<String, String>emptyMap());
+        m_filter = new FilterImpl(filter);
+
+        m_properties = new Hashtable<String, Object>();
+        m_properties.put(Constants.SERVICE_PID, "org.example.pid");
+        m_properties.put(Constants.SERVICE_RANKING, Integer.valueOf(20));
+        m_properties.put("component.name", "org.example.component");
+        m_reference = m_framework.getFramework().getBundleContext().registerService(
+            Runnable.class.getName(), new Runnable()
+            {
+                public void run()
+                {
+                }
+            }, m_properties).getReference();
+        m_properties.put(Constants.OBJECTCLASS, new String[] { Runnable.class.getName() });
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        m_framework.stop();
+    }
+
+    @Benchmark
+    public boolean matchReference()
+    {
+        return m_filter.match(m_reference);
+    }
+
+    @Benchmark
+    public boolean matchDictionary()
+    {
+        return m_filter.match(m_properties);
+    }
+}
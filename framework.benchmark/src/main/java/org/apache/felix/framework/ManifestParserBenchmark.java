@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.framework.util.StringMap;
+import org.apache.felix.framework.util.manifestparser.ManifestParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+
+/**
+ * Measures parsing the manifest of a bundle exporting and importing a
+ * growing number of packages, with version ranges and uses directives.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManifestParserBenchmark
+{
+    @Param({"10", "100", "1000"})
+    public int packages;
+
+    private Logger m_logger;
+    private Map<String, Object> m_config;
+    private Map<String, Object> m_headers;
+
+    @Setup
+    public void setUp()
+    {
+        m_logger = new Logger();
+        m_config = new HashMap<String, Object>();
+
+        StringBuilder exports = new StringBuilder();
+        StringBuilder imports = new StringBuilder();
+        for (int i = 0; i < packages; i++)
+        {
+            if (i > 0)
+            {
+                exports.append(',');
+                imports.append(',');
+            }
+            exports.append("org.example.export").append(i)
+                .append(";version=\"1.").append(i % 10).append(".0\"")
+                .append(";uses:=\"org.example.import").append(i)
+                .append(",org.example.export").append((i + 1) % packages).append('"');
+            imports.append("org.example.import").append(i)
+                .append(";version=\"[1.").append(i % 10).append(",2)\"");
+        }
+
+        m_headers = new StringMap();
+        m_headers.put(Constants.BUNDLE_MANIFESTVERSION, "2");
+        m_headers.put(Constants.BUNDLE_SYMBOLICNAME, "org.example.large;singleton:=true");
+        m_headers.put(Constants.BUNDLE_VERSION, "1.0.0");
+        m_headers.put(Constants.EXPORT_PACKAGE, exports.toString());
+        m_headers.put(Constants.IMPORT_PACKAGE, imports.toString());
+        m_headers.put(Constants.DYNAMICIMPORT_PACKAGE, "org.example.dynamic.*");
+        m_headers.put(Constants.REQUIRE_CAPABILITY,
+            "osgi.ee;filter:=\"(&(osgi.ee=JavaSE)(version=1.8))\"");
+    }
+
+    @Benchmark
+    public ManifestParser parse() throws BundleException
+    {
+        return new ManifestParser(m_logger, m_config, null, m_headers);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.framework.capabilityset.SimpleFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.resource.Capability;
+
+/**
+ * Measures {@link ServiceRegistry#getServiceReferences(String, SimpleFilter)}
+ * as the number of services registered under one interface grows, with and
+ * without a secondary index on the filtered property.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceRegistryBenchmark
+{
+    private static final String CLASS_NAME = Runnable.class.getName();
+
+    @Param({"100", "1000", "10000"})
+    public int services;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private ServiceRegistry m_registry;
+    private SimpleFilter m_equalityFilter;
+    private SimpleFilter m_andFilter;
+
+    @Setup
+    public void setUp()
+    {
+        m_registry = new ServiceRegistry(null, null,
+            indexed ? Arrays.asList("component.name", "service.pid") : null);
+
+        Felix bundle = new Felix(new HashMap<String, Object>());
+        Runnable service = new Runnable()
+        {
+            public void run()
+            {
+            }
+        };
+        for (int i = 0; i < services; i++)
+        {
+            Hashtable<String, Object> props = new Hashtable<String, Object>();
+            props.put("component.name", "component" + i);
+            props.put("service.pid", "pid" + (i % 10));
+            m_registry.registerService(bundle, new String[] { CLASS_NAME }, service, props);
+        }
+
+        m_equalityFilter = SimpleFilter.parse("(component.name=component" + (services / 2) + ")");
+        m_andFilter = SimpleFilter.parse(
+            "(&(service.pid=pid3)(component.name=component" + (services / 2 + 3) + "))");
+    }
+
+    @Benchmark
+    public Collection<Capability> byClassName()
+    {
+        return m_registry.getServiceReferences(CLASS_NAME, null);
+    }
+
+    @Benchmark
+    public Collection<Capability> byEqualityFilter()
+    {
+        return m_registry.getServiceReferences(CLASS_NAME, m_equalityFilter);
+    }
+
+    @Benchmark
+    public Collection<Capability> byAndOfEqualityFilter()
+    {
+        return m_registry.getServiceReferences(CLASS_NAME, m_andFilter);
+    }
+}
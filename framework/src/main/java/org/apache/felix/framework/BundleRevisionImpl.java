@@ -42,8 +42,10 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.ProtectionDomain;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -72,6 +74,7 @@ public class BundleRevisionImpl implements BundleRevision, Resource
 
     private volatile Content m_content;
     private volatile List<Content> m_contentPath;
+    private volatile ContentPathIndex m_contentPathIndex;
     private volatile ProtectionDomain m_protectionDomain = null;
     private final static SecureAction m_secureAction = new SecureAction();
 
@@ -504,7 +507,8 @@ public class BundleRevisionImpl implements BundleRevision, Resource
             (url == null) &&
             (i < contentPath.size()); i++)
         {
-            if (contentPath.get(i).hasEntry(name))
+            if (mayContainEntry(contentPath, i, name)
+                && contentPath.get(i).hasEntry(name))
             {
                 url = createURL(i + 1, name);
             }
@@ -542,7 +546,8 @@ public class BundleRevisionImpl implements BundleRevision, Resource
             // Check the module class path.
             for (int i = 0; i < contentPath.size(); i++)
             {
-                if (contentPath.get(i).hasEntry(name))
+                if (mayContainEntry(contentPath, i, name)
+                    && contentPath.get(i).hasEntry(name))
                 {
                     // Use the class path index + 1 for creating the path so
                     // that we can differentiate between module content URLs
@@ -556,6 +561,96 @@ public class BundleRevisionImpl implements BundleRevision, Resource
         return Collections.enumeration(l);
     }
 
+    /**
+     * Determines whether the class path entry at the given index of the
+     * content path can contain the named entry, which is only the case if it
+     * has entries in the same directory. Content paths with a single entry
+     * are not indexed.
+    **/
+    final boolean mayContainEntry(List<Content> contentPath, int idx, String name)
+    {
+        if (contentPath.size() < 2)
+        {
+            return true;
+        }
+        ContentPathIndex index = m_contentPathIndex;
+        if ((index == null) || (index.m_contentPath != contentPath))
+        {
+            index = new ContentPathIndex(contentPath);
+            m_contentPathIndex = index;
+        }
+        return index.mayContain(idx, name);
+    }
+
+    private static class ContentPathIndex
+    {
+        private final List<Content> m_contentPath;
+        private final Map<String, BitSet> m_dirs = new HashMap<String, BitSet>();
+        // Class path entries which cannot list their entries.
+        private final BitSet m_unindexed = new BitSet();
+
+        ContentPathIndex(List<Content> contentPath)
+        {
+            m_contentPath = contentPath;
+            for (int i = 0; i < contentPath.size(); i++)
+            {
+                Enumeration<String> entries = contentPath.get(i).getEntries();
+                if (entries == null)
+                {
+                    m_unindexed.set(i);
+                    continue;
+                }
+                while (entries.hasMoreElements())
+                {
+                    // JAR files need not contain entries for directories,
+                    // so add all parent directories of each entry.
+                    String dir = getDirectory(entries.nextElement());
+                    while (dir != null)
+                    {
+                        BitSet bits = m_dirs.get(dir);
+                        if (bits == null)
+                        {
+                            bits = new BitSet();
+                            m_dirs.put(dir, bits);
+                        }
+                        else if (bits.get(i))
+                        {
+                            break;
+                        }
+                        bits.set(i);
+                        dir = (dir.length() == 0) ? null : getDirectory(dir);
+                    }
+                }
+            }
+        }
+
+        boolean mayContain(int idx, String name)
+        {
+            if (m_unindexed.get(idx))
+            {
+                return true;
+            }
+            BitSet bits = m_dirs.get(getDirectory(name));
+            return (bits != null) && bits.get(idx);
+        }
+
+        private static String getDirectory(String name)
+        {
+            int start = 0;
+            while ((start < name.length()) && (name.charAt(start) == '/'))
+            {
+                start++;
+            }
+            int end = name.length();
+            if ((end > start) && (name.charAt(end - 1) == '/'))
+            {
+                end--;
+            }
+            int idx = name.lastIndexOf('/', end - 1);
+            return (idx < start) ? "" : name.substring(start, idx);
+        }
+    }
+
     // TODO: API: Investigate how to handle this better, perhaps we need
     // multiple URL policies, one for content -- one for class path.
     public URL getEntry(String name)
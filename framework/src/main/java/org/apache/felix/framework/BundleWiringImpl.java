@@ -75,6 +75,7 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class BundleWiringImpl implements BundleWiring
 {
@@ -172,6 +173,19 @@ public class BundleWiringImpl implements BundleWiring
 
     private volatile ConcurrentHashMap<String, ClassLoader> m_accessorLookupCache;
 
+    // Default number of misses remembered per wiring for classes and resources.
+    private static final int DEFAULT_NEGATIVE_CACHE_SIZE = 256;
+    // Names of classes and resources which were not found in the imports
+    // nor in the revision's own class path. TRUE marks a miss in an imported
+    // package, which ends the search, FALSE a miss that still has to try the
+    // dynamic imports. Cleared when a dynamic wire is added, refreshing
+    // creates a new wiring.
+    private final int m_negativeCacheSize;
+    private final Map<String, Boolean> m_classMisses;
+    private final Map<String, Boolean> m_resourceMisses;
+    private final AtomicLong m_negativeCacheHits = new AtomicLong();
+    private final AtomicLong m_negativeCacheMisses = new AtomicLong();
+
     BundleWiringImpl(
         Logger logger, Map configMap, StatefulResolver resolver,
         BundleRevisionImpl revision, List<BundleRevision> fragments,
@@ -463,6 +477,26 @@ public class BundleWiringImpl implements BundleWiring
 
         m_useLocalURLs =
             m_configMap.get(FelixConstants.USE_LOCALURLS_PROP) != null;
+
+        int negativeCacheSize = DEFAULT_NEGATIVE_CACHE_SIZE;
+        String negativeCacheSizeStr =
+            (String) m_configMap.get(FelixConstants.CLASSLOADER_NEGATIVE_CACHE_SIZE_PROP);
+        if (negativeCacheSizeStr != null)
+        {
+            try
+            {
+                negativeCacheSize = Integer.parseInt(negativeCacheSizeStr.trim());
+            }
+            catch (NumberFormatException ex)
+            {
+                // Use default.
+            }
+        }
+        m_negativeCacheSize = negativeCacheSize;
+        m_classMisses = (negativeCacheSize > 0)
+            ? new ConcurrentHashMap<String, Boolean>() : null;
+        m_resourceMisses = (negativeCacheSize > 0)
+            ? new ConcurrentHashMap<String, Boolean>() : null;
     }
 
     private static List<List<String>> parsePkgFilters(BundleCapability cap, String filtername)
@@ -502,6 +536,7 @@ public class BundleWiringImpl implements BundleWiring
         m_classLoader = null;
         m_isDisposed = true;
         m_accessorLookupCache = null;
+        clearNegativeCache();
     }
 
     // TODO: OSGi R4.3 - This really shouldn't be public, but it is needed by the
@@ -683,6 +718,76 @@ public class BundleWiringImpl implements BundleWiring
         // both values updates at the same time, but it seems unlikely
         // to cause any issues.
         m_wires = Util.newImmutableList(wires);
+
+        // The new wire may provide previously missing classes or resources.
+        clearNegativeCache();
+    }
+
+    /**
+     * Returns the number of class and resource lookups which were answered
+     * by the negative cache without searching the imports and the class path.
+    **/
+    public long getNegativeCacheHits()
+    {
+        return m_negativeCacheHits.get();
+    }
+
+    /**
+     * Returns the number of class and resource lookups which were not
+     * answered by the negative cache and had to be searched.
+    **/
+    public long getNegativeCacheMisses()
+    {
+        return m_negativeCacheMisses.get();
+    }
+
+    private void clearNegativeCache()
+    {
+        if (m_classMisses != null)
+        {
+            m_classMisses.clear();
+            m_resourceMisses.clear();
+        }
+    }
+
+    private Boolean getCachedMiss(String name, boolean isClass)
+    {
+        if (m_classMisses == null)
+        {
+            return null;
+        }
+        Boolean miss = (isClass) ? m_classMisses.get(name) : m_resourceMisses.get(name);
+        if (miss != null)
+        {
+            m_negativeCacheHits.incrementAndGet();
+        }
+        else
+        {
+            m_negativeCacheMisses.incrementAndGet();
+        }
+        return miss;
+    }
+
+    private void cacheMiss(String pkgName, String name, boolean isClass, Boolean terminal)
+    {
+        // Packages from required bundles are searched through the full
+        // delegation of their providers, which may change, so don't cache.
+        if ((m_classMisses == null) || m_isDisposed || m_requiredPkgs.containsKey(pkgName))
+        {
+            return;
+        }
+        Map<String, Boolean> misses = (isClass) ? m_classMisses : m_resourceMisses;
+        if (misses.size() >= m_negativeCacheSize)
+        {
+            // Evict an arbitrary entry to keep the cache bounded.
+            Iterator<String> it = misses.keySet().iterator();
+            if (it.hasNext())
+            {
+                it.next();
+                it.remove();
+            }
+        }
+        misses.put(name, terminal);
     }
 
     @Override
@@ -1542,38 +1647,26 @@ public class BundleWiringImpl implements BundleWiring
                     }
                 }
 
-                // Look in the revision's imports. Note that the search may
-                // be aborted if this method throws an exception, otherwise
-                // it continues if a null is returned.
-                result = searchImports(pkgName, name, isClass);
-
-                // If not found, try the revision's own class path.
-                if (result == null)
+                // Check if an earlier search of the imports and the revision's
+                // own class path did not find it.
+                Boolean cachedMiss = getCachedMiss(name, isClass);
+                if (cachedMiss != null)
                 {
-                    if (isClass)
+                    if (cachedMiss.booleanValue())
                     {
-                        ClassLoader cl = getClassLoaderInternal();
-                        if (cl == null)
+                        if (isClass)
                         {
                             throw new ClassNotFoundException(
-                                    "Unable to load class '"
-                                            + name
-                                            + "' because the bundle wiring for "
-                                            + m_revision.getSymbolicName()
-                                            + " is no longer valid.");
+                                    name + " not found by " + this.getBundle());
                         }
-                        result = ((BundleClassLoader) cl).findClass(name);
-                    }
-                    else
-                    {
-                        result = m_revision.getResourceLocal(name);
-                    }
-
-                    // If still not found, then try the revision's dynamic imports.
-                    if (result == null)
-                    {
-                        result = searchDynamicImports(pkgName, name, isClass);
+                        throw new ResourceNotFoundException(
+                                name + " not found by " + this.getBundle());
                     }
+                    result = searchDynamicImports(pkgName, name, isClass);
+                }
+                else
+                {
+                    result = searchImportsAndLocal(pkgName, name, isClass);
                 }
             }
             finally
@@ -1606,6 +1699,60 @@ public class BundleWiringImpl implements BundleWiring
         return result;
     }
 
+    private Object searchImportsAndLocal(String pkgName, String name, boolean isClass)
+            throws ClassNotFoundException, ResourceNotFoundException
+    {
+        // Look in the revision's imports. Note that the search may
+        // be aborted if this method throws an exception, otherwise
+        // it continues if a null is returned.
+        Object result;
+        try
+        {
+            result = searchImports(pkgName, name, isClass);
+        }
+        catch (ClassNotFoundException ex)
+        {
+            cacheMiss(pkgName, name, isClass, Boolean.TRUE);
+            throw ex;
+        }
+        catch (ResourceNotFoundException ex)
+        {
+            cacheMiss(pkgName, name, isClass, Boolean.TRUE);
+            throw ex;
+        }
+
+        // If not found, try the revision's own class path.
+        if (result == null)
+        {
+            if (isClass)
+            {
+                ClassLoader cl = getClassLoaderInternal();
+                if (cl == null)
+                {
+                    throw new ClassNotFoundException(
+                            "Unable to load class '"
+                                    + name
+                                    + "' because the bundle wiring for "
+                                    + m_revision.getSymbolicName()
+                                    + " is no longer valid.");
+                }
+                result = ((BundleClassLoader) cl).findClass(name);
+            }
+            else
+            {
+                result = m_revision.getResourceLocal(name);
+            }
+
+            // If still not found, then try the revision's dynamic imports.
+            if (result == null)
+            {
+                cacheMiss(pkgName, name, isClass, Boolean.FALSE);
+                result = searchDynamicImports(pkgName, name, isClass);
+            }
+        }
+        return result;
+    }
+
     private Object searchImports(String pkgName, String name, boolean isClass)
             throws ClassNotFoundException, ResourceNotFoundException
     {
@@ -2047,8 +2194,11 @@ public class BundleWiringImpl implements BundleWiring
                         (bytes == null) &&
                         (i < contentPath.size()); i++)
                 {
-                    bytes = contentPath.get(i).getEntryAsBytes(actual);
-                    content = contentPath.get(i);
+                    if (m_wiring.m_revision.mayContainEntry(contentPath, i, actual))
+                    {
+                        bytes = contentPath.get(i).getEntryAsBytes(actual);
+                        content = contentPath.get(i);
+                    }
                 }
 
                 if (bytes != null)
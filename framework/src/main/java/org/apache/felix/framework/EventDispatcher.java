@@ -28,10 +28,19 @@ import java.util.EventListener;
 import java.util.EventObject;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.felix.framework.util.*;
 import org.osgi.framework.AllServiceListener;
@@ -78,14 +87,56 @@ public class EventDispatcher
 
     private static final SecureAction m_secureAction = new SecureAction();
 
+    // If greater than one, asynchronous events of this dispatcher are not
+    // delivered by the shared thread, but through one lane per bundle
+    // context on a private pool with this many threads. Each lane delivers
+    // its events in order, while lanes of different bundle contexts are
+    // delivered in parallel.
+    private final int m_parallelism;
+    private volatile ThreadPoolExecutor m_executor = null;
+    private final ConcurrentMap<BundleContext, DeliveryLane> m_lanes =
+        new ConcurrentHashMap<BundleContext, DeliveryLane>();
+
     public EventDispatcher(Logger logger, ServiceRegistry registry)
+    {
+        this(logger, registry, 1);
+    }
+
+    public EventDispatcher(Logger logger, ServiceRegistry registry, int parallelism)
     {
         m_logger = logger;
         m_registry = registry;
+        m_parallelism = parallelism;
     }
 
     public void startDispatching()
     {
+        if (m_parallelism > 1)
+        {
+            synchronized (m_lanes)
+            {
+                if (m_executor == null)
+                {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                        m_parallelism, m_parallelism,
+                        60, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(),
+                        new ThreadFactory()
+                        {
+                            final AtomicInteger counter = new AtomicInteger();
+                            @Override
+                            public Thread newThread(Runnable r)
+                            {
+                                return new Thread(r, "FelixDispatchQueue-" + counter.incrementAndGet());
+                            }
+                        });
+                    executor.allowCoreThreadTimeOut(true);
+                    m_executor = executor;
+                }
+            }
+            return;
+        }
+
         synchronized (m_threadLock)
         {
             // Start event dispatching thread if necessary.
@@ -125,6 +176,34 @@ public class EventDispatcher
 
     public void stopDispatching()
     {
+        if (m_parallelism > 1)
+        {
+            ThreadPoolExecutor executor;
+            synchronized (m_lanes)
+            {
+                executor = m_executor;
+                m_executor = null;
+            }
+            if (executor != null)
+            {
+                // Let the lanes deliver what has already been queued.
+                executor.shutdown();
+                boolean terminated = false;
+                while (!terminated)
+                {
+                    try
+                    {
+                        terminated = executor.awaitTermination(1, TimeUnit.SECONDS);
+                    }
+                    catch (InterruptedException ex)
+                    {
+                    }
+                }
+                m_lanes.clear();
+            }
+            return;
+        }
+
         synchronized (m_threadLock)
         {
             // Return if already dead or stopping.
@@ -388,6 +467,9 @@ public class EventDispatcher
             // Remove all service listeners associated with the specified bundle.
             m_svcListeners = removeListenerInfos(m_svcListeners, bc);
         }
+
+        // A lane that still has queued events finishes delivering them.
+        m_lanes.remove(bc);
     }
 
     public Filter updateListener(BundleContext bc, Class clazz, EventListener l, Filter filter)
@@ -769,6 +851,12 @@ public class EventDispatcher
         Map<BundleContext, List<ListenerInfo>> listeners,
         EventObject event)
     {
+        if (dispatcher.m_parallelism > 1)
+        {
+            dispatcher.fireEventOnLanes(type, listeners, event);
+            return;
+        }
+
         //TODO: should possibly check this within thread lock, seems to be ok though without
         // If dispatch thread is stopped, then ignore dispatch request.
         if (m_stopping || m_thread == null)
@@ -806,6 +894,38 @@ public class EventDispatcher
         }
     }
 
+    private void fireEventOnLanes(
+        int type, Map<BundleContext, List<ListenerInfo>> listeners, EventObject event)
+    {
+        // If the pool is stopped, then ignore dispatch request.
+        ThreadPoolExecutor executor = m_executor;
+        if (executor == null)
+        {
+            return;
+        }
+
+        for (Entry<BundleContext, List<ListenerInfo>> entry : listeners.entrySet())
+        {
+            DeliveryLane lane = m_lanes.get(entry.getKey());
+            if (lane == null)
+            {
+                lane = new DeliveryLane();
+                DeliveryLane existing = m_lanes.putIfAbsent(entry.getKey(), lane);
+                if (existing != null)
+                {
+                    lane = existing;
+                }
+            }
+
+            Request req = new Request();
+            req.m_dispatcher = this;
+            req.m_type = type;
+            req.m_listeners = Collections.singletonMap(entry.getKey(), entry.getValue());
+            req.m_event = event;
+            lane.enqueue(executor, req);
+        }
+    }
+
     private static void fireEventImmediately(
         EventDispatcher dispatcher, int type,
         Map<BundleContext, List<ListenerInfo>> listeners,
@@ -1160,6 +1280,66 @@ public class EventDispatcher
         }
     }
 
+    /**
+     * Delivers the asynchronous events of one bundle context in the order
+     * they were fired. A lane is scheduled on the pool only while it has
+     * queued events, so it never occupies more than one thread.
+    **/
+    private static class DeliveryLane implements Runnable
+    {
+        private final LinkedList<Request> m_queue = new LinkedList<Request>();
+        private boolean m_scheduled = false;
+
+        void enqueue(ThreadPoolExecutor executor, Request req)
+        {
+            boolean schedule;
+            synchronized (this)
+            {
+                m_queue.add(req);
+                schedule = !m_scheduled;
+                m_scheduled = true;
+            }
+            if (schedule)
+            {
+                try
+                {
+                    executor.execute(this);
+                }
+                catch (RejectedExecutionException ex)
+                {
+                    // The pool is shutting down, so drop the events
+                    // just like the shared dispatch thread does.
+                    synchronized (this)
+                    {
+                        m_queue.clear();
+                        m_scheduled = false;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            while (true)
+            {
+                Request req;
+                synchronized (this)
+                {
+                    req = m_queue.poll();
+                    if (req == null)
+                    {
+                        m_scheduled = false;
+                        return;
+                    }
+                }
+                fireEventImmediately(
+                    req.m_dispatcher, req.m_type, req.m_listeners,
+                    req.m_event, null);
+            }
+        }
+    }
+
     private static class Request
     {
         public static final int FRAMEWORK_EVENT = 0;
@@ -33,6 +33,7 @@ import org.apache.felix.framework.util.ShrinkableCollection;
 import org.apache.felix.framework.util.StringMap;
 import org.apache.felix.framework.util.ThreadGate;
 import org.apache.felix.framework.util.Util;
+import org.apache.felix.framework.util.manifestparser.ManifestParser;
 import org.apache.felix.framework.util.manifestparser.NativeLibraryClause;
 import org.apache.felix.framework.wiring.BundleRequirementImpl;
 import org.osgi.framework.AdminPermission;
@@ -426,14 +427,28 @@ public class Felix extends BundleImpl implements Framework
         // Create default bundle stream handler.
         m_bundleStreamHandler = new URLHandlersBundleStreamHandler(this, m_secureAction);
 
-        // Create service registry.
+        // Create service registry, indexing any additionally
+        // configured service properties.
+        List<String> indexProps = null;
+        String indexPropsStr = (String) m_configMap.get(FelixConstants.SERVICE_INDEX_PROPERTIES_PROP);
+        if (indexPropsStr != null)
+        {
+            indexProps = new ArrayList<String>();
+            for (String prop : ManifestParser.parseDelimitedString(indexPropsStr, ","))
+            {
+                if (prop.length() > 0)
+                {
+                    indexProps.add(prop);
+                }
+            }
+        }
         m_registry = new ServiceRegistry(m_logger, new ServiceRegistryCallbacks() {
             @Override
             public void serviceChanged(ServiceEvent event, Dictionary oldProps)
             {
                 fireServiceEvent(event, oldProps);
             }
-        });
+        }, indexProps);
 
         // Create a resolver and its state.
         m_resolver = new StatefulResolver(this, m_registry);
@@ -454,7 +469,22 @@ public class Felix extends BundleImpl implements Framework
         }
 
         // Create event dispatcher.
-        m_dispatcher = new EventDispatcher(m_logger, m_registry);
+        int dispatchThreads = 1;
+        String dispatchThreadsStr = (String) m_configMap.get(FelixConstants.EVENT_DISPATCH_THREADS_PROP);
+        if (dispatchThreadsStr != null)
+        {
+            try
+            {
+                dispatchThreads = Integer.parseInt(dispatchThreadsStr.trim());
+            }
+            catch (NumberFormatException ex)
+            {
+                m_logger.log(Logger.LOG_WARNING,
+                    "Invalid value for " + FelixConstants.EVENT_DISPATCH_THREADS_PROP
+                    + ": " + dispatchThreadsStr);
+            }
+        }
+        m_dispatcher = new EventDispatcher(m_logger, m_registry, dispatchThreads);
 
         // Create framework wiring object.
         m_fwkWiring = new FrameworkWiringImpl(this, m_registry);
@@ -850,6 +880,21 @@ public class Felix extends BundleImpl implements Framework
                     m_extensionManager.startExtensionBundle(this, (BundleImpl) extension);
                 }
 
+                // If enabled, restore the wiring persisted on the last shutdown
+                // so that unchanged bundles do not need to be resolved again.
+                if (!javaVersionChanged && isResolutionSnapshotEnabled())
+                {
+                    try
+                    {
+                        new ResolutionSnapshot(this).restore(
+                            m_cache.getSystemBundleDataFile(ResolutionSnapshot.SNAPSHOT_FILE));
+                    }
+                    catch (Exception ex)
+                    {
+                        m_logger.log(Logger.LOG_WARNING, "Unable to restore resolution snapshot.", ex);
+                    }
+                }
+
                 // Now that we have loaded all cached bundles and have determined the
                 // max bundle ID of cached bundles, we need to try to load the next
                 // bundle ID from persistent storage. In case of failure, we should
@@ -1045,6 +1090,11 @@ public class Felix extends BundleImpl implements Framework
         return currentVersion != lastVersion;
     }
 
+    private boolean isResolutionSnapshotEnabled()
+    {
+        return "true".equalsIgnoreCase(_getProperty(FelixConstants.RESOLVER_SNAPSHOT));
+    }
+
     void setBundleProtectionDomain(BundleRevisionImpl revisionImpl) throws Exception
     {
         Object certificates = null;
@@ -5208,6 +5258,20 @@ public class Felix extends BundleImpl implements Framework
                 }
             }
 
+            // Persist the current wiring for the next start, if enabled.
+            if (isResolutionSnapshotEnabled())
+            {
+                try
+                {
+                    new ResolutionSnapshot(Felix.this).write(
+                        m_cache.getSystemBundleDataFile(ResolutionSnapshot.SNAPSHOT_FILE));
+                }
+                catch (Exception ex)
+                {
+                    m_logger.log(Logger.LOG_WARNING, "Unable to write resolution snapshot.", ex);
+                }
+            }
+
             // Dispose of the bundles to close their associated contents.
             bundles = getBundles();
             for (int i = 0; i < bundles.length; i++)
@@ -0,0 +1,440 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.felix.framework.capabilityset.CapabilitySet;
+import org.apache.felix.framework.util.FelixConstants;
+import org.apache.felix.framework.wiring.BundleRequirementImpl;
+import org.apache.felix.framework.wiring.BundleWireImpl;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleRequirement;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.resource.Resource;
+import org.osgi.resource.Wire;
+
+/**
+ * Persists the wiring of all resolved bundles when the framework is stopped
+ * so that a subsequent start on the same bundle cache can restore it without
+ * running the resolver. The snapshot records, for every resolved bundle, its
+ * wires as indexes into the declared requirements and capabilities of the
+ * involved bundles. It is only applied if the set of installed bundles, their
+ * last modified stamps and the resolution related framework configuration
+ * are unchanged; otherwise it is discarded and bundles resolve as usual.
+ * Resolver hooks are not consulted for restored wirings.
+**/
+class ResolutionSnapshot
+{
+    static final String SNAPSHOT_FILE = "resolution.snapshot";
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    // Configuration properties that influence the capabilities of the
+    // system bundle or the outcome of a resolve operation.
+    private static final String[] FINGERPRINT_PROPS = {
+        FelixConstants.FELIX_VERSION_PROPERTY,
+        "java.specification.version",
+        Constants.FRAMEWORK_SYSTEMPACKAGES,
+        Constants.FRAMEWORK_SYSTEMPACKAGES_EXTRA,
+        Constants.FRAMEWORK_SYSTEMCAPABILITIES,
+        Constants.FRAMEWORK_SYSTEMCAPABILITIES_EXTRA,
+        Constants.FRAMEWORK_BOOTDELEGATION,
+        Constants.FRAMEWORK_EXECUTIONENVIRONMENT,
+        Constants.FRAMEWORK_OS_NAME,
+        Constants.FRAMEWORK_OS_VERSION,
+        Constants.FRAMEWORK_PROCESSOR,
+        Constants.FRAMEWORK_LANGUAGE,
+        Constants.FRAMEWORK_BSNVERSION
+    };
+
+    private final Felix m_felix;
+    private final Logger m_logger;
+
+    ResolutionSnapshot(Felix felix)
+    {
+        m_felix = felix;
+        m_logger = felix.getLogger();
+    }
+
+    /**
+     * Writes the wiring of all currently resolved bundles to the given file.
+     * If the current state cannot be expressed as a snapshot, for example
+     * because a wire still refers to a stale revision, then no file is
+     * written.
+     * @param file the snapshot file.
+    **/
+    void write(File file)
+    {
+        Bundle[] bundles = m_felix.getBundles();
+        Map<Long, Long> stamps = new TreeMap<Long, Long>();
+        Map<Long, List<BundleWire>> wiresById = new TreeMap<Long, List<BundleWire>>();
+
+        for (Bundle bundle : bundles)
+        {
+            if (bundle.getBundleId() == 0)
+            {
+                continue;
+            }
+            stamps.put(bundle.getBundleId(), bundle.getLastModified());
+
+            BundleRevisionImpl revision = (BundleRevisionImpl) bundle.adapt(BundleRevision.class);
+            if ((revision == null) || revision.isExtension() || (revision.getWiring() == null))
+            {
+                continue;
+            }
+            wiresById.put(bundle.getBundleId(), revision.getWiring().getRequiredWires(null));
+        }
+
+        DataOutputStream out = null;
+        try
+        {
+            out = new DataOutputStream(new BufferedOutputStream(
+                Felix.m_secureAction.getFileOutputStream(file)));
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeUTF(getFingerprint());
+
+            out.writeInt(stamps.size());
+            for (Map.Entry<Long, Long> entry : stamps.entrySet())
+            {
+                out.writeLong(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+
+            out.writeInt(wiresById.size());
+            for (Map.Entry<Long, List<BundleWire>> entry : wiresById.entrySet())
+            {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (BundleWire wire : entry.getValue())
+                {
+                    if (!writeWire(out, wire))
+                    {
+                        throw new IOException("Unable to record wire: " + wire);
+                    }
+                }
+            }
+            out.close();
+            out = null;
+        }
+        catch (Exception ex)
+        {
+            m_logger.log(Logger.LOG_DEBUG, "Unable to write resolution snapshot.", ex);
+            if (out != null)
+            {
+                try
+                {
+                    out.close();
+                }
+                catch (IOException ignore)
+                {
+                    // Ignore.
+                }
+            }
+            Felix.m_secureAction.deleteFile(file);
+        }
+    }
+
+    private boolean writeWire(DataOutputStream out, BundleWire wire) throws IOException
+    {
+        BundleRevision reqOwner = wire.getRequirement().getRevision();
+        BundleRevision capOwner = wire.getCapability().getRevision();
+        int reqIdx = indexOf(reqOwner.getDeclaredRequirements(null), wire.getRequirement());
+        int capIdx = indexOf(capOwner.getDeclaredCapabilities(null), wire.getCapability());
+
+        // Only wires between current revisions are stable across restarts.
+        if ((reqIdx < 0) || (capIdx < 0)
+            || !isCurrent(reqOwner) || !isCurrent(capOwner)
+            || !isCurrent(wire.getProvider()))
+        {
+            return false;
+        }
+
+        String resolution = wire.getRequirement()
+            .getDirectives().get(Constants.RESOLUTION_DIRECTIVE);
+        out.writeBoolean(FelixConstants.RESOLUTION_DYNAMIC.equals(resolution));
+        out.writeUTF(wire.getRequirement().getNamespace());
+        out.writeLong(reqOwner.getBundle().getBundleId());
+        out.writeInt(reqIdx);
+        out.writeLong(wire.getProvider().getBundle().getBundleId());
+        out.writeLong(capOwner.getBundle().getBundleId());
+        out.writeInt(capIdx);
+        return true;
+    }
+
+    /**
+     * Reads the snapshot from the given file and, if it still matches the
+     * installed bundles and framework configuration, marks the recorded
+     * bundles as resolved with their recorded wires. The file is deleted
+     * afterwards in any case, since it is only valid for one restart.
+     * @param file the snapshot file.
+     * @return <tt>true</tt> if the snapshot was applied, <tt>false</tt> otherwise.
+    **/
+    boolean restore(File file)
+    {
+        if (!Felix.m_secureAction.fileExists(file))
+        {
+            return false;
+        }
+
+        Map<Resource, List<Wire>> wireMap = new HashMap<Resource, List<Wire>>();
+        Map<BundleRevision, List<BundleWire>> dynamicWires =
+            new HashMap<BundleRevision, List<BundleWire>>();
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(
+                Felix.m_secureAction.getFileInputStream(file)));
+            if (!readSnapshot(in, wireMap, dynamicWires))
+            {
+                m_logger.log(Logger.LOG_DEBUG,
+                    "Resolution snapshot is out of date and will be ignored.");
+                return false;
+            }
+        }
+        catch (Exception ex)
+        {
+            m_logger.log(Logger.LOG_WARNING, "Unable to read resolution snapshot.", ex);
+            return false;
+        }
+        finally
+        {
+            if (in != null)
+            {
+                try
+                {
+                    in.close();
+                }
+                catch (IOException ignore)
+                {
+                    // Ignore.
+                }
+            }
+            Felix.m_secureAction.deleteFile(file);
+        }
+
+        try
+        {
+            m_felix.getResolver().restore(wireMap, dynamicWires);
+        }
+        catch (Exception ex)
+        {
+            m_logger.log(Logger.LOG_WARNING,
+                "Unable to restore resolution snapshot, falling back to resolver.", ex);
+            return false;
+        }
+
+        m_logger.log(Logger.LOG_DEBUG,
+            "Restored wiring of " + wireMap.size() + " revisions from resolution snapshot.");
+        return true;
+    }
+
+    private boolean readSnapshot(
+        DataInputStream in,
+        Map<Resource, List<Wire>> wireMap,
+        Map<BundleRevision, List<BundleWire>> dynamicWires)
+        throws IOException
+    {
+        if ((in.readInt() != SNAPSHOT_VERSION) || !getFingerprint().equals(in.readUTF()))
+        {
+            return false;
+        }
+
+        // The installed bundles must be exactly the recorded ones.
+        int count = in.readInt();
+        if (count != (m_felix.getBundles().length - 1))
+        {
+            return false;
+        }
+        for (int i = 0; i < count; i++)
+        {
+            Bundle bundle = m_felix.getBundle(in.readLong());
+            if ((bundle == null) || (bundle.getLastModified() != in.readLong()))
+            {
+                return false;
+            }
+        }
+
+        count = in.readInt();
+        for (int i = 0; i < count; i++)
+        {
+            BundleRevisionImpl requirer = getRevision(in.readLong());
+            if ((requirer == null) || requirer.isExtension() || (requirer.getWiring() != null))
+            {
+                return false;
+            }
+            int wireCount = in.readInt();
+            List<Wire> wires = new ArrayList<Wire>(wireCount);
+            List<BundleWire> dynamics = new ArrayList<BundleWire>(0);
+            for (int j = 0; j < wireCount; j++)
+            {
+                boolean dynamic = in.readBoolean();
+                BundleWire wire = readWire(in, requirer);
+                if (wire == null)
+                {
+                    return false;
+                }
+                if (dynamic)
+                {
+                    dynamics.add(wire);
+                }
+                else
+                {
+                    wires.add(wire);
+                }
+            }
+            wireMap.put(requirer, wires);
+            if (!dynamics.isEmpty())
+            {
+                dynamicWires.put(requirer, dynamics);
+            }
+        }
+
+        // Every provider must either already be resolved or be
+        // resolved as part of this snapshot.
+        for (List<Wire> wires : wireMap.values())
+        {
+            for (Wire wire : wires)
+            {
+                if ((((BundleRevision) wire.getProvider()).getWiring() == null)
+                    && !wireMap.containsKey(wire.getProvider()))
+                {
+                    return false;
+                }
+            }
+        }
+        for (List<BundleWire> wires : dynamicWires.values())
+        {
+            for (BundleWire wire : wires)
+            {
+                if ((wire.getProvider().getWiring() == null)
+                    && !wireMap.containsKey(wire.getProvider()))
+                {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private BundleWire readWire(DataInputStream in, BundleRevision requirer) throws IOException
+    {
+        String namespace = in.readUTF();
+        BundleRevisionImpl reqOwner = getRevision(in.readLong());
+        int reqIdx = in.readInt();
+        BundleRevisionImpl provider = getRevision(in.readLong());
+        BundleRevisionImpl capOwner = getRevision(in.readLong());
+        int capIdx = in.readInt();
+
+        if ((reqOwner == null) || (provider == null) || (capOwner == null))
+        {
+            return null;
+        }
+
+        List<BundleRequirement> reqs = reqOwner.getDeclaredRequirements(null);
+        List<BundleCapability> caps = capOwner.getDeclaredCapabilities(null);
+        if ((reqIdx >= reqs.size()) || (capIdx >= caps.size()))
+        {
+            return null;
+        }
+
+        BundleRequirement req = reqs.get(reqIdx);
+        BundleCapability cap = caps.get(capIdx);
+        if (!req.getNamespace().equals(namespace) || !cap.getNamespace().equals(namespace))
+        {
+            return null;
+        }
+        if ((req instanceof BundleRequirementImpl)
+            && !CapabilitySet.matches(cap, ((BundleRequirementImpl) req).getFilter()))
+        {
+            return null;
+        }
+
+        return new BundleWireImpl(requirer, req, provider, cap);
+    }
+
+    private BundleRevisionImpl getRevision(long id)
+    {
+        Bundle bundle = m_felix.getBundle(id);
+        return (bundle == null) ? null : (BundleRevisionImpl) bundle.adapt(BundleRevision.class);
+    }
+
+    private static boolean isCurrent(BundleRevision revision)
+    {
+        return revision.getBundle().adapt(BundleRevision.class) == revision;
+    }
+
+    private static int indexOf(List<?> list, Object o)
+    {
+        // Use identity since requirements and capabilities
+        // do not implement equals().
+        for (int i = 0; i < list.size(); i++)
+        {
+            if (list.get(i) == o)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String getFingerprint()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (String key : FINGERPRINT_PROPS)
+        {
+            String value = m_felix.getProperty(key);
+            sb.append(key).append('=').append((value == null) ? "" : value).append('\n');
+        }
+        // Only a digest is stored, since the values may be larger
+        // than what writeUTF() supports.
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(
+                sb.toString().getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+            {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        }
+        catch (Exception ex)
+        {
+            // SHA-256 and UTF-8 are always supported.
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -30,7 +30,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.apache.felix.framework.util.MapToDictionary;
 import org.apache.felix.framework.util.StringMap;
 import org.apache.felix.framework.util.Util;
 import org.apache.felix.framework.wiring.BundleCapabilityImpl;
@@ -127,9 +126,12 @@ class ServiceRegistrationImpl implements ServiceRegistration
             oldProps = m_propMap;
             // Set the properties.
             initializeProperties(dict);
+            // Update the indexes while holding the lock, so that concurrent
+            // updates are applied in the order of the property changes.
+            m_registry.updateServiceIndexes(this, oldProps);
         }
         // Tell registry about it.
-        m_registry.servicePropertiesModified(this, new MapToDictionary(oldProps));
+        m_registry.servicePropertiesModified(this, oldProps);
     }
 
     public void unregister()
@@ -20,7 +20,6 @@ package org.apache.felix.framework;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Iterator;
 import java.util.List;
@@ -33,6 +32,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.felix.framework.capabilityset.CapabilitySet;
 import org.apache.felix.framework.capabilityset.SimpleFilter;
+import org.apache.felix.framework.util.MapToDictionary;
 import org.apache.felix.framework.wiring.BundleCapabilityImpl;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.Constants;
@@ -53,7 +53,7 @@ public class ServiceRegistry
     private final ConcurrentMap<Bundle, List<ServiceRegistration<?>>> m_regsMap = new ConcurrentHashMap<Bundle, List<ServiceRegistration<?>>>();
 
     // Capability set for all service registrations.
-    private final CapabilitySet m_regCapSet = new CapabilitySet(Collections.singletonList(Constants.OBJECTCLASS), false);
+    private final CapabilitySet m_regCapSet;
 
     // Maps bundle to an array of usage counts.
     private final ConcurrentMap<Bundle, UsageCount[]> m_inUseMap = new ConcurrentHashMap<Bundle, UsageCount[]>();
@@ -63,9 +63,37 @@ public class ServiceRegistry
     private final HookRegistry hookRegistry = new HookRegistry();
 
     public ServiceRegistry(final Logger logger, final ServiceRegistryCallbacks callbacks)
+    {
+        this(logger, callbacks, null);
+    }
+
+    /**
+     * Create a service registry which, in addition to the object class,
+     * indexes the given service properties, so that lookups with equality
+     * filters on them do not have to test every service of a class.
+     * @param logger The logger
+     * @param callbacks Optional callbacks
+     * @param indexProps Additional service properties to index or {@code null}.
+     */
+    public ServiceRegistry(final Logger logger, final ServiceRegistryCallbacks callbacks,
+        final List<String> indexProps)
     {
         m_logger = logger;
         m_callbacks = callbacks;
+
+        final List<String> indices = new ArrayList<String>();
+        indices.add(Constants.OBJECTCLASS);
+        if (indexProps != null)
+        {
+            for (final String prop : indexProps)
+            {
+                if (!indices.contains(prop))
+                {
+                    indices.add(prop);
+                }
+            }
+        }
+        m_regCapSet = new CapabilitySet(indices, false);
     }
 
     /**
@@ -593,13 +621,24 @@ public class ServiceRegistry
         return bundles;
     }
 
-    void servicePropertiesModified(ServiceRegistration<?> reg, Dictionary<?,?> oldProps)
+    /**
+     * Update the indexes of a service after its properties have changed.
+     * Must be called while holding the lock of the registration.
+     * @param reg The registration of the service
+     * @param oldProps The properties before the change
+     */
+    void updateServiceIndexes(ServiceRegistration<?> reg, Map<String, Object> oldProps)
+    {
+        m_regCapSet.updateCapability((BundleCapabilityImpl) reg.getReference(), oldProps);
+    }
+
+    void servicePropertiesModified(ServiceRegistration<?> reg, Map<String, Object> oldProps)
     {
         this.hookRegistry.updateHooks(reg.getReference());
         if (m_callbacks != null)
         {
             m_callbacks.serviceChanged(
-                new ServiceEvent(ServiceEvent.MODIFIED, reg.getReference()), oldProps);
+                new ServiceEvent(ServiceEvent.MODIFIED, reg.getReference()), new MapToDictionary(oldProps));
         }
     }
 
@@ -694,6 +694,57 @@ class StatefulResolver
         return provider;
     }
 
+    /**
+     * Marks the revisions in the given wire map as resolved without invoking
+     * the resolver, since the wires are already known, e.g., because they were
+     * restored from a {@link ResolutionSnapshot}. Dynamic wires are attached
+     * to the wirings of their requirers afterwards.
+    **/
+    void restore(
+        Map<Resource, List<Wire>> wireMap,
+        Map<BundleRevision, List<BundleWire>> dynamicWires)
+        throws ResolutionException
+    {
+        // Acquire global lock.
+        boolean locked = m_felix.acquireGlobalLock();
+        if (!locked)
+        {
+            throw new ResolveException(
+                "Unable to acquire global lock for resolve.", null, null);
+        }
+
+        if (m_isResolving)
+        {
+            m_felix.releaseGlobalLock();
+            throw new IllegalStateException("Nested resolve operations not allowed.");
+        }
+        m_isResolving = true;
+
+        try
+        {
+            markResolvedRevisions(wireMap);
+
+            for (Entry<BundleRevision, List<BundleWire>> entry : dynamicWires.entrySet())
+            {
+                BundleWiringImpl wiring = (BundleWiringImpl) entry.getKey().getWiring();
+                for (BundleWire bw : entry.getValue())
+                {
+                    m_felix.getDependencies().addDependent(bw);
+                    wiring.addDynamicWire(bw);
+                }
+            }
+        }
+        finally
+        {
+            // Clear resolving flag.
+            m_isResolving = false;
+            // Always release the global lock.
+            m_felix.releaseGlobalLock();
+        }
+
+        fireResolvedEvents(wireMap);
+    }
+
     private BundleRequirementImpl findDynamicRequirement(List<BundleRequirement> dynamics, List<BundleCapability> candidates)
     {
         for (int dynIdx = 0; (candidates.size() > 0)  && (dynIdx < dynamics.size()); dynIdx++)
@@ -75,6 +75,13 @@ import java.util.Map;
  *       string provides control over the size of the internal buffer of the
  *       disk cache for performance reasons.
  *   </li>
+ *   <li><tt>felix.cache.jarindex</tt> - Enables a memory mapped index of
+ *       the entries of each bundle JAR file, which is stored in the revision
+ *       directory and used to look up and read entries without opening the
+ *       JAR file as a ZIP file. Entries are read through a file channel,
+ *       which is kept open unless <tt>felix.cache.filelimit</tt> is set, in
+ *       which case every read opens the JAR file. This is disabled by default.
+ *   </li>
  * <p>
  * For specific information on how to configure the Felix framework, refer
  * to the Felix framework usage documentation.
@@ -87,6 +94,7 @@ public class BundleCache
     public static final String CACHE_ROOTDIR_PROP = "felix.cache.rootdir";
     public static final String CACHE_LOCKING_PROP = "felix.cache.locking";
     public static final String CACHE_FILELIMIT_PROP = "felix.cache.filelimit";
+    public static final String CACHE_JARINDEX_PROP = "felix.cache.jarindex";
     private static final ThreadLocal m_defaultBuffer = new ThreadLocal();
     private static volatile int DEFAULT_BUFFER = 1024 * 64;
 
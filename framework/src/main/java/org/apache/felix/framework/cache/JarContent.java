@@ -48,11 +48,19 @@ public class JarContent implements Content
     private final File m_rootDir;
     private final File m_file;
     private final WeakZipFile m_zipFile;
+    private final JarEntryIndex m_index;
     private final boolean m_isZipFileOwner;
     private Map m_nativeLibMap;
 
     public JarContent(Logger logger, Map configMap, WeakZipFileFactory zipFactory,
         Object revisionLock, File rootDir, File file, WeakZipFile zipFile)
+    {
+        this(logger, configMap, zipFactory, revisionLock, rootDir, file, zipFile, null);
+    }
+
+    JarContent(Logger logger, Map configMap, WeakZipFileFactory zipFactory,
+        Object revisionLock, File rootDir, File file, WeakZipFile zipFile,
+        JarEntryIndex index)
     {
         m_logger = logger;
         m_configMap = configMap;
@@ -76,6 +84,7 @@ public class JarContent implements Content
         {
             m_zipFile = zipFile;
         }
+        m_index = index;
         m_isZipFileOwner = (zipFile == null);
     }
 
@@ -103,6 +112,10 @@ public class JarContent implements Content
 
     public boolean hasEntry(String name) throws IllegalStateException
     {
+        if (m_index != null)
+        {
+            return m_index.hasEntry(name);
+        }
         try
         {
             ZipEntry ze = m_zipFile.getEntry(name);
@@ -119,6 +132,11 @@ public class JarContent implements Content
 
     public Enumeration<String> getEntries()
     {
+        if (m_index != null)
+        {
+            return m_index.getEntries();
+        }
+
         // Wrap entries enumeration to filter non-matching entries.
         Enumeration<String> e = m_zipFile.names();
 
@@ -128,6 +146,23 @@ public class JarContent implements Content
 
     public byte[] getEntryAsBytes(String name) throws IllegalStateException
     {
+        if (m_index != null)
+        {
+            try
+            {
+                return m_index.getEntryAsBytes(name);
+            }
+            catch (IOException ex)
+            {
+                // Fall back to the zip file, for example if the read
+                // was interrupted.
+                m_logger.log(
+                    Logger.LOG_DEBUG,
+                    "JarContent: Unable to read indexed entry " + name + " in ZIP file "
+                    + m_file.getAbsolutePath() + ": " + ex.getMessage());
+            }
+        }
+
         // Get the embedded resource.
         try
         {
@@ -202,7 +237,7 @@ public class JarContent implements Content
         if (entryName.equals(FelixConstants.CLASS_PATH_DOT))
         {
             return new JarContent(m_logger, m_configMap, m_zipFactory, m_revisionLock,
-                m_rootDir, m_file, m_zipFile);
+                m_rootDir, m_file, m_zipFile, m_index);
         }
 
         // Remove any leading slash.
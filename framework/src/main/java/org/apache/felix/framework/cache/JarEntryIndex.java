@@ -0,0 +1,576 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * <p>
+ * This class implements a persistent index of the entries of a bundle JAR
+ * file. The index is built from the central directory of the JAR file once
+ * and is stored next to it in the revision directory, from where it is
+ * memory mapped. It answers entry lookups without opening the JAR file as
+ * a <tt>ZipFile</tt> and reads stored or deflated entries directly through
+ * a positional <tt>FileChannel</tt>.
+ * </p>
+ * <p>
+ * JAR files which use ZIP64 extensions, encryption, or compression methods
+ * other than stored and deflated are not indexed.
+ * </p>
+ * <p>
+ * Reading entries only avoids opening the JAR file if it may be kept open.
+ * Otherwise, for example if the number of open files is limited, each read
+ * opens and closes its own channel, because reads come one at a time from
+ * class and resource loading and there is no batch to share a channel with.
+ * Lookups and entry enumeration never open the JAR file.
+ * </p>
+**/
+class JarEntryIndex
+{
+    private static final int MAGIC = 0x464A4958;
+    private static final int VERSION = 1;
+    // Magic, version, JAR length, JAR last modified, and entry count.
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+
+    private static final int EOCD_SIG = 0x06054b50;
+    private static final int CEN_SIG = 0x02014b50;
+    private static final int LOC_SIG = 0x04034b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int CEN_SIZE = 46;
+    private static final int LOC_SIZE = 30;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File m_jarFile;
+    private final boolean m_keepOpen;
+    private final MappedByteBuffer m_index;
+    private final int m_count;
+    private FileChannel m_channel;
+    private boolean m_closed = false;
+
+    private JarEntryIndex(File jarFile, boolean keepOpen, MappedByteBuffer index)
+    {
+        m_jarFile = jarFile;
+        m_keepOpen = keepOpen;
+        m_index = index;
+        m_count = index.getInt(HEADER_SIZE - 4);
+    }
+
+    /**
+     * Opens the index of the specified JAR file, building it first if it
+     * does not exist yet or does not match the JAR file.
+     * @param indexFile the file storing the index.
+     * @param jarFile the indexed JAR file.
+     * @param keepOpen whether the JAR file may be kept open between reads.
+     * @return the index or <tt>null</tt> if the JAR file cannot be indexed.
+     * @throws IOException if the index cannot be read or written.
+    **/
+    static JarEntryIndex open(File indexFile, File jarFile, boolean keepOpen)
+        throws IOException
+    {
+        MappedByteBuffer index = map(indexFile, jarFile);
+        if (index == null)
+        {
+            if (!build(indexFile, jarFile))
+            {
+                return null;
+            }
+            index = map(indexFile, jarFile);
+            if (index == null)
+            {
+                return null;
+            }
+        }
+        return new JarEntryIndex(jarFile, keepOpen, index);
+    }
+
+    /**
+     * Determines whether the JAR file has the specified entry, or a
+     * directory entry for it, just like <tt>ZipFile.getEntry()</tt>.
+    **/
+    boolean hasEntry(String name)
+    {
+        return find(name) >= 0;
+    }
+
+    /**
+     * Returns the names of all entries in the order of the central
+     * directory or <tt>null</tt> if there are none.
+    **/
+    Enumeration<String> getEntries()
+    {
+        if (m_count == 0)
+        {
+            return null;
+        }
+        List<String> names = new ArrayList<String>(m_count);
+        int pos = HEADER_SIZE + (4 * m_count);
+        for (int i = 0; i < m_count; i++)
+        {
+            int len = m_index.getChar(pos);
+            names.add(getName(pos, len));
+            pos += 2 + len + 2 + 8 + 8 + 8;
+        }
+        return Collections.enumeration(names);
+    }
+
+    /**
+     * Returns the content of the specified entry. Unless the JAR file may be
+     * kept open, this opens the JAR file for the duration of the read.
+     * @return the content or <tt>null</tt> if there is no such entry.
+     * @throws IOException if the entry cannot be read.
+    **/
+    byte[] getEntryAsBytes(String name) throws IOException
+    {
+        int rec = find(name);
+        if (rec < 0)
+        {
+            return null;
+        }
+        int dataPos = rec + 2 + m_index.getChar(rec);
+        int method = m_index.getChar(dataPos);
+        long offset = m_index.getLong(dataPos + 2);
+        long csize = m_index.getLong(dataPos + 10);
+        long size = m_index.getLong(dataPos + 18);
+
+        FileChannel channel = getChannel();
+        try
+        {
+            ByteBuffer loc = ByteBuffer.allocate(LOC_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, loc, offset);
+            if (loc.getInt(0) != LOC_SIG)
+            {
+                throw new IOException("Invalid local header for " + name + " in " + m_jarFile);
+            }
+            long start = offset + LOC_SIZE + loc.getChar(26) + loc.getChar(28);
+
+            byte[] bytes = new byte[(int) size];
+            if (method == STORED)
+            {
+                readFully(channel, ByteBuffer.wrap(bytes), start);
+            }
+            else
+            {
+                // The inflater needs an extra dummy byte in no wrap mode.
+                byte[] compressed = new byte[(int) csize + 1];
+                readFully(channel, ByteBuffer.wrap(compressed, 0, (int) csize), start);
+                Inflater inflater = new Inflater(true);
+                try
+                {
+                    inflater.setInput(compressed);
+                    int n = 0;
+                    while ((n < bytes.length) && !inflater.finished())
+                    {
+                        int count = inflater.inflate(bytes, n, bytes.length - n);
+                        if ((count == 0) && (inflater.needsInput() || inflater.needsDictionary()))
+                        {
+                            break;
+                        }
+                        n += count;
+                    }
+                    if (n != bytes.length)
+                    {
+                        throw new IOException("Truncated entry " + name + " in " + m_jarFile);
+                    }
+                }
+                catch (DataFormatException ex)
+                {
+                    throw new IOException("Invalid entry " + name + " in " + m_jarFile
+                        + ": " + ex.getMessage());
+                }
+                finally
+                {
+                    inflater.end();
+                }
+            }
+            return bytes;
+        }
+        catch (ClosedChannelException ex)
+        {
+            // The channel was closed by an interrupt, so reopen it next time.
+            synchronized (this)
+            {
+                if (m_channel == channel)
+                {
+                    m_channel = null;
+                }
+            }
+            throw ex;
+        }
+        finally
+        {
+            if (!m_keepOpen)
+            {
+                channel.close();
+            }
+        }
+    }
+
+    synchronized void close()
+    {
+        m_closed = true;
+        if (m_channel != null)
+        {
+            try
+            {
+                m_channel.close();
+            }
+            catch (IOException ex)
+            {
+                // Not much we can do.
+            }
+            m_channel = null;
+        }
+    }
+
+    private FileChannel getChannel() throws IOException
+    {
+        if (!m_keepOpen)
+        {
+            return openChannel(m_jarFile);
+        }
+        synchronized (this)
+        {
+            if (m_closed)
+            {
+                throw new IOException("JAR index is closed: " + m_jarFile);
+            }
+            if (m_channel == null)
+            {
+                m_channel = openChannel(m_jarFile);
+            }
+            return m_channel;
+        }
+    }
+
+    /**
+     * Returns the position of the record of the specified entry or of its
+     * directory entry, or -1 if there is neither.
+    **/
+    private int find(String name)
+    {
+        byte[] bytes = name.getBytes(UTF8);
+        int rec = search(bytes);
+        if ((rec < 0) || ((getSize(rec) == 0) && !isDirectory(rec)))
+        {
+            byte[] dirBytes = new byte[bytes.length + 1];
+            System.arraycopy(bytes, 0, dirBytes, 0, bytes.length);
+            dirBytes[bytes.length] = '/';
+            int dirRec = search(dirBytes);
+            if (dirRec >= 0)
+            {
+                rec = dirRec;
+            }
+        }
+        return rec;
+    }
+
+    private int search(byte[] name)
+    {
+        int low = 0;
+        int high = m_count - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int rec = m_index.getInt(HEADER_SIZE + (4 * mid));
+            int cmp = compare(rec, name);
+            if (cmp < 0)
+            {
+                low = mid + 1;
+            }
+            else if (cmp > 0)
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return rec;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int rec, byte[] name)
+    {
+        int len = m_index.getChar(rec);
+        int n = Math.min(len, name.length);
+        for (int i = 0; i < n; i++)
+        {
+            int cmp = (m_index.get(rec + 2 + i) & 0xff) - (name[i] & 0xff);
+            if (cmp != 0)
+            {
+                return cmp;
+            }
+        }
+        return len - name.length;
+    }
+
+    private boolean isDirectory(int rec)
+    {
+        int len = m_index.getChar(rec);
+        return (len > 0) && (m_index.get(rec + 1 + len) == '/');
+    }
+
+    private long getSize(int rec)
+    {
+        return m_index.getLong(rec + 2 + m_index.getChar(rec) + 18);
+    }
+
+    private String getName(int rec, int len)
+    {
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++)
+        {
+            bytes[i] = m_index.get(rec + 2 + i);
+        }
+        return new String(bytes, UTF8);
+    }
+
+    private static MappedByteBuffer map(File indexFile, File jarFile) throws IOException
+    {
+        if (!BundleCache.getSecureAction().fileExists(indexFile))
+        {
+            return null;
+        }
+        FileInputStream is = BundleCache.getSecureAction().getFileInputStream(indexFile);
+        try
+        {
+            FileChannel channel = is.getChannel();
+            if (channel.size() < HEADER_SIZE)
+            {
+                return null;
+            }
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if ((index.getInt(0) != MAGIC)
+                || (index.getInt(4) != VERSION)
+                || (index.getLong(8) != jarFile.length())
+                || (index.getLong(16) != jarFile.lastModified()))
+            {
+                return null;
+            }
+            return index;
+        }
+        finally
+        {
+            is.close();
+        }
+    }
+
+    /**
+     * Parses the central directory of the JAR file and writes the index.
+     * @return <tt>false</tt> if the JAR file cannot be indexed.
+    **/
+    private static boolean build(File indexFile, File jarFile) throws IOException
+    {
+        long jarLength = jarFile.length();
+        long jarLastModified = jarFile.lastModified();
+
+        final List<byte[]> names = new ArrayList<byte[]>();
+        List<long[]> infos = new ArrayList<long[]>();
+        FileChannel channel = openChannel(jarFile);
+        try
+        {
+            long size = channel.size();
+            if (size < EOCD_SIZE)
+            {
+                return false;
+            }
+
+            // Find the end of central directory record, which may be
+            // followed by a comment of up to 64k.
+            int tailSize = (int) Math.min(size, EOCD_SIZE + 0xFFFF);
+            ByteBuffer tail = ByteBuffer.allocate(tailSize).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, tail, size - tailSize);
+            int eocd = -1;
+            for (int i = tailSize - EOCD_SIZE; i >= 0; i--)
+            {
+                if (tail.getInt(i) == EOCD_SIG)
+                {
+                    eocd = i;
+                    break;
+                }
+            }
+            if (eocd < 0)
+            {
+                return false;
+            }
+            int total = tail.getChar(eocd + 10);
+            long cenSize = tail.getInt(eocd + 12) & 0xFFFFFFFFL;
+            long cenOffset = tail.getInt(eocd + 16) & 0xFFFFFFFFL;
+            if ((total == 0xFFFF) || (cenSize == 0xFFFFFFFFL) || (cenOffset == 0xFFFFFFFFL)
+                || (cenOffset + cenSize > size))
+            {
+                return false;
+            }
+
+            ByteBuffer cen = ByteBuffer.allocate((int) cenSize).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, cen, cenOffset);
+            Set<String> seen = new HashSet<String>();
+            int pos = 0;
+            for (int i = 0; i < total; i++)
+            {
+                if ((pos + CEN_SIZE > cenSize) || (cen.getInt(pos) != CEN_SIG))
+                {
+                    return false;
+                }
+                int flags = cen.getChar(pos + 8);
+                int method = cen.getChar(pos + 10);
+                long csize = cen.getInt(pos + 20) & 0xFFFFFFFFL;
+                long usize = cen.getInt(pos + 24) & 0xFFFFFFFFL;
+                int nameLen = cen.getChar(pos + 28);
+                int extraLen = cen.getChar(pos + 30);
+                int commentLen = cen.getChar(pos + 32);
+                long offset = cen.getInt(pos + 42) & 0xFFFFFFFFL;
+                if (((flags & 1) != 0)
+                    || ((method != STORED) && (method != DEFLATED))
+                    || (csize == 0xFFFFFFFFL) || (usize == 0xFFFFFFFFL)
+                    || (offset == 0xFFFFFFFFL)
+                    || (usize > Integer.MAX_VALUE) || (csize >= Integer.MAX_VALUE))
+                {
+                    return false;
+                }
+                byte[] name = new byte[nameLen];
+                cen.position(pos + CEN_SIZE);
+                cen.get(name);
+                pos += CEN_SIZE + nameLen + extraLen + commentLen;
+
+                // Keep the first of duplicate entries.
+                if (seen.add(new String(name, UTF8)))
+                {
+                    names.add(name);
+                    infos.add(new long[] { method, offset, csize, usize });
+                }
+            }
+        }
+        finally
+        {
+            channel.close();
+        }
+
+        // Compute the record positions and sort them by name.
+        int count = names.size();
+        int[] positions = new int[count];
+        int pos = HEADER_SIZE + (4 * count);
+        List<Integer> sorted = new ArrayList<Integer>(count);
+        for (int i = 0; i < count; i++)
+        {
+            positions[i] = pos;
+            pos += 2 + names.get(i).length + 2 + 8 + 8 + 8;
+            sorted.add(Integer.valueOf(i));
+        }
+        Collections.sort(sorted, new Comparator<Integer>()
+        {
+            public int compare(Integer i1, Integer i2)
+            {
+                byte[] n1 = names.get(i1.intValue());
+                byte[] n2 = names.get(i2.intValue());
+                int n = Math.min(n1.length, n2.length);
+                for (int i = 0; i < n; i++)
+                {
+                    int cmp = (n1[i] & 0xff) - (n2[i] & 0xff);
+                    if (cmp != 0)
+                    {
+                        return cmp;
+                    }
+                }
+                return n1.length - n2.length;
+            }
+        });
+
+        // Write to a temporary file first, so a concurrent or interrupted
+        // write never leaves a partial index behind.
+        File tmpFile = new File(indexFile.getPath() + ".tmp");
+        DataOutputStream os = new DataOutputStream(new BufferedOutputStream(
+            BundleCache.getSecureAction().getFileOutputStream(tmpFile)));
+        try
+        {
+            os.writeInt(MAGIC);
+            os.writeInt(VERSION);
+            os.writeLong(jarLength);
+            os.writeLong(jarLastModified);
+            os.writeInt(count);
+            for (Integer idx : sorted)
+            {
+                os.writeInt(positions[idx.intValue()]);
+            }
+            for (int i = 0; i < count; i++)
+            {
+                byte[] name = names.get(i);
+                long[] info = infos.get(i);
+                os.writeShort(name.length);
+                os.write(name);
+                os.writeShort((int) info[0]);
+                os.writeLong(info[1]);
+                os.writeLong(info[2]);
+                os.writeLong(info[3]);
+            }
+        }
+        finally
+        {
+            os.close();
+        }
+        BundleCache.getSecureAction().deleteFile(indexFile);
+        if (!BundleCache.getSecureAction().renameFile(tmpFile, indexFile))
+        {
+            BundleCache.getSecureAction().deleteFile(tmpFile);
+            throw new IOException("Unable to write JAR index " + indexFile);
+        }
+        return true;
+    }
+
+    private static FileChannel openChannel(File file) throws IOException
+    {
+        return BundleCache.getSecureAction().getFileInputStream(file).getChannel();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+        throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            int n = channel.read(buffer, position);
+            if (n < 0)
+            {
+                throw new IOException("Unexpected end of file");
+            }
+            position += n;
+        }
+    }
+}
@@ -47,10 +47,12 @@ import java.util.zip.ZipEntry;
 class JarRevision extends BundleArchiveRevision
 {
     private static final transient String BUNDLE_JAR_FILE = "bundle.jar";
+    private static final transient String JAR_INDEX_FILE = "bundle.index";
 
     private final WeakZipFileFactory m_zipFactory;
     private final File m_bundleFile;
     private final WeakZipFile m_zipFile;
+    private final JarEntryIndex m_index;
 
     public JarRevision(
         Logger logger, Map configMap, WeakZipFileFactory zipFactory,
@@ -93,6 +95,8 @@ class JarRevision extends BundleArchiveRevision
             if (zipFile != null) zipFile.close();
             throw ex;
         }
+
+        m_index = openIndex();
     }
 
     public Map<String, Object> getManifestHeader() throws Exception
@@ -108,11 +112,15 @@ class JarRevision extends BundleArchiveRevision
     public Content getContent() throws Exception
     {
         return new JarContent(getLogger(), getConfig(), m_zipFactory,
-            this, getRevisionRootDir(), m_bundleFile, m_zipFile);
+            this, getRevisionRootDir(), m_bundleFile, m_zipFile, m_index);
     }
 
     protected void close() throws Exception
     {
+        if (m_index != null)
+        {
+            m_index.close();
+        }
         m_zipFile.close();
     }
 
@@ -120,6 +128,30 @@ class JarRevision extends BundleArchiveRevision
     // Private methods.
     //
 
+    private JarEntryIndex openIndex()
+    {
+        if (!Boolean.parseBoolean(
+            (String) getConfig().get(BundleCache.CACHE_JARINDEX_PROP)))
+        {
+            return null;
+        }
+        try
+        {
+            // Only keep the JAR file open for reading if the number of
+            // open files is not limited.
+            return JarEntryIndex.open(
+                new File(getRevisionRootDir(), JAR_INDEX_FILE), m_bundleFile,
+                m_zipFactory.getLimit() == 0);
+        }
+        catch (Exception ex)
+        {
+            getLogger().log(
+                Logger.LOG_WARNING,
+                "Unable to index JAR file " + m_bundleFile + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
     private void initialize(boolean byReference, InputStream is)
         throws Exception
     {
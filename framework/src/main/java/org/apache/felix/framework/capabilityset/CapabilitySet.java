@@ -25,6 +25,8 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +48,9 @@ import org.osgi.resource.Capability;
 public class CapabilitySet
 {
     private final SortedMap<String, Map<Object, Set<BundleCapability>>> m_indices; // Should also be concurrent!
+    // Capabilities with non-string values for an indexed attribute, which
+    // must still be compared one by one when matching that attribute.
+    private final SortedMap<String, Set<BundleCapability>> m_unindexed;
     private final Set<Capability> m_capSet = Collections.newSetFromMap(new ConcurrentHashMap<Capability, Boolean>());
     private final static SecureAction m_secureAction = new SecureAction();
 
@@ -84,10 +89,17 @@ public class CapabilitySet
             ? new ConcurrentSkipListMap<String, Map<Object, Set<BundleCapability>>>()
             : new ConcurrentSkipListMap<String, Map<Object, Set<BundleCapability>>>(
                 StringComparator.COMPARATOR);
+        m_unindexed = (caseSensitive)
+            ? new ConcurrentSkipListMap<String, Set<BundleCapability>>()
+            : new ConcurrentSkipListMap<String, Set<BundleCapability>>(
+                StringComparator.COMPARATOR);
         for (int i = 0; (indexProps != null) && (i < indexProps.size()); i++)
         {
             m_indices.put(
                 indexProps.get(i), new ConcurrentHashMap<Object, Set<BundleCapability>>());
+            m_unindexed.put(
+                indexProps.get(i),
+                Collections.newSetFromMap(new ConcurrentHashMap<BundleCapability, Boolean>()));
         }
     }
 
@@ -98,28 +110,73 @@ public class CapabilitySet
         // Index capability.
         for (Entry<String, Map<Object, Set<BundleCapability>>> entry : m_indices.entrySet())
         {
-            Object value = cap.getAttributes().get(entry.getKey());
-            if (value != null)
+            indexCapability(entry.getKey(), entry.getValue(), cap,
+                cap.getAttributes().get(entry.getKey()));
+        }
+    }
+
+    /**
+     * Updates the indices for a capability whose attributes have changed,
+     * e.g., a service reference whose service properties were modified.
+     * New attribute values are indexed before stale ones are removed, so
+     * a concurrent lookup never misses a value the capability had before
+     * and still has after the change.
+     * @param cap the capability whose attributes have changed.
+     * @param oldAttrs the attributes of the capability before the change.
+    **/
+    public void updateCapability(final BundleCapability cap, final Map<String, Object> oldAttrs)
+    {
+        if (m_capSet.contains(cap))
+        {
+            for (Entry<String, Map<Object, Set<BundleCapability>>> entry : m_indices.entrySet())
             {
-                if (value.getClass().isArray())
+                Object oldValue = oldAttrs.get(entry.getKey());
+                Object newValue = cap.getAttributes().get(entry.getKey());
+                if ((oldValue == newValue) || ((oldValue != null) && oldValue.equals(newValue)))
                 {
-                    value = convertArrayToList(value);
+                    continue;
                 }
 
-                ConcurrentMap<Object, Set<BundleCapability>> index =
-                        (ConcurrentMap<Object, Set<BundleCapability>>) entry.getValue();
+                indexCapability(entry.getKey(), entry.getValue(), cap, newValue);
 
-                if (value instanceof Collection)
+                if (oldValue != null)
                 {
-                    Collection c = (Collection) value;
-                    for (Object o : c)
+                    List newValues = toList(newValue);
+                    for (Object o : toList(oldValue))
                     {
-                        indexCapability(index, cap, o);
+                        if (!newValues.contains(o))
+                        {
+                            deindexCapability(entry.getValue(), cap, o);
+                        }
+                    }
+                    if (isIndexable(newValue))
+                    {
+                        m_unindexed.get(entry.getKey()).remove(cap);
                     }
                 }
-                else
+            }
+        }
+    }
+
+    private void indexCapability(
+        String name, Map<Object, Set<BundleCapability>> index, BundleCapability cap, Object value)
+    {
+        if (value != null)
+        {
+            // Only string values can be looked up by the string value of
+            // a filter, anything else must be compared when matching.
+            if (!isIndexable(value))
+            {
+                m_unindexed.get(name).add(cap);
+            }
+
+            ConcurrentMap<Object, Set<BundleCapability>> cindex =
+                (ConcurrentMap<Object, Set<BundleCapability>>) index;
+            for (Object o : toList(value))
+            {
+                if (o instanceof String)
                 {
-                    indexCapability(index, cap, value);
+                    indexCapability(cindex, cap, o);
                 }
             }
         }
@@ -144,26 +201,13 @@ public class CapabilitySet
                 Object value = cap.getAttributes().get(entry.getKey());
                 if (value != null)
                 {
-                    if (value.getClass().isArray())
-                    {
-                        value = convertArrayToList(value);
-                    }
-
                     Map<Object, Set<BundleCapability>> index = entry.getValue();
-
-                    if (value instanceof Collection)
+                    for (Object o : toList(value))
                     {
-                        Collection c = (Collection) value;
-                        for (Object o : c)
-                        {
-                            deindexCapability(index, cap, o);
-                        }
-                    }
-                    else
-                    {
-                        deindexCapability(index, cap, value);
+                        deindexCapability(index, cap, o);
                     }
                 }
+                m_unindexed.get(entry.getKey()).remove(cap);
             }
         }
     }
@@ -182,6 +226,39 @@ public class CapabilitySet
         }
     }
 
+    private static List toList(Object value)
+    {
+        if (value == null)
+        {
+            return Collections.EMPTY_LIST;
+        }
+        if (value.getClass().isArray())
+        {
+            return convertArrayToList(value);
+        }
+        if (value instanceof Collection)
+        {
+            return new ArrayList((Collection) value);
+        }
+        return Collections.singletonList(value);
+    }
+
+    private static boolean isIndexable(Object value)
+    {
+        if (value == null)
+        {
+            return true;
+        }
+        for (Object o : toList(value))
+        {
+            if (!(o instanceof String))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public Set<Capability> match(final SimpleFilter sf, final boolean obeyMandatory)
     {
         final Set<Capability> matches = match(m_capSet, sf);
@@ -204,7 +281,10 @@ public class CapabilitySet
             // For AND we calculate the intersection of each subfilter.
             // We can short-circuit the AND operation if there are no
             // remaining capabilities.
-            final List<SimpleFilter> sfs = (List<SimpleFilter>) sf.getValue();
+            // Start with the most selective indexed subfilters, so the
+            // remaining ones are evaluated against as few capabilities
+            // as possible.
+            final List<SimpleFilter> sfs = orderBySelectivity((List<SimpleFilter>) sf.getValue());
             for (int i = 0; (caps.size() > 0) && (i < sfs.size()); i++)
             {
                 matches = match(caps, sfs.get(i));
@@ -240,12 +320,36 @@ public class CapabilitySet
                 Set<BundleCapability> existingCaps = index.get(sf.getValue());
                 if (existingCaps != null)
                 {
-                    matches.addAll(existingCaps);
-                    if (caps != m_capSet)
+                    if (caps == m_capSet)
                     {
+                        matches.addAll(existingCaps);
+                    }
+                    else if (caps.size() < existingCaps.size())
+                    {
+                        // Probe the index with the remaining capabilities
+                        // rather than copying a large index entry.
+                        for (Capability cap : caps)
+                        {
+                            if (existingCaps.contains(cap))
+                            {
+                                matches.add(cap);
+                            }
+                        }
+                    }
+                    else
+                    {
+                        matches.addAll(existingCaps);
                         matches.retainAll(caps);
                     }
                 }
+                for (BundleCapability cap : m_unindexed.get(sf.getName()))
+                {
+                    if (caps.contains(cap)
+                        && compare(cap.getAttributes().get(sf.getName()), sf.getValue(), sf.getOperation()))
+                    {
+                        matches.add(cap);
+                    }
+                }
             }
             else
             {
@@ -267,6 +371,58 @@ public class CapabilitySet
         return matches;
     }
 
+    private List<SimpleFilter> orderBySelectivity(List<SimpleFilter> sfs)
+    {
+        // Flatten nested AND filters, since the result is the same.
+        List<SimpleFilter> flat = new ArrayList<SimpleFilter>(sfs.size());
+        flattenAnd(sfs, flat);
+        if (flat.size() < 2)
+        {
+            return flat;
+        }
+
+        final Map<SimpleFilter, Integer> costs = new IdentityHashMap<SimpleFilter, Integer>();
+        for (SimpleFilter sf : flat)
+        {
+            int cost = Integer.MAX_VALUE;
+            Map<Object, Set<BundleCapability>> index =
+                (sf.getName() != null) ? m_indices.get(sf.getName()) : null;
+            if ((sf.getOperation() == SimpleFilter.EQ) && (index != null))
+            {
+                Set<BundleCapability> existingCaps = index.get(sf.getValue());
+                cost = ((existingCaps != null) ? existingCaps.size() : 0)
+                    + m_unindexed.get(sf.getName()).size();
+            }
+            costs.put(sf, cost);
+        }
+        // Stable sort, so unindexed subfilters keep their relative order.
+        Collections.sort(flat, new Comparator<SimpleFilter>()
+        {
+            public int compare(SimpleFilter sf1, SimpleFilter sf2)
+            {
+                int c1 = costs.get(sf1);
+                int c2 = costs.get(sf2);
+                return (c1 < c2) ? -1 : ((c1 == c2) ? 0 : 1);
+            }
+        });
+        return flat;
+    }
+
+    private static void flattenAnd(List<SimpleFilter> sfs, List<SimpleFilter> flat)
+    {
+        for (SimpleFilter sf : sfs)
+        {
+            if (sf.getOperation() == SimpleFilter.AND)
+            {
+                flattenAnd((List<SimpleFilter>) sf.getValue(), flat);
+            }
+            else
+            {
+                flat.add(sf);
+            }
+        }
+    }
+
     public static boolean matches(Capability cap, SimpleFilter sf)
     {
         return matchesInternal(cap, sf) && matchMandatory(cap, sf);
@@ -48,13 +48,17 @@ public interface FelixConstants extends org.osgi.framework.Constants
     String SYSTEMBUNDLE_ACTIVATORS_PROP = "felix.systembundle.activators";
     String BUNDLE_STARTLEVEL_PROP = "felix.startlevel.bundle";
     String SERVICE_URLHANDLERS_PROP = "felix.service.urlhandlers";
+    String SERVICE_INDEX_PROPERTIES_PROP = "felix.service.index.properties";
+    String EVENT_DISPATCH_THREADS_PROP = "felix.event.dispatch.threads";
     String IMPLICIT_BOOT_DELEGATION_PROP = "felix.bootdelegation.implicit";
     String BOOT_CLASSLOADERS_PROP = "felix.bootdelegation.classloaders";
     String USE_LOCALURLS_PROP = "felix.jarurls";
+    String CLASSLOADER_NEGATIVE_CACHE_SIZE_PROP = "felix.classloader.negative.cache.size";
     String NATIVE_OS_NAME_ALIAS_PREFIX = "felix.native.osname.alias";
     String NATIVE_PROC_NAME_ALIAS_PREFIX = "felix.native.processor.alias";
     String USE_CACHEDURLS_PROPS = "felix.bundlecodesource.usecachedurls";
     String RESOLVER_PARALLELISM = "felix.resolver.parallelism";
+    String RESOLVER_SNAPSHOT = "felix.resolver.snapshot";
     String USE_PROPERTY_SUBSTITUTION_IN_SYSTEMPACKAGES = "felix.systempackages.substitution";
 
     // Missing OSGi constant for resolution directive.
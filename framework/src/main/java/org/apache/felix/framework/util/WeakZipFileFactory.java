@@ -67,6 +67,15 @@ public class WeakZipFileFactory
         m_limit = limit;
     }
 
+    /**
+     * Returns the maximum number of open zip files.
+     * @return the file limit or zero if there is no limit.
+     */
+    public int getLimit()
+    {
+        return m_limit;
+    }
+
     /**
      * Factory method used to create weak zip files.
      * @param file the target zip file.
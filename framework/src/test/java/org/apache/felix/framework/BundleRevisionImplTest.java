@@ -18,12 +18,15 @@
  */
 package org.apache.felix.framework;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
 
 import junit.framework.TestCase;
 
 import org.apache.felix.framework.cache.Content;
+import org.mockito.Mockito;
 
 public class BundleRevisionImplTest extends TestCase
 {
@@ -39,4 +42,30 @@ public class BundleRevisionImplTest extends TestCase
         Enumeration<?> en = bri.getResourcesLocal("foo");
         assertFalse(en.hasMoreElements());
     }
+
+    public void testContentPathIndex()
+    {
+        Content c1 = Mockito.mock(Content.class);
+        Mockito.when(c1.getEntries()).thenReturn(Collections.enumeration(
+            Arrays.asList("org/foo/A.class", "META-INF/MANIFEST.MF")));
+        Content c2 = Mockito.mock(Content.class);
+        Mockito.when(c2.getEntries()).thenReturn(Collections.enumeration(
+            Arrays.asList("org/bar/", "org/bar/B.class", "root.txt")));
+        Content c3 = Mockito.mock(Content.class);
+        List<Content> contentPath = Arrays.asList(c1, c2, c3);
+
+        BundleRevisionImpl bri = new BundleRevisionImpl(null, null);
+
+        assertTrue(bri.mayContainEntry(contentPath, 0, "org/foo/Other.class"));
+        assertFalse(bri.mayContainEntry(contentPath, 1, "org/foo/Other.class"));
+        assertFalse(bri.mayContainEntry(contentPath, 0, "org/bar/B.class"));
+        assertTrue(bri.mayContainEntry(contentPath, 1, "/org/bar/B.class"));
+        assertTrue(bri.mayContainEntry(contentPath, 1, "org/bar/"));
+        // Parent directories are indexed even without directory entries.
+        assertTrue(bri.mayContainEntry(contentPath, 0, "org/"));
+        assertTrue(bri.mayContainEntry(contentPath, 1, "other.txt"));
+        assertFalse(bri.mayContainEntry(contentPath, 0, "org/baz/C.class"));
+        // Content without entries is always searched.
+        assertTrue(bri.mayContainEntry(contentPath, 2, "org/baz/C.class"));
+    }
 }
@@ -35,6 +35,7 @@ import org.osgi.framework.hooks.weaving.WeavingException;
 import org.osgi.framework.hooks.weaving.WeavingHook;
 import org.osgi.framework.hooks.weaving.WovenClass;
 import org.osgi.framework.hooks.weaving.WovenClassListener;
+import org.osgi.framework.wiring.BundleCapability;
 import org.osgi.framework.wiring.BundleRevision;
 import org.osgi.framework.wiring.BundleWire;
 import org.osgi.framework.wiring.BundleWiring;
@@ -448,6 +449,70 @@ public class BundleWiringImplTest
                 mockRevisionImpl, fragments, wires, importedPkgs, requiredPkgs);
     }
 
+    @Test
+    public void testNegativeCache() throws Exception
+    {
+        String classToBeLoaded = "org.foo.Missing";
+
+        Felix mockFramework = mock(Felix.class);
+        when(mockFramework.getBootPackages()).thenReturn(new String[0]);
+
+        BundleRevision provider = mock(BundleRevision.class);
+        BundleWiringImpl providerWiring = mock(BundleWiringImpl.class);
+        when(provider.getWiring()).thenReturn(providerWiring);
+        when(providerWiring.getClassByDelegation(classToBeLoaded))
+            .thenThrow(new ClassNotFoundException(classToBeLoaded));
+
+        Map<String, BundleRevision> importedPkgs = new HashMap<String, BundleRevision>();
+        importedPkgs.put("org.foo", provider);
+        initializeBundleWiringWithImportsAndRequired(
+            importedPkgs, new HashMap<String, List<BundleRevision>>());
+        when(bundleWiring.getBundle().getFramework()).thenReturn(mockFramework);
+
+        BundleClassLoader bundleClassLoader = createBundleClassLoader(
+                BundleClassLoader.class, bundleWiring);
+
+        for (int i = 0; i < 2; i++)
+        {
+            try
+            {
+                bundleClassLoader.loadClass(classToBeLoaded, false);
+                fail("Class should not be found");
+            }
+            catch (ClassNotFoundException ex)
+            {
+                // Expected.
+                if (i > 0)
+                {
+                    assertEquals(classToBeLoaded + " not found by "
+                        + bundleWiring.getBundle(), ex.getMessage());
+                }
+            }
+        }
+        verify(providerWiring, times(1)).getClassByDelegation(classToBeLoaded);
+        assertEquals(1, bundleWiring.getNegativeCacheHits());
+        assertEquals(1, bundleWiring.getNegativeCacheMisses());
+
+        // Adding a dynamic wire invalidates the cache.
+        BundleWire wire = mock(BundleWire.class);
+        BundleCapability cap = mock(BundleCapability.class);
+        when(wire.getCapability()).thenReturn(cap);
+        when(cap.getAttributes()).thenReturn(Collections.<String, Object>emptyMap());
+        bundleWiring.addDynamicWire(wire);
+
+        try
+        {
+            bundleClassLoader.loadClass(classToBeLoaded, false);
+            fail("Class should not be found");
+        }
+        catch (ClassNotFoundException ex)
+        {
+            // Expected.
+        }
+        verify(providerWiring, times(2)).getClassByDelegation(classToBeLoaded);
+        assertEquals(2, bundleWiring.getNegativeCacheMisses());
+    }
+
     @Test
     public void testAccessorFirstLoadFailed() throws Exception
     {
@@ -19,6 +19,8 @@
 package org.apache.felix.framework;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
 
@@ -26,6 +28,8 @@ import org.easymock.EasyMock;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
 import org.osgi.framework.ServiceEvent;
 import org.osgi.framework.ServiceListener;
 import org.osgi.framework.ServiceReference;
@@ -137,6 +141,64 @@ public class EventDispatcherTest extends TestCase
         assertTrue(calledHooks.contains(eh2));
     }
 
+    public void testParallelFrameworkEventDelivery() throws Exception
+    {
+        final Bundle b1 = getMockBundle();
+        final Bundle b2 = getMockBundle();
+
+        Logger logger = new Logger();
+        ServiceRegistry registry = new ServiceRegistry(logger, null);
+        EventDispatcher ed = new EventDispatcher(logger, registry, 2);
+        ed.startDispatching();
+        try
+        {
+            // The first listener only returns once the second one got
+            // the same event, which requires parallel delivery.
+            final CountDownLatch secondCalled = new CountDownLatch(1);
+            final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+            final CountDownLatch allReceived = new CountDownLatch(3);
+            ed.addListener(b1.getBundleContext(), FrameworkListener.class, new FrameworkListener()
+            {
+                public void frameworkEvent(FrameworkEvent event)
+                {
+                    try
+                    {
+                        secondCalled.await(10, TimeUnit.SECONDS);
+                    }
+                    catch (InterruptedException ex)
+                    {
+                    }
+                    received.add(Integer.valueOf(event.getType()));
+                    allReceived.countDown();
+                }
+            }, null);
+            ed.addListener(b2.getBundleContext(), FrameworkListener.class, new FrameworkListener()
+            {
+                public void frameworkEvent(FrameworkEvent event)
+                {
+                    secondCalled.countDown();
+                }
+            }, null);
+
+            ed.fireFrameworkEvent(new FrameworkEvent(FrameworkEvent.STARTED, b1, null));
+            ed.fireFrameworkEvent(new FrameworkEvent(FrameworkEvent.PACKAGES_REFRESHED, b1, null));
+            ed.fireFrameworkEvent(new FrameworkEvent(FrameworkEvent.STARTLEVEL_CHANGED, b1, null));
+
+            assertTrue(secondCalled.await(10, TimeUnit.SECONDS));
+            assertTrue(allReceived.await(10, TimeUnit.SECONDS));
+
+            // Events for one bundle context stay in order.
+            assertEquals(Arrays.asList(
+                Integer.valueOf(FrameworkEvent.STARTED),
+                Integer.valueOf(FrameworkEvent.PACKAGES_REFRESHED),
+                Integer.valueOf(FrameworkEvent.STARTLEVEL_CHANGED)), received);
+        }
+        finally
+        {
+            ed.stopDispatching();
+        }
+    }
+
     private Bundle getMockBundle()
     {
         BundleContext bc = EasyMock.createNiceMock(BundleContext.class);
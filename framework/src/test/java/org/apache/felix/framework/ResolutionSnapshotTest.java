@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework;
+
+import junit.framework.TestCase;
+import org.apache.felix.framework.util.FelixConstants;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+import org.osgi.framework.launch.Framework;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+public class ResolutionSnapshotTest extends TestCase
+{
+    private File tempDir;
+    private File cacheDir;
+    private File snapshotFile;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        tempDir = File.createTempFile("felix-temp", ".dir");
+        assertTrue("precondition", tempDir.delete());
+        assertTrue("precondition", tempDir.mkdirs());
+
+        cacheDir = new File(tempDir, "felix-cache");
+        assertTrue("precondition", cacheDir.mkdir());
+
+        snapshotFile = new File(new File(cacheDir, "bundle0"), ResolutionSnapshot.SNAPSHOT_FILE);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+        deleteDir(tempDir);
+        tempDir = null;
+        cacheDir = null;
+    }
+
+    public void testWiringRestoredOnRestart() throws Exception
+    {
+        Framework felix = createFramework(null);
+        felix.start();
+        installAndResolve(felix);
+        stop(felix);
+
+        assertTrue(snapshotFile.isFile());
+
+        felix = createFramework(null);
+        try
+        {
+            Bundle provider = felix.getBundleContext().getBundle(1);
+            Bundle fragment = felix.getBundleContext().getBundle(2);
+            Bundle consumer = felix.getBundleContext().getBundle(3);
+
+            // Resolved by the snapshot without starting or resolving.
+            assertEquals(Bundle.RESOLVED, provider.getState());
+            assertEquals(Bundle.RESOLVED, fragment.getState());
+            assertEquals(Bundle.RESOLVED, consumer.getState());
+            assertFalse(snapshotFile.exists());
+
+            BundleWiring wiring = consumer.adapt(BundleWiring.class);
+            List<BundleWire> wires = wiring.getRequiredWires(BundleRevision.PACKAGE_NAMESPACE);
+            assertEquals(2, wires.size());
+            boolean foundFragmentExport = false;
+            for (BundleWire wire : wires)
+            {
+                if ("org.foo.frag".equals(wire.getCapability().getAttributes()
+                    .get(BundleRevision.PACKAGE_NAMESPACE)))
+                {
+                    assertEquals(provider.adapt(BundleRevision.class), wire.getProvider());
+                    assertEquals(fragment.adapt(BundleRevision.class), wire.getCapability().getRevision());
+                    foundFragmentExport = true;
+                }
+            }
+            assertTrue(foundFragmentExport);
+
+            List<BundleRevision> fragments = new java.util.ArrayList<BundleRevision>();
+            for (BundleWire wire : provider.adapt(BundleWiring.class)
+                .getProvidedWires(BundleRevision.HOST_NAMESPACE))
+            {
+                fragments.add(wire.getRequirer());
+            }
+            assertEquals(Arrays.asList(fragment.adapt(BundleRevision.class)), fragments);
+
+            felix.start();
+            assertEquals(Bundle.ACTIVE, consumer.getState());
+        }
+        finally
+        {
+            stop(felix);
+        }
+    }
+
+    public void testSnapshotIgnoredOnConfigurationChange() throws Exception
+    {
+        Framework felix = createFramework(null);
+        felix.start();
+        installAndResolve(felix);
+        stop(felix);
+
+        assertTrue(snapshotFile.isFile());
+
+        felix = createFramework("org.bar");
+        try
+        {
+            for (long id = 1; id <= 3; id++)
+            {
+                assertEquals(Bundle.INSTALLED, felix.getBundleContext().getBundle(id).getState());
+            }
+            assertFalse(snapshotFile.exists());
+
+            felix.start();
+            assertEquals(Bundle.ACTIVE, felix.getBundleContext().getBundle(3).getState());
+        }
+        finally
+        {
+            stop(felix);
+        }
+    }
+
+    private void installAndResolve(Framework felix) throws Exception
+    {
+        String pmf = "Bundle-SymbolicName: snapshot.provider\n"
+            + "Bundle-Version: 1.0.0\n"
+            + "Bundle-ManifestVersion: 2\n"
+            + "Export-Package: org.foo;version=\"1.0.0\"\n"
+            + "Import-Package: org.osgi.framework\n";
+        String fmf = "Bundle-SymbolicName: snapshot.fragment\n"
+            + "Bundle-Version: 1.0.0\n"
+            + "Bundle-ManifestVersion: 2\n"
+            + "Fragment-Host: snapshot.provider\n"
+            + "Export-Package: org.foo.frag\n";
+        String cmf = "Bundle-SymbolicName: snapshot.consumer\n"
+            + "Bundle-Version: 1.0.0\n"
+            + "Bundle-ManifestVersion: 2\n"
+            + "Import-Package: org.foo;version=\"[1,2)\",org.foo.frag\n";
+
+        Bundle p = felix.getBundleContext().installBundle(createBundle(pmf).toURI().toASCIIString());
+        Bundle f = felix.getBundleContext().installBundle(createBundle(fmf).toURI().toASCIIString());
+        Bundle c = felix.getBundleContext().installBundle(createBundle(cmf).toURI().toASCIIString());
+        c.start();
+
+        assertTrue(felix.adapt(FrameworkWiring.class).resolveBundles(Arrays.asList(p, f, c)));
+    }
+
+    private Framework createFramework(String extra) throws Exception
+    {
+        String cache = cacheDir.getPath();
+
+        Map<String,String> params = new HashMap<String, String>();
+        params.put("felix.cache.profiledir", cache);
+        params.put("felix.cache.dir", cache);
+        params.put(Constants.FRAMEWORK_STORAGE, cache);
+        params.put(FelixConstants.RESOLVER_SNAPSHOT, "true");
+        if (extra != null)
+        {
+            params.put(Constants.FRAMEWORK_SYSTEMPACKAGES_EXTRA, extra);
+        }
+
+        Framework felix = new Felix(params);
+        felix.init();
+        return felix;
+    }
+
+    private static void stop(Framework felix) throws Exception
+    {
+        felix.stop();
+        felix.waitForStop(10000);
+    }
+
+    private File createBundle(String manifest) throws IOException
+    {
+        File f = File.createTempFile("felix-bundle", ".jar", tempDir);
+
+        Manifest mf = new Manifest(new ByteArrayInputStream(manifest.getBytes("utf-8")));
+        mf.getMainAttributes().putValue("Manifest-Version", "1.0");
+        JarOutputStream os = new JarOutputStream(new FileOutputStream(f), mf);
+        os.close();
+        return f;
+    }
+
+    private static void deleteDir(File root) throws IOException
+    {
+        if (root.isDirectory())
+        {
+            for (File file : root.listFiles())
+            {
+                deleteDir(file);
+            }
+        }
+        assertTrue(root.delete());
+    }
+}
@@ -37,6 +37,7 @@ import junit.framework.TestCase;
 import org.apache.felix.framework.ServiceRegistrationImpl.ServiceReferenceImpl;
 import org.apache.felix.framework.ServiceRegistry.ServiceHolder;
 import org.apache.felix.framework.ServiceRegistry.UsageCount;
+import org.apache.felix.framework.capabilityset.SimpleFilter;
 import org.easymock.MockControl;
 import org.mockito.AdditionalAnswers;
 import org.mockito.InOrder;
@@ -97,6 +98,64 @@ public class ServiceRegistryTest extends TestCase
         assertEquals("Should be no hooks left after unregistration", 0, sr.getHookRegistry().getHooks(ListenerHook.class).size());
     }
 
+    public void testIndexedServiceLookup() throws Exception
+    {
+        Bundle b = Mockito.mock(Bundle.class);
+        ServiceRegistry sr = new ServiceRegistry(null, null,
+            Arrays.asList("component.name", "service.ranking"));
+
+        List<ServiceRegistration> regs = new ArrayList<ServiceRegistration>();
+        for (int i = 0; i < 10; i++)
+        {
+            Hashtable<String, Object> props = new Hashtable<String, Object>();
+            props.put("component.name", "comp" + i);
+            props.put("service.ranking", Integer.valueOf(i % 2));
+            props.put("other", "x" + (i % 3));
+            regs.add(sr.registerService(b, new String[] {String.class.getName()}, "s" + i, props));
+        }
+        Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put("component.name", new String[] {"comp3", "alias"});
+        ServiceRegistration multi = sr.registerService(b, new String[] {Runnable.class.getName()},
+            Mockito.mock(Runnable.class), props);
+
+        assertEquals(1, sr.getServiceReferences(String.class.getName(),
+            SimpleFilter.parse("(component.name=comp3)")).size());
+        assertEquals(2, sr.getServiceReferences(null,
+            SimpleFilter.parse("(component.name=comp3)")).size());
+        assertEquals(1, sr.getServiceReferences(null,
+            SimpleFilter.parse("(component.name=alias)")).size());
+        assertEquals(0, sr.getServiceReferences(String.class.getName(),
+            SimpleFilter.parse("(component.name=alias)")).size());
+        // Non-string values are matched by comparison.
+        assertEquals(5, sr.getServiceReferences(String.class.getName(),
+            SimpleFilter.parse("(service.ranking=1)")).size());
+        assertEquals(2, sr.getServiceReferences(String.class.getName(),
+            SimpleFilter.parse("(&(service.ranking=1)(&(other=x0)(component.name=comp*)))")).size());
+        assertEquals(1, sr.getServiceReferences(String.class.getName(),
+            SimpleFilter.parse("(&(component.name=comp4)(service.ranking=0))")).size());
+
+        // Modified properties are reindexed.
+        Hashtable<String, Object> newProps = new Hashtable<String, Object>();
+        newProps.put("component.name", "renamed");
+        newProps.put("service.ranking", "1");
+        regs.get(4).setProperties(newProps);
+        assertEquals(0, sr.getServiceReferences(String.class.getName(),
+            SimpleFilter.parse("(component.name=comp4)")).size());
+        assertEquals(1, sr.getServiceReferences(String.class.getName(),
+            SimpleFilter.parse("(component.name=renamed)")).size());
+        assertEquals(6, sr.getServiceReferences(String.class.getName(),
+            SimpleFilter.parse("(service.ranking=1)")).size());
+
+        sr.unregisterService(b, regs.get(4));
+        sr.unregisterService(b, multi);
+        assertEquals(0, sr.getServiceReferences(null,
+            SimpleFilter.parse("(component.name=renamed)")).size());
+        assertEquals(0, sr.getServiceReferences(null,
+            SimpleFilter.parse("(component.name=alias)")).size());
+        assertEquals(5, sr.getServiceReferences(String.class.getName(),
+            SimpleFilter.parse("(service.ranking=1)")).size());
+    }
+
     public void testRegisterEventHookServiceFactory()
     {
         MockControl control = MockControl.createNiceControl(Bundle.class);
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.framework.cache;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class JarEntryIndexTest extends TestCase
+{
+    private File tempDir;
+    private File jarFile;
+    private File indexFile;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        tempDir = File.createTempFile("felix-temp", ".dir");
+        assertTrue("precondition", tempDir.delete());
+        assertTrue("precondition", tempDir.mkdirs());
+        jarFile = new File(tempDir, "bundle.jar");
+        indexFile = new File(tempDir, "bundle.index");
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+        for (File file : tempDir.listFiles())
+        {
+            assertTrue(file.delete());
+        }
+        assertTrue(tempDir.delete());
+    }
+
+    public void testIndexedEntries() throws Exception
+    {
+        byte[] large = new byte[100000];
+        for (int i = 0; i < large.length; i++)
+        {
+            large[i] = (byte) (i % 31);
+        }
+        writeJar(large);
+
+        JarEntryIndex index = JarEntryIndex.open(indexFile, jarFile, true);
+        assertNotNull(index);
+        assertTrue(indexFile.isFile());
+        try
+        {
+            List<String> names = Collections.list(index.getEntries());
+            assertEquals(Arrays.asList("org/", "org/foo/", "org/foo/A.class",
+                "org/foo/stored.txt", "org/foo/large.bin", "empty"), names);
+
+            assertTrue(index.hasEntry("org/foo/A.class"));
+            assertTrue(index.hasEntry("org/foo"));
+            assertTrue(index.hasEntry("org/foo/"));
+            assertFalse(index.hasEntry("org/foo/B.class"));
+            assertFalse(index.hasEntry("org/bar"));
+            assertTrue(index.hasEntry("empty"));
+
+            assertEquals("deflated", new String(index.getEntryAsBytes("org/foo/A.class"), "UTF-8"));
+            assertEquals("stored", new String(index.getEntryAsBytes("org/foo/stored.txt"), "UTF-8"));
+            assertTrue(Arrays.equals(large, index.getEntryAsBytes("org/foo/large.bin")));
+            assertEquals(0, index.getEntryAsBytes("empty").length);
+            assertNull(index.getEntryAsBytes("org/foo/B.class"));
+        }
+        finally
+        {
+            index.close();
+        }
+
+        // Reading without keeping the JAR file open works the same.
+        index = JarEntryIndex.open(indexFile, jarFile, false);
+        assertEquals("deflated", new String(index.getEntryAsBytes("org/foo/A.class"), "UTF-8"));
+        index.close();
+    }
+
+    public void testIndexRebuiltWhenJarChanges() throws Exception
+    {
+        writeJar(new byte[0]);
+        JarEntryIndex.open(indexFile, jarFile, true).close();
+
+        ZipOutputStream os = new ZipOutputStream(new FileOutputStream(jarFile));
+        os.putNextEntry(new ZipEntry("other.txt"));
+        os.write("other".getBytes("UTF-8"));
+        os.close();
+        assertTrue(jarFile.setLastModified(jarFile.lastModified() + 2000));
+
+        JarEntryIndex index = JarEntryIndex.open(indexFile, jarFile, true);
+        try
+        {
+            assertEquals(Collections.singletonList("other.txt"), Collections.list(index.getEntries()));
+            assertFalse(index.hasEntry("org/foo/A.class"));
+        }
+        finally
+        {
+            index.close();
+        }
+    }
+
+    private void writeJar(byte[] large) throws Exception
+    {
+        ZipOutputStream os = new ZipOutputStream(new FileOutputStream(jarFile));
+        try
+        {
+            os.putNextEntry(new ZipEntry("org/"));
+            os.putNextEntry(new ZipEntry("org/foo/"));
+            os.putNextEntry(new ZipEntry("org/foo/A.class"));
+            os.write("deflated".getBytes("UTF-8"));
+
+            byte[] stored = "stored".getBytes("UTF-8");
+            ZipEntry ze = new ZipEntry("org/foo/stored.txt");
+            ze.setMethod(ZipEntry.STORED);
+            ze.setSize(stored.length);
+            CRC32 crc = new CRC32();
+            crc.update(stored);
+            ze.setCrc(crc.getValue());
+            os.putNextEntry(ze);
+            os.write(stored);
+
+            os.putNextEntry(new ZipEntry("org/foo/large.bin"));
+            os.write(large);
+            os.putNextEntry(new ZipEntry("empty"));
+        }
+        finally
+        {
+            os.close();
+        }
+    }
+}
@@ -51,6 +51,14 @@ public class Closure implements Function, Evaluate
 
     public static final String LOCATION = ".location";
     public static final String PIPE_EXCEPTION = "pipe-exception";
+    /**
+     * When set, the stages of a pipeline connected with <code>|</code> run one
+     * after the other on the same thread, and the result of each stage is
+     * passed to the next one as objects, see {@link Pipe#objects()}.
+     * The output of a stage is buffered until the next stage runs, so this is
+     * not suited to commands which stream their output indefinitely.
+     */
+    public static final String OBJECT_PIPE = ".ObjectPipe";
     private static final String DEFAULT_LOCK = ".defaultLock";
 
     private static final ThreadLocal<String> location = new ThreadLocal<>();
@@ -248,16 +256,31 @@ public class Closure implements Function, Evaluate
                 Token e = exec.get(exec.size() - 1);
                 Token t = program.subSequence(s.start - program.start, e.start + e.length - program.start);
                 job = session().createJob(t);
+                boolean sequential = isObjectPipeline(exec);
+                if (sequential) {
+                    job.runSequentially();
+                }
+                ObjectPipe input = null;
                 for (int i = 0; i < exec.size(); i++) {
                     Statement ex = (Statement) exec.get(i);
                     Operator op = i < exec.size() - 1 ? (Operator) exec.get(++i) : null;
                     Channel[] nstreams;
                     boolean[] ntoclose;
                     boolean endOfPipe;
+                    ObjectPipe output = null;
                     if (i == exec.size() - 1) {
                         nstreams = streams;
                         ntoclose = toclose;
                         endOfPipe = true;
+                    } else if (sequential) {
+                        output = new ObjectPipe(session);
+                        nstreams = streams.clone();
+                        nstreams[1] = output.sink();
+                        ntoclose = toclose.clone();
+                        ntoclose[1] = true;
+                        streams[0] = output.source();
+                        toclose[0] = true;
+                        endOfPipe = false;
                     } else if (Token.eq("|", op)) {
                         PipedInputStream pis = new PipedInputStream();
                         PipedOutputStream pos = new PipedOutputStream(pis);
@@ -281,8 +304,9 @@ public class Closure implements Function, Evaluate
                     } else {
                         throw new IllegalStateException("Unrecognized pipe operator: '" + op + "'");
                     }
-                    Pipe pipe = new Pipe(this, job, ex, nstreams, ntoclose, endOfPipe);
+                    Pipe pipe = new Pipe(this, job, ex, nstreams, ntoclose, endOfPipe, input, output);
                     job.addPipe(pipe);
+                    input = output;
                 }
             } else {
                 job = session().createJob(executable);
@@ -309,6 +333,26 @@ public class Closure implements Function, Evaluate
         return last == null ? null : last.result;
     }
 
+    /**
+     * Whether the stages of a pipeline can be connected with object pipes,
+     * which is the case when enabled and all stages are connected with <code>|</code>.
+     */
+    private boolean isObjectPipeline(List<Executable> exec)
+    {
+        if (!isSet(OBJECT_PIPE, false))
+        {
+            return false;
+        }
+        for (int i = 1; i < exec.size(); i += 2)
+        {
+            if (!Token.eq("|", exec.get(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static class WritableByteChannelImpl extends AbstractInterruptibleChannel
             implements WritableByteChannel {
         private final WritableByteChannel out;
@@ -20,7 +20,6 @@ package org.apache.felix.gogo.runtime;
 
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Method;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -28,7 +27,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -268,6 +266,7 @@ public class CommandProcessorImpl implements CommandProcessor
         {
             cmdMap.remove(target);
         }
+        invalidate(target);
     }
 
     public void removeCommand(Object target)
@@ -276,32 +275,27 @@ public class CommandProcessorImpl implements CommandProcessor
         {
             cmdMap.remove(target);
         }
+        invalidate(target);
     }
 
-    private String[] getFunctions(Class<?> target)
+    /**
+     * Drops the cached dispatch information for the class of a removed command.
+     */
+    private void invalidate(Object target)
     {
-        String[] functions;
-        Set<String> list = new TreeSet<>();
-        Method methods[] = target.getMethods();
-        for (Method m : methods)
+        if (target instanceof CommandProxy)
         {
-            if (m.getDeclaringClass().equals(Object.class))
-            {
-                continue;
-            }
-            list.add(m.getName());
-            if (m.getName().startsWith("get"))
-            {
-                String s = m.getName().substring(3);
-                if (s.length() > 0)
-                {
-                    list.add(s.substring(0, 1).toLowerCase() + s.substring(1));
-                }
-            }
+            target = ((CommandProxy) target).getTargetClass();
+        }
+        if (target != null)
+        {
+            Reflective.invalidate(target instanceof Class<?> ? (Class<?>) target : target.getClass());
         }
+    }
 
-        functions = list.toArray(new String[list.size()]);
-        return functions;
+    private String[] getFunctions(Class<?> target)
+    {
+        return DispatchTable.get(target).getFunctions();
     }
 
     public Object convert(CommandSession session, Class<?> desiredType, Object in)
@@ -43,6 +43,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
@@ -605,6 +606,7 @@ public class CommandSessionImpl implements CommandSession, Converter
         private Status status = Status.Created;
         private Future<?> future;
         private Result result;
+        private boolean sequential;
 
         public JobImpl(int id, JobImpl parent, CharSequence command)
         {
@@ -618,6 +620,15 @@ public class CommandSessionImpl implements CommandSession, Converter
             pipes.add(pipe);
         }
 
+        /**
+         * Run the pipes one after the other on the job thread
+         * instead of concurrently.
+         */
+        void runSequentially()
+        {
+            sequential = true;
+        }
+
         @Override
         public int id()
         {
@@ -819,8 +830,21 @@ public class CommandSessionImpl implements CommandSession, Converter
             {
                 thread.setName("job controller " + id);
 
-                List<Callable<Result>> wrapped = new ArrayList<>(pipes);
-                List<Future<Result>> results = executor.invokeAll(wrapped);
+                List<Future<Result>> results;
+                if (sequential)
+                {
+                    // No need for other threads, run the pipes here
+                    results = new ArrayList<>(pipes.size());
+                    for (Pipe pipe : pipes)
+                    {
+                        results.add(CompletableFuture.completedFuture(pipe.call()));
+                    }
+                }
+                else
+                {
+                    List<Callable<Result>> wrapped = new ArrayList<>(pipes);
+                    results = executor.invokeAll(wrapped);
+                }
 
                 // Get pipe exceptions
                 Exception pipeException = null;
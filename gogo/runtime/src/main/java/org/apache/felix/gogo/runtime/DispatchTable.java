@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.gogo.runtime;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.felix.service.command.Parameter;
+
+/**
+ * The public methods of a class, grouped by the command names they can be
+ * invoked with. Tables are created once per class and stored with the class,
+ * so they are released together with it. A table can be invalidated
+ * explicitly when commands of a class are removed.
+ */
+final class DispatchTable
+{
+    private static final Candidate[] NO_CANDIDATES = new Candidate[0];
+
+    private static final ClassValue<DispatchTable> TABLES = new ClassValue<DispatchTable>()
+    {
+        @Override
+        protected DispatchTable computeValue(Class<?> type)
+        {
+            return new DispatchTable(type.getMethods());
+        }
+    };
+
+    private final Method[] methods;
+    private final ConcurrentMap<String, Candidate[]> candidates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Key, Candidate[]> byArity = new ConcurrentHashMap<>();
+    private volatile String[] functions;
+
+    private DispatchTable(Method[] methods)
+    {
+        this.methods = methods;
+    }
+
+    /**
+     * Returns the table for a class.
+     */
+    static DispatchTable get(Class<?> type)
+    {
+        return TABLES.get(type);
+    }
+
+    /**
+     * Drops the table of a class, it is rebuilt on next use.
+     */
+    static void invalidate(Class<?> type)
+    {
+        TABLES.remove(type);
+    }
+
+    /**
+     * Returns the methods which can be invoked with the given command name,
+     * in the order returned by {@link Class#getMethods()}. The name must be
+     * in lower case.
+     */
+    Candidate[] getCandidates(String org)
+    {
+        Candidate[] result = candidates.get(org);
+        if (result == null)
+        {
+            String name = Reflective.KEYWORDS.contains(org) ? "_" + org : org;
+            String get = "get" + org;
+            String is = "is" + org;
+            String set = "set" + org;
+            List<Candidate> list = new ArrayList<>();
+            for (Method m : methods)
+            {
+                String mname = m.getName().toLowerCase(Locale.ENGLISH);
+                if (mname.equals(name) || mname.equals(get) || mname.equals(set)
+                    || mname.equals(is) || mname.equals(Reflective.MAIN))
+                {
+                    list.add(new Candidate(m));
+                }
+            }
+            result = list.isEmpty() ? NO_CANDIDATES : list.toArray(new Candidate[list.size()]);
+            Candidate[] previous = candidates.putIfAbsent(org, result);
+            if (previous != null)
+            {
+                result = previous;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the methods which can be invoked with the given command name
+     * and number of arguments. Methods which can never accept that number
+     * of arguments are left out; the order is kept.
+     */
+    Candidate[] getCandidates(String name, int arity)
+    {
+        Key key = new Key(name, arity);
+        Candidate[] result = byArity.get(key);
+        if (result == null)
+        {
+            List<Candidate> list = new ArrayList<>();
+            for (Candidate c : getCandidates(name))
+            {
+                if (c.accepts(arity))
+                {
+                    list.add(c);
+                }
+            }
+            result = list.isEmpty() ? NO_CANDIDATES : list.toArray(new Candidate[list.size()]);
+            Candidate[] previous = byArity.putIfAbsent(key, result);
+            if (previous != null)
+            {
+                result = previous;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the names of the functions provided by the class.
+     */
+    String[] getFunctions()
+    {
+        String[] result = functions;
+        if (result == null)
+        {
+            Set<String> list = new TreeSet<>();
+            for (Method m : methods)
+            {
+                if (m.getDeclaringClass().equals(Object.class))
+                {
+                    continue;
+                }
+                list.add(m.getName());
+                if (m.getName().startsWith("get"))
+                {
+                    String s = m.getName().substring(3);
+                    if (s.length() > 0)
+                    {
+                        list.add(s.substring(0, 1).toLowerCase() + s.substring(1));
+                    }
+                }
+            }
+            result = list.toArray(new String[list.size()]);
+            functions = result;
+        }
+        return result;
+    }
+
+    /**
+     * A method with the information needed to coerce arguments for it.
+     */
+    static final class Candidate
+    {
+        final Method method;
+        final boolean main;
+        final Class<?>[] types;
+        /** The {@link Parameter} annotation of each parameter, if there is any. */
+        final Parameter[] parameters;
+        private final boolean varargs;
+        private volatile boolean accessible;
+
+        Candidate(Method method)
+        {
+            this.method = method;
+            this.main = method.getName().toLowerCase(Locale.ENGLISH).equals(Reflective.MAIN);
+            this.types = method.getParameterTypes();
+            this.varargs = types.length > 0 && types[types.length - 1].isArray();
+            Parameter[] params = null;
+            Annotation[][] pas = method.getParameterAnnotations();
+            for (int i = 0; i < pas.length; i++)
+            {
+                for (Annotation a : pas[i])
+                {
+                    if (a instanceof Parameter)
+                    {
+                        if (params == null)
+                        {
+                            params = new Parameter[pas.length];
+                        }
+                        params[i] = (Parameter) a;
+                    }
+                }
+            }
+            this.parameters = params;
+        }
+
+        /**
+         * Whether the method might accept the given number of arguments,
+         * possibly preceded by the session.
+         */
+        boolean accepts(int arity)
+        {
+            if (parameters != null || varargs)
+            {
+                // options and varargs consume a variable number of arguments
+                return true;
+            }
+            if (main)
+            {
+                arity++;
+            }
+            return arity == types.length
+                || (arity + 1 == types.length && types[0].isInterface());
+        }
+
+        Method getAccessibleMethod()
+        {
+            if (!accessible)
+            {
+                method.setAccessible(true);
+                accessible = true;
+            }
+            return method;
+        }
+    }
+
+    private static final class Key
+    {
+        private final String name;
+        private final int arity;
+
+        Key(String name, int arity)
+        {
+            this.name = name;
+            this.arity = arity;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) o;
+            return arity == other.arity && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return name.hashCode() * 31 + arity;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.gogo.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.felix.service.command.Converter;
+
+/**
+ * The connection between two stages of a pipeline which run one after the
+ * other on the same thread. The result of the first stage is handed to the
+ * second one as objects, without being formatted. The second stage can still
+ * read its input as text: it then gets the output printed by the first stage,
+ * followed by the formatted result, exactly as with a byte pipe.
+ */
+final class ObjectPipe
+{
+    private final CommandSessionImpl session;
+    private final Buffer buffer = new Buffer();
+    private Object result;
+    private boolean objectsTaken;
+
+    ObjectPipe(CommandSessionImpl session)
+    {
+        this.session = session;
+    }
+
+    /**
+     * The channel the first stage prints to.
+     */
+    WritableByteChannel sink()
+    {
+        return new Sink();
+    }
+
+    /**
+     * The channel the second stage reads its text input from.
+     */
+    ReadableByteChannel source()
+    {
+        return new Source();
+    }
+
+    void setResult(Object result)
+    {
+        this.result = result;
+    }
+
+    /**
+     * Returns the result of the first stage as a sequence of objects.
+     * Iterators, iterables and arrays are iterated lazily, other values are
+     * returned as a single element.
+     */
+    @SuppressWarnings("unchecked")
+    Iterator<Object> objects()
+    {
+        objectsTaken = true;
+        Object value = result;
+        if (value == null)
+        {
+            return Collections.emptyIterator();
+        }
+        if (value instanceof Iterator)
+        {
+            return (Iterator<Object>) value;
+        }
+        if (value instanceof Iterable)
+        {
+            return ((Iterable<Object>) value).iterator();
+        }
+        if (value.getClass().isArray())
+        {
+            return new ArrayIterator(value);
+        }
+        return Collections.singleton(value).iterator();
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream
+    {
+        private int position;
+
+        int read(ByteBuffer dst)
+        {
+            if (position >= count)
+            {
+                return -1;
+            }
+            int n = Math.min(dst.remaining(), count - position);
+            dst.put(buf, position, n);
+            position += n;
+            return n;
+        }
+    }
+
+    private class Sink implements WritableByteChannel
+    {
+        private boolean open = true;
+
+        @Override
+        public int write(ByteBuffer src) throws IOException
+        {
+            if (!open)
+            {
+                throw new ClosedChannelException();
+            }
+            int n = src.remaining();
+            if (src.hasArray())
+            {
+                buffer.write(src.array(), src.arrayOffset() + src.position(), n);
+                src.position(src.limit());
+            }
+            else
+            {
+                byte[] bytes = new byte[n];
+                src.get(bytes);
+                buffer.write(bytes, 0, n);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return open;
+        }
+
+        @Override
+        public void close()
+        {
+            open = false;
+        }
+    }
+
+    private class Source implements ReadableByteChannel
+    {
+        private boolean open = true;
+        private boolean started;
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException
+        {
+            if (!open)
+            {
+                throw new ClosedChannelException();
+            }
+            if (!started)
+            {
+                started = true;
+                // The result is only turned into text if the stage reads it as text
+                if (result != null && !objectsTaken
+                    && !Boolean.FALSE.equals(session.get(".FormatPipe")))
+                {
+                    // Encode the text as the previous stage would have printed it
+                    PrintStream out = Pipe.newPrintStream(buffer);
+                    out.println(session.format(result, Converter.INSPECT));
+                    out.flush();
+                }
+            }
+            return buffer.read(dst);
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return open;
+        }
+
+        @Override
+        public void close()
+        {
+            open = false;
+        }
+    }
+
+    private static final class ArrayIterator implements Iterator<Object>
+    {
+        private final Object array;
+        private final int length;
+        private int index;
+
+        ArrayIterator(Object array)
+        {
+            this.array = array;
+            this.length = Array.getLength(array);
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return index < length;
+        }
+
+        @Override
+        public Object next()
+        {
+            if (index >= length)
+            {
+                throw new NoSuchElementException();
+            }
+            return Array.get(array, index++);
+        }
+    }
+}
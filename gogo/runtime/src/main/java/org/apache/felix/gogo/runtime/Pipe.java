@@ -23,9 +23,12 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.nio.channels.ByteChannel;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
@@ -39,6 +42,7 @@ import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -60,6 +64,12 @@ public class Pipe implements Callable<Result>, Process
 {
     private static final ThreadLocal<Pipe> CURRENT = new ThreadLocal<>();
 
+    /**
+     * The charset of the text passed between commands, the one of the platform,
+     * as used by the standard streams.
+     */
+    static final Charset CHARSET = Charset.defaultCharset();
+
     public static class Result implements org.apache.felix.service.command.Result {
         public final Object result;
         public final Exception exception;
@@ -119,6 +129,8 @@ public class Pipe implements Callable<Result>, Process
     final Channel[] streams;
     final boolean[] toclose;
     final boolean endOfPipe;
+    final ObjectPipe input;
+    final ObjectPipe output;
     int error;
 
     InputStream in;
@@ -126,6 +138,12 @@ public class Pipe implements Callable<Result>, Process
     PrintStream err;
 
     public Pipe(Closure closure, JobImpl job, Statement statement, Channel[] streams, boolean[] toclose, boolean endOfPipe)
+    {
+        this(closure, job, statement, streams, toclose, endOfPipe, null, null);
+    }
+
+    Pipe(Closure closure, JobImpl job, Statement statement, Channel[] streams, boolean[] toclose, boolean endOfPipe,
+         ObjectPipe input, ObjectPipe output)
     {
         this.closure = closure;
         this.job = job;
@@ -133,6 +151,8 @@ public class Pipe implements Callable<Result>, Process
         this.streams = streams;
         this.toclose = toclose;
         this.endOfPipe = endOfPipe;
+        this.input = input;
+        this.output = output;
     }
 
     public String toString()
@@ -208,6 +228,18 @@ public class Pipe implements Callable<Result>, Process
         return job;
     }
 
+    /**
+     * Returns the values produced by the previous stage of an object pipeline,
+     * or <code>null</code> if this stage does not receive objects.
+     * Once the objects have been taken, the result of the previous stage is
+     * not repeated as text on the input stream.
+     *
+     * @see Closure#OBJECT_PIPE
+     */
+    public Iterator<Object> objects() {
+        return input != null ? input.objects() : null;
+    }
+
     public boolean isTty(int fd) {
         // TODO: this assumes that the session is always created with input/output tty streams
         if (fd < 0 || fd > streams.length) {
@@ -344,7 +376,7 @@ public class Pipe implements Callable<Result>, Process
                     final boolean stripLeadingTabs = t.charAt(t.length() - 1) == '-';
                     InputStream doc = new InputStream()
                     {
-                        final byte[] bytes = hereDoc.toString().getBytes();
+                        final byte[] bytes = hereDoc.toString().getBytes(CHARSET);
                         int index = 0;
                         boolean nl = true;
                         @Override
@@ -373,7 +405,7 @@ public class Pipe implements Callable<Result>, Process
                     Token word = tokens.get(++i);
                     Object val = Expander.expand("\"" + word + "\"", closure);
                     String str = val != null ? String.valueOf(val) : "";
-                    Channel ch = Channels.newChannel(new ByteArrayInputStream(str.getBytes()));
+                    Channel ch = Channels.newChannel(new ByteArrayInputStream(str.getBytes(CHARSET)));
                     setStream(ch, 0, READ);
                 }
             }
@@ -384,8 +416,8 @@ public class Pipe implements Callable<Result>, Process
 
             // Create streams
             in = Channels.newInputStream((ReadableByteChannel) streams[0]);
-            out = new PrintStream(Channels.newOutputStream((WritableByteChannel) streams[1]), true);
-            err = new PrintStream(Channels.newOutputStream((WritableByteChannel) streams[2]), true);
+            out = newPrintStream(Channels.newOutputStream((WritableByteChannel) streams[1]));
+            err = newPrintStream(Channels.newOutputStream((WritableByteChannel) streams[2]));
             // Change the error stream to the redirected one, now that
             // the command is about to be executed.
             errChannel = (WritableByteChannel) streams[2];
@@ -420,8 +452,13 @@ public class Pipe implements Callable<Result>, Process
                 {
                     return new Result(error);
                 }
+                // Objects are passed as is, the next stage formats them if needed
+                if (output != null)
+                {
+                    output.setResult(result);
+                }
                 // We don't print the result if we're at the end of the pipe
-                if (result != null && !endOfPipe && !Boolean.FALSE.equals(closure.session().get(".FormatPipe")))
+                else if (result != null && !endOfPipe && !Boolean.FALSE.equals(closure.session().get(".FormatPipe")))
                 {
                     out.println(closure.session().format(result, Converter.INSPECT));
                 }
@@ -440,7 +477,7 @@ public class Pipe implements Callable<Result>, Process
                 String msg = "gogo: " + e.getClass().getSimpleName() + ": " + e.getMessage() + "\n";
                 try
                 {
-                    errChannel.write(ByteBuffer.wrap(msg.getBytes()));
+                    errChannel.write(ByteBuffer.wrap(msg.getBytes(CHARSET)));
                 }
                 catch (IOException ioe)
                 {
@@ -481,6 +518,21 @@ public class Pipe implements Callable<Result>, Process
         }
     }
 
+    /**
+     * Creates a stream printing text in the charset of pipes.
+     */
+    static PrintStream newPrintStream(OutputStream out)
+    {
+        try
+        {
+            return new PrintStream(out, true, CHARSET.name());
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private List<Path> toPaths(Object val) throws IOException
     {
         List<Path> paths = new ArrayList<>();
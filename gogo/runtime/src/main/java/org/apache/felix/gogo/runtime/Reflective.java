@@ -18,7 +18,6 @@
  */
 package org.apache.felix.gogo.runtime;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -59,84 +58,87 @@ public final class Reflective
     public static Object invoke(CommandSession session, Object target, String name,
         List<Object> args) throws Exception
     {
-        Method[] methods = target.getClass().getMethods();
         name = name.toLowerCase(Locale.ENGLISH);
 
         String org = name;
-        String get = "get" + name;
-        String is = "is" + name;
-        String set = "set" + name;
 
         if (KEYWORDS.contains(name))
         {
             name = "_" + name;
         }
 
+        DispatchTable table = DispatchTable.get(target.getClass());
         if (target instanceof Class<?>)
         {
-            Method[] staticMethods = ((Class<?>) target).getMethods();
-            for (Method m : staticMethods)
+            DispatchTable statics = DispatchTable.get((Class<?>) target);
+            if (statics.getCandidates(org).length > 0)
             {
-                String mname = m.getName().toLowerCase(Locale.ENGLISH);
-                if (mname.equals(name) || mname.equals(get) || mname.equals(set)
-                    || mname.equals(is) || mname.equals(MAIN))
+                table = statics;
+            }
+        }
+
+        // Evaluate the tokens once for all candidates
+        List<Object> evaluated = new ArrayList<>(args.size());
+        List<Object> strings = new ArrayList<>(args.size());
+        int different = 0;
+        for (Object obj : args)
+        {
+            if (obj instanceof Token)
+            {
+                Object s1 = Closure.eval(obj);
+                Object s2 = obj.toString();
+                evaluated.add(s1);
+                strings.add(s2);
+                different += s2.equals(s1) ? 0 : 1;
+            } else
                 {
-                    methods = staticMethods;
-                    break;
-                }
+                evaluated.add(obj);
+                strings.add(obj);
             }
         }
 
-        Method bestMethod = null;
+        DispatchTable.Candidate bestMethod = null;
         Object[] bestArgs = null;
         int lowestMatch = Integer.MAX_VALUE;
-        ArrayList<Class<?>[]> possibleTypes = new ArrayList<>();
 
-        for (Method m : methods)
+        for (DispatchTable.Candidate c : table.getCandidates(org, args.size()))
         {
-            String mname = m.getName().toLowerCase(Locale.ENGLISH);
-            if (mname.equals(name) || mname.equals(get) || mname.equals(set)
-                || mname.equals(is) || mname.equals(MAIN))
-            {
-                Class<?>[] types = m.getParameterTypes();
-                ArrayList<Object> xargs = new ArrayList<>(args);
+            List<Object> cnvIn = new ArrayList<>(evaluated);
+            List<Object> cnvIn2 = (different != 0) ? new ArrayList<>(strings) : cnvIn;
 
-                // pass command name as argv[0] to main, so it can handle
-                // multiple commands
-                if (mname.equals(MAIN))
+            // pass command name as argv[0] to main, so it can handle
+            // multiple commands
+            if (c.main)
+            {
+                cnvIn.add(0, org);
+                if (different != 0)
                 {
-                    xargs.add(0, org);
+                    cnvIn2.add(0, org);
                 }
+            }
 
-                Object[] parms = new Object[types.length];
-                int match = coerce(session, target, m, types, parms, xargs);
+            Object[] parms = new Object[c.types.length];
+            int match = coerce(session, target, c, parms, cnvIn, cnvIn2, different);
 
-                if (match < 0)
+            if (match >= 0)
+            {
+                if (match < lowestMatch)
                 {
-                    // coerce failed
-                    possibleTypes.add(types);
+                    lowestMatch = match;
+                    bestMethod = c;
+                    bestArgs = parms;
                 }
-                else
-                {
-                    if (match < lowestMatch)
-                    {
-                        lowestMatch = match;
-                        bestMethod = m;
-                        bestArgs = parms;
-                    }
 
-                    if (match == 0)
-                        break; // can't get better score
-                }
+                if (match == 0)
+                    break; // can't get better score
             }
         }
 
         if (bestMethod != null)
         {
-            bestMethod.setAccessible(true);
             try
             {
-                return bestMethod.invoke(target, bestArgs);
+                return bestMethod.getAccessibleMethod().invoke(target, bestArgs);
             }
             catch (InvocationTargetException e)
             {
@@ -170,12 +172,13 @@ public final class Reflective
                     }
                 }
             }
+            // none of the candidates matched
             ArrayList<String> list = new ArrayList<>();
-            for (Class<?>[] types : possibleTypes)
+            for (DispatchTable.Candidate c : table.getCandidates(org))
             {
                 StringBuilder buf = new StringBuilder();
                 buf.append('(');
-                for (Class<?> type : types)
+                for (Class<?> type : c.types)
                 {
                     if (buf.length() > 1)
                     {
@@ -202,51 +205,60 @@ public final class Reflective
         }
     }
 
+    /**
+     * Drops the cached dispatch information of a class, so that it is not
+     * used after the commands of the class have been removed.
+     * @param type the class
+     */
+    public static void invalidate(Class<?> type)
+    {
+        DispatchTable.invalidate(type);
+    }
+
     /**
      * transform name/value parameters into ordered argument list.
      * params: --param2, value2, --flag1, arg3
      * args: true, value2, arg3
      * @return new ordered list of args.
      */
-    private static List<Object> transformParameters(Method method, List<Object> in)
+    private static List<Object> transformParameters(Parameter[] pas, List<Object> in)
     {
-        Annotation[][] pas = method.getParameterAnnotations();
+        if (pas == null)
+        {
+            return in;
+        }
+
         ArrayList<Object> out = new ArrayList<>();
         ArrayList<Object> parms = new ArrayList<>(in);
 
-        for (Annotation as[] : pas)
+        for (Parameter p : pas)
         {
-            for (Annotation a : as)
+            if (p != null)
             {
-                if (a instanceof Parameter)
+                int i = -1;
+                for (String name : p.names())
                 {
-                    int i = -1;
-                    Parameter p = (Parameter) a;
-                    for (String name : p.names())
-                    {
-                        i = parms.indexOf(name);
-                        if (i >= 0)
-                            break;
-                    }
-
+                    i = parms.indexOf(name);
                     if (i >= 0)
+                        break;
+                }
+
+                if (i >= 0)
+                {
+                    // parameter present
+                    parms.remove(i);
+                    Object value = p.presentValue();
+                    if (Parameter.UNSPECIFIED.equals(value))
                     {
-                        // parameter present
-                        parms.remove(i);
-                        Object value = p.presentValue();
-                        if (Parameter.UNSPECIFIED.equals(value))
-                        {
-                            if (i >= parms.size())
-                                return null; // missing parameter, so try other methods
-                            value = parms.remove(i);
-                        }
-                        out.add(value);
-                    }
-                    else
-                    {
-                        out.add(p.absentValue());
+                        if (i >= parms.size())
+                            return null; // missing parameter, so try other methods
+                        value = parms.remove(i);
                     }
-
+                    out.add(value);
+                }
+                else
+                {
+                    out.add(p.absentValue());
                 }
             }
         }
@@ -261,35 +273,22 @@ public final class Reflective
      * the arguments of the method call. First, an attempt is made to convert
      * each argument. If this fails, a check is made to see if varargs can be
      * applied. This happens when the last method argument is an array.
+     * @param cnvIn the arguments with evaluated tokens
+     * @param cnvIn2 the arguments with tokens as strings
+     * @param different the number of tokens whose evaluation differs from the string
      * @return -1 if arguments can't be coerced; 0 if no coercion was necessary;
      *          > 0 if coercion was needed.
      */
-    private static int coerce(CommandSession session, Object target, Method m,
-        Class<?> types[], Object out[], List<Object> in)
+    private static int coerce(CommandSession session, Object target, DispatchTable.Candidate c,
+        Object out[], List<Object> cnvIn, List<Object> cnvIn2, int different)
     {
-        List<Object> cnvIn = new ArrayList<>();
-        List<Object> cnvIn2 = new ArrayList<>();
-        int different = 0;
-        for (Object obj : in)
-        {
-            if (obj instanceof Token)
-            {
-                Object s1 = Closure.eval(obj);
-                Object s2 = obj.toString();
-                cnvIn.add(s1);
-                cnvIn2.add(s2);
-                different += s2.equals(s1) ? 0 : 1;
-            } else
-                {
-                cnvIn.add(obj);
-                cnvIn2.add(obj);
-            }
-        }
+        Method m = c.method;
+        Class<?>[] types = c.types;
 
-        cnvIn = transformParameters(m, cnvIn);
+        cnvIn = transformParameters(c.parameters, cnvIn);
         if (different != 0)
         {
-            cnvIn2 = transformParameters(m, cnvIn2);
+            cnvIn2 = transformParameters(c.parameters, cnvIn2);
         }
         if (cnvIn == null || cnvIn2 == null)
         {
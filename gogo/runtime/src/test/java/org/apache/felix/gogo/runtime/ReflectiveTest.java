@@ -69,6 +69,61 @@ public class ReflectiveTest {
                 Collections.singletonList(conv));
     }
 
+    @Test
+    public void testOverloadsByArity() throws Exception {
+        assertEquals("none", invoke(new Overloads(), "value", Collections.emptyList()));
+        assertEquals("one:a", invoke(new Overloads(), "value", Collections.<Object>singletonList("a")));
+        assertEquals("two:a,b", invoke(new Overloads(), "value", Arrays.<Object>asList("a", "b")));
+        assertEquals("session:a", invoke(new Overloads(), "withSession", Collections.<Object>singletonList("a")));
+        assertEquals("keyword", invoke(new Overloads(), "new", Collections.emptyList()));
+        try {
+            invoke(new Overloads(), "value", Arrays.<Object>asList("a", "b", "c"));
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("(String, String)"));
+        }
+    }
+
+    @Test
+    public void testRemoveCommandInvalidatesDispatchTable() throws Exception {
+        CommandProcessorImpl processor = new CommandProcessorImpl(null);
+        Overloads target = new Overloads();
+        processor.addCommand("test", target);
+        DispatchTable table = DispatchTable.get(Overloads.class);
+        Assert.assertSame(table, DispatchTable.get(Overloads.class));
+        processor.removeCommand(target);
+        Assert.assertNotSame(table, DispatchTable.get(Overloads.class));
+    }
+
+    static class Overloads {
+        public String value() {
+            return "none";
+        }
+
+        public String value(String a) {
+            return "one:" + a;
+        }
+
+        public String value(String a, String b) {
+            return "two:" + a + "," + b;
+        }
+
+        public String withSession(CommandSession session, String a) {
+            return "session:" + a;
+        }
+
+        public String _new() {
+            return "keyword";
+        }
+    }
+
+    static Object invoke(Object target, String method, List<Object> args) throws Exception {
+        InputStream in = new ByteArrayInputStream(new byte[0]);
+        OutputStream out = new ByteArrayOutputStream();
+        CommandProcessorImpl processor = new CommandProcessorImpl(null);
+        return Reflective.invoke(new CommandSessionImpl(processor, in, out, out), target, method, args);
+    }
+
     static class Target {
         public Object test1(CommandSession session, Object[] argv) {
             return argv;
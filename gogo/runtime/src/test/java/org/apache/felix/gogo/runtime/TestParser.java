@@ -24,6 +24,7 @@ import java.io.InputStreamReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -152,6 +153,38 @@ public class TestParser extends AbstractParserTest
         assertEquals("defghi", c.execute("(echoout abc; echoout def; echoout ghi)|grep 'def|ghi'|capture"));
     }
 
+    @Test
+    public void testObjectPipe() throws Exception
+    {
+        Context c = new Context();
+        c.addCommand("echo", this);
+        c.addCommand("capture", this);
+        c.addCommand("grep", this);
+        c.addCommand("echoout", this);
+        c.addCommand("threads", this);
+        c.addCommand("count", this);
+        c.addCommand("confined", this);
+        c.execute("myecho = { echoout $args }");
+        c.set(Closure.OBJECT_PIPE, true);
+
+        // Disable file name generation to avoid escaping 'd.*'
+        c.currentDir(null);
+
+        // Stages reading text get the same input as with byte pipes
+        assertEquals("def", c.execute("echo def|grep d.*|capture"));
+        assertEquals("def", c.execute("echoout def|grep d.*|capture"));
+        assertEquals("def", c.execute("myecho def|grep d.*|capture"));
+        assertEquals("def", c.execute("(echoout abc; echoout def; echoout ghi)|grep d.*|capture"));
+        assertEquals("hello world", c.execute("echo hello world|capture"));
+
+        // Stages reading objects get the values unformatted
+        assertEquals(3, c.execute("threads 3 | count"));
+        assertEquals(Boolean.TRUE, c.execute("threads 2 | confined"));
+        assertEquals(0, c.execute("echoout abc | count"));
+        assertEquals("", c.execute("threads 2 | count | grep 3 | capture"));
+        assertEquals("2", c.execute("threads 2 | count | grep 2 | capture"));
+    }
+
     @Test
     public void testAssignment() throws Exception
     {
@@ -239,6 +272,38 @@ public class TestParser extends AbstractParserTest
         }
     }
 
+    public List<Thread> threads(int count)
+    {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            threads.add(Thread.currentThread());
+        }
+        return threads;
+    }
+
+    public int count()
+    {
+        int count = 0;
+        for (Iterator<Object> it = Pipe.getCurrentPipe().objects(); it.hasNext(); it.next())
+        {
+            count++;
+        }
+        return count;
+    }
+
+    public boolean confined()
+    {
+        for (Iterator<Object> it = Pipe.getCurrentPipe().objects(); it.hasNext();)
+        {
+            if (it.next() != Thread.currentThread())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public String capture() throws IOException
     {
         StringWriter sw = new StringWriter();
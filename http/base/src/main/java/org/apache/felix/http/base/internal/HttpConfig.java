@@ -18,6 +18,7 @@ package org.apache.felix.http.base.internal;
 
 import java.util.Dictionary;
 
+import org.apache.felix.http.base.internal.service.ResourceCache;
 import org.jetbrains.annotations.NotNull;
 
 public class HttpConfig {
@@ -30,10 +31,22 @@ public class HttpConfig {
 
     public static final boolean DEFAULT_UNIQUE_SESSION_ID = true;
 
+    /** Maximum total size in bytes of the cached resources, 0 disables the cache. */
+    public static final String PROP_RESOURCE_CACHE_SIZE = "org.apache.felix.http.resources.cache.size";
+
+    public static final long DEFAULT_RESOURCE_CACHE_SIZE = 0;
+
+    /** Maximum size in bytes of a single cached resource. */
+    public static final String PROP_RESOURCE_CACHE_ENTRY_SIZE = "org.apache.felix.http.resources.cache.entrysize";
+
+    public static final long DEFAULT_RESOURCE_CACHE_ENTRY_SIZE = 256 * 1024;
+
     private volatile boolean uniqueSessionId;
 
     private volatile boolean invalidateContainerSession;
 
+    private final ResourceCache resourceCache = new ResourceCache();
+
     public boolean isUniqueSessionId() {
         return uniqueSessionId;
     }
@@ -50,9 +63,19 @@ public class HttpConfig {
         this.invalidateContainerSession = invalidateContainerSession;
     }
 
+    /**
+     * The cache shared by all resource servlets.
+     * @return The resource cache
+     */
+    public @NotNull ResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
     public void configure(@NotNull final Dictionary<String, Object> props) {
         this.setUniqueSessionId(this.getBooleanProperty(props, PROP_UNIQUE_SESSION_ID, DEFAULT_UNIQUE_SESSION_ID));
         this.setInvalidateContainerSession(this.getBooleanProperty(props, PROP_INVALIDATE_SESSION, DEFAULT_INVALIDATE_SESSION));
+        this.resourceCache.setLimits(this.getLongProperty(props, PROP_RESOURCE_CACHE_SIZE, DEFAULT_RESOURCE_CACHE_SIZE),
+                this.getLongProperty(props, PROP_RESOURCE_CACHE_ENTRY_SIZE, DEFAULT_RESOURCE_CACHE_ENTRY_SIZE));
     }
 
 
@@ -67,4 +90,22 @@ public class HttpConfig {
 
         return defValue;
     }
+
+    private long getLongProperty(final Dictionary<String, Object> props, final String name, final long defValue)
+    {
+        final Object v = props.get(name);
+        if ( v != null )
+        {
+            try
+            {
+                return Long.parseLong(String.valueOf(v).trim());
+            }
+            catch ( final NumberFormatException nfe )
+            {
+                // ignore and use default
+            }
+        }
+
+        return defValue;
+    }
 }
@@ -32,6 +32,8 @@ import org.apache.felix.http.base.internal.service.HttpServiceFactory;
 import org.apache.felix.http.base.internal.whiteboard.WhiteboardManager;
 import org.jetbrains.annotations.NotNull;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
 
 public final class HttpServiceController
 {
@@ -46,6 +48,19 @@ public final class HttpServiceController
 
     private volatile HttpSessionListener httpSessionListener;
 
+    /** Removes the cached resources of uninstalled bundles */
+    private final BundleListener resourceCacheListener = new BundleListener()
+    {
+        @Override
+        public void bundleChanged(final BundleEvent event)
+        {
+            if ( event.getType() == BundleEvent.UNINSTALLED )
+            {
+                config.getResourceCache().remove(event.getBundle().getBundleId());
+            }
+        }
+    };
+
     public HttpServiceController(final BundleContext bundleContext)
     {
         this.bundleContext = bundleContext;
@@ -117,6 +132,7 @@ public final class HttpServiceController
         this.config.configure(props);
 
         this.registry.init();
+        this.bundleContext.addBundleListener(this.resourceCacheListener);
 
         this.httpServiceFactory.start(containerContext, props);
         this.whiteboardManager.start(containerContext, props);
@@ -134,6 +150,7 @@ public final class HttpServiceController
         this.httpServiceFactory.stop();
         this.whiteboardManager.stop();
 
+        this.bundleContext.removeBundleListener(this.resourceCacheListener);
         this.registry.shutdown();
         this.httpSessionListener = null;
     }
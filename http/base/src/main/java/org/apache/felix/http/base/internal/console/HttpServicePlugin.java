@@ -37,13 +37,14 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.felix.http.base.internal.runtime.dto.InvocationMetricsDTO;
+import org.apache.felix.http.base.internal.service.HttpServiceRuntimeImpl;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.framework.dto.ServiceReferenceDTO;
-import org.osgi.service.http.runtime.HttpServiceRuntime;
 import org.osgi.service.http.runtime.dto.DTOConstants;
 import org.osgi.service.http.runtime.dto.ErrorPageDTO;
 import org.osgi.service.http.runtime.dto.FailedErrorPageDTO;
@@ -71,12 +72,12 @@ public class HttpServicePlugin extends HttpServlet
     private static final String ATTR_SUBMIT = "resolve";
 
 
-    private final HttpServiceRuntime runtime;
+    private final HttpServiceRuntimeImpl runtime;
     private final BundleContext context;
 
     private volatile ServiceRegistration<Servlet> serviceReg;
 
-    public HttpServicePlugin(final BundleContext context, final HttpServiceRuntime runtime)
+    public HttpServicePlugin(final BundleContext context, final HttpServiceRuntimeImpl runtime)
     {
         this.runtime = runtime;
         this.context = context;
@@ -219,6 +220,7 @@ public class HttpServicePlugin extends HttpServlet
         printForm(pw, req.getParameter(ATTR_TEST), req.getParameter(ATTR_MSG), path);
 
         printRuntimeDetails(pw, dto.serviceDTO);
+        printInvocationMetrics(pw, this.runtime.getInvocationMetrics());
 
         for(final ServletContextDTO ctxDto : dto.servletContextDTOs )
         {
@@ -360,6 +362,42 @@ public class HttpServicePlugin extends HttpServlet
         pw.println("<br/>");
     }
 
+    private void printInvocationMetrics(final PrintWriter pw, final List<InvocationMetricsDTO> metrics)
+    {
+        if ( metrics.isEmpty() )
+        {
+            return;
+        }
+        pw.println("<p class=\"statline ui-state-highlight\">${Request Statistics}</p>");
+        pw.println("<table class=\"nicetable\">");
+        pw.println("<thead><tr>");
+        pw.println("<th class=\"header\">${Name}</th>");
+        pw.println("<th class=\"header\">${Type}</th>");
+        pw.println("<th class=\"header\">${Invocations}</th>");
+        pw.println("<th class=\"header\">${Errors}</th>");
+        pw.println("<th class=\"header\">${Mean}</th>");
+        pw.println("<th class=\"header\">${50%}</th>");
+        pw.println("<th class=\"header\">${90%}</th>");
+        pw.println("<th class=\"header\">${99%}</th>");
+        pw.println("<th class=\"header\">${Max}</th>");
+        pw.println("</tr></thead>");
+        boolean odd = true;
+        for(final InvocationMetricsDTO m : metrics)
+        {
+            odd = printRow(pw, odd, m.name + " (" + m.serviceId + ")", m.type,
+                    String.valueOf(m.count), String.valueOf(m.errors),
+                    formatNanos(m.meanNanos), formatNanos(m.p50Nanos), formatNanos(m.p90Nanos),
+                    formatNanos(m.p99Nanos), formatNanos(m.maxNanos));
+        }
+        pw.println("</table>");
+        pw.println("<br/>");
+    }
+
+    private static String formatNanos(final long nanos)
+    {
+        return String.format("%.3f ms", nanos / 1000000.0);
+    }
+
     private boolean printRow(final PrintWriter pw, final boolean odd, final String...columns)
     {
         pw.print("<tr class=\"");
@@ -1009,6 +1047,35 @@ public class HttpServicePlugin extends HttpServlet
             pw.println(getValueAsString(prop.getValue()));
         }
         pw.println();
+        final List<InvocationMetricsDTO> metrics = this.runtime.getInvocationMetrics();
+        if ( !metrics.isEmpty() )
+        {
+            pw.println("Request Statistics");
+            pw.println("------------------");
+            for(final InvocationMetricsDTO m : metrics)
+            {
+                pw.print(m.type);
+                pw.print(" ");
+                pw.print(m.name);
+                pw.print(" (");
+                pw.print(String.valueOf(m.serviceId));
+                pw.print(") : invocations=");
+                pw.print(String.valueOf(m.count));
+                pw.print(", errors=");
+                pw.print(String.valueOf(m.errors));
+                pw.print(", mean=");
+                pw.print(formatNanos(m.meanNanos));
+                pw.print(", 50%=");
+                pw.print(formatNanos(m.p50Nanos));
+                pw.print(", 90%=");
+                pw.print(formatNanos(m.p90Nanos));
+                pw.print(", 99%=");
+                pw.print(formatNanos(m.p99Nanos));
+                pw.print(", max=");
+                pw.println(formatNanos(m.maxNanos));
+            }
+            pw.println();
+        }
         for(final ServletContextDTO ctxDto : dto.servletContextDTOs )
         {
             pw.print("Servlet Context ");
@@ -39,6 +39,9 @@ public class InvocationChain implements FilterChain
 
     private int index = -1;
 
+    /** The time spent in the nested invocations of the current filter. */
+    private long nestedNanos;
+
     public InvocationChain(@NotNull final ServletHandler servletHandler, @NotNull final FilterHandler[] filterHandlers)
     {
         this.filterHandlers = filterHandlers;
@@ -73,20 +76,33 @@ public class InvocationChain implements FilterChain
             }
         }
         this.index++;
+        final int current = this.index;
 
+        // the latency of a filter excludes the time spent in the rest of the chain
+        final long outerNestedNanos = this.nestedNanos;
+        this.nestedNanos = 0;
+        final long start = System.nanoTime();
+        boolean error = true;
         try
         {
-            if (this.index < this.filterHandlers.length)
+            if (current < this.filterHandlers.length)
             {
-                this.filterHandlers[this.index].handle(req, res, this);
+                this.filterHandlers[current].handle(req, res, this);
             }
             else
             {
                 // Last entry in the chain...
                 this.servletHandler.handle(req, res);
             }
+            error = false;
         }
         finally {
+            final long elapsed = System.nanoTime() - start;
+            if (current < this.filterHandlers.length)
+            {
+                this.filterHandlers[current].getMetrics().record(elapsed - this.nestedNanos, error);
+            }
+            this.nestedNanos = outerNestedNanos + elapsed;
             if ( callFinish )
             {
                 final HttpServletRequest hReq = (HttpServletRequest) req;
@@ -46,6 +46,8 @@ public abstract class FilterHandler implements Comparable<FilterHandler>
 
     protected volatile int useCount;
 
+    private final InvocationMetrics metrics = new InvocationMetrics();
+
     public FilterHandler(final long contextServiceId,
             final ExtServletContext context,
             final FilterInfo filterInfo)
@@ -147,6 +149,16 @@ public abstract class FilterHandler implements Comparable<FilterHandler>
         }
     }
 
+    /**
+     * The metrics of the invocations of the filter. The latency of an invocation
+     * does not include the time spent in the rest of the chain.
+     * @return The metrics
+     */
+    public @NotNull InvocationMetrics getMetrics()
+    {
+        return this.metrics;
+    }
+
     public boolean destroy()
     {
         if (this.filter == null)
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.handler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Invocation count, error count and latency histogram of a servlet or filter.
+ *
+ * The values are recorded without locks into a number of stripes, the stripe is
+ * selected by the id of the current thread. Each stripe occupies its own cache
+ * lines such that threads handling requests for the same servlet do not contend.
+ * The stripes are only summed up when a {@link Snapshot} is taken, therefore a
+ * snapshot taken while requests are processed is not necessarily consistent.
+ *
+ * The latency histogram uses exponential buckets: bucket {@code 0} counts
+ * invocations below one microsecond, bucket {@code i} invocations between
+ * {@code 2^(i-1)} and {@code 2^i} microseconds.
+ */
+public final class InvocationMetrics
+{
+    /** Number of histogram buckets, the last bucket counts all slower invocations (more than 35 minutes). */
+    public static final int BUCKETS = 32;
+
+    private static final int COUNT = 0;
+
+    private static final int ERRORS = 1;
+
+    private static final int TOTAL = 2;
+
+    private static final int MAX = 3;
+
+    private static final int HISTOGRAM = 4;
+
+    /** Size of a stripe, a multiple of 8 longs to keep stripes on separate cache lines. */
+    private static final int STRIDE = (HISTOGRAM + BUCKETS + 7) & ~7;
+
+    private static final int STRIPES;
+    static
+    {
+        int stripes = 1;
+        final int cpus = Math.min(8, Runtime.getRuntime().availableProcessors());
+        while ( stripes < cpus )
+        {
+            stripes <<= 1;
+        }
+        STRIPES = stripes;
+    }
+
+    /** Padding in front of the first stripe. */
+    private static final int OFFSET = 8;
+
+    private final AtomicLongArray values = new AtomicLongArray(OFFSET + STRIPES * STRIDE);
+
+    /**
+     * Record an invocation
+     * @param nanos The duration of the invocation in nanoseconds
+     * @param error Whether the invocation failed
+     */
+    public void record(final long nanos, final boolean error)
+    {
+        final int base = OFFSET + ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIDE;
+        this.values.incrementAndGet(base + COUNT);
+        if ( error )
+        {
+            this.values.incrementAndGet(base + ERRORS);
+        }
+        this.values.addAndGet(base + TOTAL, nanos);
+        long max;
+        while ( nanos > (max = this.values.get(base + MAX)) && !this.values.compareAndSet(base + MAX, max, nanos) )
+        {
+            // retry
+        }
+        this.values.incrementAndGet(base + HISTOGRAM + getBucket(nanos));
+    }
+
+    /**
+     * Get the histogram bucket for a duration
+     * @param nanos The duration in nanoseconds
+     * @return The bucket
+     */
+    static int getBucket(final long nanos)
+    {
+        final long micros = Math.max(0, nanos / 1000);
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * Take a snapshot of the recorded values
+     * @return The snapshot
+     */
+    public @NotNull Snapshot getSnapshot()
+    {
+        long count = 0;
+        long errors = 0;
+        long total = 0;
+        long max = 0;
+        final long[] histogram = new long[BUCKETS];
+        for(int i = 0; i < STRIPES; i++)
+        {
+            final int base = OFFSET + i * STRIDE;
+            count += this.values.get(base + COUNT);
+            errors += this.values.get(base + ERRORS);
+            total += this.values.get(base + TOTAL);
+            max = Math.max(max, this.values.get(base + MAX));
+            for(int b = 0; b < BUCKETS; b++)
+            {
+                histogram[b] += this.values.get(base + HISTOGRAM + b);
+            }
+        }
+        return new Snapshot(count, errors, total, max, histogram);
+    }
+
+    /**
+     * A snapshot of the recorded values
+     */
+    public static final class Snapshot
+    {
+        private final long count;
+
+        private final long errors;
+
+        private final long totalNanos;
+
+        private final long maxNanos;
+
+        private final long[] histogram;
+
+        Snapshot(final long count, final long errors, final long totalNanos, final long maxNanos, final long[] histogram)
+        {
+            this.count = count;
+            this.errors = errors;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.histogram = histogram;
+        }
+
+        public long getCount()
+        {
+            return this.count;
+        }
+
+        public long getErrors()
+        {
+            return this.errors;
+        }
+
+        public long getTotalNanos()
+        {
+            return this.totalNanos;
+        }
+
+        public long getMeanNanos()
+        {
+            return this.count == 0 ? 0 : this.totalNanos / this.count;
+        }
+
+        public long getMaxNanos()
+        {
+            return this.maxNanos;
+        }
+
+        /**
+         * The number of invocations per bucket
+         * @return The histogram, this is not a copy
+         */
+        public @NotNull long[] getHistogram()
+        {
+            return this.histogram;
+        }
+
+        /**
+         * Estimate a percentile of the latency from the histogram.
+         * @param percentile The percentile between 0 and 100
+         * @return The upper bound of the bucket containing the percentile in nanoseconds, never more than the maximum
+         */
+        public long getPercentileNanos(final double percentile)
+        {
+            long total = 0;
+            for(final long c : this.histogram)
+            {
+                total += c;
+            }
+            if ( total == 0 )
+            {
+                return 0;
+            }
+            final long rank = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for(int i = 0; i < BUCKETS; i++)
+            {
+                seen += this.histogram[i];
+                if ( seen >= rank && this.histogram[i] > 0 )
+                {
+                    return Math.min(this.maxNanos, (1L << i) * 1000L);
+                }
+            }
+            return this.maxNanos;
+        }
+    }
+}
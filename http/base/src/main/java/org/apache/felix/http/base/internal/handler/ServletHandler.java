@@ -28,6 +28,7 @@ import org.apache.felix.http.base.internal.context.ExtServletContext;
 import org.apache.felix.http.base.internal.dispatch.MultipartConfig;
 import org.apache.felix.http.base.internal.logger.SystemLogger;
 import org.apache.felix.http.base.internal.runtime.ServletInfo;
+import org.jetbrains.annotations.NotNull;
 import org.osgi.framework.Bundle;
 import org.osgi.service.http.runtime.dto.DTOConstants;
 
@@ -53,6 +54,8 @@ public abstract class ServletHandler implements Comparable<ServletHandler>
 
     private final MultipartConfig mpConfig;
 
+    private final InvocationMetrics metrics = new InvocationMetrics();
+
     public ServletHandler(final long contextServiceId,
             final ExtServletContext context,
             final ServletInfo servletInfo)
@@ -120,7 +123,17 @@ public abstract class ServletHandler implements Comparable<ServletHandler>
         final Servlet local = this.servlet;
         if ( local != null )
         {
-            local.service(req, res);
+            final long start = System.nanoTime();
+            boolean error = true;
+            try
+            {
+                local.service(req, res);
+                error = false;
+            }
+            finally
+            {
+                this.metrics.record(System.nanoTime() - start, error);
+            }
         }
         else
         {
@@ -128,6 +141,15 @@ public abstract class ServletHandler implements Comparable<ServletHandler>
         }
     }
 
+    /**
+     * The metrics of the invocations of the servlet
+     * @return The metrics
+     */
+    public @NotNull InvocationMetrics getMetrics()
+    {
+        return this.metrics;
+    }
+
     public ServletInfo getServletInfo()
     {
         return this.servletInfo;
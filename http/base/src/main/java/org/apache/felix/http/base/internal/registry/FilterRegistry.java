@@ -17,10 +17,15 @@
 package org.apache.felix.http.base.internal.registry;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.NotNull;
@@ -30,6 +35,8 @@ import org.apache.felix.http.base.internal.handler.FilterHandler;
 import org.apache.felix.http.base.internal.handler.ServletHandler;
 import org.apache.felix.http.base.internal.runtime.FilterInfo;
 import org.apache.felix.http.base.internal.runtime.dto.FilterDTOBuilder;
+import org.apache.felix.http.base.internal.runtime.dto.InvocationMetricsDTO;
+import org.apache.felix.http.base.internal.runtime.dto.InvocationMetricsDTOBuilder;
 import org.osgi.service.http.runtime.dto.FailedFilterDTO;
 import org.osgi.service.http.runtime.dto.FilterDTO;
 import org.osgi.service.http.runtime.dto.ServletContextDTO;
@@ -40,9 +47,14 @@ import org.osgi.service.http.runtime.dto.ServletContextDTO;
  */
 public final class FilterRegistry
 {
+    private static final FilterHandler[] EMPTY_FILTER_HANDLER = new FilterHandler[0];
+
     /** List of all filter registrations. These are sorted by the status objects. */
     private volatile List<FilterRegistrationStatus> filters = Collections.emptyList();
 
+    /** The filter chains compiled from the filter registrations, replaced on every change. */
+    private volatile FilterChains chains = new FilterChains(Collections.<FilterRegistrationStatus>emptyList());
+
     /**
      * The status object keeps track of the registration status of a filter and holds
      * the resolvers to match against a uri.
@@ -126,6 +138,7 @@ public final class FilterRegistry
         Collections.sort(newList);
 
         this.filters = newList;
+        this.chains = new FilterChains(newList);
     }
 
     /**
@@ -151,6 +164,7 @@ public final class FilterRegistry
         if ( found != null )
         {
             this.filters = newList;
+            this.chains = new FilterChains(newList);
 
             if ( found.getResult() == -1 && destroy )
             {
@@ -162,6 +176,7 @@ public final class FilterRegistry
     public synchronized void cleanup()
     {
         this.filters = Collections.emptyList();
+        this.chains = new FilterChains(this.filters);
     }
 
     /**
@@ -170,71 +185,226 @@ public final class FilterRegistry
      * @param handler Optional servlet handler
      * @param dispatcherType The dispatcher type
      * @param requestURI The request uri
-     * @return The array of filter handlers, might be empty.
+     * @return The array of filter handlers, might be empty. The array must not be modified.
      */
     public @NotNull FilterHandler[] getFilterHandlers(@Nullable final ServletHandler handler,
             @NotNull final DispatcherType dispatcherType,
             @NotNull final String requestURI)
     {
-        final List<FilterHandler> result = new ArrayList<FilterHandler>();
-        final List<FilterRegistrationStatus> allFilters = this.filters;
+        // filters are only matched by name for servlets which are not resources
+        final String servletName = (handler != null && !handler.getServletInfo().isResource()) ? handler.getName() : null;
+        return this.chains.get(dispatcherType, servletName).getFilterHandlers(requestURI);
+    }
 
-        for(final FilterRegistrationStatus status : allFilters)
+    /**
+     * Check if the filter is registered for the required dispatcher type
+     * @param handler The filter handler
+     * @param dispatcherType The requested dispatcher type
+     * @return {@code true} if the filter can be applied.
+     */
+    private static boolean referencesDispatcherType(final FilterHandler handler, final DispatcherType dispatcherType)
+    {
+        for(final DispatcherType dt : handler.getFilterInfo().getDispatcher())
         {
-            // as soon as we encounter a failing filter, we can stop
-            if ( status.getResult() != -1 )
+            if ( dt == dispatcherType )
             {
-                break;
+                return true;
             }
-            if (referencesDispatcherType(status.getHandler(), dispatcherType) )
+        }
+        return false;
+    }
+
+    /**
+     * The filter chains for all dispatcher types. For each dispatcher type there
+     * is one chain for every servlet name referenced by a filter and one chain for
+     * all other servlets.
+     */
+    private static final class FilterChains
+    {
+        private final Chain[] unnamed = new Chain[DispatcherType.values().length];
+
+        private final List<Map<String, Chain>> byName = new ArrayList<Map<String, Chain>>();
+
+        public FilterChains(@NotNull final List<FilterRegistrationStatus> filters)
+        {
+            // only active filters are considered, these are sorted first
+            final List<FilterRegistrationStatus> active = new ArrayList<FilterRegistrationStatus>();
+            final Set<String> names = new HashSet<String>();
+            for(final FilterRegistrationStatus status : filters)
             {
-                boolean added = false;
-                for(final PathResolver resolver : status.getResolvers())
+                if ( status.getResult() != -1 )
                 {
-                    if ( resolver.resolve(requestURI) != null )
-                    {
-                        result.add(status.getHandler());
-                        added = true;
-                        break;
-                    }
+                    break;
                 }
-                // check for servlet name if it's not a resource
-                final String servletName = (handler != null && !handler.getServletInfo().isResource()) ? handler.getName() : null;
-                if ( !added && servletName != null && status.getHandler().getFilterInfo().getServletNames() != null )
+                active.add(status);
+                if ( status.getHandler().getFilterInfo().getServletNames() != null )
                 {
-                    for(final String name : status.getHandler().getFilterInfo().getServletNames())
+                    names.addAll(Arrays.asList(status.getHandler().getFilterInfo().getServletNames()));
+                }
+            }
+
+            for(final DispatcherType dispatcherType : DispatcherType.values())
+            {
+                this.unnamed[dispatcherType.ordinal()] = new Chain(active, dispatcherType, null);
+                final Map<String, Chain> chains = new HashMap<String, Chain>();
+                for(final String name : names)
+                {
+                    chains.put(name, new Chain(active, dispatcherType, name));
+                }
+                this.byName.add(chains);
+            }
+        }
+
+        public @NotNull Chain get(@NotNull final DispatcherType dispatcherType, @Nullable final String servletName)
+        {
+            if ( servletName != null )
+            {
+                final Chain chain = this.byName.get(dispatcherType.ordinal()).get(servletName);
+                if ( chain != null )
+                {
+                    return chain;
+                }
+            }
+            return this.unnamed[dispatcherType.ordinal()];
+        }
+    }
+
+    /**
+     * The candidate filters for a dispatcher type and a servlet name. Filters
+     * matching by servlet name or by the default pattern are always applied,
+     * the others only if one of their patterns matches the request uri.
+     */
+    private static final class Chain
+    {
+        private final FilterHandler[] handlers;
+
+        /** The resolvers of each handler, {@code null} if the handler is always applied. */
+        private final PathResolver[][] resolvers;
+
+        private final boolean uriDependent;
+
+        public Chain(@NotNull final List<FilterRegistrationStatus> active,
+                @NotNull final DispatcherType dispatcherType,
+                @Nullable final String servletName)
+        {
+            final List<FilterHandler> handlerList = new ArrayList<FilterHandler>();
+            final List<PathResolver[]> resolverList = new ArrayList<PathResolver[]>();
+            boolean dependent = false;
+            for(final FilterRegistrationStatus status : active)
+            {
+                if ( !referencesDispatcherType(status.getHandler(), dispatcherType) )
+                {
+                    continue;
+                }
+                final PathResolver[] prs = status.getResolvers();
+                if ( matchesName(status.getHandler(), servletName) || matchesAll(prs) )
+                {
+                    handlerList.add(status.getHandler());
+                    resolverList.add(null);
+                }
+                else if ( prs.length > 0 )
+                {
+                    handlerList.add(status.getHandler());
+                    resolverList.add(prs);
+                    dependent = true;
+                }
+            }
+            this.handlers = handlerList.isEmpty() ? EMPTY_FILTER_HANDLER : handlerList.toArray(new FilterHandler[handlerList.size()]);
+            this.resolvers = resolverList.toArray(new PathResolver[resolverList.size()][]);
+            this.uriDependent = dependent;
+        }
+
+        /**
+         * Get the filters for the request uri. If all candidate filters apply,
+         * the shared array is returned.
+         * @param requestURI The request uri
+         * @return The array of filter handlers
+         */
+        public @NotNull FilterHandler[] getFilterHandlers(@NotNull final String requestURI)
+        {
+            if ( !this.uriDependent )
+            {
+                return this.handlers;
+            }
+            FilterHandler[] result = null;
+            int count = 0;
+            for(int i = 0; i < this.handlers.length; i++)
+            {
+                if ( this.resolvers[i] == null || matches(this.resolvers[i], requestURI) )
+                {
+                    if ( result != null )
                     {
-                        if ( servletName.equals(name) )
-                        {
-                            result.add(status.getHandler());
-                            added = true;
-                            break;
-                        }
+                        result[count] = this.handlers[i];
                     }
+                    count++;
+                }
+                else if ( result == null )
+                {
+                    // first filter not applied, copy the ones applied so far
+                    result = new FilterHandler[this.handlers.length - 1];
+                    System.arraycopy(this.handlers, 0, result, 0, count);
+                }
+            }
+            if ( result == null )
+            {
+                return this.handlers;
+            }
+            return count == result.length ? result : Arrays.copyOf(result, count);
+        }
+
+        private static boolean matches(final PathResolver[] resolvers, final String requestURI)
+        {
+            for(final PathResolver resolver : resolvers)
+            {
+                if ( resolver.matches(requestURI) )
+                {
+                    return true;
                 }
+            }
+            return false;
+        }
 
+        private static boolean matchesAll(final PathResolver[] resolvers)
+        {
+            for(final PathResolver resolver : resolvers)
+            {
+                if ( resolver instanceof PathResolverFactory.DefaultMatcher )
+                {
+                    return true;
+                }
             }
+            return false;
         }
 
-        return result.toArray(new FilterHandler[result.size()]);
+        private static boolean matchesName(final FilterHandler handler, final String servletName)
+        {
+            if ( servletName != null && handler.getFilterInfo().getServletNames() != null )
+            {
+                for(final String name : handler.getFilterInfo().getServletNames())
+                {
+                    if ( servletName.equals(name) )
+                    {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
     }
 
     /**
-     * Check if the filter is registered for the required dispatcher type
-     * @param handler The filter handler
-     * @param dispatcherType The requested dispatcher type
-     * @return {@code true} if the filter can be applied.
+     * Collect the invocation metrics of the active filters
+     * @param metrics The list to add the metrics to
      */
-    private boolean referencesDispatcherType(final FilterHandler handler, final DispatcherType dispatcherType)
+    public void getInvocationMetrics(@NotNull final List<InvocationMetricsDTO> metrics)
     {
-        for(final DispatcherType dt : handler.getFilterInfo().getDispatcher())
+        for(final FilterRegistrationStatus status : this.filters)
         {
-            if ( dt == dispatcherType )
+            if ( status.getResult() == -1 )
             {
-                return true;
+                metrics.add(InvocationMetricsDTOBuilder.build(status.getHandler()));
             }
         }
-        return false;
     }
 
     /**
@@ -18,8 +18,10 @@ package org.apache.felix.http.base.internal.registry;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.DispatcherType;
 
@@ -28,6 +30,7 @@ import org.apache.felix.http.base.internal.handler.FilterHandler;
 import org.apache.felix.http.base.internal.handler.ServletHandler;
 import org.apache.felix.http.base.internal.runtime.ServletContextHelperInfo;
 import org.apache.felix.http.base.internal.runtime.dto.FailedDTOHolder;
+import org.apache.felix.http.base.internal.runtime.dto.InvocationMetricsDTO;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.osgi.service.http.runtime.dto.ServletContextDTO;
@@ -42,8 +45,8 @@ public final class HandlerRegistry
 {
     private static FilterHandler[] EMPTY_FILTER_HANDLER = new FilterHandler[0];
 
-    /** Current list of context registrations. */
-    private volatile List<PerContextHandlerRegistry> registrations = Collections.emptyList();
+    /** Current context registrations. */
+    private volatile ContextTable contexts = new ContextTable(Collections.<PerContextHandlerRegistry>emptyList());
 
     private final HttpConfig config;
 
@@ -70,7 +73,10 @@ public final class HandlerRegistry
      */
     public void reset()
     {
-        this.registrations.clear();
+        synchronized ( this )
+        {
+            this.contexts = new ContextTable(Collections.<PerContextHandlerRegistry>emptyList());
+        }
         this.init();
     }
 
@@ -83,8 +89,8 @@ public final class HandlerRegistry
 
         synchronized ( this )
         {
-            list = new ArrayList<>(this.registrations);
-            this.registrations = Collections.emptyList();
+            list = new ArrayList<>(this.contexts.registrations);
+            this.contexts = new ContextTable(Collections.<PerContextHandlerRegistry>emptyList());
 
         }
 
@@ -102,7 +108,7 @@ public final class HandlerRegistry
     {
         synchronized ( this )
         {
-            final List<PerContextHandlerRegistry> updatedList = new ArrayList<>(this.registrations);
+            final List<PerContextHandlerRegistry> updatedList = new ArrayList<>(this.contexts.registrations);
             final Iterator<PerContextHandlerRegistry> i = updatedList.iterator();
             while ( i.hasNext() )
             {
@@ -110,7 +116,7 @@ public final class HandlerRegistry
                 if ( reg.getContextServiceId() == info.getServiceId() )
                 {
                     i.remove();
-                    this.registrations = updatedList;
+                    this.contexts = new ContextTable(updatedList);
                     break;
                 }
             }
@@ -125,17 +131,17 @@ public final class HandlerRegistry
     {
         synchronized ( this )
         {
-            final List<PerContextHandlerRegistry> updatedList = new ArrayList<>(this.registrations);
+            final List<PerContextHandlerRegistry> updatedList = new ArrayList<>(this.contexts.registrations);
             updatedList.add(registry);
             Collections.sort(updatedList);
 
-            this.registrations = updatedList;
+            this.contexts = new ContextTable(updatedList);
         }
     }
 
     public PerContextHandlerRegistry getRegistry(final long key)
     {
-        final List<PerContextHandlerRegistry> list = this.registrations;
+        final List<PerContextHandlerRegistry> list = this.contexts.registrations;
         for(final PerContextHandlerRegistry r : list)
         {
             if ( key == r.getContextServiceId())
@@ -155,18 +161,7 @@ public final class HandlerRegistry
         if ( serviceId == null )
         {
             // if the context is unknown, we use the first matching one!
-            PerContextHandlerRegistry found = null;
-            final List<PerContextHandlerRegistry> regs = this.registrations;
-            for(final PerContextHandlerRegistry r : regs)
-            {
-                final String path = r.isMatching(requestURI);
-                if ( path != null )
-                {
-                    found = r;
-                    break;
-                }
-            }
-            reg = found;
+            reg = this.getBestMatchingRegistry(requestURI);
         }
         else
         {
@@ -200,7 +195,8 @@ public final class HandlerRegistry
 
     public PathResolution resolveServlet(@NotNull final String requestURI)
     {
-        final List<PerContextHandlerRegistry> regs = this.registrations;
+        // only the contexts matching the request uri are tried
+        final PerContextHandlerRegistry[] regs = this.contexts.getMatching(requestURI);
         for(final PerContextHandlerRegistry r : regs)
         {
             final String path = r.isMatching(requestURI);
@@ -256,20 +252,91 @@ public final class HandlerRegistry
         return false;
     }
 
+    /**
+     * Collect the invocation metrics of all active servlets, resources and filters
+     * @return The metrics
+     */
+    public @NotNull List<InvocationMetricsDTO> getInvocationMetrics()
+    {
+        final List<InvocationMetricsDTO> metrics = new ArrayList<>();
+        for(final PerContextHandlerRegistry reg : this.contexts.registrations)
+        {
+            reg.getInvocationMetrics(metrics);
+        }
+        return metrics;
+    }
+
     public PerContextHandlerRegistry getBestMatchingRegistry(String requestURI)
     {
         // if the context is unknown, we use the first matching one!
-        PerContextHandlerRegistry found = null;
-        final List<PerContextHandlerRegistry> regs = this.registrations;
-        for(final PerContextHandlerRegistry r : regs)
+        final PerContextHandlerRegistry[] regs = this.contexts.getMatching(requestURI);
+        return regs.length == 0 ? null : regs[0];
+    }
+
+    /**
+     * Immutable table of the context registrations. For each context path the
+     * contexts matching a request uri below that path are precomputed in the
+     * order of the registrations, such that resolving a request uri only tries
+     * the matching contexts.
+     */
+    private static final class ContextTable
+    {
+        /** The sorted context registrations. */
+        final List<PerContextHandlerRegistry> registrations;
+
+        /** The contexts with the root path. */
+        private final PerContextHandlerRegistry[] rootContexts;
+
+        /** The contexts matching below each (non root) context path. */
+        private final PathTrie<PerContextHandlerRegistry[]> contextsByPath;
+
+        ContextTable(@NotNull final List<PerContextHandlerRegistry> registrations)
         {
-            final String path = r.isMatching(requestURI);
-            if ( path != null )
+            this.registrations = registrations;
+
+            final List<PerContextHandlerRegistry> roots = new ArrayList<>();
+            final Map<String, List<PerContextHandlerRegistry>> byPath = new HashMap<>();
+            for(final PerContextHandlerRegistry r : registrations)
+            {
+                if ( r.getPath().equals("/") )
+                {
+                    roots.add(r);
+                }
+                else
+                {
+                    byPath.put(r.getPath(), new ArrayList<PerContextHandlerRegistry>());
+                }
+            }
+            for(final PerContextHandlerRegistry r : registrations)
+            {
+                for(final Map.Entry<String, List<PerContextHandlerRegistry>> entry : byPath.entrySet())
+                {
+                    final String path = entry.getKey();
+                    if ( r.isMatching(path) != null )
+                    {
+                        entry.getValue().add(r);
+                    }
+                }
+            }
+
+            this.rootContexts = roots.toArray(new PerContextHandlerRegistry[roots.size()]);
+            final Map<String, PerContextHandlerRegistry[]> matching = new HashMap<>();
+            for(final Map.Entry<String, List<PerContextHandlerRegistry>> entry : byPath.entrySet())
             {
-                found = r;
-                break;
+                matching.put(entry.getKey(), entry.getValue().toArray(new PerContextHandlerRegistry[entry.getValue().size()]));
             }
+            this.contextsByPath = new PathTrie<>(matching);
+        }
+
+        /**
+         * Get the contexts matching the request uri
+         * @param requestURI The request uri
+         * @return The matching contexts in order of the registrations
+         */
+        @NotNull PerContextHandlerRegistry[] getMatching(@NotNull final String requestURI)
+        {
+            final PerContextHandlerRegistry[] result = this.contextsByPath.longestMatch(requestURI);
+            return result != null ? result : this.rootContexts;
         }
-        return found;
     }
 }
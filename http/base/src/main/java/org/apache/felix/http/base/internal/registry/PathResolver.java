@@ -23,6 +23,13 @@ public interface PathResolver extends Comparable<PathResolver> {
 
     PathResolution resolve(String uri);
 
+    /**
+     * Check whether the uri is matched without creating a resolution.
+     * @param uri The uri
+     * @return {@code true} if {@link #resolve(String)} returns a resolution
+     */
+    boolean matches(String uri);
+
     ServletHandler getServletHandler();
 
     int getRanking();
@@ -146,6 +146,11 @@ public abstract class PathResolverFactory {
             super(handler, "", 2);
         }
 
+        @Override
+        public boolean matches(final String uri) {
+            return uri.length() == 0 || uri.equals("/");
+        }
+
         @Override
         public PathResolution resolve(final String uri) {
             if ( uri.length() == 0 || uri.equals("/") )
@@ -169,6 +174,11 @@ public abstract class PathResolverFactory {
             super(handler, "/", 1);
         }
 
+        @Override
+        public boolean matches(final String uri) {
+            return true;
+        }
+
         @Override
         public PathResolution resolve(final String uri) {
             final PathResolution pr = new PathResolution();
@@ -194,6 +204,11 @@ public abstract class PathResolverFactory {
             this.prefix = pattern.concat("/");
         }
 
+        @Override
+        public boolean matches(final String uri) {
+            return uri.equals(this.path) || uri.startsWith(this.prefix);
+        }
+
         @Override
         public PathResolution resolve(final String uri) {
             if ( uri.equals(this.path) )
@@ -236,6 +251,11 @@ public abstract class PathResolverFactory {
             this.path = pattern;
         }
 
+        @Override
+        public boolean matches(final String uri) {
+            return uri.equals(this.path);
+        }
+
         @Override
         public PathResolution resolve(final String uri) {
             if ( uri.equals(this.path) )
@@ -271,6 +291,11 @@ public abstract class PathResolverFactory {
             this.path = pattern.substring(0, pattern.length() - 2);
         }
 
+        @Override
+        public boolean matches(final String uri) {
+            return uri.equals(this.path) || uri.startsWith(this.prefix);
+        }
+
         @Override
         public PathResolution resolve(final String uri) {
             if ( uri.equals(this.path) )
@@ -313,6 +338,11 @@ public abstract class PathResolverFactory {
             this.extension = pattern.substring(1);
         }
 
+        @Override
+        public boolean matches(final String uri) {
+            return uri.endsWith(this.extension);
+        }
+
         @Override
         public PathResolution resolve(final String uri) {
             if ( uri.endsWith(this.extension) )
@@ -345,6 +375,11 @@ public abstract class PathResolverFactory {
             this.pattern = Pattern.compile(regex);
         }
 
+        @Override
+        public boolean matches(final String uri) {
+            return pattern.matcher(uri).matches();
+        }
+
         @Override
         public @Nullable PathResolution resolve(@NotNull final String uri) {
             if ( pattern.matcher(uri).matches() )
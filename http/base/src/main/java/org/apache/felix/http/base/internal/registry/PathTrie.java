@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.registry;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable character trie mapping paths to values.
+ *
+ * The trie answers which of its paths is the longest path prefix of a uri,
+ * where a path is a path prefix of a uri if the uri is either equal to the
+ * path or continues with a slash after the path. This is the matching rule
+ * of path mappings like {@code /foo/*} and of servlet context paths.
+ *
+ * Lookups walk the uri once and do not allocate.
+ */
+final class PathTrie<V>
+{
+    private static final char[] NO_KEYS = new char[0];
+
+    private final Node<V> root;
+
+    private final boolean empty;
+
+    /**
+     * Create a trie
+     * @param values The values by path
+     */
+    PathTrie(@NotNull final Map<String, V> values)
+    {
+        this.root = build(values);
+        this.empty = values.isEmpty();
+    }
+
+    /**
+     * Check whether the trie has no paths.
+     * @return {@code true} if empty
+     */
+    boolean isEmpty()
+    {
+        return this.empty;
+    }
+
+    /**
+     * Get the value of the longest path which is a path prefix of the uri.
+     * @param uri The uri
+     * @return The value or {@code null}
+     */
+    @Nullable V longestMatch(@NotNull final String uri)
+    {
+        final int length = uri.length();
+        V result = null;
+        Node<V> node = this.root;
+        int index = 0;
+        while ( node != null )
+        {
+            if ( node.value != null && (index == length || uri.charAt(index) == '/') )
+            {
+                result = node.value;
+            }
+            if ( index == length )
+            {
+                break;
+            }
+            node = node.child(uri.charAt(index));
+            index++;
+        }
+        return result;
+    }
+
+    private static <V> Node<V> build(final Map<String, V> values)
+    {
+        final Builder<V> root = new Builder<V>();
+        for(final Map.Entry<String, V> entry : values.entrySet())
+        {
+            Builder<V> builder = root;
+            for(int i = 0; i < entry.getKey().length(); i++)
+            {
+                final Character c = entry.getKey().charAt(i);
+                Builder<V> child = builder.children.get(c);
+                if ( child == null )
+                {
+                    child = new Builder<V>();
+                    builder.children.put(c, child);
+                }
+                builder = child;
+            }
+            builder.value = entry.getValue();
+        }
+        return root.build();
+    }
+
+    /** Mutable node used while building the trie. */
+    private static final class Builder<V>
+    {
+        final TreeMap<Character, Builder<V>> children = new TreeMap<Character, Builder<V>>();
+
+        V value;
+
+        Node<V> build()
+        {
+            final Node<V> node = new Node<V>();
+            node.value = this.value;
+            node.keys = this.children.isEmpty() ? NO_KEYS : new char[this.children.size()];
+            @SuppressWarnings("unchecked")
+            final Node<V>[] nodes = new Node[this.children.size()];
+            int i = 0;
+            for(final Map.Entry<Character, Builder<V>> entry : this.children.entrySet())
+            {
+                node.keys[i] = entry.getKey();
+                nodes[i] = entry.getValue().build();
+                i++;
+            }
+            node.children = nodes;
+            return node;
+        }
+    }
+
+    private static final class Node<V>
+    {
+        /** The sorted characters of the children. */
+        char[] keys;
+
+        Node<V>[] children;
+
+        V value;
+
+        Node<V> child(final char c)
+        {
+            final int index = Arrays.binarySearch(this.keys, c);
+            return index < 0 ? null : this.children[index];
+        }
+    }
+}
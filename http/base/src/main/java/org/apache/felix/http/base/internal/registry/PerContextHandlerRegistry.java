@@ -16,6 +16,8 @@
  */
 package org.apache.felix.http.base.internal.registry;
 
+import java.util.List;
+
 import javax.servlet.DispatcherType;
 
 import org.apache.felix.http.base.internal.HttpConfig;
@@ -27,6 +29,7 @@ import org.apache.felix.http.base.internal.runtime.ListenerInfo;
 import org.apache.felix.http.base.internal.runtime.ServletContextHelperInfo;
 import org.apache.felix.http.base.internal.runtime.ServletInfo;
 import org.apache.felix.http.base.internal.runtime.dto.FailedDTOHolder;
+import org.apache.felix.http.base.internal.runtime.dto.InvocationMetricsDTO;
 import org.apache.felix.http.base.internal.service.HttpServiceFactory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -105,6 +108,15 @@ public final class PerContextHandlerRegistry implements Comparable<PerContextHan
         return this.config;
     }
 
+    /**
+     * The path of the servlet context
+     * @return The context path, {@code /} for the root context
+     */
+    public String getPath()
+    {
+        return this.path;
+    }
+
     public void removeAll()
     {
         this.errorPageRegistry.cleanup();
@@ -208,6 +220,16 @@ public final class PerContextHandlerRegistry implements Comparable<PerContextHan
         this.eventListenerRegistry.getRuntimeInfo(dto, failedDTOHolder.failedListenerDTOs);
     }
 
+    /**
+     * Collect the invocation metrics of all active servlets, resources and filters
+     * @param metrics The list to add the metrics to
+     */
+    public void getInvocationMetrics(@NotNull final List<InvocationMetricsDTO> metrics)
+    {
+        this.servletRegistry.getInvocationMetrics(metrics);
+        this.filterRegistry.getInvocationMetrics(metrics);
+    }
+
     /**
      * Add a servlet
      * @param handler The servlet handler
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.registry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.DefaultMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.ExactAndPathMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.ExactMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.ExtensionMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.PathMatcher;
+import org.apache.felix.http.base.internal.registry.PathResolverFactory.RootMatcher;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable dispatch table for the active servlet patterns of a servlet context.
+ *
+ * The table is compiled from the active path resolvers whenever a servlet is
+ * registered or unregistered and resolves a request uri with the same result
+ * as trying the sorted resolvers one after the other:
+ * - exact patterns are looked up in a hash map
+ * - path patterns (and the path part of Http Service aliases) are looked up in
+ *   a {@link PathTrie}
+ * - extension patterns are looked up in a hash table keyed by the suffixes of
+ *   the uri starting with a dot
+ * - finally the root and the default servlet are used.
+ *
+ * Resolving a uri only allocates the returned {@link PathResolution}.
+ */
+final class ServletDispatchTable
+{
+    static final ServletDispatchTable EMPTY = new ServletDispatchTable(Collections.<PathResolver>emptyList());
+
+    /** A resolver together with its (shared) patterns array. */
+    private static final class Entry
+    {
+        final PathResolver resolver;
+
+        final String[] patterns;
+
+        Entry(final PathResolver resolver)
+        {
+            this.resolver = resolver;
+            this.patterns = new String[] {resolver.getPattern()};
+        }
+    }
+
+    private final List<PathResolver> resolvers;
+
+    private final Map<String, Entry> exact = new HashMap<String, Entry>();
+
+    private final PathTrie<Entry> exactAndPath;
+
+    private final PathTrie<Entry> path;
+
+    private final ExtensionTable extensions;
+
+    private final Entry root;
+
+    private final Entry defaultEntry;
+
+    /**
+     * Compile the table
+     * @param resolvers The active resolvers, at most one per pattern
+     */
+    ServletDispatchTable(@NotNull final List<PathResolver> resolvers)
+    {
+        this.resolvers = resolvers;
+
+        final Map<String, Entry> exactAndPathMap = new HashMap<String, Entry>();
+        final Map<String, Entry> pathMap = new HashMap<String, Entry>();
+        final List<Entry> extensionList = new ArrayList<Entry>();
+        Entry rootEntry = null;
+        Entry defaultEntry = null;
+        for(final PathResolver resolver : resolvers)
+        {
+            final Entry entry = new Entry(resolver);
+            final String pattern = resolver.getPattern();
+            if ( resolver instanceof ExactMatcher )
+            {
+                this.exact.put(pattern, entry);
+            }
+            else if ( resolver instanceof ExactAndPathMatcher )
+            {
+                this.exact.put(pattern, entry);
+                exactAndPathMap.put(pattern, entry);
+            }
+            else if ( resolver instanceof PathMatcher )
+            {
+                pathMap.put(pattern.substring(0, pattern.length() - 2), entry);
+            }
+            else if ( resolver instanceof ExtensionMatcher )
+            {
+                extensionList.add(entry);
+            }
+            else if ( resolver instanceof RootMatcher )
+            {
+                rootEntry = entry;
+            }
+            else if ( resolver instanceof DefaultMatcher )
+            {
+                defaultEntry = entry;
+            }
+            else
+            {
+                throw new IllegalArgumentException("Unsupported servlet pattern resolver " + resolver);
+            }
+        }
+        this.exactAndPath = new PathTrie<Entry>(exactAndPathMap);
+        this.path = new PathTrie<Entry>(pathMap);
+        this.extensions = new ExtensionTable(extensionList);
+        this.root = rootEntry;
+        this.defaultEntry = defaultEntry;
+    }
+
+    /**
+     * The resolvers this table has been compiled from
+     * @return The sorted list of active resolvers
+     */
+    @NotNull List<PathResolver> getResolvers()
+    {
+        return this.resolvers;
+    }
+
+    /**
+     * Resolve a request uri
+     *
+     * @param uri The request uri relative to the servlet context
+     * @return A path resolution if a servlet matched, {@code null} otherwise
+     */
+    @Nullable PathResolution resolve(@NotNull final String uri)
+    {
+        Entry entry = this.exact.get(uri);
+        if ( entry == null && !this.exactAndPath.isEmpty() )
+        {
+            entry = this.exactAndPath.longestMatch(uri);
+        }
+        if ( entry == null && !this.path.isEmpty() )
+        {
+            entry = this.path.longestMatch(uri);
+        }
+        if ( entry == null )
+        {
+            entry = this.extensions.longestMatch(uri);
+        }
+        if ( entry == null && this.root != null && this.root.resolver.matches(uri) )
+        {
+            entry = this.root;
+        }
+        if ( entry == null )
+        {
+            entry = this.defaultEntry;
+        }
+        if ( entry != null )
+        {
+            final PathResolution pr = entry.resolver.resolve(uri);
+            if ( pr != null )
+            {
+                pr.patterns = entry.patterns;
+            }
+            return pr;
+        }
+        return null;
+    }
+
+    /**
+     * Open addressing hash table of the extension patterns. The table is
+     * probed with the hash of each suffix of the uri starting with a dot,
+     * computed from right to left such that no substrings are created.
+     */
+    private static final class ExtensionTable
+    {
+        /** The extensions including the leading dot. */
+        private final String[] keys;
+
+        private final Entry[] values;
+
+        private final int mask;
+
+        private final int maxLength;
+
+        ExtensionTable(final List<Entry> entries)
+        {
+            int size = 1;
+            while ( size < entries.size() * 2 )
+            {
+                size <<= 1;
+            }
+            this.keys = new String[size];
+            this.values = new Entry[size];
+            this.mask = size - 1;
+
+            int max = 0;
+            for(final Entry entry : entries)
+            {
+                final String extension = entry.resolver.getPattern().substring(1);
+                max = Math.max(max, extension.length());
+                int index = extension.hashCode() & this.mask;
+                while ( this.keys[index] != null )
+                {
+                    index = (index + 1) & this.mask;
+                }
+                this.keys[index] = extension;
+                this.values[index] = entry;
+            }
+            this.maxLength = entries.isEmpty() ? 0 : max;
+        }
+
+        /**
+         * Get the entry for the longest extension the uri ends with
+         * @param uri The uri
+         * @return The entry or {@code null}
+         */
+        Entry longestMatch(final String uri)
+        {
+            if ( this.maxLength == 0 )
+            {
+                return null;
+            }
+            final int length = uri.length();
+            final int start = Math.max(0, length - this.maxLength);
+            Entry result = null;
+            int hash = 0;
+            int factor = 1;
+            for(int i = length - 1; i >= start; i--)
+            {
+                final char c = uri.charAt(i);
+                hash += c * factor;
+                factor *= 31;
+                if ( c == '.' )
+                {
+                    final Entry entry = this.get(hash, uri, i);
+                    if ( entry != null )
+                    {
+                        result = entry;
+                    }
+                }
+            }
+            return result;
+        }
+
+        private Entry get(final int hash, final String uri, final int offset)
+        {
+            final int length = uri.length() - offset;
+            int index = hash & this.mask;
+            while ( this.keys[index] != null )
+            {
+                final String key = this.keys[index];
+                if ( key.length() == length && uri.regionMatches(offset, key, 0, length) )
+                {
+                    return this.values[index];
+                }
+                index = (index + 1) & this.mask;
+            }
+            return null;
+        }
+    }
+}
@@ -34,6 +34,8 @@ import org.jetbrains.annotations.NotNull;
 import org.apache.felix.http.base.internal.handler.ServletHandler;
 import org.apache.felix.http.base.internal.runtime.ServletInfo;
 import org.apache.felix.http.base.internal.runtime.dto.BuilderConstants;
+import org.apache.felix.http.base.internal.runtime.dto.InvocationMetricsDTO;
+import org.apache.felix.http.base.internal.runtime.dto.InvocationMetricsDTOBuilder;
 import org.apache.felix.http.base.internal.runtime.dto.ResourceDTOBuilder;
 import org.apache.felix.http.base.internal.runtime.dto.ServletDTOBuilder;
 import org.osgi.service.http.runtime.dto.DTOConstants;
@@ -51,7 +53,8 @@ public final class ServletRegistry
 {
     private static final String NAMED_SERVLET_PATTERN = ":::";
 
-    private volatile List<PathResolver> activeResolvers = Collections.emptyList();
+    /** The compiled active resolvers, replaced on every change. */
+    private volatile ServletDispatchTable dispatchTable = ServletDispatchTable.EMPTY;
 
     private final Map<String, List<ServletHandler>> inactiveServletMappings = new HashMap<String, List<ServletHandler>>();
 
@@ -73,18 +76,8 @@ public final class ServletRegistry
      */
     public PathResolution resolve(@NotNull final String relativeRequestURI)
     {
-        final List<PathResolver> resolvers = this.activeResolvers;
-        for(final PathResolver entry : resolvers)
-        {
-            final PathResolution pr = entry.resolve(relativeRequestURI);
-            if ( pr != null )
-            {
-                // TODO - we should have all patterns under which this servlet is actively registered
-                pr.patterns = new String[] {entry.getPattern()};
-                return pr;
-            }
-        }
-        return null;
+        // TODO - we should have all patterns under which this servlet is actively registered
+        return this.dispatchTable.resolve(relativeRequestURI);
     }
 
     private PathResolver findResolver(final List<PathResolver> resolvers, final String pattern)
@@ -112,7 +105,7 @@ public final class ServletRegistry
         {
             final Map<ServletInfo, RegistrationStatus> newMap = new TreeMap<ServletInfo, ServletRegistry.RegistrationStatus>(this.mapping);
 
-            final List<PathResolver> resolvers = new ArrayList<PathResolver>(this.activeResolvers);
+            final List<PathResolver> resolvers = new ArrayList<PathResolver>(this.dispatchTable.getResolvers());
 
             final RegistrationStatus status = new RegistrationStatus();
             status.handler = handler;
@@ -173,7 +166,7 @@ public final class ServletRegistry
                 addToNameMapping(handler);
             }
             Collections.sort(resolvers);
-            this.activeResolvers = resolvers;
+            this.dispatchTable = new ServletDispatchTable(resolvers);
             this.mapping = newMap;
         }
         else if ( !handler.getServletInfo().isResource() && handler.getServletInfo().getName() != null )
@@ -257,7 +250,7 @@ public final class ServletRegistry
     {
         if ( info.getPatterns() != null )
         {
-            final List<PathResolver> resolvers = new ArrayList<PathResolver>(this.activeResolvers);
+            final List<PathResolver> resolvers = new ArrayList<PathResolver>(this.dispatchTable.getResolvers());
 
             final Map<ServletInfo, RegistrationStatus> newMap = new TreeMap<ServletInfo, ServletRegistry.RegistrationStatus>(this.mapping);
             newMap.remove(info);
@@ -339,7 +332,7 @@ public final class ServletRegistry
             }
 
             Collections.sort(resolvers);
-            this.activeResolvers = resolvers;
+            this.dispatchTable = new ServletDispatchTable(resolvers);
             this.mapping = newMap;
 
             if ( cleanupHandler != null )
@@ -366,7 +359,7 @@ public final class ServletRegistry
 
     public synchronized void cleanup()
     {
-        this.activeResolvers = Collections.emptyList();
+        this.dispatchTable = ServletDispatchTable.EMPTY;
         this.inactiveServletMappings.clear();
         this.servletsByName.clear();
         this.mapping = Collections.emptyMap();
@@ -454,6 +447,21 @@ public final class ServletRegistry
         return null;
     }
 
+    /**
+     * Collect the invocation metrics of the active servlets and resources
+     * @param metrics The list to add the metrics to
+     */
+    public void getInvocationMetrics(@NotNull final List<InvocationMetricsDTO> metrics)
+    {
+        for(final RegistrationStatus status : this.mapping.values())
+        {
+            if ( status.statusToPath.containsKey(-1) )
+            {
+                metrics.add(InvocationMetricsDTOBuilder.build(status.handler));
+            }
+        }
+    }
+
     public void getRuntimeInfo(
             final ServletContextDTO servletContextDTO,
             final Collection<FailedServletDTO> allFailedServletDTOs,
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.http.base.internal.runtime.dto;
+
+import org.osgi.dto.DTO;
+
+/**
+ * Invocation metrics of an active servlet, resource or filter.
+ * Latencies are in nanoseconds.
+ */
+public class InvocationMetricsDTO extends DTO
+{
+    public static final String TYPE_SERVLET = "servlet";
+
+    public static final String TYPE_RESOURCE = "resource";
+
+    public static final String TYPE_FILTER = "filter";
+
+    /** The type, one of {@link #TYPE_SERVLET}, {@link #TYPE_RESOURCE} or {@link #TYPE_FILTER} */
+    public String type;
+
+    public String name;
+
+    public long serviceId;
+
+    public long servletContextId;
+
+    public long count;
+
+    public long errors;
+
+    public long meanNanos;
+
+    public long maxNanos;
+
+    public long p50Nanos;
+
+    public long p90Nanos;
+
+    public long p99Nanos;
+
+    /** The number of invocations per latency bucket, see {@link org.apache.felix.http.base.internal.handler.InvocationMetrics} */
+    public long[] histogram;
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.http.base.internal.runtime.dto;
+
+import org.apache.felix.http.base.internal.handler.FilterHandler;
+import org.apache.felix.http.base.internal.handler.InvocationMetrics;
+import org.apache.felix.http.base.internal.handler.ServletHandler;
+import org.jetbrains.annotations.NotNull;
+
+public final class InvocationMetricsDTOBuilder
+{
+    /**
+     * Build a metrics DTO from a servlet handler
+     * @param handler The servlet handler
+     * @return A metrics DTO
+     */
+    public static @NotNull InvocationMetricsDTO build(@NotNull final ServletHandler handler)
+    {
+        final InvocationMetricsDTO dto = build(handler.getMetrics());
+        dto.type = handler.getServletInfo().isResource() ? InvocationMetricsDTO.TYPE_RESOURCE : InvocationMetricsDTO.TYPE_SERVLET;
+        dto.name = handler.getName();
+        dto.serviceId = handler.getServletInfo().getServiceId();
+        dto.servletContextId = handler.getContextServiceId();
+        return dto;
+    }
+
+    /**
+     * Build a metrics DTO from a filter handler
+     * @param handler The filter handler
+     * @return A metrics DTO
+     */
+    public static @NotNull InvocationMetricsDTO build(@NotNull final FilterHandler handler)
+    {
+        final InvocationMetricsDTO dto = build(handler.getMetrics());
+        dto.type = InvocationMetricsDTO.TYPE_FILTER;
+        dto.name = handler.getName();
+        dto.serviceId = handler.getFilterInfo().getServiceId();
+        dto.servletContextId = handler.getContextServiceId();
+        return dto;
+    }
+
+    private static @NotNull InvocationMetricsDTO build(@NotNull final InvocationMetrics metrics)
+    {
+        final InvocationMetrics.Snapshot snapshot = metrics.getSnapshot();
+        final InvocationMetricsDTO dto = new InvocationMetricsDTO();
+        dto.count = snapshot.getCount();
+        dto.errors = snapshot.getErrors();
+        dto.meanNanos = snapshot.getMeanNanos();
+        dto.maxNanos = snapshot.getMaxNanos();
+        dto.p50Nanos = snapshot.getPercentileNanos(50);
+        dto.p90Nanos = snapshot.getPercentileNanos(90);
+        dto.p99Nanos = snapshot.getPercentileNanos(99);
+        dto.histogram = snapshot.getHistogram();
+        return dto;
+    }
+}
@@ -53,12 +53,12 @@ public final class RequestInfoDTOBuilder
         if (pr.handler.getServletInfo().isResource())
         {
             requestInfoDTO.resourceDTO = ResourceDTOBuilder.build(pr.handler, -1);
-            requestInfoDTO.resourceDTO.patterns = pr.patterns;
+            requestInfoDTO.resourceDTO.patterns = pr.patterns.clone();
         }
         else
         {
             requestInfoDTO.servletDTO = ServletDTOBuilder.build(pr.handler, -1);
-            requestInfoDTO.servletDTO.patterns = pr.patterns;
+            requestInfoDTO.servletDTO.patterns = pr.patterns.clone();
         }
 
         final FilterHandler[] filterHandlers = registry.getFilters(pr, DispatcherType.REQUEST, path);
@@ -20,10 +20,12 @@ import static java.util.Collections.list;
 
 import java.util.Dictionary;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 
 import org.apache.felix.http.base.internal.registry.HandlerRegistry;
+import org.apache.felix.http.base.internal.runtime.dto.InvocationMetricsDTO;
 import org.apache.felix.http.base.internal.runtime.dto.RequestInfoDTOBuilder;
 import org.apache.felix.http.base.internal.runtime.dto.RuntimeDTOBuilder;
 import org.apache.felix.http.base.internal.whiteboard.WhiteboardManager;
@@ -127,6 +129,16 @@ public final class HttpServiceRuntimeImpl implements HttpServiceRuntime
         return new RequestInfoDTOBuilder(registry, path).build();
     }
 
+    /**
+     * Get the invocation metrics of all active servlets, resources and filters.
+     * This extends the runtime information provided by {@link #getRuntimeDTO()}.
+     * @return The metrics
+     */
+    public List<InvocationMetricsDTO> getInvocationMetrics()
+    {
+        return registry.getInvocationMetrics();
+    }
+
     public synchronized void setAttribute(String name, Object value)
     {
         Hashtable<String, Object> newAttributes = new Hashtable<>(attributes);
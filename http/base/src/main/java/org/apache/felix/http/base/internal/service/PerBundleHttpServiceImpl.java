@@ -94,7 +94,8 @@ public final class PerBundleHttpServiceImpl implements HttpService
         }
         try
         {
-            final Servlet servlet = new ResourceServlet(name);
+            final Servlet servlet = new ResourceServlet(name, this.bundle.getBundleId(),
+                    this.sharedHttpService.getHandlerRegistry().getConfig().getResourceCache());
             registerServlet(alias, servlet, null, context);
         }
         catch (ServletException e)
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * In memory cache of the content of resources served by the {@link ResourceServlet}.
+ *
+ * The cache is bounded by the total size of the cached content and evicts the least
+ * recently used resources first. Resources are keyed by their url and only returned
+ * as long as their last modification time is unchanged. The resources of a bundle
+ * are removed when the bundle is uninstalled.
+ * The cache is disabled as long as its maximum size is 0.
+ */
+public final class ResourceCache
+{
+    /**
+     * A cached resource.
+     */
+    public static final class Entry
+    {
+        private final long bundleId;
+
+        private final byte[] content;
+
+        private final long lastModified;
+
+        public Entry(final long bundleId, @NotNull final byte[] content, final long lastModified)
+        {
+            this.bundleId = bundleId;
+            this.content = content;
+            this.lastModified = lastModified;
+        }
+
+        public long getBundleId()
+        {
+            return this.bundleId;
+        }
+
+        public @NotNull byte[] getContent()
+        {
+            return this.content;
+        }
+
+        public long getLastModified()
+        {
+            return this.lastModified;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long maxSize;
+
+    private long maxEntrySize;
+
+    private long size;
+
+    /**
+     * Set the limits of the cache, evicting resources if needed.
+     * @param maxSize The maximum total size of the cached content in bytes, 0 to disable the cache
+     * @param maxEntrySize The maximum size of a single cached resource in bytes
+     */
+    public synchronized void setLimits(final long maxSize, final long maxEntrySize)
+    {
+        this.maxSize = Math.max(0, maxSize);
+        this.maxEntrySize = Math.max(0, maxEntrySize);
+        final Iterator<Entry> i = this.entries.values().iterator();
+        while ( i.hasNext() )
+        {
+            final Entry entry = i.next();
+            if ( entry.content.length > this.maxEntrySize )
+            {
+                i.remove();
+                this.size -= entry.content.length;
+            }
+        }
+        this.evict();
+    }
+
+    /**
+     * Check whether a resource of the given size is cached.
+     * @param length The size of the resource in bytes, -1 if unknown
+     * @return {@code true} if the resource should be cached
+     */
+    public synchronized boolean isCacheable(final long length)
+    {
+        return length >= 0 && length <= this.maxEntrySize && length <= this.maxSize;
+    }
+
+    /**
+     * Get a cached resource.
+     * @param url The url of the resource
+     * @param lastModified The current last modification time of the resource
+     * @return The cached resource or {@code null} if the resource is not cached or modified
+     */
+    public synchronized @Nullable Entry get(@NotNull final String url, final long lastModified)
+    {
+        final Entry entry = this.entries.get(url);
+        if ( entry != null && entry.lastModified != lastModified )
+        {
+            this.size -= this.entries.remove(url).content.length;
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Add a resource to the cache, evicting the least recently used resources
+     * if the cache gets too big.
+     * @param url The url of the resource
+     * @param entry The resource
+     */
+    public synchronized void put(@NotNull final String url, @NotNull final Entry entry)
+    {
+        if ( entry.content.length > this.maxEntrySize || entry.content.length > this.maxSize )
+        {
+            return;
+        }
+        final Entry old = this.entries.put(url, entry);
+        if ( old != null )
+        {
+            this.size -= old.content.length;
+        }
+        this.size += entry.content.length;
+        this.evict();
+    }
+
+    /**
+     * Remove the resources of a bundle.
+     * @param bundleId The id of the bundle which registered the resources
+     */
+    public synchronized void remove(final long bundleId)
+    {
+        final Iterator<Entry> i = this.entries.values().iterator();
+        while ( i.hasNext() )
+        {
+            final Entry entry = i.next();
+            if ( entry.bundleId == bundleId )
+            {
+                i.remove();
+                this.size -= entry.content.length;
+            }
+        }
+    }
+
+    /**
+     * The total size of the cached content
+     * @return The size in bytes
+     */
+    public synchronized long getSize()
+    {
+        return this.size;
+    }
+
+    private void evict()
+    {
+        // iteration order is from least to most recently used
+        final Iterator<Entry> i = this.entries.values().iterator();
+        while ( this.size > this.maxSize && i.hasNext() )
+        {
+            final Entry entry = i.next();
+            i.remove();
+            this.size -= entry.content.length;
+        }
+    }
+}
@@ -16,12 +16,21 @@
  */
 package org.apache.felix.http.base.internal.service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -30,17 +39,51 @@ import javax.servlet.http.HttpServletResponse;
 
 /**
  * The resource servlet
+ *
+ * Resources are served with a strong entity tag derived from their last
+ * modification time and size, conditional requests are answered with
+ * {@code 304 Not Modified} and single byte ranges are supported.
+ * If the client accepts it, a pre-compressed variant of a resource ({@code .br}
+ * or {@code .gz} next to the resource) is served instead of the resource.
+ * Resources without variants are remembered, variants added later are only
+ * found once the resources are registered again.
+ * Small resources are kept in the (optional) {@link ResourceCache}, resources
+ * backed by a file are transferred through a file channel.
  */
 public final class ResourceServlet extends HttpServlet
 {
     private static final long serialVersionUID = 1L;
 
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Pre-compressed variants in order of preference: encoding and file extension. */
+    private static final String[][] VARIANTS = new String[][] {
+        {"br", ".br"},
+        {"gzip", ".gz"}
+    };
+
     /** The path of the resource registration. */
     private final String prefix;
 
+    /** The id of the bundle registering the resources. */
+    private final long bundleId;
+
+    /** The optional cache of resources */
+    private final ResourceCache cache;
+
+    /** The names of existing resources without pre-compressed variants. */
+    private final Set<String> withoutVariants = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
     public ResourceServlet(final String prefix)
+    {
+        this(prefix, -1, null);
+    }
+
+    public ResourceServlet(final String prefix, final long bundleId, final ResourceCache cache)
     {
         this.prefix = prefix;
+        this.bundleId = bundleId;
+        this.cache = cache;
     }
 
     @Override
@@ -72,50 +115,253 @@ public final class ResourceServlet extends HttpServlet
             res.setContentType(contentType);
         }
 
-        final long lastModified = getLastModified(url);
-        if (lastModified != 0)
+        // ranges are only served for the identity encoding
+        final String rangeHeader = req.getHeader("Range");
+        Resource resource = getVariant(req, res, resName, rangeHeader == null);
+        if (resource != null)
+        {
+            res.setHeader("Content-Encoding", resource.encoding);
+        }
+        else
         {
-            res.setDateHeader("Last-Modified", lastModified);
+            resource = new Resource(url, null);
         }
+        try
+        {
+            handle(req, res, resource, rangeHeader);
+        }
+        finally
+        {
+            resource.close();
+        }
+    }
 
-        if (!resourceModified(lastModified, req.getDateHeader("If-Modified-Since")))
+    private void handle(final HttpServletRequest req, final HttpServletResponse res,
+            final Resource resource, final String rangeHeader)
+    throws IOException
+    {
+
+        if (resource.lastModified != 0)
         {
-            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            res.setDateHeader("Last-Modified", resource.lastModified);
+        }
+        if (resource.etag != null)
+        {
+            res.setHeader("ETag", resource.etag);
+        }
+
+        final String ifNoneMatch = req.getHeader("If-None-Match");
+        final boolean notModified;
+        if (ifNoneMatch != null)
+        {
+            notModified = matchesETag(ifNoneMatch, resource.etag);
         }
         else
         {
-            copyResource(url, res);
+            notModified = !resourceModified(resource.lastModified, req.getDateHeader("If-Modified-Since"));
+        }
+
+        if (notModified)
+        {
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long length = resource.length;
+        if (length >= 0)
+        {
+            res.setHeader("Accept-Ranges", "bytes");
+            if (rangeHeader != null && isRangeApplicable(req, resource))
+            {
+                final long[] range = parseRange(rangeHeader, length);
+                if (range != null && range.length == 0)
+                {
+                    res.setHeader("Content-Range", "bytes */" + length);
+                    res.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                if (range != null)
+                {
+                    res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    res.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+                    start = range[0];
+                    length = range[1] - range[0] + 1;
+                }
+            }
         }
+
+        copyResource(resource, start, length, res);
     }
 
-    private long getLastModified(final URL url)
+    /**
+     * Get the pre-compressed variant of the resource if it may be served and
+     * the client accepts its encoding. As soon as the resource has a variant,
+     * the response varies by the accepted encodings.
+     */
+    private Resource getVariant(final HttpServletRequest req, final HttpServletResponse res,
+            final String resName, final boolean serveVariant) throws IOException
     {
-        long lastModified = 0;
+        if (this.withoutVariants.contains(resName))
+        {
+            return null;
+        }
+        final String acceptEncoding = serveVariant ? req.getHeader("Accept-Encoding") : null;
+        boolean hasVariant = false;
+        for (final String[] variant : VARIANTS)
+        {
+            final URL url = getServletContext().getResource(resName.concat(variant[1]));
+            if (url != null)
+            {
+                hasVariant = true;
+                res.setHeader("Vary", "Accept-Encoding");
+                if (acceptEncoding != null && acceptsEncoding(acceptEncoding, variant[0]))
+                {
+                    return new Resource(url, variant[0]);
+                }
+            }
+        }
+        if (!hasVariant)
+        {
+            this.withoutVariants.add(resName);
+        }
+        return null;
+    }
+
+    static boolean acceptsEncoding(final String acceptEncoding, final String encoding)
+    {
+        for (final String part : acceptEncoding.split(","))
+        {
+            final String[] params = part.split(";");
+            if (encoding.equalsIgnoreCase(params[0].trim()))
+            {
+                for (int i = 1; i < params.length; i++)
+                {
+                    final String param = params[i].trim();
+                    if (param.startsWith("q="))
+                    {
+                        try
+                        {
+                            return Double.parseDouble(param.substring(2)) > 0;
+                        }
+                        catch (final NumberFormatException nfe)
+                        {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean matchesETag(final String header, final String etag)
+    {
+        if (header.trim().equals("*"))
+        {
+            return true;
+        }
+        if (etag != null)
+        {
+            for (String tag : header.split(","))
+            {
+                tag = tag.trim();
+                // weak comparison
+                if (tag.startsWith("W/"))
+                {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals(etag))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 
+    /**
+     * Check the {@code If-Range} header, a range is only served if the resource is unchanged.
+     */
+    private boolean isRangeApplicable(final HttpServletRequest req, final Resource resource)
+    {
+        final String ifRange = req.getHeader("If-Range");
+        if (ifRange == null)
+        {
+            return true;
+        }
+        if (ifRange.trim().startsWith("\"") || ifRange.trim().startsWith("W/"))
+        {
+            // strong comparison
+            return resource.etag != null && resource.etag.equals(ifRange.trim());
+        }
         try
         {
-            final URLConnection conn = url.openConnection();
-            lastModified = conn.getLastModified();
+            final long date = req.getDateHeader("If-Range");
+            return resource.lastModified != 0 && date / 1000 == resource.lastModified / 1000;
         }
-        catch (final Exception e)
+        catch (final IllegalArgumentException iae)
         {
-            // Do nothing
+            return false;
         }
+    }
 
-        if (lastModified == 0)
+    /**
+     * Parse a byte range header with a single range.
+     * @return The first and last byte of the range, an empty array if the range
+     *         is not satisfiable or {@code null} if the range is to be ignored.
+     */
+    static long[] parseRange(final String header, final long length)
+    {
+        final String value = header.trim();
+        if (!value.startsWith("bytes=") || value.indexOf(',') != -1)
+        {
+            // multiple ranges are not supported, the whole resource is sent
+            return null;
+        }
+        final String spec = value.substring(6).trim();
+        final int dash = spec.indexOf('-');
+        if (dash == -1)
+        {
+            return null;
+        }
+        try
         {
-            final String filepath = url.getPath();
-            if (filepath != null)
+            final long first;
+            long last;
+            if (dash == 0)
+            {
+                // suffix range
+                final long suffix = Long.parseLong(spec.substring(1).trim());
+                if (suffix <= 0)
+                {
+                    return new long[0];
+                }
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            }
+            else
             {
-                final File f = new File(filepath);
-                if (f.exists())
+                first = Long.parseLong(spec.substring(0, dash).trim());
+                final String lastSpec = spec.substring(dash + 1).trim();
+                last = lastSpec.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastSpec);
+                if (first < 0 || last < first)
                 {
-                    lastModified = f.lastModified();
+                    return null;
                 }
+                if (first >= length)
+                {
+                    return new long[0];
+                }
+                last = Math.min(last, length - 1);
             }
+            return new long[] {first, last};
+        }
+        catch (final NumberFormatException nfe)
+        {
+            return null;
         }
-
-        return lastModified;
     }
 
     private boolean resourceModified(long resTimestamp, long modSince)
@@ -126,65 +372,278 @@ public final class ResourceServlet extends HttpServlet
         return resTimestamp == 0 || modSince == -1 || resTimestamp > modSince;
     }
 
-    private void copyResource(final URL url, final HttpServletResponse res) throws IOException
+    private void copyResource(final Resource resource, final long start, final long length,
+            final HttpServletResponse res) throws IOException
     {
-        URLConnection conn = null;
-        OutputStream os = null;
-        InputStream is = null;
+        // FELIX-3987 content length should be set *before* any streaming is done
+        // as headers should be written before the content is actually written...
+        if (length >= 0)
+        {
+            res.setContentLengthLong(length);
+        }
 
+        final OutputStream os = res.getOutputStream();
         try
         {
-            conn = url.openConnection();
+            if (resource.content != null)
+            {
+                os.write(resource.content, (int) start, (int) length);
+            }
+            else if (resource.file != null)
+            {
+                final FileInputStream fis = new FileInputStream(resource.file);
+                try
+                {
+                    final FileChannel channel = fis.getChannel();
+                    final WritableByteChannel target = Channels.newChannel(os);
+                    final long end = length >= 0 ? start + length : channel.size();
+                    long position = start;
+                    while (position < end)
+                    {
+                        final long transferred = channel.transferTo(position, end - position, target);
+                        if (transferred <= 0)
+                        {
+                            break;
+                        }
+                        position += transferred;
+                    }
+                }
+                finally
+                {
+                    fis.close();
+                }
+            }
+            else
+            {
+                final InputStream is = resource.openStream();
+                try
+                {
+                    skipFully(is, start);
+                    final byte[] buf = new byte[BUFFER_SIZE];
+                    long remaining = length >= 0 ? length : Long.MAX_VALUE;
+                    int n;
+                    while (remaining > 0 && (n = is.read(buf, 0, (int) Math.min(buf.length, remaining))) >= 0)
+                    {
+                        os.write(buf, 0, n);
+                        remaining -= n;
+                    }
+                }
+                finally
+                {
+                    is.close();
+                }
+            }
+        }
+        finally
+        {
+            os.close();
+        }
+    }
+
+    private static void skipFully(final InputStream is, long count) throws IOException
+    {
+        while (count > 0)
+        {
+            final long skipped = is.skip(count);
+            if (skipped <= 0)
+            {
+                if (is.read() == -1)
+                {
+                    return;
+                }
+                count--;
+            }
+            else
+            {
+                count -= skipped;
+            }
+        }
+    }
 
-            is = conn.getInputStream();
-            os = res.getOutputStream();
-            // FELIX-3987 content length should be set *before* any streaming is done
-            // as headers should be written before the content is actually written...
-            int len = getContentLength(conn);
-            if (len >= 0)
+    private static File getFile(final URL url)
+    {
+        if ("file".equals(url.getProtocol()))
+        {
+            try
             {
-                res.setContentLength(len);
+                final File file = new File(url.toURI());
+                return file.isFile() ? file : null;
             }
+            catch (final URISyntaxException | IllegalArgumentException e)
+            {
+                // not a plain file url
+            }
+        }
+        return null;
+    }
 
-            byte[] buf = new byte[1024];
-            int n;
+    /**
+     * A representation of a resource to send: either the cached content,
+     * a file or the url connection to stream. The connection is only opened
+     * if the resource is not a file, the resource must be closed after sending.
+     */
+    private final class Resource
+    {
+        final String encoding;
 
-            while ((n = is.read(buf, 0, buf.length)) >= 0)
+        final URL url;
+
+        final long lastModified;
+
+        final long length;
+
+        final String etag;
+
+        final byte[] content;
+
+        final File file;
+
+        private URLConnection connection;
+
+        private InputStream stream;
+
+        Resource(final URL url, final String encoding) throws IOException
+        {
+            this.encoding = encoding;
+            this.url = url;
+            this.file = getFile(url);
+
+            long lastModified = 0;
+            if (this.file != null)
+            {
+                lastModified = this.file.lastModified();
+            }
+            else
+            {
+                try
+                {
+                    lastModified = getConnection().getLastModified();
+                }
+                catch (final Exception e)
+                {
+                    // Do nothing
+                }
+            }
+            if (lastModified == 0)
+            {
+                final String filepath = url.getPath();
+                if (filepath != null)
+                {
+                    final File f = new File(filepath);
+                    if (f.exists())
+                    {
+                        lastModified = f.lastModified();
+                    }
+                }
+            }
+            this.lastModified = lastModified;
+
+            // resources without modification time can't be validated
+            final String key = url.toExternalForm();
+            ResourceCache.Entry entry = null;
+            if (cache != null && lastModified != 0)
+            {
+                entry = cache.get(key, lastModified);
+                if (entry == null)
+                {
+                    final long contentLength = getContentLength();
+                    if (cache.isCacheable(contentLength))
+                    {
+                        entry = new ResourceCache.Entry(bundleId, read(openStream(), contentLength), lastModified);
+                        cache.put(key, entry);
+                    }
+                }
+            }
+            this.content = entry == null ? null : entry.getContent();
+            this.length = this.content != null ? this.content.length : getContentLength();
+
+            if (lastModified != 0 && this.length >= 0)
+            {
+                this.etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(this.length)
+                        + (encoding == null ? "" : "-" + encoding) + "\"";
+            }
+            else
             {
-                os.write(buf, 0, n);
+                this.etag = null;
             }
         }
-        finally
+
+        private URLConnection getConnection() throws IOException
         {
-            if (is != null)
+            if (this.connection == null)
             {
-                is.close();
+                this.connection = this.url.openConnection();
             }
+            return this.connection;
+        }
+
+        private long getContentLength() throws IOException
+        {
+            return this.file != null ? this.file.length() : ResourceServlet.getContentLength(getConnection());
+        }
+
+        /**
+         * Open the stream of the connection, it is closed with the resource.
+         */
+        InputStream openStream() throws IOException
+        {
+            this.stream = getConnection().getInputStream();
+            return this.stream;
+        }
 
-            if (os != null)
+        /**
+         * Close the stream of the connection if it has been opened.
+         */
+        void close()
+        {
+            if (this.stream != null)
             {
-                os.close();
+                try
+                {
+                    this.stream.close();
+                }
+                catch (final IOException ioe)
+                {
+                    // ignore
+                }
+                this.stream = null;
             }
         }
     }
 
-    private int getContentLength(final URLConnection conn)
+    private static byte[] read(final InputStream is, final long length) throws IOException
     {
-        int length = -1;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream((int) length);
+        try
+        {
+            final byte[] buf = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = is.read(buf, 0, buf.length)) >= 0)
+            {
+                out.write(buf, 0, n);
+            }
+        }
+        finally
+        {
+            is.close();
+        }
+        return out.toByteArray();
+    }
 
-        length = conn.getContentLength();
+    private static long getContentLength(final URLConnection conn)
+    {
+        long length = conn.getContentLengthLong();
         if (length < 0)
         {
             // Unknown, try whether it is a file, and if so, use the file
             // API to get the length of the content...
-            String path = conn.getURL().getPath();
+            final String path = conn.getURL().getPath();
             if (path != null)
             {
-                File f = new File(path);
-                // In case more than 2GB is streamed
-                if (f.length() < Integer.MAX_VALUE)
+                final File f = new File(path);
+                if (f.isFile())
                 {
-                    length = (int) f.length();
+                    length = f.length();
                 }
             }
         }
@@ -810,7 +810,9 @@ public final class WhiteboardManager
                             handler.getContextInfo().getServiceId(),
                             servletContext,
                             servletInfo,
-                            new ResourceServlet(servletInfo.getPrefix()));
+                            new ResourceServlet(servletInfo.getPrefix(),
+                                    info.getServiceReference().getBundle().getBundleId(),
+                                    this.registry.getConfig().getResourceCache()));
                     handler.getRegistry().registerServlet(servleHandler);
                 }
             }
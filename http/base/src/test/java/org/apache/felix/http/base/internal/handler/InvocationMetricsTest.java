@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.handler;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class InvocationMetricsTest
+{
+    @Test public void testBuckets()
+    {
+        assertEquals(0, InvocationMetrics.getBucket(0));
+        assertEquals(0, InvocationMetrics.getBucket(999));
+        assertEquals(1, InvocationMetrics.getBucket(1000));
+        assertEquals(2, InvocationMetrics.getBucket(2000));
+        assertEquals(2, InvocationMetrics.getBucket(3999));
+        assertEquals(10, InvocationMetrics.getBucket(1000000));
+        assertEquals(11, InvocationMetrics.getBucket(1024000));
+        assertEquals(InvocationMetrics.BUCKETS - 1, InvocationMetrics.getBucket(Long.MAX_VALUE));
+        assertEquals(0, InvocationMetrics.getBucket(-5));
+    }
+
+    @Test public void testSnapshot()
+    {
+        final InvocationMetrics metrics = new InvocationMetrics();
+        assertEquals(0, metrics.getSnapshot().getCount());
+        assertEquals(0, metrics.getSnapshot().getPercentileNanos(99));
+
+        for(int i = 0; i < 98; i++)
+        {
+            metrics.record(500, false);
+        }
+        metrics.record(3000000, true);
+        metrics.record(5000000, true);
+
+        final InvocationMetrics.Snapshot snapshot = metrics.getSnapshot();
+        assertEquals(100, snapshot.getCount());
+        assertEquals(2, snapshot.getErrors());
+        assertEquals(98 * 500 + 8000000, snapshot.getTotalNanos());
+        assertEquals((98 * 500 + 8000000) / 100, snapshot.getMeanNanos());
+        assertEquals(5000000, snapshot.getMaxNanos());
+        assertEquals(98, snapshot.getHistogram()[0]);
+        // upper bound of the bucket below one microsecond
+        assertEquals(1000, snapshot.getPercentileNanos(50));
+        assertEquals(1000, snapshot.getPercentileNanos(98));
+        // 3ms and 5ms are in the bucket up to 4.096ms and 8.192ms
+        assertEquals(4096000, snapshot.getPercentileNanos(99));
+        assertEquals(5000000, snapshot.getPercentileNanos(100));
+    }
+
+    @Test public void testConcurrentRecording() throws Exception
+    {
+        final InvocationMetrics metrics = new InvocationMetrics();
+        final Thread[] threads = new Thread[8];
+        for(int i = 0; i < threads.length; i++)
+        {
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for(int n = 0; n < 10000; n++)
+                    {
+                        metrics.record(n, n % 10 == 0);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for(final Thread t : threads)
+        {
+            t.join();
+        }
+        final InvocationMetrics.Snapshot snapshot = metrics.getSnapshot();
+        assertEquals(80000, snapshot.getCount());
+        assertEquals(8000, snapshot.getErrors());
+        assertEquals(9999, snapshot.getMaxNanos());
+    }
+}
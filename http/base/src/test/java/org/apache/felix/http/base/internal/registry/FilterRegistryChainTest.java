@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+
+import org.apache.felix.http.base.internal.context.ExtServletContext;
+import org.apache.felix.http.base.internal.handler.FilterHandler;
+import org.apache.felix.http.base.internal.handler.HttpServiceFilterHandler;
+import org.apache.felix.http.base.internal.runtime.FilterInfo;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.http.whiteboard.HttpWhiteboardConstants;
+
+public class FilterRegistryChainTest {
+
+    private final FilterRegistry reg = new FilterRegistry();
+
+    @Test public void testFilterPatterns() throws InvalidSyntaxException
+    {
+        final FilterHandler h1 = createFilterHandler(1L, 30, "/foo/*");
+        reg.addFilter(h1);
+        final FilterHandler h2 = createFilterHandler(2L, 20, "/");
+        reg.addFilter(h2);
+        final FilterHandler h3 = createFilterHandler(3L, 10, "*.jsp", "/bar");
+        reg.addFilter(h3);
+
+        FilterHandler[] handlers = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/x.jsp");
+        assertEquals(3, handlers.length);
+        assertEquals(h1.getFilterInfo(), handlers[0].getFilterInfo());
+        assertEquals(h2.getFilterInfo(), handlers[1].getFilterInfo());
+        assertEquals(h3.getFilterInfo(), handlers[2].getFilterInfo());
+        // all filters apply, the compiled chain is returned
+        assertTrue(handlers == reg.getFilterHandlers(null, DispatcherType.REQUEST, "/foo/y.jsp"));
+
+        handlers = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/bar");
+        assertEquals(2, handlers.length);
+        assertEquals(h2.getFilterInfo(), handlers[0].getFilterInfo());
+        assertEquals(h3.getFilterInfo(), handlers[1].getFilterInfo());
+
+        handlers = reg.getFilterHandlers(null, DispatcherType.REQUEST, "/other");
+        assertEquals(1, handlers.length);
+        assertEquals(h2.getFilterInfo(), handlers[0].getFilterInfo());
+
+        // filters are registered for requests only
+        assertEquals(0, reg.getFilterHandlers(null, DispatcherType.FORWARD, "/foo/x.jsp").length);
+
+        reg.removeFilter(h2.getFilterInfo(), true);
+        assertEquals(0, reg.getFilterHandlers(null, DispatcherType.REQUEST, "/other").length);
+
+        // cleanup
+        reg.removeFilter(h1.getFilterInfo(), true);
+        reg.removeFilter(h3.getFilterInfo(), true);
+    }
+
+    private static FilterInfo createFilterInfo(final long id, final int ranking, final String... paths) throws InvalidSyntaxException
+    {
+        final BundleContext bCtx = mock(BundleContext.class);
+        when(bCtx.createFilter(Matchers.anyString())).thenReturn(null);
+        final Bundle bundle = mock(Bundle.class);
+        when(bundle.getBundleContext()).thenReturn(bCtx);
+
+        final ServiceReference<Filter> ref = mock(ServiceReference.class);
+        when(ref.getBundle()).thenReturn(bundle);
+        when(ref.getProperty(Constants.SERVICE_ID)).thenReturn(id);
+        when(ref.getProperty(Constants.SERVICE_RANKING)).thenReturn(ranking);
+        when(ref.getProperty(HttpWhiteboardConstants.HTTP_WHITEBOARD_FILTER_PATTERN)).thenReturn(paths);
+        when(ref.getPropertyKeys()).thenReturn(new String[0]);
+        final FilterInfo si = new FilterInfo(ref);
+
+        return si;
+    }
+
+    private static FilterHandler createFilterHandler(final long id, final int ranking, final String... paths) throws InvalidSyntaxException
+    {
+        final FilterInfo si = createFilterInfo(id, ranking, paths);
+        final ExtServletContext ctx = mock(ExtServletContext.class);
+        final Filter filter = mock(Filter.class);
+
+        return new HttpServiceFilterHandler(ctx, si, filter);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ServletDispatchTableTest {
+
+    private static final String[] URIS = new String[] {
+        "", "/", "/foo", "/foo/", "/fool", "/foo/bar", "/foo/bar.jsp", "/foo/bar/baz",
+        "/foo/bar/baz.tar.gz", "/x.gz", "/x.tar.gz", "/a.jsp", "/a.jsp/b", "/.jsp", "/other",
+        "/other/bla", "/alias", "/alias/sub", "/aliasx", "/alias/long", "/alias/long/x"
+    };
+
+    private static List<PathResolver> resolvers(final String... patterns)
+    {
+        final List<PathResolver> resolvers = new ArrayList<PathResolver>();
+        for(final String pattern : patterns)
+        {
+            resolvers.add(PathResolverFactory.createPatternMatcher(null, pattern));
+        }
+        return resolvers;
+    }
+
+    /**
+     * Compare the table with trying the sorted resolvers one after the other.
+     */
+    private void assertSameAsLinear(final List<PathResolver> resolvers)
+    {
+        Collections.sort(resolvers);
+        final ServletDispatchTable table = new ServletDispatchTable(resolvers);
+        for(final String uri : URIS)
+        {
+            PathResolution expected = null;
+            String expectedPattern = null;
+            for(final PathResolver resolver : resolvers)
+            {
+                expected = resolver.resolve(uri);
+                if ( expected != null )
+                {
+                    expectedPattern = resolver.getPattern();
+                    break;
+                }
+            }
+            final PathResolution actual = table.resolve(uri);
+            if ( expected == null )
+            {
+                assertNull(uri, actual);
+            }
+            else
+            {
+                assertEquals(uri, expectedPattern, actual.patterns[0]);
+                assertEquals(uri, expected.servletPath, actual.servletPath);
+                assertEquals(uri, expected.pathInfo, actual.pathInfo);
+                assertEquals(uri, expected.requestURI, actual.requestURI);
+            }
+        }
+    }
+
+    @Test public void testEmpty()
+    {
+        assertNull(ServletDispatchTable.EMPTY.resolve("/foo"));
+        assertSameAsLinear(resolvers());
+    }
+
+    @Test public void testWhiteboardPatterns()
+    {
+        assertSameAsLinear(resolvers("/foo", "/foo/*", "/foo/bar/*", "/*.jsp", "*.jsp", "*.gz", "*.tar.gz", "/other/*"));
+        assertSameAsLinear(resolvers("", "/foo/bar", "*.jsp"));
+        assertSameAsLinear(resolvers("/", "/foo/bar/baz", "/*", "*.gz"));
+        assertSameAsLinear(resolvers("/", ""));
+    }
+
+    @Test public void testHttpServiceAliases()
+    {
+        final List<PathResolver> resolvers = new ArrayList<PathResolver>();
+        resolvers.add(new PathResolverFactory.ExactAndPathMatcher(null, "/alias"));
+        resolvers.add(new PathResolverFactory.ExactAndPathMatcher(null, "/alias/long"));
+        resolvers.add(new PathResolverFactory.ExactAndPathMatcher(null, "/foo"));
+        resolvers.add(PathResolverFactory.createPatternMatcher(null, "/foo/bar/*"));
+        resolvers.add(PathResolverFactory.createPatternMatcher(null, "/"));
+        assertSameAsLinear(resolvers);
+    }
+
+    @Test public void testPathTrie()
+    {
+        final Map<String, String> values = new HashMap<String, String>();
+        values.put("", "root");
+        values.put("/a", "a");
+        values.put("/a/b", "ab");
+        final PathTrie<String> trie = new PathTrie<String>(values);
+
+        assertEquals("root", trie.longestMatch(""));
+        assertEquals("root", trie.longestMatch("/"));
+        assertEquals("root", trie.longestMatch("/ab"));
+        assertEquals("a", trie.longestMatch("/a"));
+        assertEquals("a", trie.longestMatch("/a/"));
+        assertEquals("a", trie.longestMatch("/a/bc"));
+        assertEquals("ab", trie.longestMatch("/a/b"));
+        assertEquals("ab", trie.longestMatch("/a/b/c"));
+        assertNull(trie.longestMatch("x"));
+        assertNull(new PathTrie<String>(Collections.<String, String>emptyMap()).longestMatch("/a"));
+    }
+}
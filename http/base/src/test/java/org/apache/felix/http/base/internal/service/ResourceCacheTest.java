@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.base.internal.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ResourceCacheTest {
+
+    private static ResourceCache.Entry entry(final int size, final long lastModified)
+    {
+        return entry(1, size, lastModified);
+    }
+
+    private static ResourceCache.Entry entry(final long bundleId, final int size, final long lastModified)
+    {
+        return new ResourceCache.Entry(bundleId, new byte[size], lastModified);
+    }
+
+    @Test public void testDisabled()
+    {
+        final ResourceCache cache = new ResourceCache();
+        assertFalse(cache.isCacheable(10));
+        cache.put("a", entry(10, 1));
+        assertNull(cache.get("a", 1));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test public void testEviction()
+    {
+        final ResourceCache cache = new ResourceCache();
+        cache.setLimits(30, 20);
+        assertTrue(cache.isCacheable(20));
+        assertFalse(cache.isCacheable(21));
+        assertFalse(cache.isCacheable(-1));
+
+        cache.put("a", entry(10, 1));
+        cache.put("b", entry(10, 1));
+        cache.put("c", entry(10, 1));
+        assertEquals(30, cache.getSize());
+
+        // touch a, b is now the least recently used
+        assertNotNull(cache.get("a", 1));
+        cache.put("d", entry(5, 1));
+        assertNull(cache.get("b", 1));
+        assertNotNull(cache.get("a", 1));
+        assertNotNull(cache.get("c", 1));
+        assertEquals(25, cache.getSize());
+
+        // too big for a single entry
+        cache.put("e", entry(21, 1));
+        assertNull(cache.get("e", 1));
+
+        // d and a are evicted, c is the most recently used
+        cache.setLimits(10, 10);
+        assertEquals(10, cache.getSize());
+        assertNotNull(cache.get("c", 1));
+        assertNull(cache.get("d", 1));
+    }
+
+    @Test public void testModified()
+    {
+        final ResourceCache cache = new ResourceCache();
+        cache.setLimits(100, 100);
+        cache.put("a", entry(10, 1));
+        assertNull(cache.get("a", 2));
+        assertEquals(0, cache.getSize());
+
+        cache.put("a", entry(10, 2));
+        cache.put("a", entry(20, 3));
+        assertEquals(20, cache.getSize());
+        assertEquals(3, cache.get("a", 3).getLastModified());
+    }
+
+    @Test public void testRemoveBundle()
+    {
+        final ResourceCache cache = new ResourceCache();
+        cache.setLimits(100, 100);
+        cache.put("a", entry(1, 10, 1));
+        cache.put("b", entry(2, 20, 1));
+        cache.put("c", entry(1, 30, 1));
+
+        cache.remove(1);
+        assertEquals(20, cache.getSize());
+        assertNull(cache.get("a", 1));
+        assertNull(cache.get("c", 1));
+        assertEquals(2, cache.get("b", 1).getBundleId());
+
+        cache.remove(3);
+        assertEquals(20, cache.getSize());
+    }
+
+    @Test public void testParseRange()
+    {
+        assertArrayEquals(new long[] {0, 9}, ResourceServlet.parseRange("bytes=0-9", 100));
+        assertArrayEquals(new long[] {10, 99}, ResourceServlet.parseRange("bytes=10-", 100));
+        assertArrayEquals(new long[] {90, 99}, ResourceServlet.parseRange("bytes=-10", 100));
+        assertArrayEquals(new long[] {0, 99}, ResourceServlet.parseRange("bytes=-200", 100));
+        assertArrayEquals(new long[] {50, 99}, ResourceServlet.parseRange("bytes=50-200", 100));
+        assertEquals(0, ResourceServlet.parseRange("bytes=100-", 100).length);
+        assertEquals(0, ResourceServlet.parseRange("bytes=-0", 100).length);
+        assertNull(ResourceServlet.parseRange("bytes=0-1,5-6", 100));
+        assertNull(ResourceServlet.parseRange("bytes=5-1", 100));
+        assertNull(ResourceServlet.parseRange("bytes=a-b", 100));
+        assertNull(ResourceServlet.parseRange("items=0-1", 100));
+    }
+
+    @Test public void testConditionalHeaders()
+    {
+        assertTrue(ResourceServlet.matchesETag("*", null));
+        assertTrue(ResourceServlet.matchesETag("\"a\", W/\"b\"", "\"b\""));
+        assertFalse(ResourceServlet.matchesETag("\"a\"", "\"b\""));
+        assertFalse(ResourceServlet.matchesETag("\"a\"", null));
+
+        assertTrue(ResourceServlet.acceptsEncoding("gzip, deflate, br", "br"));
+        assertTrue(ResourceServlet.acceptsEncoding("gzip;q=0.5", "gzip"));
+        assertFalse(ResourceServlet.acceptsEncoding("gzip;q=0, br", "gzip"));
+        assertFalse(ResourceServlet.acceptsEncoding("deflate", "gzip"));
+    }
+}
@@ -165,6 +165,13 @@ class ConfigMetaTypeProvider implements MetaTypeProvider
                 -1,
                 bundle.getBundleContext().getProperty(JettyConfig.FELIX_JETTY_THREADPOOL_MAX)));
 
+        adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_JETTY_THREADPOOL_VIRTUAL,
+                "Virtual Threads",
+                "Whether requests are handled on virtual threads. If the runtime does not support virtual threads " +
+                    "(Java 21 or later), the platform threads of the thread pool are used. The default is false.",
+                false,
+                bundle.getBundleContext().getProperty(JettyConfig.FELIX_JETTY_THREADPOOL_VIRTUAL)));
+
         adList.add(new AttributeDefinitionImpl(JettyConfig.FELIX_JETTY_ACCEPTORS,
                 "Acceptors",
                 "Number of acceptor threads to use, or -1 for a default value. Acceptors accept new TCP/IP connections. If 0, then the selector threads are used to accept connections.",
@@ -422,6 +429,16 @@ class ConfigMetaTypeProvider implements MetaTypeProvider
                 "If this property is set, each http context gets a unique session id (derived from the container session).",
                 HttpConfig.DEFAULT_UNIQUE_SESSION_ID,
                 bundle.getBundleContext().getProperty(HttpConfig.PROP_UNIQUE_SESSION_ID)));
+        adList.add(new AttributeDefinitionImpl(HttpConfig.PROP_RESOURCE_CACHE_SIZE,
+                "Resource Cache Size",
+                "Maximum total size in bytes of the static resources kept in memory. The cache is disabled if set to 0.",
+                HttpConfig.DEFAULT_RESOURCE_CACHE_SIZE,
+                bundle.getBundleContext().getProperty(HttpConfig.PROP_RESOURCE_CACHE_SIZE)));
+        adList.add(new AttributeDefinitionImpl(HttpConfig.PROP_RESOURCE_CACHE_ENTRY_SIZE,
+                "Resource Cache Entry Size",
+                "Maximum size in bytes of a single static resource kept in memory.",
+                HttpConfig.DEFAULT_RESOURCE_CACHE_ENTRY_SIZE,
+                bundle.getBundleContext().getProperty(HttpConfig.PROP_RESOURCE_CACHE_ENTRY_SIZE)));
 
         return new ObjectClassDefinition()
         {
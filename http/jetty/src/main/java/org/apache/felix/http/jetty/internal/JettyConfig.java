@@ -87,6 +87,9 @@ public final class JettyConfig
     /** Felix specific property to control the maximum size of the jetty thread pool */
     public static final String FELIX_JETTY_THREADPOOL_MAX = "org.apache.felix.http.jetty.threadpool.max";
 
+    /** Felix specific property to run the request handling on virtual threads if supported by the runtime */
+    public static final String FELIX_JETTY_THREADPOOL_VIRTUAL = "org.apache.felix.http.jetty.threadpool.virtual";
+
     /** Felix specific property to control the number of jetty acceptor threads */
     public static final String FELIX_JETTY_ACCEPTORS = "org.apache.felix.http.jetty.acceptors";
 
@@ -426,6 +429,11 @@ public final class JettyConfig
         return getIntProperty(FELIX_JETTY_THREADPOOL_MAX, -1);
     }
 
+    public boolean isUseVirtualThreads()
+    {
+        return getBooleanProperty(FELIX_JETTY_THREADPOOL_VIRTUAL, false);
+    }
+
     public int getAcceptors()
     {
         return getIntProperty(FELIX_JETTY_ACCEPTORS, -1);
@@ -651,6 +659,10 @@ public final class JettyConfig
                 HttpConfig.DEFAULT_INVALIDATE_SESSION));
         props.put(HttpConfig.PROP_UNIQUE_SESSION_ID, getBooleanProperty(HttpConfig.PROP_UNIQUE_SESSION_ID,
                 HttpConfig.DEFAULT_UNIQUE_SESSION_ID));
+        props.put(HttpConfig.PROP_RESOURCE_CACHE_SIZE, getLongProperty(HttpConfig.PROP_RESOURCE_CACHE_SIZE,
+                HttpConfig.DEFAULT_RESOURCE_CACHE_SIZE));
+        props.put(HttpConfig.PROP_RESOURCE_CACHE_ENTRY_SIZE, getLongProperty(HttpConfig.PROP_RESOURCE_CACHE_ENTRY_SIZE,
+                HttpConfig.DEFAULT_RESOURCE_CACHE_ENTRY_SIZE));
 
         addCustomServiceProperties(props);
     }
@@ -370,7 +370,12 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
         {
 
             final int threadPoolMax = this.config.getThreadPoolMax();
-            if (threadPoolMax >= 0) {
+            if (this.config.isUseVirtualThreads() && !VirtualThreadPool.isSupported()) {
+                SystemLogger.warning("Virtual threads are not supported by the runtime, using platform threads", null);
+            }
+            if (this.config.isUseVirtualThreads() && VirtualThreadPool.isSupported()) {
+                this.server = new Server( new VirtualThreadPool(threadPoolMax >= 0 ? threadPoolMax : 200) );
+            } else if (threadPoolMax >= 0) {
                 this.server = new Server( new QueuedThreadPool(threadPoolMax) );
             } else {
                 this.server = new Server();
@@ -428,6 +433,11 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
 
             this.server.start();
 
+            // acceptors and selectors are running, dispatch the request handling to virtual threads
+            if (this.server.getThreadPool() instanceof VirtualThreadPool) {
+                ((VirtualThreadPool) this.server.getThreadPool()).setDispatching(true);
+            }
+
             // session id manager is only available after server is started
             context.getSessionHandler().getSessionIdManager().getSessionHouseKeeper().setIntervalSec(
                     this.config.getLongProperty(JettyConfig.FELIX_JETTY_SESSION_SCAVENGING_INTERVAL,
@@ -465,6 +475,10 @@ public final class JettyService extends AbstractLifeCycle.AbstractLifeCycleListe
                     message.append("minThreads=").append(sizedThreadPool.getMinThreads()).append(",");
                     message.append("maxThreads=").append(sizedThreadPool.getMaxThreads()).append(",");
                 }
+                if (threadPool instanceof VirtualThreadPool) {
+                    message.append("virtualThreads=true,");
+                    message.append("carrierThreads=").append(((VirtualThreadPool) threadPool).getCarrierThreads()).append(",");
+                }
                 Connector connector = this.server.getConnectors()[0];
                 if (connector instanceof ServerConnector) {
                     @SuppressWarnings("resource")
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.jetty.internal;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * Thread pool running the request handling on virtual threads.
+ *
+ * The jobs executed while the server is starting (acceptors and selectors) are long
+ * running and are executed by the (platform) threads of the queued thread pool. Once
+ * the server is started, each job is executed on a new virtual thread. Reserved
+ * threads are disabled such that the selectors keep producing on their platform
+ * thread and only hand off the (blocking) request handling.
+ *
+ * Virtual threads are created through reflection as they are only available with
+ * Java 21 or later, {@link #isSupported()} can be used to check for them.
+ */
+@ManagedObject("A thread pool dispatching to virtual threads")
+public class VirtualThreadPool extends QueuedThreadPool
+{
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory("jetty-virtual-");
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    private final AtomicLong dispatched = new AtomicLong();
+
+    private volatile boolean dispatching;
+
+    public VirtualThreadPool(final int maxThreads)
+    {
+        super(maxThreads);
+        setReservedThreads(0);
+    }
+
+    /**
+     * Check whether virtual threads are supported by the runtime
+     * @return {@code true} if virtual threads can be used
+     */
+    public static boolean isSupported()
+    {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * Enable or disable the dispatching to virtual threads.
+     * @param flag Whether jobs are executed on virtual threads
+     */
+    public void setDispatching(final boolean flag)
+    {
+        this.dispatching = flag && isSupported();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        this.dispatching = false;
+        super.doStop();
+    }
+
+    @Override
+    public void execute(final Runnable job)
+    {
+        if ( !this.dispatching )
+        {
+            super.execute(job);
+            return;
+        }
+        final Thread thread = VIRTUAL_THREAD_FACTORY.newThread(() -> {
+            final int current = inFlight.incrementAndGet();
+            int peak;
+            while ( current > (peak = peakInFlight.get()) && !peakInFlight.compareAndSet(peak, current) )
+            {
+                // retry
+            }
+            try
+            {
+                job.run();
+            }
+            finally
+            {
+                inFlight.decrementAndGet();
+            }
+        });
+        this.dispatched.incrementAndGet();
+        thread.start();
+    }
+
+    @Override
+    public boolean tryExecute(final Runnable task)
+    {
+        // no reserved threads, the selectors keep producing
+        return !this.dispatching && super.tryExecute(task);
+    }
+
+    @ManagedAttribute("whether jobs are executed on virtual threads")
+    public boolean isDispatching()
+    {
+        return this.dispatching;
+    }
+
+    @ManagedAttribute("number of jobs currently executed on virtual threads")
+    public int getInFlight()
+    {
+        return this.inFlight.get();
+    }
+
+    @ManagedAttribute("maximum number of jobs executed concurrently on virtual threads")
+    public int getPeakInFlight()
+    {
+        return this.peakInFlight.get();
+    }
+
+    @ManagedAttribute("total number of jobs executed on virtual threads")
+    public long getDispatched()
+    {
+        return this.dispatched.get();
+    }
+
+    @ManagedAttribute("number of carrier threads of the virtual thread scheduler")
+    public int getCarrierThreads()
+    {
+        return Integer.getInteger("jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+    }
+
+    @ManagedAttribute("number of jobs executed on virtual threads per carrier thread")
+    public double getInFlightPerCarrier()
+    {
+        return (double) getInFlight() / getCarrierThreads();
+    }
+
+    @Override
+    public String toString()
+    {
+        return super.toString() + "{virtual=" + this.dispatching + ",inFlight=" + getInFlight()
+                + ",peakInFlight=" + getPeakInFlight() + ",carriers=" + getCarrierThreads() + "}";
+    }
+
+    /**
+     * Create a factory for virtual threads using {@code Thread.ofVirtual().name(prefix, 0).factory()}
+     * @param prefix The prefix of the thread names
+     * @return The factory or {@code null} if virtual threads are not supported
+     */
+    static ThreadFactory createVirtualThreadFactory(final String prefix)
+    {
+        try
+        {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Method name = builderClass.getMethod("name", String.class, long.class);
+            final Method factory = builderClass.getMethod("factory");
+            return (ThreadFactory) factory.invoke(name.invoke(builder, prefix, 0L));
+        }
+        catch (final Exception | LinkageError e)
+        {
+            // not supported by the runtime
+            return null;
+        }
+    }
+}
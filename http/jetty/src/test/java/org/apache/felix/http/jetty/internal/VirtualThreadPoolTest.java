@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.felix.http.jetty.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class VirtualThreadPoolTest
+{
+    @Test public void testExecute() throws Exception
+    {
+        final VirtualThreadPool pool = new VirtualThreadPool(10);
+        pool.start();
+        try
+        {
+            // platform threads are used until dispatching is enabled
+            final CountDownLatch started = new CountDownLatch(1);
+            pool.execute(started::countDown);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(0, pool.getDispatched());
+
+            pool.setDispatching(true);
+            assertEquals(VirtualThreadPool.isSupported(), pool.isDispatching());
+
+            final CountDownLatch release = new CountDownLatch(1);
+            final CountDownLatch running = new CountDownLatch(2);
+            for (int i = 0; i < 2; i++)
+            {
+                pool.execute(() -> {
+                    running.countDown();
+                    try
+                    {
+                        release.await();
+                    }
+                    catch (final InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            if (VirtualThreadPool.isSupported())
+            {
+                assertEquals(2, pool.getInFlight());
+                assertEquals(2, pool.getDispatched());
+            }
+            release.countDown();
+        }
+        finally
+        {
+            pool.stop();
+        }
+        assertFalse(pool.isDispatching());
+        assertTrue(pool.getCarrierThreads() > 0);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.felix.httplite.osgi.HttpServiceImpl;
+import org.apache.felix.httplite.osgi.Logger;
+import org.apache.felix.httplite.server.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.service.http.HttpContext;
+
+/**
+ * Measures the request throughput of an embedded server on loopback for
+ * small servlet responses, large streamed servlet responses of unknown
+ * length and static files. The client uses persistent connections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class LoopbackBenchmark
+{
+    private static final int PORT = 18080;
+    private static final int SMALL_SIZE = 128;
+    private static final int LARGE_SIZE = 1024 * 1024;
+
+    /**
+     * Whether the server runs in the non-blocking mode. The value is ignored
+     * by versions which do not support it.
+     */
+    @Param({ "false", "true" })
+    public String nio;
+
+    private Server m_server;
+    private HttpServiceImpl m_httpService;
+    private File m_directory;
+    private final byte[] m_content = new byte[LARGE_SIZE];
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        new Random(0).nextBytes(m_content);
+
+        m_directory = File.createTempFile("httplite", "benchmark");
+        m_directory.delete();
+        m_directory.mkdirs();
+        OutputStream out = new FileOutputStream(new File(m_directory, "large.bin"));
+        try
+        {
+            out.write(m_content);
+        }
+        finally
+        {
+            out.close();
+        }
+
+        Map<String, String> config = new HashMap<String, String>();
+        config.put(Server.CONFIG_PROPERTY_HTTP_PORT, Integer.toString(PORT));
+        config.put(Server.CONFIG_PROPERTY_HTTP_HOST, "localhost");
+        config.put(Server.CONFIG_PROPERTY_NIO_ENABLE, nio);
+
+        Logger logger = new Logger();
+        logger.setLogLevel(Logger.LOG_ERROR);
+        m_server = new Server(config, logger);
+        m_httpService = new HttpServiceImpl(null, m_server, logger, new HashMap());
+
+        HttpContext context = new DirectoryContext(m_directory);
+        m_httpService.registerServlet("/small", new ContentServlet(m_content, SMALL_SIZE), null, context);
+        m_httpService.registerServlet("/large", new ContentServlet(m_content, LARGE_SIZE), null, context);
+        m_httpService.registerResources("/files", "", context);
+        m_server.start(m_httpService);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        m_server.setStopping();
+        m_server.stop();
+        new File(m_directory, "large.bin").delete();
+        m_directory.delete();
+    }
+
+    @Benchmark
+    public long smallServlet() throws IOException
+    {
+        return get("/small");
+    }
+
+    @Benchmark
+    public long largeServlet() throws IOException
+    {
+        return get("/large");
+    }
+
+    @Benchmark
+    public long largeFile() throws IOException
+    {
+        return get("/files/large.bin");
+    }
+
+    private long get(final String path) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http", "localhost", PORT, path).openConnection();
+        InputStream in = connection.getInputStream();
+        try
+        {
+            byte[] buffer = new byte[8192];
+            long count = 0;
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer))
+            {
+                count += n;
+            }
+            return count;
+        }
+        finally
+        {
+            // Closing the fully read stream keeps the connection alive.
+            in.close();
+        }
+    }
+
+    /**
+     * Writes content of a given size without setting its length, in blocks
+     * like a typical servlet does.
+     */
+    private static final class ContentServlet extends HttpServlet
+    {
+        private final byte[] m_content;
+        private final int m_size;
+
+        ContentServlet(final byte[] content, final int size)
+        {
+            m_content = content;
+            m_size = size;
+        }
+
+        protected void doGet(final HttpServletRequest req, final HttpServletResponse resp) throws IOException
+        {
+            resp.setContentType("application/octet-stream");
+            OutputStream out = resp.getOutputStream();
+            for (int off = 0; off < m_size; off += 4096)
+            {
+                out.write(m_content, off, Math.min(4096, m_size - off));
+            }
+        }
+    }
+
+    /**
+     * Serves resources from a directory of the file system.
+     */
+    private static final class DirectoryContext implements HttpContext
+    {
+        private final File m_directory;
+
+        DirectoryContext(final File directory)
+        {
+            m_directory = directory;
+        }
+
+        public boolean handleSecurity(final HttpServletRequest request, final HttpServletResponse response)
+        {
+            return true;
+        }
+
+        public URL getResource(final String name)
+        {
+            File file = new File(m_directory, name);
+            try
+            {
+                return file.isFile() ? file.toURI().toURL() : null;
+            }
+            catch (IOException e)
+            {
+                return null;
+            }
+        }
+
+        public String getMimeType(final String name)
+        {
+            return null;
+        }
+    }
+}
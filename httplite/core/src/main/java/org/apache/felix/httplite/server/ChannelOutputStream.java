@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.server;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+
+import org.apache.felix.httplite.servlet.FileTransfer;
+
+/**
+ * Output stream writing to the channel of a {@link SelectableConnection} in
+ * blocking mode. Output is collected in a direct buffer taken from the
+ * {@link DirectBufferPool}, so it is written to the socket without an
+ * intermediate copy. Files are sent with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+ * Closing the stream releases the buffer but does not close the channel.
+**/
+class ChannelOutputStream extends OutputStream implements FileTransfer
+{
+
+    private final SocketChannel m_channel;
+    private ByteBuffer m_buffer;
+
+    /**
+     * @param channel The channel of the client, in blocking mode.
+    **/
+    ChannelOutputStream(final SocketChannel channel)
+    {
+        m_channel = channel;
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.OutputStream#write(int)
+     */
+    public void write(final int b) throws IOException
+    {
+        ByteBuffer buffer = getBuffer();
+        if (!buffer.hasRemaining())
+        {
+            flush();
+        }
+        buffer.put((byte) b);
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.OutputStream#write(byte[], int, int)
+     */
+    public void write(final byte[] b, int off, int len) throws IOException
+    {
+        ByteBuffer buffer = getBuffer();
+        if (len >= buffer.capacity())
+        {
+            flush();
+            writeFully(ByteBuffer.wrap(b, off, len));
+            return;
+        }
+        while (len > 0)
+        {
+            if (!buffer.hasRemaining())
+            {
+                flush();
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.OutputStream#flush()
+     */
+    public void flush() throws IOException
+    {
+        if (m_buffer != null && m_buffer.position() > 0)
+        {
+            m_buffer.flip();
+            writeFully(m_buffer);
+            m_buffer.clear();
+        }
+    }
+
+    /**
+     * Flushes the buffered output and returns the buffer to the pool.
+     *
+     * @see java.io.OutputStream#close()
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            release();
+        }
+    }
+
+    /**
+     * Returns the buffer to the pool without writing its content.
+    **/
+    void release()
+    {
+        if (m_buffer != null)
+        {
+            DirectBufferPool.POOL.release(m_buffer);
+            m_buffer = null;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.felix.httplite.servlet.FileTransfer#transferFile(java.io.File, long)
+     */
+    public void transferFile(final File file, final long length) throws IOException
+    {
+        flush();
+        FileInputStream input = new FileInputStream(file);
+        try
+        {
+            FileChannel fileChannel = input.getChannel();
+            long position = 0;
+            while (position < length)
+            {
+                long transferred = fileChannel.transferTo(position, length - position, m_channel);
+                if (transferred <= 0)
+                {
+                    throw new IOException("Unexpected end of file " + file);
+                }
+                position += transferred;
+            }
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    private ByteBuffer getBuffer()
+    {
+        if (m_buffer == null)
+        {
+            m_buffer = DirectBufferPool.POOL.acquire();
+        }
+        return m_buffer;
+    }
+
+    private void writeFully(final ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            m_channel.write(buffer);
+        }
+    }
+}
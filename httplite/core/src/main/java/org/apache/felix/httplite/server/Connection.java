@@ -160,103 +160,9 @@ public class Connection
             boolean close = false;
             while (!close)
             {
-                // Read the next request.
-                try
-                {
-                    request.parseRequestLine(m_is);
-                }
-                catch (IOException e)
-                {
-                    m_logger.log(
-                        Logger.LOG_ERROR,
-                        "Error with request: " + request.toString() + ": "
-                            + e.getMessage());
-                    throw e;
-                }
                 m_requestCount++;
-
-                // Keep track of whether we have failed or not,
-                // because we still want to read the bytes to clear
-                // the input stream so we can service more requests.
-                boolean error = false;
-
-                m_logger.log(Logger.LOG_DEBUG,
-                    "Processing " + request.getRequestURI() + " (" + (m_requestLimit - m_requestCount)
-                        + " remaining)");
-
-                // If client is HTTP/1.1, then send continue message.
-                if (request.getProtocol().equals(HttpConstants.HTTP11_VERSION))
-                {
-                    response.sendContinueResponse();
-                }
-
-                // Read the header lines of the request.
-                request.parseHeader(m_is);
-
-                // If we have an HTTP/1.0 request without the connection set to
-                // keep-alive or we explicitly have a request to close the connection,
-                // then set close flag to exit the loop rather than trying to read
-                // more requests.
-                String v = request.getHeader(HttpConstants.HEADER_CONNECTION);
-                if ((request.getProtocol().equals(HttpConstants.HTTP10_VERSION) && ((v == null) || (!v.equalsIgnoreCase(HttpConstants.KEEPALIVE_CONNECTION))))
-                    || ((v != null) && v.equalsIgnoreCase(HttpConstants.CLOSE_CONNECTION)))
-                {
-                    close = true;
-                    response.setConnectionType("close");
-                }
-                // If we have serviced the maximum number of requests for
-                // this connection, then set close flag so we exit the loop
-                // and close the connection.
-                else if (m_requestCount >= m_requestLimit)
-                {
-                    close = true;
-                    response.setConnectionType("close");
-                }
-
-                // We do not support OPTIONS method so send
-                // a "not implemented" error in that case.
-                if (!HttpServletRequestImpl.isSupportedMethod(request.getMethod()))
-                {
-                    error = true;
-                    response.setConnectionType(HttpConstants.CLOSE_CONNECTION);
-                    response.sendNotImplementedResponse();
-                }
-
-                // Ignore if we have already failed, otherwise send error message
-                // if an HTTP/1.1 client did not include HOST header.
-                if (!error && request.getProtocol().equals(HttpConstants.HTTP11_VERSION)
-                    && (request.getHeader(HttpConstants.HOST_HEADER) == null))
-                {
-                    error = true;
-                    response.setConnectionType(HttpConstants.CLOSE_CONNECTION);
-                    response.sendMissingHostResponse();
-                }
-
-                // Read in the request body.
-                request.parseBody(m_is);
-
-                // Only process the request if there was no error.
-                if (!error)
-                {
-                    ServiceRegistrationHandler processor = m_resolver.getProcessor(
-                        request, response, request.getRequestURI());
-
-                    if (processor != null)
-                    {
-                        processor.handle(close);
-
-                        m_logger.log(Logger.LOG_DEBUG, "Processed " + request.toString());
-
-                        // TODO: Adding next line to make test cases pass, but not sure if it is correct
-                        // and needs further investigation.
-                        close = true;
-                        continue;
-                    }
-
-                    close = true;
-                    response.setConnectionType(HttpConstants.CLOSE_CONNECTION);
-                    response.sendNotFoundResponse();
-                }
+                close = processRequest(request, response, m_is, m_requestCount,
+                    m_requestLimit, m_resolver, m_logger, false);
             }
         }
         finally
@@ -287,4 +193,131 @@ public class Connection
             }
         }
     }
+
+    /**
+     * Reads, parses and services a single request from the input stream.
+     * This is shared by the blocking connections and the connections parked
+     * in a {@link ConnectionSelector}.
+     * @param request The request to parse the request line, headers and body into.
+     * @param response The response for the request.
+     * @param is The input stream of the client.
+     * @param requestCount The number of this request on the connection.
+     * @param requestLimit The maximum number of consecutive requests.
+     * @param resolver resolves a request URI to a client or servlet registration via the HTTP Service.
+     * @param logger logger instance.
+     * @param keepAlive Whether the connection may be kept open after a response
+     *        with a content length.
+     * @return <tt>true</tt> if the connection must be closed.
+     * @throws java.io.IOException If any I/O error occurs.
+     * @throws ServletException on servlet errors
+    **/
+    static boolean processRequest(final HttpServletRequestImpl request,
+        final HttpServletResponseImpl response, final ConcreteServletInputStream is,
+        final int requestCount, final int requestLimit,
+        final ServiceRegistrationResolver resolver, final Logger logger,
+        final boolean keepAlive) throws IOException, ServletException
+    {
+        // Read the next request.
+        try
+        {
+            request.parseRequestLine(is);
+        }
+        catch (IOException e)
+        {
+            logger.log(
+                Logger.LOG_ERROR,
+                "Error with request: " + request.toString() + ": "
+                    + e.getMessage());
+            throw e;
+        }
+
+        // Keep track of whether we have failed or not,
+        // because we still want to read the bytes to clear
+        // the input stream so we can service more requests.
+        boolean error = false;
+        boolean close = false;
+
+        // Content of unknown length can be streamed to HTTP/1.1 clients.
+        response.setChunkedEncodingAllowed(request.getProtocol().equals(HttpConstants.HTTP11_VERSION));
+
+        logger.log(Logger.LOG_DEBUG,
+            "Processing " + request.getRequestURI() + " (" + (requestLimit - requestCount)
+                + " remaining)");
+
+        // If client is HTTP/1.1, then send continue message.
+        if (request.getProtocol().equals(HttpConstants.HTTP11_VERSION))
+        {
+            response.sendContinueResponse();
+        }
+
+        // Read the header lines of the request.
+        request.parseHeader(is);
+
+        // If we have an HTTP/1.0 request without the connection set to
+        // keep-alive or we explicitly have a request to close the connection,
+        // then set close flag to exit the loop rather than trying to read
+        // more requests.
+        String v = request.getHeader(HttpConstants.HEADER_CONNECTION);
+        if ((request.getProtocol().equals(HttpConstants.HTTP10_VERSION) && ((v == null) || (!v.equalsIgnoreCase(HttpConstants.KEEPALIVE_CONNECTION))))
+            || ((v != null) && v.equalsIgnoreCase(HttpConstants.CLOSE_CONNECTION)))
+        {
+            close = true;
+            response.setConnectionType("close");
+        }
+        // If we have serviced the maximum number of requests for
+        // this connection, then set close flag so we exit the loop
+        // and close the connection.
+        else if (requestCount >= requestLimit)
+        {
+            close = true;
+            response.setConnectionType("close");
+        }
+
+        // We do not support OPTIONS method so send
+        // a "not implemented" error in that case.
+        if (!HttpServletRequestImpl.isSupportedMethod(request.getMethod()))
+        {
+            error = true;
+            response.setConnectionType(HttpConstants.CLOSE_CONNECTION);
+            response.sendNotImplementedResponse();
+        }
+
+        // Ignore if we have already failed, otherwise send error message
+        // if an HTTP/1.1 client did not include HOST header.
+        if (!error && request.getProtocol().equals(HttpConstants.HTTP11_VERSION)
+            && (request.getHeader(HttpConstants.HOST_HEADER) == null))
+        {
+            error = true;
+            response.setConnectionType(HttpConstants.CLOSE_CONNECTION);
+            response.sendMissingHostResponse();
+        }
+
+        // Read in the request body.
+        request.parseBody(is);
+
+        // Error responses are not length delimited, so the connection is closed.
+        if (error)
+        {
+            return true;
+        }
+
+        ServiceRegistrationHandler processor = resolver.getProcessor(
+            request, response, request.getRequestURI());
+
+        if (processor != null)
+        {
+            processor.handle(close);
+
+            logger.log(Logger.LOG_DEBUG, "Processed " + request.toString());
+
+            // TODO: Blocking connections are closed after each request to make test cases
+            // pass, but not sure if it is correct and needs further investigation.
+            // A response without a content length is delimited by closing the connection.
+            return close || !keepAlive || !response.isLengthDelimited();
+        }
+
+        response.setConnectionType(HttpConstants.CLOSE_CONNECTION);
+        response.sendNotFoundResponse();
+        return true;
+    }
 }
\ No newline at end of file
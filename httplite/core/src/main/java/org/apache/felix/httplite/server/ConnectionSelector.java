@@ -0,0 +1,374 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.felix.httplite.osgi.Logger;
+import org.apache.felix.httplite.osgi.ServiceRegistrationResolver;
+
+/**
+ * This class implements the non-blocking mode of the server. A single thread
+ * accepts connections and reads from all of them using a selector. Only once
+ * the header of a request has been received completely, the connection is
+ * handed to the thread pool to service the request. Afterwards a persistent
+ * connection is parked in the selector again, so idle connections do not
+ * occupy a thread.
+ *
+ * This class uses NIO which is not available on all platforms supported by
+ * this bundle. It is only loaded if the non-blocking mode is enabled.
+**/
+class ConnectionSelector
+{
+    /**
+     * Interval in milliseconds to check for inactive connections.
+     */
+    private static final int SELECT_INTERVAL = 1000;
+
+    private final ServerSocketChannel m_serverChannel;
+    private final Selector m_selector;
+    private final ThreadPool m_threadPool;
+    private final int m_connectionTimeout;
+    private final int m_connectionRequestLimit;
+    private final ServiceRegistrationResolver m_resolver;
+    private final Logger m_logger;
+
+    /**
+     * Connections to park again after servicing a request.
+     */
+    private final List m_parkList = new ArrayList();
+    private boolean m_stopped = false;
+
+    /**
+     * Opens the server channel and the selector.
+     * @param bindAddr Address of the interface to bind to or null for all interfaces.
+     * @param port The port to listen on.
+     * @param threadPool The thread pool servicing requests.
+     * @param timeout The inactivity timeout of connections in milliseconds.
+     * @param requestLimit The maximum number of consecutive requests.
+     * @param resolver resolves a request URI to a client or servlet registration via the HTTP Service.
+     * @param logger logger instance.
+     * @throws java.io.IOException If any I/O error occurs.
+    **/
+    ConnectionSelector(final InetAddress bindAddr, final int port, final ThreadPool threadPool,
+        final int timeout, final int requestLimit, final ServiceRegistrationResolver resolver,
+        final Logger logger) throws IOException
+    {
+        m_threadPool = threadPool;
+        m_connectionTimeout = timeout;
+        m_connectionRequestLimit = requestLimit;
+        m_resolver = resolver;
+        m_logger = logger;
+
+        m_serverChannel = ServerSocketChannel.open();
+        try
+        {
+            m_serverChannel.socket().bind((bindAddr == null) ? new InetSocketAddress(port)
+                : new InetSocketAddress(bindAddr, port));
+            m_serverChannel.configureBlocking(false);
+            m_selector = Selector.open();
+            m_serverChannel.register(m_selector, SelectionKey.OP_ACCEPT);
+        }
+        catch (IOException ex)
+        {
+            m_serverChannel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Stops the selector loop, all parked connections are closed.
+    **/
+    void stop()
+    {
+        synchronized (m_parkList)
+        {
+            m_stopped = true;
+        }
+        m_selector.wakeup();
+    }
+
+    /**
+     * Parks a connection after servicing a request. This is called by
+     * the threads of the thread pool.
+     * @param connection The connection.
+    **/
+    void park(final SelectableConnection connection)
+    {
+        synchronized (m_parkList)
+        {
+            if (m_stopped)
+            {
+                connection.close();
+                return;
+            }
+            m_parkList.add(connection);
+        }
+        m_selector.wakeup();
+    }
+
+    /**
+     * This method is the main loop of the selector thread. It returns
+     * once the selector is stopped.
+    **/
+    void selectConnections()
+    {
+        m_logger.log(Logger.LOG_DEBUG, "Waiting for connections.");
+
+        List ready = new ArrayList();
+        long lastCheck = System.currentTimeMillis();
+        try
+        {
+            while (true)
+            {
+                m_selector.select(SELECT_INTERVAL);
+
+                synchronized (m_parkList)
+                {
+                    if (m_stopped)
+                    {
+                        break;
+                    }
+                    for (int i = 0; i < m_parkList.size(); i++)
+                    {
+                        registerConnection((SelectableConnection) m_parkList.get(i), ready);
+                    }
+                    m_parkList.clear();
+                }
+
+                for (Iterator i = m_selector.selectedKeys().iterator(); i.hasNext();)
+                {
+                    SelectionKey key = (SelectionKey) i.next();
+                    i.remove();
+                    if (!key.isValid())
+                    {
+                        continue;
+                    }
+                    if (key.isAcceptable())
+                    {
+                        acceptConnections();
+                    }
+                    else if (key.isReadable())
+                    {
+                        readConnection(key, ready);
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (m_connectionTimeout > 0 && (now - lastCheck) >= SELECT_INTERVAL)
+                {
+                    closeInactiveConnections(now);
+                    lastCheck = now;
+                }
+
+                if (ready.size() > 0)
+                {
+                    // Flush the cancelled keys, so the channels can be switched
+                    // to blocking mode and registered again later.
+                    m_selector.selectNow();
+                    for (int i = 0; i < ready.size(); i++)
+                    {
+                        dispatch((SelectableConnection) ready.get(i));
+                    }
+                    ready.clear();
+                }
+            }
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "The selector terminated with an exception.", ex);
+        }
+        finally
+        {
+            close();
+        }
+    }
+
+    /**
+     * Accepts all pending connections.
+    **/
+    private void acceptConnections()
+    {
+        SocketChannel channel = null;
+        try
+        {
+            while ((channel = m_serverChannel.accept()) != null)
+            {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                channel.register(m_selector, SelectionKey.OP_READ,
+                    new SelectableConnection(channel, this, m_connectionTimeout,
+                        m_connectionRequestLimit, m_resolver, m_logger));
+                m_logger.log(Logger.LOG_DEBUG, "Accepted a new connection.");
+            }
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Error accepting connection.", ex);
+            if (channel != null)
+            {
+                try
+                {
+                    channel.close();
+                }
+                catch (IOException ex2)
+                {
+                    m_logger.log(Logger.LOG_ERROR, "Error closing socket.", ex2);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the available bytes of a connection.
+     * @param key The key of the connection.
+     * @param ready The connections with a complete request header.
+    **/
+    private void readConnection(final SelectionKey key, final List ready)
+    {
+        SelectableConnection connection = (SelectableConnection) key.attachment();
+        try
+        {
+            if (connection.read())
+            {
+                key.cancel();
+                ready.add(connection);
+            }
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_DEBUG, "Connection closed: " + ex.getMessage());
+            key.cancel();
+            connection.close();
+        }
+    }
+
+    /**
+     * Registers a parked connection with the selector, unless the next request
+     * has already been received.
+     * @param connection The connection.
+     * @param ready The connections with a complete request header.
+    **/
+    private void registerConnection(final SelectableConnection connection, final List ready)
+    {
+        if (connection.hasRequest())
+        {
+            ready.add(connection);
+            return;
+        }
+        try
+        {
+            connection.getChannel().configureBlocking(false);
+            connection.getChannel().register(m_selector, SelectionKey.OP_READ, connection);
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Error parking connection.", ex);
+            connection.close();
+        }
+    }
+
+    /**
+     * Hands a connection with a complete request header to the thread pool.
+     * @param connection The connection.
+    **/
+    private void dispatch(final SelectableConnection connection)
+    {
+        try
+        {
+            m_threadPool.addJob(connection);
+        }
+        catch (IllegalStateException ex)
+        {
+            connection.close();
+        }
+    }
+
+    /**
+     * Closes all registered connections which have been inactive
+     * longer than the connection timeout.
+     * @param now The current time.
+    **/
+    private void closeInactiveConnections(final long now)
+    {
+        for (Iterator i = m_selector.keys().iterator(); i.hasNext();)
+        {
+            SelectionKey key = (SelectionKey) i.next();
+            if (key.isValid() && (key.attachment() instanceof SelectableConnection))
+            {
+                SelectableConnection connection = (SelectableConnection) key.attachment();
+                if ((now - connection.getLastActivity()) > m_connectionTimeout)
+                {
+                    m_logger.log(Logger.LOG_DEBUG, "Connection closed due to inactivity.");
+                    key.cancel();
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the server channel, the selector and all parked connections.
+    **/
+    private void close()
+    {
+        synchronized (m_parkList)
+        {
+            m_stopped = true;
+            for (int i = 0; i < m_parkList.size(); i++)
+            {
+                ((SelectableConnection) m_parkList.get(i)).close();
+            }
+            m_parkList.clear();
+        }
+        for (Iterator i = m_selector.keys().iterator(); i.hasNext();)
+        {
+            SelectionKey key = (SelectionKey) i.next();
+            if (key.attachment() instanceof SelectableConnection)
+            {
+                ((SelectableConnection) key.attachment()).close();
+            }
+        }
+        try
+        {
+            m_serverChannel.close();
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Error closing server socket.", ex);
+        }
+        try
+        {
+            m_selector.close();
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Error closing selector.", ex);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.server;
+
+import java.nio.ByteBuffer;
+
+import org.apache.felix.httplite.servlet.BufferPool;
+
+/**
+ * A bounded pool of direct buffers used to write responses to the channels
+ * of the non-blocking mode. A channel copies the content of a heap buffer
+ * into a temporary direct buffer on each write, writing from a direct buffer
+ * avoids this copy. The buffers have the size of the {@link BufferPool}
+ * arrays, which are still used by the blocking mode, as this class must only
+ * be loaded if NIO is available.
+ */
+final class DirectBufferPool
+{
+    /**
+     * Maximum number of pooled buffers.
+     */
+    private static final int MAX_BUFFERS = 16;
+
+    /**
+     * The shared pool.
+     */
+    static final DirectBufferPool POOL = new DirectBufferPool();
+
+    private final ByteBuffer[] m_buffers = new ByteBuffer[MAX_BUFFERS];
+    private int m_count = 0;
+
+    private DirectBufferPool()
+    {
+    }
+
+    /**
+     * Takes a buffer from the pool or allocates a new one if the pool is empty.
+     *
+     * @return cleared direct buffer of BufferPool.BUFFER_SIZE bytes
+     */
+    ByteBuffer acquire()
+    {
+        synchronized (m_buffers)
+        {
+            if (m_count > 0)
+            {
+                ByteBuffer buffer = m_buffers[--m_count];
+                m_buffers[m_count] = null;
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocateDirect(BufferPool.BUFFER_SIZE);
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers exceeding the capacity of the
+     * pool are left to the garbage collector.
+     *
+     * @param buffer the buffer
+     */
+    void release(final ByteBuffer buffer)
+    {
+        buffer.clear();
+        synchronized (m_buffers)
+        {
+            if (m_count < MAX_BUFFERS)
+            {
+                m_buffers[m_count++] = buffer;
+            }
+        }
+    }
+}
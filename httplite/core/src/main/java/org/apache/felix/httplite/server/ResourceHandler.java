@@ -18,9 +18,11 @@
  */
 package org.apache.felix.httplite.server;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.net.URLConnection;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -111,11 +113,48 @@ public class ResourceHandler implements ServiceRegistrationHandler
             	return;
             }
 
-            InputStream inputStream = resource.openStream();
             m_response.setContentType(m_httpContext.getMimeType(resourceName));
 
-            m_response.writeToOutputStream(inputStream, close);
+            // Files are sent directly, other resources are streamed with their length if it is known.
+            File file = getFile(resource);
+            if (m_request.getMethod().equals(HttpConstants.HEAD_REQUEST))
+            {
+                long length = (file != null) ? file.length() : resource.openConnection().getContentLength();
+                if (length >= 0)
+                {
+                    m_response.setHeader(HttpConstants.HEADER_CONTENT_LENGTH, Long.toString(length));
+                }
+                m_response.flushBuffer();
+            }
+            else if (file != null)
+            {
+                m_response.writeToOutputStream(file, close);
+            }
+            else
+            {
+                URLConnection connection = resource.openConnection();
+                InputStream inputStream = connection.getInputStream();
+                if (connection.getContentLength() >= 0)
+                {
+                    m_response.setContentLength(connection.getContentLength());
+                }
+                m_response.writeToOutputStream(inputStream, close);
+            }
+        }
+    }
+
+    /**
+     * @param resource URL of a resource
+     * @return the file of a file: URL or null if the resource is not a regular file.
+     */
+    private static File getFile(final URL resource)
+    {
+        if (!"file".equals(resource.getProtocol()))
+        {
+            return null;
         }
+        File file = new File(resource.getPath());
+        return file.isFile() ? file : null;
     }
 
     /**
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.SequenceInputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import javax.servlet.ServletException;
+
+import org.apache.felix.httplite.osgi.Logger;
+import org.apache.felix.httplite.osgi.ServiceRegistrationResolver;
+import org.apache.felix.httplite.servlet.ConcreteServletInputStream;
+import org.apache.felix.httplite.servlet.HttpServletRequestImpl;
+import org.apache.felix.httplite.servlet.HttpServletResponseImpl;
+
+/**
+ * A connection parked in a {@link ConnectionSelector}. While parked, the
+ * selector thread reads the request header into a buffer without blocking.
+ * Once the header is complete, the connection is run by a thread of the
+ * thread pool which services the request using blocking I/O and parks the
+ * connection again if it is persistent.
+**/
+class SelectableConnection implements Runnable
+{
+    /**
+     * Initial size of the request header buffer.
+     */
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    /**
+     * Maximum size of a request header.
+     */
+    private static final int MAX_HEADER_SIZE = 8192;
+
+    private final SocketChannel m_channel;
+    private final ConnectionSelector m_selector;
+    private final int m_timeout;
+    private final int m_requestLimit;
+    private final ServiceRegistrationResolver m_resolver;
+    private final Logger m_logger;
+
+    private ByteBuffer m_buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private int m_scanned = 0;
+    private int m_requestCount = 0;
+    private long m_lastActivity = System.currentTimeMillis();
+
+    /**
+     * Constructs a connection for an accepted channel.
+     * @param channel The client channel.
+     * @param selector The selector parking the connection.
+     * @param timeout The inactivity timeout of the connection in milliseconds.
+     * @param requestLimit The maximum number of consecutive requests.
+     * @param resolver resolves a request URI to a client or servlet registration via the HTTP Service.
+     * @param logger logger instance.
+    **/
+    SelectableConnection(final SocketChannel channel, final ConnectionSelector selector,
+        final int timeout, final int requestLimit, final ServiceRegistrationResolver resolver,
+        final Logger logger)
+    {
+        m_channel = channel;
+        m_selector = selector;
+        m_timeout = timeout;
+        m_requestLimit = requestLimit;
+        m_resolver = resolver;
+        m_logger = logger;
+    }
+
+    SocketChannel getChannel()
+    {
+        return m_channel;
+    }
+
+    long getLastActivity()
+    {
+        return m_lastActivity;
+    }
+
+    /**
+     * Reads the available bytes from the channel. This is called by the
+     * selector thread.
+     * @return <tt>true</tt> if the request header is complete.
+     * @throws java.io.IOException If the connection is closed by the client,
+     *         the request header is too large or any I/O error occurs.
+    **/
+    boolean read() throws IOException
+    {
+        if (!m_buffer.hasRemaining())
+        {
+            if (m_buffer.capacity() >= MAX_HEADER_SIZE)
+            {
+                throw new IOException("Request header exceeds " + MAX_HEADER_SIZE + " bytes.");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(m_buffer.capacity() * 2);
+            m_buffer.flip();
+            buffer.put(m_buffer);
+            m_buffer = buffer;
+        }
+        if (m_channel.read(m_buffer) < 0)
+        {
+            throw new IOException("End of stream.");
+        }
+        m_lastActivity = System.currentTimeMillis();
+        return hasRequest();
+    }
+
+    /**
+     * Scans the received bytes for the empty line terminating the request
+     * header. Bytes which have already been scanned are not scanned again.
+     * @return <tt>true</tt> if the request header is complete.
+    **/
+    boolean hasRequest()
+    {
+        byte[] bytes = m_buffer.array();
+        int end = m_buffer.position();
+        while (m_scanned < end)
+        {
+            int i = m_scanned++;
+            if ((bytes[i] == '\n') && (i > 0)
+                && ((bytes[i - 1] == '\n')
+                    || ((bytes[i - 1] == '\r') && (i > 1) && (bytes[i - 2] == '\n'))))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Services the received request and either parks or closes the connection
+     * afterwards. This is called by a thread of the thread pool.
+    **/
+    public void run()
+    {
+        boolean close = true;
+        try
+        {
+            close = process();
+        }
+        catch (SocketTimeoutException ex)
+        {
+            m_logger.log(Logger.LOG_INFO, "Connection closed due to inactivity.");
+        }
+        catch (Exception ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Connection close due to unknown reason.", ex);
+        }
+
+        if (close)
+        {
+            close();
+        }
+        else
+        {
+            m_lastActivity = System.currentTimeMillis();
+            m_selector.park(this);
+        }
+    }
+
+    /**
+     * Services a single request. The request is read from the buffered bytes
+     * followed by the channel in blocking mode as the body may not have been
+     * received yet. Bytes of a following request remain in the buffer.
+     * @return <tt>true</tt> if the connection must be closed.
+     * @throws java.io.IOException If any I/O error occurs.
+     * @throws ServletException on servlet errors
+    **/
+    private boolean process() throws IOException, ServletException
+    {
+        m_channel.configureBlocking(true);
+        Socket socket = m_channel.socket();
+        socket.setSoTimeout(m_timeout);
+
+        m_buffer.flip();
+        ByteArrayInputStream buffered = new ByteArrayInputStream(m_buffer.array(), 0,
+            m_buffer.limit());
+        ConcreteServletInputStream is = new ConcreteServletInputStream(
+            new SequenceInputStream(buffered, socket.getInputStream()));
+        ChannelOutputStream os = new ChannelOutputStream(m_channel);
+
+        HttpServletRequestImpl request = m_resolver.getServletRequest(socket);
+        HttpServletResponseImpl response = m_resolver.getServletResponse(os);
+
+        m_requestCount++;
+        boolean close;
+        try
+        {
+            close = Connection.processRequest(request, response, is, m_requestCount,
+                m_requestLimit, m_resolver, m_logger, true);
+            os.flush();
+        }
+        finally
+        {
+            os.release();
+        }
+
+        // Keep the bytes of a pipelined request.
+        m_buffer.position(m_buffer.limit() - buffered.available());
+        m_buffer.compact();
+        m_scanned = 0;
+
+        return close;
+    }
+
+    /**
+     * Closes the connection.
+    **/
+    void close()
+    {
+        try
+        {
+            m_channel.close();
+        }
+        catch (IOException ex)
+        {
+            m_logger.log(Logger.LOG_ERROR, "Error closing socket.", ex);
+        }
+    }
+}
@@ -69,6 +69,11 @@ public class Server
      * The address of the host interface to bind http to. The default is to bind to all interfaces.
      */
     public static final String CONFIG_PROPERTY_HTTP_HOST = "org.apache.felix.http.host"; 
+    /**
+     * Flag to enable the non-blocking mode, in which idle persistent connections are parked in a selector
+     * rather than occupying a thread of the thread pool. The default is false.
+     */
+    public static final String CONFIG_PROPERTY_NIO_ENABLE = "org.apache.felix.http.nio.enable";
 
     /**
      * Default HTTP port to listen on.
@@ -101,10 +106,12 @@ public class Server
 
     private Thread m_serverThread;
     private ServerSocket m_serverSocket;
+    private ConnectionSelector m_connectionSelector;
     private final ThreadPool m_threadPool;
 
     private final int m_connectionTimeout;
     private final int m_connectionRequestLimit;
+    private final boolean m_nio;
     private ServiceRegistrationResolver m_resolver;
     private final Logger m_logger;
     
@@ -138,6 +145,10 @@ public class Server
      *       connections after which the connection is closed; the default value
      *       is 10000 milliseconds.
      *   </li>
+     *   <li><tt>org.apache.felix.http.nio.enable</tt> - whether idle persistent connections are parked
+     *       in a selector, such that the threads of the thread pool only service requests which
+     *       have been received; the default value is false.
+     *   </li>
      * </ul>
      * The configuration properties cannot be changed after construction. The
      * web server is not active until it is started.
@@ -163,6 +174,7 @@ public class Server
             : Integer.parseInt((String) configMap.get(Server.CONFIG_PROPERTY_CONNECTION_TIMEOUT_PROP));
         m_connectionRequestLimit = (configMap.get(Server.CONFIG_PROPERTY_CONNECTION_REQUESTLIMIT_PROP) == null) ? Connection.DEFAULT_CONNECTION_REQUESTLIMIT
             : Integer.parseInt((String) configMap.get(Server.CONFIG_PROPERTY_CONNECTION_REQUESTLIMIT_PROP));
+        m_nio = "true".equalsIgnoreCase((String) configMap.get(Server.CONFIG_PROPERTY_NIO_ENABLE));
     }
 
     /**
@@ -266,7 +278,12 @@ public class Server
         {
             // If inactive, then create server socket, server thread, and
             // set state to active.
-            if (m_bindAddr == null)
+            if (m_nio)
+            {
+                m_connectionSelector = new ConnectionSelector(m_bindAddr, m_port, m_threadPool,
+                    m_connectionTimeout, m_connectionRequestLimit, m_resolver, m_logger);
+            }
+            else if (m_bindAddr == null)
             {
                 m_serverSocket = new ServerSocket(m_port);
             }
@@ -279,7 +296,14 @@ public class Server
             {
 				public void run()
                 {
-                    acceptConnections();
+                    if (m_nio)
+                    {
+                        selectConnections();
+                    }
+                    else
+                    {
+                        acceptConnections();
+                    }
                 }
             }, "HttpServer");
             m_state = ACTIVE_STATE;
@@ -328,12 +352,19 @@ public class Server
 
                 // Close the server socket, which will cause the server thread
                 // to exit its accept() loop.
-                try
+                if (m_connectionSelector != null)
                 {
-                    m_serverSocket.close();
+                    m_connectionSelector.stop();
                 }
-                catch (IOException ex)
+                else
                 {
+                    try
+                    {
+                        m_serverSocket.close();
+                    }
+                    catch (IOException ex)
+                    {
+                    }
                 }
             }
         }
@@ -397,6 +428,21 @@ public class Server
         shutdown();
     }
 
+    /**
+     * This method is the main server loop of the non-blocking mode. This is
+     * only ever called by the server thread.
+    **/
+    private void selectConnections()
+    {
+        // Start the thread pool.
+        m_threadPool.start();
+
+        m_connectionSelector.selectConnections();
+
+        // Shutdown the server.
+        shutdown();
+    }
+
     /**
      * This method shuts down the server; it is only ever called by the
      * server thread.
@@ -427,6 +473,7 @@ public class Server
             // gate and set the state to inactive.
             m_shutdownGate.open();
             m_shutdownGate = null;
+            m_connectionSelector = null;
             m_state = INACTIVE_STATE;
         }
         m_logger.log(Logger.LOG_DEBUG, "Shutdown complete.");
@@ -157,13 +157,35 @@ public class ThreadPool
         }
     }
 
+    /**
+     * This method adds a job to the thread pool for execution; this is used
+     * to service requests of connections that are otherwise parked in a
+     * {@link ConnectionSelector}.
+     * @param job the job.
+     * @throws java.lang.IllegalStateException If the thread pool is not in the
+     *         <tt>ThreadPool.ACTIVE_STATE</tt> state.
+    **/
+    public void addJob(final Runnable job)
+    {
+        add(job);
+    }
+
     /**
      * This method adds an HTTP connection to the thread pool for servicing.
      * @param connection the HTTP connection.
      * @throws java.lang.IllegalStateException If the thread pool is not in the
      *         <tt>ThreadPool.ACTIVE_STATE</tt> state.
     **/
-    public synchronized void addConnection(final Connection connection)
+    public void addConnection(final Connection connection)
+    {
+        add(connection);
+    }
+
+    /**
+     * Queue a connection or a job, creating a thread if needed.
+     * @param connection the HTTP connection or job.
+    **/
+    private synchronized void add(final Object connection)
     {
         if (m_state == Server.ACTIVE_STATE)
         {
@@ -213,7 +235,7 @@ public class ThreadPool
     **/
     private void processConnections()
     {
-        Connection connection;
+        Object connection;
         while (true)
         {
             synchronized (this)
@@ -255,7 +277,7 @@ public class ThreadPool
                 }
                 else
                 {
-                    connection = (Connection) m_connectionList.remove(0);
+                    connection = m_connectionList.remove(0);
                 }
 
                 // Decrement number of available threads, since we will either
@@ -302,8 +324,15 @@ public class ThreadPool
             // service those remaining connections before stopping.
             try
             {
-                connection.process();
-                m_logger.log(Logger.LOG_DEBUG, "Connection closed normally.");
+                if (connection instanceof Runnable)
+                {
+                    ((Runnable) connection).run();
+                }
+                else
+                {
+                    ((Connection) connection).process();
+                    m_logger.log(Logger.LOG_DEBUG, "Connection closed normally.");
+                }
             }
             catch (SocketTimeoutException ex)
             {
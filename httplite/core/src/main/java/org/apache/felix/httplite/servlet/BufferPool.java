@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.servlet;
+
+/**
+ * A bounded pool of byte arrays used to buffer and copy response content,
+ * so that a request does not allocate new buffers.
+ */
+public final class BufferPool
+{
+    /**
+     * Size of the pooled buffers.
+     */
+    public static final int BUFFER_SIZE = 1024 * 8;
+    /**
+     * Maximum number of pooled buffers.
+     */
+    private static final int MAX_BUFFERS = 16;
+
+    /**
+     * The shared pool.
+     */
+    static final BufferPool POOL = new BufferPool();
+
+    private final byte[][] m_buffers = new byte[MAX_BUFFERS][];
+    private int m_count = 0;
+
+    private BufferPool()
+    {
+    }
+
+    /**
+     * Takes a buffer from the pool or allocates a new one if the pool is empty.
+     *
+     * @return buffer of BUFFER_SIZE bytes
+     */
+    byte[] acquire()
+    {
+        synchronized (m_buffers)
+        {
+            if (m_count > 0)
+            {
+                byte[] buffer = m_buffers[--m_count];
+                m_buffers[m_count] = null;
+                return buffer;
+            }
+        }
+        return new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers of a different size or exceeding
+     * the capacity of the pool are left to the garbage collector.
+     *
+     * @param buffer the buffer
+     */
+    void release(final byte[] buffer)
+    {
+        if (buffer == null || buffer.length != BUFFER_SIZE)
+        {
+            return;
+        }
+        synchronized (m_buffers)
+        {
+            if (m_count < MAX_BUFFERS)
+            {
+                m_buffers[m_count++] = buffer;
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.servlet;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Implemented by client output streams which are able to send the content
+ * of a file without copying it through the Java heap.
+ */
+public interface FileTransfer
+{
+    /**
+     * Flush any buffered output, then send the first bytes of the file.
+     *
+     * @param file the file
+     * @param length the number of bytes to send, the declared content length
+     * @throws IOException on I/O error or if the file is shorter than length
+     */
+    void transferFile(File file, long length) throws IOException;
+}
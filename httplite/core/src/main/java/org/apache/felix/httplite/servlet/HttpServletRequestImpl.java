@@ -22,7 +22,6 @@ package org.apache.felix.httplite.servlet;
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -341,33 +340,21 @@ public class HttpServletRequestImpl implements HttpServletRequest
 
         if ( length > 0 )
         {
-            ByteArrayOutputStream baos = null;
-
+            // Read exactly the body, anything after it belongs to the next request.
             byte[] buf = new byte[length];
-            int left = length;
+            int offset = 0;
 
-            do
+            while ( offset < length )
             {
-                left = left - is.read( buf );
-                if ( left > 0 )
+                int read = is.read( buf, offset, length - offset );
+                if ( read < 0 )
                 {
-                    if ( baos == null )
-                    {
-                        baos = new ByteArrayOutputStream( length );
-                    }
-                    baos.write( buf );
+                    throw new IOException( "Unexpected end of file when reading request body." );
                 }
+                offset += read;
             }
-            while ( left > 0 );
 
-            if ( baos != null )
-            {
-                m_requestBody = baos.toByteArray();
-            }
-            else
-            {
-                m_requestBody = buf;
-            }
+            m_requestBody = buf;
         }
         else
         {
@@ -18,9 +18,8 @@
  */
 package org.apache.felix.httplite.servlet;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -47,12 +46,10 @@ import javax.servlet.http.HttpServletResponse;
 **/
 public class HttpServletResponseImpl implements HttpServletResponse
 {
-    private static final int COPY_BUFFER_SIZE = 1024 * 4;
-
     private final SimpleDateFormat m_dateFormat;
     private final OutputStream m_out;
-    private int m_bufferSize = COPY_BUFFER_SIZE;
-    private ByteArrayOutputStream m_buffer;
+    private int m_bufferSize = BufferPool.BUFFER_SIZE;
+    private ResponseOutputStream m_stream;
     private final Map m_headers = new HashMap();
     private String m_characterEncoding = "UTF-8";
     //TODO: Make locale static and perhaps global to the service.
@@ -66,6 +63,8 @@ public class HttpServletResponseImpl implements HttpServletResponse
     private int m_statusCode = HttpURLConnection.HTTP_OK;
     private String m_customStatusMessage = null;
     private boolean m_headersWritten = false;
+    private boolean m_lengthDelimited = false;
+    private boolean m_chunkedEncodingAllowed = false;
 
     /**
      * Constructs an HTTP response for the specified server and request.
@@ -79,24 +78,19 @@ public class HttpServletResponseImpl implements HttpServletResponse
     }
 
     /**
-     * Write HTTP headers to output stream.
+     * Write HTTP headers to output stream, this commits the response.
      * 
-     * @param close if true, should save state, only allow headers to be written once.  Does not close the stream.
      * @throws IOException on I/O error
      */
-    void writeHeaders(boolean close) throws IOException
+    void writeHeaders() throws IOException
     {
         if (m_headersWritten)
         {
             throw new IllegalStateException("Headers have already been written.");
         }
 
-        if (!m_headers.containsKey(HttpConstants.HEADER_CONTENT_LENGTH)
-            && m_buffer != null)
-        {
-            setContentLength(m_buffer.size());
-        }
-
+        m_lengthDelimited = m_headers.containsKey(HttpConstants.HEADER_CONTENT_LENGTH)
+            || HttpConstants.CHUNKED_ENCODING.equals(m_headers.get(HttpConstants.HEADER_TRANSFER_ENCODING));
         m_out.write(buildResponse(m_statusCode, m_headers, m_customStatusMessage, null));
         
         if (m_cookies != null)
@@ -115,18 +109,44 @@ public class HttpServletResponseImpl implements HttpServletResponse
         m_out.write(HttpConstants.HEADER_DELEMITER.getBytes());
         m_out.flush();
 
-        if (close)
-        {
-            m_headersWritten = true;
-        }
-        else
-        {
-            m_headers.clear();
-        }
+        m_headersWritten = true;
+    }
+
+    /**
+     * Whether the end of the response can be determined by the client from a
+     * Content-Length header or the chunked transfer encoding. Otherwise the end
+     * of the response is only signaled by closing the connection.
+     * 
+     * @return true if the response is length delimited.
+     */
+    public boolean isLengthDelimited()
+    {
+        return m_lengthDelimited;
+    }
+
+    /**
+     * Allow the chunked transfer encoding for content of unknown length,
+     * this requires an HTTP/1.1 client.
+     * 
+     * @param allowed whether the chunked transfer encoding may be used.
+     */
+    public void setChunkedEncodingAllowed(final boolean allowed)
+    {
+        m_chunkedEncodingAllowed = allowed;
+    }
+
+    /**
+     * @return true if the chunked transfer encoding may be used.
+     */
+    boolean isChunkedEncodingAllowed()
+    {
+        return m_chunkedEncodingAllowed;
     }
 
     /**
      * Copy the contents of the input to the output stream, then close the input stream.
+     * Unless a content length has been set, the content is streamed using the
+     * response buffer.
      * @param inputStream input stream
      * @param close if connection should be closed 
      * @throws IOException on I/O error
@@ -134,35 +154,65 @@ public class HttpServletResponseImpl implements HttpServletResponse
     public void writeToOutputStream(final InputStream inputStream, final boolean close)
         throws IOException
     {
-        InputStream bufferedInput = new BufferedInputStream(inputStream);
-
-        if (!m_headers.containsKey(HttpConstants.HEADER_CONTENT_LENGTH))
+        try
         {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            copy(bufferedInput, baos);
-            byte[] outputBuffer = baos.toByteArray();
-
-            setContentLength(outputBuffer.length);
-            bufferedInput = new ByteArrayInputStream(outputBuffer);
+            if (m_headers.containsKey(HttpConstants.HEADER_CONTENT_LENGTH))
+            {
+                if (!m_headersWritten)
+                {
+                    writeHeaders();
+                }
+                copy(inputStream, m_out);
+                m_out.flush();
+            }
+            else
+            {
+                ResponseOutputStream out = getResponseStream();
+                copy(inputStream, out);
+                out.finish();
+            }
         }
-
-        if (!m_headersWritten)
+        finally
         {
-            writeHeaders(close);
+            inputStream.close();
         }
+    }
 
+    /**
+     * Send the content of a file with its length as Content-Length. If the client
+     * output stream supports it, the file is sent without copying its content
+     * through the Java heap. No more than the declared length is sent, even if
+     * the file grows meanwhile.
+     * @param file the file
+     * @param close if connection should be closed 
+     * @throws IOException on I/O error
+     */
+    public void writeToOutputStream(final File file, final boolean close)
+        throws IOException
+    {
+        // Open the file first, so a missing file does not commit the response.
+        InputStream inputStream = new FileInputStream(file);
         try
         {
-            copy(bufferedInput, m_out);
-
+            final long length = file.length();
+            setHeader(HttpConstants.HEADER_CONTENT_LENGTH, Long.toString(length));
+            if (!m_headersWritten)
+            {
+                writeHeaders();
+            }
+            if (m_out instanceof FileTransfer)
+            {
+                ((FileTransfer) m_out).transferFile(file, length);
+            }
+            else
+            {
+                copy(inputStream, m_out, length);
+            }
             m_out.flush();
         }
         finally
         {
-            if (bufferedInput != null)
-            {
-                bufferedInput.close();
-            }
+            inputStream.close();
         }
     }
 
@@ -177,10 +227,48 @@ public class HttpServletResponseImpl implements HttpServletResponse
         throws IOException
     {
 
-        byte[] buf = new byte[COPY_BUFFER_SIZE];
-        for (int len = input.read(buf); len >= 0; len = input.read(buf))
+        byte[] buf = BufferPool.POOL.acquire();
+        try
+        {
+            for (int len = input.read(buf); len >= 0; len = input.read(buf))
+            {
+                output.write(buf, 0, len);
+            }
+        }
+        finally
         {
-            output.write(buf, 0, len);
+            BufferPool.POOL.release(buf);
+        }
+    }
+
+    /**
+     * Copy the given number of bytes of an input stream to an output stream.
+     *
+     * @param input InputStream
+     * @param output OutputStream
+     * @param length number of bytes to copy
+     * @throws IOException on I/O error or if the input ends before length bytes.
+     */
+    private static void copy(final InputStream input, final OutputStream output, long length)
+        throws IOException
+    {
+        byte[] buf = BufferPool.POOL.acquire();
+        try
+        {
+            while (length > 0)
+            {
+                int len = input.read(buf, 0, (int) Math.min(buf.length, length));
+                if (len < 0)
+                {
+                    throw new IOException("Unexpected end of stream, " + length + " bytes missing");
+                }
+                output.write(buf, 0, len);
+                length -= len;
+            }
+        }
+        finally
+        {
+            BufferPool.POOL.release(buf);
         }
     }
 
@@ -268,14 +356,35 @@ public class HttpServletResponseImpl implements HttpServletResponse
 
         if (!m_headersWritten)
         {
-            writeHeaders(true);
+            writeHeaders();
         }
+    }
 
-        if (m_buffer != null)
+    /**
+     * Finish the response after the request has been serviced. Content which
+     * is still buffered is sent with a Content-Length header, a chunked response
+     * is terminated.
+     * @throws IOException on I/O error
+     */
+    synchronized public void complete() throws IOException
+    {
+        if (m_stream != null)
         {
-            byte[] content = m_buffer.toByteArray();
-            copy(new ByteArrayInputStream(content), m_out);
-            m_out.flush();
+            // Flushing the writer must not commit the response.
+            m_stream.setFinishing();
+            if (m_printWriter != null)
+            {
+                m_printWriter.flush();
+            }
+            m_stream.finish();
+        }
+        else if (!m_headersWritten)
+        {
+            if (!m_headers.containsKey(HttpConstants.HEADER_CONTENT_LENGTH))
+            {
+                setContentLength(0);
+            }
+            writeHeaders();
         }
     }
 
@@ -284,11 +393,6 @@ public class HttpServletResponseImpl implements HttpServletResponse
      */
     public int getBufferSize()
     {
-        if (m_buffer != null)
-        {
-            return m_buffer.size();
-        }
-
         return m_bufferSize;
     }
 
@@ -336,8 +440,7 @@ public class HttpServletResponseImpl implements HttpServletResponse
 
         if (m_servletOutputStream == null)
         {
-            m_buffer = new ByteArrayOutputStream(m_bufferSize);
-            m_servletOutputStream = new ServletOutputStreamImpl(m_buffer);
+            m_servletOutputStream = new ServletOutputStreamImpl(getResponseStream());
         }
         return m_servletOutputStream;
     }
@@ -355,13 +458,36 @@ public class HttpServletResponseImpl implements HttpServletResponse
 
         if (m_printWriter == null)
         {
-            m_buffer = new ByteArrayOutputStream(m_bufferSize);
-            m_printWriter = new PrintWriter(m_buffer);
+            m_printWriter = new PrintWriter(getResponseStream());
         }
 
         return m_printWriter;
     }
 
+    /**
+     * @return the stream buffering the content of the response.
+     */
+    private ResponseOutputStream getResponseStream()
+    {
+        if (m_stream == null)
+        {
+            m_stream = new ResponseOutputStream(this, m_out, m_bufferSize);
+        }
+        return m_stream;
+    }
+
+    /**
+     * Drop the buffered content of the response.
+     */
+    private void discardResponseStream()
+    {
+        if (m_stream != null)
+        {
+            m_stream.discard();
+            m_stream = null;
+        }
+    }
+
     /* (non-Javadoc)
      * @see javax.servlet.ServletResponse#isCommitted()
      */
@@ -379,7 +505,7 @@ public class HttpServletResponseImpl implements HttpServletResponse
         {
             throw new IllegalStateException("Response has already been committed.");
         }
-        m_buffer.reset();
+        discardResponseStream();
         m_printWriter = null;
         m_servletOutputStream = null;
         m_getOutputStreamCalled = false;
@@ -399,7 +525,7 @@ public class HttpServletResponseImpl implements HttpServletResponse
             throw new IllegalStateException("Response has already been committed.");
         }
 
-        m_buffer.reset();
+        discardResponseStream();
         m_printWriter = null;
         m_servletOutputStream = null;
         m_getOutputStreamCalled = false;
@@ -528,8 +654,10 @@ public class HttpServletResponseImpl implements HttpServletResponse
             throw new IllegalStateException(
                 "Response has already been committed, unable to send error.");
 
+        discardResponseStream();
         m_out.write(buildResponse(sc, msg));
         m_out.flush();
+        m_headersWritten = true;
     }
 
     /* (non-Javadoc)
@@ -550,10 +678,12 @@ public class HttpServletResponseImpl implements HttpServletResponse
             throw new IllegalStateException("Response has already been committed.");
         }
 
+        discardResponseStream();
         Map map = new HashMap();
         map.put("Location", location);
         m_out.write(buildResponse(307, map, null, null));
         m_out.flush();
+        m_headersWritten = true;
     }
 
     /* (non-Javadoc)
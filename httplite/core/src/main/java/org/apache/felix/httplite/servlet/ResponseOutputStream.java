@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.servlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffers the content of a response. As long as the content fits into the
+ * buffer, the response is sent with a Content-Length header once it is
+ * finished. Otherwise the response is committed when the buffer is full or
+ * flushed and the content is streamed to the client, using chunked transfer
+ * encoding if the length is unknown and the client supports it.
+ */
+class ResponseOutputStream extends OutputStream
+{
+    private static final byte[] CHUNK_DELIMITER = HttpConstants.HEADER_DELEMITER.getBytes();
+    private static final byte[] LAST_CHUNK = ("0" + HttpConstants.HEADER_TERMINATOR).getBytes();
+
+    private final HttpServletResponseImpl m_response;
+    private final OutputStream m_out;
+    private byte[] m_buffer;
+    private int m_count = 0;
+    private boolean m_chunked = false;
+    private boolean m_finishing = false;
+    private boolean m_finished = false;
+
+    /**
+     * @param response the response
+     * @param out the client output stream
+     * @param bufferSize the size of the buffer
+     */
+    ResponseOutputStream(final HttpServletResponseImpl response, final OutputStream out,
+        final int bufferSize)
+    {
+        m_response = response;
+        m_out = out;
+        m_buffer = (bufferSize == BufferPool.BUFFER_SIZE) ? BufferPool.POOL.acquire()
+            : new byte[Math.max(1, bufferSize)];
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.OutputStream#write(int)
+     */
+    public void write(final int b) throws IOException
+    {
+        checkFinished();
+        if (m_count == m_buffer.length)
+        {
+            drain();
+        }
+        m_buffer[m_count++] = (byte) b;
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.OutputStream#write(byte[], int, int)
+     */
+    public void write(final byte[] b, int off, int len) throws IOException
+    {
+        checkFinished();
+        while (len > 0)
+        {
+            if (m_count == m_buffer.length)
+            {
+                drain();
+            }
+            // Write large content of a committed response without copying.
+            if (m_count == 0 && len >= m_buffer.length && m_response.isCommitted())
+            {
+                writeChunk(b, off, len);
+                return;
+            }
+            int n = Math.min(len, m_buffer.length - m_count);
+            System.arraycopy(b, off, m_buffer, m_count, n);
+            m_count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Commits the response and sends the buffered content, unless the
+     * response is about to be finished.
+     *
+     * @see java.io.OutputStream#flush()
+     */
+    public void flush() throws IOException
+    {
+        if (!m_finished && !m_finishing)
+        {
+            drain();
+            m_out.flush();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.OutputStream#close()
+     */
+    public void close() throws IOException
+    {
+        finish();
+    }
+
+    /**
+     * Prevents flushing from committing the response, the buffered content
+     * will be sent by {@link #finish()}.
+     */
+    void setFinishing()
+    {
+        m_finishing = true;
+    }
+
+    /**
+     * Whether the content is sent with chunked transfer encoding.
+     *
+     * @return true if the response is chunked
+     */
+    boolean isChunked()
+    {
+        return m_chunked;
+    }
+
+    /**
+     * Sends the remaining content and terminates a chunked response.
+     *
+     * @throws IOException on I/O error
+     */
+    void finish() throws IOException
+    {
+        if (m_finished)
+        {
+            return;
+        }
+        try
+        {
+            if (!m_response.isCommitted())
+            {
+                if (!m_response.containsHeader(HttpConstants.HEADER_CONTENT_LENGTH))
+                {
+                    m_response.setContentLength(m_count);
+                }
+                m_response.writeHeaders();
+            }
+            writeChunk(m_buffer, 0, m_count);
+            m_count = 0;
+            if (m_chunked)
+            {
+                m_out.write(LAST_CHUNK);
+            }
+            m_out.flush();
+        }
+        finally
+        {
+            discard();
+        }
+    }
+
+    /**
+     * Drops the buffered content without sending it and releases the buffer.
+     */
+    void discard()
+    {
+        m_finished = true;
+        m_count = 0;
+        BufferPool.POOL.release(m_buffer);
+        m_buffer = null;
+    }
+
+    /**
+     * Commits the response if needed and sends the buffered content.
+     *
+     * @throws IOException on I/O error
+     */
+    private void drain() throws IOException
+    {
+        if (!m_response.isCommitted())
+        {
+            // The length of the content is not known yet.
+            if (!m_response.containsHeader(HttpConstants.HEADER_CONTENT_LENGTH))
+            {
+                if (m_response.isChunkedEncodingAllowed())
+                {
+                    m_chunked = true;
+                    m_response.setHeader(HttpConstants.HEADER_TRANSFER_ENCODING,
+                        HttpConstants.CHUNKED_ENCODING);
+                }
+                else
+                {
+                    m_response.setConnectionType(HttpConstants.CLOSE_CONNECTION);
+                }
+            }
+            m_response.writeHeaders();
+        }
+        writeChunk(m_buffer, 0, m_count);
+        m_count = 0;
+    }
+
+    private void writeChunk(final byte[] b, final int off, final int len) throws IOException
+    {
+        if (len == 0)
+        {
+            return;
+        }
+        if (m_chunked)
+        {
+            m_out.write(Integer.toHexString(len).getBytes());
+            m_out.write(CHUNK_DELIMITER);
+            m_out.write(b, off, len);
+            m_out.write(CHUNK_DELIMITER);
+        }
+        else
+        {
+            m_out.write(b, off, len);
+        }
+    }
+
+    private void checkFinished() throws IOException
+    {
+        if (m_finished)
+        {
+            throw new IOException("The response has already been finished.");
+        }
+    }
+}
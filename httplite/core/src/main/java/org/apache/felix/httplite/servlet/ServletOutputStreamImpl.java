@@ -47,4 +47,28 @@ public class ServletOutputStreamImpl extends ServletOutputStream
     {
         m_outputStream.write(i);
     }
+
+    /* (non-Javadoc)
+     * @see java.io.OutputStream#write(byte[], int, int)
+     */
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        m_outputStream.write(b, off, len);
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.OutputStream#flush()
+     */
+    public void flush() throws IOException
+    {
+        m_outputStream.flush();
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.OutputStream#close()
+     */
+    public void close() throws IOException
+    {
+        m_outputStream.close();
+    }
 }
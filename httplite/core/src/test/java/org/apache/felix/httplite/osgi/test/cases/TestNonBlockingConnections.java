@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.httplite.osgi.test.cases;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.servlet.ServletException;
+
+import org.apache.felix.httplite.osgi.test.AbstractHttpliteTestCase;
+import org.apache.felix.httplite.osgi.test.BasicTestingServlet;
+import org.apache.felix.httplite.server.Server;
+import org.osgi.service.http.HttpService;
+import org.osgi.service.http.NamespaceException;
+
+
+/**
+ * Tests for persistent connections in the non-blocking mode.
+ *
+ */
+public class TestNonBlockingConnections extends AbstractHttpliteTestCase
+{
+
+    private static final String REQUEST = "GET /test HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+
+    protected void setUp() throws Exception
+    {
+        System.setProperty( Server.CONFIG_PROPERTY_NIO_ENABLE, "true" );
+        System.setProperty( Server.CONFIG_PROPERTY_THREADPOOL_LIMIT_PROP, "1" );
+        super.setUp();
+    }
+
+
+    protected void tearDown() throws Exception
+    {
+        super.tearDown();
+        System.getProperties().remove( Server.CONFIG_PROPERTY_NIO_ENABLE );
+        System.getProperties().remove( Server.CONFIG_PROPERTY_THREADPOOL_LIMIT_PROP );
+    }
+
+
+    public void testPersistentConnection() throws ServletException, NamespaceException, IOException
+    {
+        HttpService httpService = getHTTPService( registry.getBundleContext() );
+        httpService.registerServlet( "/test", new BasicTestingServlet( "hello", true ), null, null );
+
+        Socket socket = openSocket();
+        try
+        {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            out.write( REQUEST.getBytes() );
+            out.flush();
+            assertEquals( "hello", readResponse( in ) );
+
+            out.write( REQUEST.getBytes() );
+            out.flush();
+            assertEquals( "hello", readResponse( in ) );
+
+            // Pipelined requests
+            out.write( ( REQUEST + REQUEST ).getBytes() );
+            out.flush();
+            assertEquals( "hello", readResponse( in ) );
+            assertEquals( "hello", readResponse( in ) );
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+
+    public void testIdleConnectionsDoNotOccupyThreads() throws ServletException, NamespaceException, IOException
+    {
+        HttpService httpService = getHTTPService( registry.getBundleContext() );
+        httpService.registerServlet( "/test", new BasicTestingServlet( "hello", false ), null, null );
+
+        // The thread pool is limited to a single thread.
+        Socket first = openSocket();
+        Socket second = openSocket();
+        try
+        {
+            first.getOutputStream().write( REQUEST.getBytes() );
+            assertEquals( "hello", readResponse( first.getInputStream() ) );
+
+            second.getOutputStream().write( REQUEST.getBytes() );
+            assertEquals( "hello", readResponse( second.getInputStream() ) );
+
+            first.getOutputStream().write( REQUEST.getBytes() );
+            assertEquals( "hello", readResponse( first.getInputStream() ) );
+        }
+        finally
+        {
+            first.close();
+            second.close();
+        }
+    }
+
+
+    public void testChunkedResponse() throws ServletException, NamespaceException, IOException
+    {
+        HttpService httpService = getHTTPService( registry.getBundleContext() );
+
+        byte[] content = new byte[100000];
+        new Random().nextBytes( content );
+        httpService.registerServlet( "/test", new BasicTestingServlet( content, false ), null, null );
+
+        Socket socket = openSocket();
+        try
+        {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            out.write( ( REQUEST + REQUEST ).getBytes() );
+            out.flush();
+            assertTrue( Arrays.equals( content, readResponseBytes( in ) ) );
+            assertTrue( Arrays.equals( content, readResponseBytes( in ) ) );
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+
+    public void testResource() throws NamespaceException, IOException
+    {
+        HttpService httpService = getHTTPService( registry.getBundleContext() );
+        httpService.registerResources( "/", "/webroot/", null );
+
+        Socket socket = openSocket();
+        try
+        {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            String request = "GET /index.html HTTP/1.1\r\nHost: localhost\r\n\r\n";
+            out.write( ( request + request ).getBytes() );
+            out.flush();
+            assertTrue( readResponse( in ).indexOf( "boo" ) > -1 );
+            assertTrue( readResponse( in ).indexOf( "boo" ) > -1 );
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+
+    private static Socket openSocket() throws IOException
+    {
+        Socket socket = new Socket( "localhost", DEFAULT_PORT );
+        socket.setSoTimeout( 5000 );
+        return socket;
+    }
+
+
+    private static String readResponse( InputStream in ) throws IOException
+    {
+        return new String( readResponseBytes( in ) );
+    }
+
+
+    /**
+     * Read a response with a content length or chunked content, skipping interim responses.
+     */
+    private static byte[] readResponseBytes( InputStream in ) throws IOException
+    {
+        String status;
+        int length = -1;
+        boolean chunked = false;
+        do
+        {
+            status = readLine( in );
+            for ( String line = readLine( in ); line.length() > 0; line = readLine( in ) )
+            {
+                String header = line.toLowerCase();
+                if ( header.startsWith( "content-length:" ) )
+                {
+                    length = Integer.parseInt( line.substring( 15 ).trim() );
+                }
+                else if ( header.startsWith( "transfer-encoding:" ) )
+                {
+                    chunked = header.indexOf( "chunked" ) > -1;
+                }
+            }
+        }
+        while ( status.startsWith( "HTTP/1.1 100" ) );
+
+        assertTrue( status, status.startsWith( "HTTP/1.1 200" ) );
+
+        if ( !chunked )
+        {
+            assertTrue( length >= 0 );
+            return readFully( in, length );
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for ( int size = Integer.parseInt( readLine( in ), 16 ); size > 0; size = Integer.parseInt( readLine( in ), 16 ) )
+        {
+            body.write( readFully( in, size ) );
+            assertEquals( "", readLine( in ) );
+        }
+        assertEquals( "", readLine( in ) );
+        return body.toByteArray();
+    }
+
+
+    private static byte[] readFully( InputStream in, int length ) throws IOException
+    {
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while ( offset < length )
+        {
+            int read = in.read( bytes, offset, length - offset );
+            assertTrue( read >= 0 );
+            offset += read;
+        }
+        return bytes;
+    }
+
+
+    private static String readLine( InputStream in ) throws IOException
+    {
+        StringBuffer sb = new StringBuffer();
+        for ( int c = in.read(); c != '\n'; c = in.read() )
+        {
+            assertTrue( c >= 0 );
+            if ( c != '\r' )
+            {
+                sb.append( ( char ) c );
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.felix.httplite.osgi.test.cases;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.util.Arrays;
 import java.util.Random;
 
 import javax.servlet.ServletException;
@@ -226,6 +227,38 @@ public class TestServletContainer extends AbstractHttpliteTestCase
     }
 
 
+    /**
+     * Test that content exceeding the response buffer is streamed completely.
+     * 
+     * @throws ServletException
+     * @throws NamespaceException
+     * @throws IOException
+     */
+    public void testGETResponseLargeBinaryContent() throws ServletException, NamespaceException, IOException
+    {
+        HttpService httpService = getHTTPService( registry.getBundleContext() );
+
+        byte[] content = new byte[100000];
+        new Random().nextBytes( content );
+
+        BasicTestingServlet testServlet = new BasicTestingServlet( content, false );
+        httpService.registerServlet( "/test", testServlet, null, null );
+
+        HttpURLConnection client = getConnection( DEFAULT_BASE_URL + "/test", "GET" );
+
+        client.connect();
+
+        assertTrue( client.getResponseCode() == 200 );
+        assertEquals( "chunked", client.getHeaderField( "Transfer-Encoding" ) );
+
+        byte[] response = readInputAsByteArray( client.getInputStream() );
+
+        assertTrue( Arrays.equals( content, response ) );
+
+        httpService.unregister( "/test" );
+    }
+
+
     private byte[] generateRandomBinaryContent()
     {
         Random rnd = new Random();
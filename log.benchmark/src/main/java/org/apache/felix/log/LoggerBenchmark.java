@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.log;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Version;
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogLevel;
+import org.osgi.service.log.LogListener;
+import org.osgi.service.log.Logger;
+
+/**
+ * Measures log calls per second through {@link LoggerImpl} for a level which
+ * is enabled and a level which is disabled by the logger context, with and
+ * without a registered {@link LogListener}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class LoggerBenchmark
+{
+    /**
+     * The level of the log calls; the effective level of the logger is INFO.
+     */
+    @Param({ "INFO", "DEBUG" })
+    public String level;
+
+    @Param({ "false", "true" })
+    public boolean listener;
+
+    private final AtomicLong m_delivered = new AtomicLong();
+    private Log m_log;
+    private Logger m_logger;
+    private LogLevel m_level;
+    private LogListener m_listener;
+    private final Object m_argument = Integer.valueOf(42);
+    private final Exception m_exception = new Exception("benchmark");
+
+    @Setup
+    public void setUp()
+    {
+        m_log = new Log(100, false, true);
+        LoggerAdminImpl loggerAdmin = new LoggerAdminImpl(LogLevel.INFO.name(), m_log);
+        m_logger = loggerAdmin.getLogger(createBundle(), "benchmark", Logger.class);
+        m_level = LogLevel.valueOf(level);
+        if (listener)
+        {
+            m_listener = new LogListener()
+            {
+                public void logged(LogEntry entry)
+                {
+                    m_delivered.incrementAndGet();
+                }
+            };
+            m_log.addListener(m_listener);
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        if (m_listener != null)
+        {
+            m_log.removeListener(m_listener);
+        }
+        m_log.close();
+    }
+
+    @Benchmark
+    public void message()
+    {
+        if (m_level == LogLevel.INFO)
+        {
+            m_logger.info("Request handled");
+        }
+        else
+        {
+            m_logger.debug("Request handled");
+        }
+    }
+
+    @Benchmark
+    public void oneArgument()
+    {
+        if (m_level == LogLevel.INFO)
+        {
+            m_logger.info("Request {} handled", m_argument);
+        }
+        else
+        {
+            m_logger.debug("Request {} handled", m_argument);
+        }
+    }
+
+    @Benchmark
+    public void argumentsAndException()
+    {
+        if (m_level == LogLevel.INFO)
+        {
+            m_logger.info("Request {} failed after {} ms", m_argument, m_argument, m_exception);
+        }
+        else
+        {
+            m_logger.debug("Request {} failed after {} ms", m_argument, m_argument, m_exception);
+        }
+    }
+
+    private static Bundle createBundle()
+    {
+        return (Bundle) Proxy.newProxyInstance(LoggerBenchmark.class.getClassLoader(),
+            new Class<?>[] { Bundle.class }, new InvocationHandler()
+            {
+                public Object invoke(Object proxy, Method method, Object[] args)
+                {
+                    switch (method.getName())
+                    {
+                        case "getSymbolicName":
+                            return "org.apache.felix.log.benchmark";
+                        case "getVersion":
+                            return Version.emptyVersion;
+                        case "getLocation":
+                            return "benchmark";
+                        case "getBundleId":
+                            return Long.valueOf(1);
+                        case "hashCode":
+                            return Integer.valueOf(System.identityHashCode(proxy));
+                        case "equals":
+                            return Boolean.valueOf(proxy == args[0]);
+                        default:
+                            return null;
+                    }
+                }
+            });
+    }
+}
@@ -52,6 +52,11 @@ import org.osgi.service.log.admin.LoggerContext;
  *   <dt>org.apache.felix.log.storeDebug</dt>
  *   <dd>Determines whether or not debug messages will be stored as part of
  *       the historic log information. The default value is false.</dd>
+ *
+ *   <dt>org.apache.felix.log.captureLocation</dt>
+ *   <dd>Determines whether or not the location of log calls is recorded
+ *       and returned by {@link org.osgi.service.log.LogEntry#getLocation()}.
+ *       The default value is true.</dd>
  * </dl>
  */
 public final class Activator implements BundleActivator
@@ -64,6 +69,10 @@ public final class Activator implements BundleActivator
     private static final String STORE_DEBUG_PROPERTY = "org.apache.felix.log.storeDebug";
     /** The default value for the store debug property. */
     private static final boolean DEFAULT_STORE_DEBUG = false;
+    /** The name of the property that defines whether the location of log calls is captured. */
+    private static final String CAPTURE_LOCATION_PROPERTY = "org.apache.felix.log.captureLocation";
+    /** The default value for the capture location property. */
+    private static final boolean DEFAULT_CAPTURE_LOCATION = true;
     /** The log. */
     private Log m_log;
     /** The LoggerAdmin. */
@@ -114,6 +123,24 @@ public final class Activator implements BundleActivator
         return storeDebug;
     }
 
+    /**
+     * Returns whether or not to capture the location of log calls.
+     * @param context the bundle context (used to look up a property)
+     * @return whether or not to capture the location of log calls
+     */
+    private static boolean getCaptureLocation(final BundleContext context)
+    {
+        boolean captureLocation = DEFAULT_CAPTURE_LOCATION;
+
+        String captureLocationPropValue = context.getProperty(CAPTURE_LOCATION_PROPERTY);
+        if (captureLocationPropValue != null)
+        {
+            captureLocation = Boolean.valueOf(captureLocationPropValue).booleanValue();
+        }
+
+        return captureLocation;
+    }
+
     /**
      * Return the default log level.
      * @param context
@@ -132,7 +159,7 @@ public final class Activator implements BundleActivator
     public void start(final BundleContext context) throws Exception
     {
         // create the log instance
-        m_log = new Log(getMaxSize(context), getStoreDebug(context));
+        m_log = new Log(getMaxSize(context), getStoreDebug(context), getCaptureLocation(context));
         // create the LoggerAdmin instance
         m_loggerAdmin = new LoggerAdminImpl(getDefaultLogLevel(context), m_log);
 
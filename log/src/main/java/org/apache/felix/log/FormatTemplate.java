@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.log;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A message pattern with <code>{}</code> placeholders compiled into the
+ * literal text between the placeholders, so that formatting a message only
+ * appends the literals and arguments.
+ * <p>
+ * A backslash escapes the following character and <code>{{}</code> yields a
+ * brace followed by the argument.  Once all arguments have been used, the
+ * rest of the pattern is appended as is.
+ */
+final class FormatTemplate {
+
+    /** The maximum number of cached templates. */
+    private static final int MAX_CACHED_TEMPLATES = 512;
+
+    private static final ConcurrentMap<String, FormatTemplate> m_cache = new ConcurrentHashMap<>();
+
+    /** The pattern. */
+    private final String m_pattern;
+    /** The literal text before each placeholder and after the last one. */
+    private final String[] m_literals;
+    /** The offset in the pattern following each placeholder. */
+    private final int[] m_ends;
+
+    private FormatTemplate(String pattern, String[] literals, int[] ends) {
+        m_pattern = pattern;
+        m_literals = literals;
+        m_ends = ends;
+    }
+
+    /**
+     * Returns the template for a pattern, compiling it if it isn't cached.
+     * @param pattern the pattern
+     * @return the template
+     */
+    static FormatTemplate get(String pattern) {
+        FormatTemplate template = m_cache.get(pattern);
+        if (template == null) {
+            template = compile(pattern);
+            if (m_cache.size() < MAX_CACHED_TEMPLATES) {
+                m_cache.putIfAbsent(pattern, template);
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Formats a message.
+     * @param args the arguments replacing the placeholders
+     * @return the message
+     */
+    String format(Object[] args) {
+        if (args.length == 0) {
+            return m_pattern;
+        }
+        if (m_ends.length == 0) {
+            return m_literals[0];
+        }
+        StringBuilder sb = new StringBuilder(m_pattern.length() + 16 * args.length);
+        for (int i = 0; i < m_ends.length; i++) {
+            sb.append(m_literals[i]).append(args[i]);
+            if (i + 1 == args.length) {
+                return sb.append(m_pattern, m_ends[i], m_pattern.length()).toString();
+            }
+        }
+        return sb.append(m_literals[m_ends.length]).toString();
+    }
+
+    private static FormatTemplate compile(String pattern) {
+        String[] literals = new String[4];
+        int[] ends = new int[3];
+        int count = 0;
+        StringBuilder sb = new StringBuilder(pattern.length());
+        boolean escape = false;
+        boolean brace = false;
+        for (int offset = 0; offset < pattern.length(); offset++) {
+            char cur = pattern.charAt(offset);
+            if (escape) {
+                escape = false;
+                sb.append(cur);
+            }
+            else if (cur == '\\') {
+                escape = true;
+                brace = false;
+            }
+            else if (cur == '{') {
+                if (brace) {
+                    sb.append(cur);
+                }
+                brace = true;
+            }
+            else if (cur == '}' && brace) {
+                if (count == ends.length) {
+                    String[] newLiterals = new String[literals.length * 2];
+                    System.arraycopy(literals, 0, newLiterals, 0, count);
+                    literals = newLiterals;
+                    int[] newEnds = new int[ends.length * 2];
+                    System.arraycopy(ends, 0, newEnds, 0, count);
+                    ends = newEnds;
+                }
+                literals[count] = sb.toString();
+                ends[count++] = offset + 1;
+                sb.setLength(0);
+                brace = false;
+            }
+            else {
+                sb.append(cur);
+                brace = false;
+            }
+        }
+        String[] templateLiterals = new String[count + 1];
+        System.arraycopy(literals, 0, templateLiterals, 0, count);
+        templateLiterals[count] = sb.toString();
+        int[] templateEnds = new int[count];
+        System.arraycopy(ends, 0, templateEnds, 0, count);
+        return new FormatTemplate(pattern, templateLiterals, templateEnds);
+    }
+
+}
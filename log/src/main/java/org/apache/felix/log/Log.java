@@ -18,7 +18,10 @@
  */
 package org.apache.felix.log;
 
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Enumeration;
+import java.util.concurrent.ConcurrentLinkedDeque;
 
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleEvent;
@@ -41,34 +44,38 @@ import org.osgi.service.log.LogListener;
  */
 final class Log implements BundleListener, FrameworkListener, ServiceListener
 {
-    /** The first log entry. */
-    private LogNode m_head;
-    /** The last log entry. */
-    private LogNode m_tail;
-    /** The log size. */
-    private int m_size;
+    /** The historic log if it has a maximum size. */
+    private final LogRingBuffer m_buffer;
+    /** The historic log if it has no maximum size. */
+    private final Deque<LogEntry> m_entries;
     /** The log listener thread. */
-    private LogListenerThread listenerThread;
+    private volatile LogListenerThread listenerThread;
     /** The maximum size for the log. */
     private final int m_maxSize;
     /** Whether or not to store debug messages. */
     private final boolean m_storeDebug;
+    /** Whether or not to capture the location of log calls. */
+    private final boolean m_captureLocation;
 
     /**
      * Create a new instance.
      * @param maxSize the maximum size for the log
      * @param storeDebug whether or not to store debug messages
+     * @param captureLocation whether or not to capture the location of log calls
      */
-    Log(final int maxSize, final boolean storeDebug)
+    Log(final int maxSize, final boolean storeDebug, final boolean captureLocation)
     {
         this.m_maxSize = maxSize;
         this.m_storeDebug = storeDebug;
+        this.m_captureLocation = captureLocation;
+        this.m_buffer = (maxSize > 0) ? new LogRingBuffer(maxSize) : null;
+        this.m_entries = (maxSize == -1) ? new ConcurrentLinkedDeque<LogEntry>() : null;
     }
 
     /**
      * Close the log.
      */
-    void close()
+    synchronized void close()
     {
         if (listenerThread != null)
         {
@@ -76,9 +83,15 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
             listenerThread = null;
         }
 
-        m_head = null;
-        m_tail = null;
-        m_size = 0;
+        if (m_buffer != null)
+        {
+            m_buffer.clear();
+        }
+
+        if (m_entries != null)
+        {
+            m_entries.clear();
+        }
     }
 
     void log(
@@ -89,60 +102,47 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
         final String message,
         final Throwable exception) {
 
-        addEntry(new LogEntryImpl(name, bundle, sr, level, message, exception, getStackTraceElement()));
+        if (isRecorded(level))
+        {
+            addEntry(new LogEntryImpl(name, bundle, sr, level, message, exception, captureLocation()));
+        }
+    }
+
+    /**
+     * Determines whether an entry of the given level would be stored in the
+     * historic log or delivered to a listener.
+     * @param level the level of the entry
+     * @return <code>false</code> if the entry would be dropped
+     */
+    boolean isRecorded(final LogLevel level)
+    {
+        return listenerThread != null || (m_maxSize != 0 && (m_storeDebug || level != LogLevel.DEBUG));
     }
 
     /**
      * Adds the entry to the log.
      * @param entry the entry to add to the log
      */
-    synchronized void addEntry(final LogEntry entry)
+    void addEntry(final LogEntry entry)
     {
-        if (m_maxSize != 0)
+        // add the entry to the historic log
+        if (m_maxSize != 0 && (m_storeDebug || entry.getLogLevel() != LogLevel.DEBUG))
         {
-            // add the entry to the historic log
-            if (m_storeDebug || entry.getLogLevel() != LogLevel.DEBUG)
+            if (m_buffer != null)
             {
-                // create a new node for the entry
-                LogNode node = new LogNode(entry);
-
-                // add to the front of the linked list
-                node.setNextNode(m_head);
-                if (m_head != null)
-                {
-                    m_head.setPreviousNode(node);
-                }
-
-                // and store the node
-                m_head = node;
-
-                // bump the size of the list
-                ++m_size;
-
-                // if no tail node - add the node to the tail
-                if (m_tail == null)
-                {
-                    m_tail = node;
-                }
+                m_buffer.add(entry);
             }
-
-            // ensure the historic log doesn't grow beyond a certain size
-            if (m_maxSize != -1)
+            else
             {
-                if (m_size > m_maxSize)
-                {
-                    LogNode last = m_tail.getPreviousNode();
-                    last.setNextNode(null);
-                    m_tail = last;
-                    --m_size;
-                }
+                m_entries.addFirst(entry);
             }
         }
 
         // notify any listeners
-        if (listenerThread != null)
+        LogListenerThread thread = listenerThread;
+        if (thread != null)
         {
-            listenerThread.addEntry(entry);
+            thread.addEntry(entry);
         }
     }
 
@@ -185,9 +185,17 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
      * Returns an enumeration of all the entries in the log most recent first.
      * @return an enumeration of all the entries in the log most recent first
      */
-    synchronized Enumeration<LogEntry> getEntries()
+    Enumeration<LogEntry> getEntries()
     {
-        return new LogNodeEnumeration(m_head, m_tail);
+        if (m_buffer != null)
+        {
+            return m_buffer.getEntries();
+        }
+        if (m_entries != null)
+        {
+            return Collections.enumeration(m_entries);
+        }
+        return Collections.emptyEnumeration();
     }
 
     /** The messages returned for the framework events. */
@@ -268,8 +276,25 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
         }
     }
 
-    public static StackTraceElement getStackTraceElement() {
-        StackTraceElement[] elements = Thread.currentThread().getStackTrace();
+    /**
+     * Captures the call stack of a log call if location capture is enabled.
+     * The returned throwable only records the stack; the stack trace
+     * elements are not created before {@link #getStackTraceElement(Throwable)}
+     * is called.
+     * @return the captured call stack or <code>null</code>
+     */
+    Throwable captureLocation() {
+        return m_captureLocation ? new Throwable() : null;
+    }
+
+    /**
+     * Returns the first stack frame of a captured call stack outside of the
+     * log implementation.
+     * @param callStack the call stack captured by {@link #captureLocation()}
+     * @return the location of the log call
+     */
+    static StackTraceElement getStackTraceElement(final Throwable callStack) {
+        StackTraceElement[] elements = callStack.getStackTrace();
         if (elements.length == 0) {
             return null;
         }
@@ -278,7 +303,7 @@ final class Log implements BundleListener, FrameworkListener, ServiceListener
                 return elements[i];
             }
         }
-        return elements[1];
+        return elements[0];
     }
 
     /** The messages returned for the service events. */
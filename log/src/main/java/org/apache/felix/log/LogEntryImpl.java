@@ -65,8 +65,10 @@ final class LogEntryImpl implements LogEntry
     private final long m_sequence;
     /** The information about the Thread which logged the message. */
     private final String m_threadInfo;
+    /** The call stack captured where the message was originally logged. */
+    private final Throwable m_callStack;
     /** The StackTraceElement where the message was originally logged. */
-    private final StackTraceElement m_stackTraceElement;
+    private volatile StackTraceElement m_stackTraceElement;
 
     private volatile String _toString;
 
@@ -78,6 +80,7 @@ final class LogEntryImpl implements LogEntry
      * @param level the severity level for this LogEntry object
      * @param message the message to associate with this LogEntry object
      * @param exception the exception to associate with this LogEntry object
+     * @param callStack the call stack captured by the log or <code>null</code>
      */
     LogEntryImpl(
         final String name,
@@ -86,7 +89,7 @@ final class LogEntryImpl implements LogEntry
         final LogLevel level,
         final String message,
         final Throwable exception,
-        final StackTraceElement stackTraceElement)
+        final Throwable callStack)
     {
         this.m_name = name;
         this.m_bundle = bundle;
@@ -98,7 +101,7 @@ final class LogEntryImpl implements LogEntry
         this.m_time = System.currentTimeMillis();
         this.m_sequence = m_sequenceGenerator.getAndIncrement();
         this.m_threadInfo = Thread.currentThread().getName();
-        this.m_stackTraceElement = stackTraceElement;
+        this.m_callStack = callStack;
     }
 
     @SuppressWarnings("deprecation")
@@ -109,7 +112,7 @@ final class LogEntryImpl implements LogEntry
         final int legacyLevel,
         final String message,
         final Throwable exception,
-        final StackTraceElement stackTraceElement)
+        final Throwable callStack)
     {
         this.m_name = name;
         this.m_bundle = bundle;
@@ -135,7 +138,7 @@ final class LogEntryImpl implements LogEntry
         this.m_time = System.currentTimeMillis();
         this.m_sequence = m_sequenceGenerator.getAndIncrement();
         this.m_threadInfo = Thread.currentThread().getName();
-        this.m_stackTraceElement = stackTraceElement;
+        this.m_callStack = callStack;
     }
 
     /**
@@ -240,16 +243,20 @@ final class LogEntryImpl implements LogEntry
 
     @Override
     public StackTraceElement getLocation() {
+        if (m_stackTraceElement == null && m_callStack != null) {
+            m_stackTraceElement = Log.getStackTraceElement(m_callStack);
+        }
         return m_stackTraceElement;
     }
 
     @Override
     public String toString() {
         if (_toString == null) {
+            StackTraceElement location = getLocation();
             _toString = m_time + "#" + m_sequence + " [" + m_threadInfo + "] " + m_level +
                 " (" + m_legacyLevel + ") [" + m_bundle.getBundleId() + ":" + m_name + "] " +
-                    m_stackTraceElement.getClassName() + ":" +
-                    m_stackTraceElement.getLineNumber() + " > " + m_message +
+                    (location != null ? location.getClassName() + ":" +
+                    location.getLineNumber() : "") + " > " + m_message +
                         (m_exception != null ? "\n" + exceptionString(m_exception) : "");
         }
         return _toString;
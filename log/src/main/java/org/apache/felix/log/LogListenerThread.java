@@ -21,6 +21,7 @@ package org.apache.felix.log;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.osgi.service.log.LogEntry;
 import org.osgi.service.log.LogListener;
@@ -34,9 +35,13 @@ import org.osgi.service.log.LogListener;
 final class LogListenerThread extends Thread
 {
     // The list of entries waiting to be delivered to the log listeners.
-    private final List<LogEntry> m_entriesToDeliver = new ArrayList<>();
-    // The list of listeners.
-    private final List<LogListener> m_listeners = new ArrayList<>();
+    private List<LogEntry> m_entriesToDeliver = new ArrayList<>();
+    // The list of entries being delivered, swapped with the waiting entries.
+    private List<LogEntry> m_entriesDelivering = new ArrayList<>();
+    // The lock guarding the waiting entries.
+    private final Object m_lock = new Object();
+    // The list of listeners, iterated without copying.
+    private final List<LogListener> m_listeners = new CopyOnWriteArrayList<>();
 
     LogListenerThread() {
         super("FelixLogListener");
@@ -48,10 +53,13 @@ final class LogListenerThread extends Thread
      */
     void addEntry(final LogEntry entry)
     {
-        synchronized (m_entriesToDeliver)
+        synchronized (m_lock)
         {
             m_entriesToDeliver.add(entry);
-            m_entriesToDeliver.notifyAll();
+            if (m_entriesToDeliver.size() == 1)
+            {
+                m_lock.notifyAll();
+            }
         }
     }
 
@@ -61,10 +69,7 @@ final class LogListenerThread extends Thread
      */
     void addListener(final LogListener listener)
     {
-        synchronized (m_listeners)
-        {
-            m_listeners.add(listener);
-        }
+        m_listeners.add(listener);
     }
 
     /**
@@ -73,10 +78,7 @@ final class LogListenerThread extends Thread
      */
     void removeListener(final LogListener listener)
     {
-        synchronized (m_listeners)
-        {
-            m_listeners.remove(listener);
-        }
+        m_listeners.remove(listener);
     }
 
     /**
@@ -85,10 +87,7 @@ final class LogListenerThread extends Thread
      */
     int getListenerCount()
     {
-        synchronized (m_listeners)
-        {
-            return m_listeners.size();
-        }
+        return m_listeners.size();
     }
 
     /**
@@ -96,7 +95,7 @@ final class LogListenerThread extends Thread
      */
     void shutdown()
     {
-        synchronized (m_entriesToDeliver)
+        synchronized (m_lock)
         {
             interrupt();
         }
@@ -104,20 +103,21 @@ final class LogListenerThread extends Thread
 
     /**
      * The main method of the thread: waits for new messages to be receieved
-     * and then delivers them to any registered log listeners.
+     * and then delivers all messages received since the last wakeup to any
+     * registered log listeners.
      */
     public void run()
     {
         while (!isInterrupted())
         {
-            List<LogEntry> entriesToDeliver = new ArrayList<>();
-            synchronized (m_entriesToDeliver)
+            List<LogEntry> entriesToDeliver = null;
+            synchronized (m_lock)
             {
                 if (m_entriesToDeliver.isEmpty())
                 {
                     try
                     {
-                        m_entriesToDeliver.wait();
+                        m_lock.wait();
                     }
                     catch (InterruptedException e)
                     {
@@ -128,42 +128,44 @@ final class LogListenerThread extends Thread
                 }
                 else
                 {
-                    // Copy all current entries and deliver them in a single go...
-                    entriesToDeliver.addAll(m_entriesToDeliver);
-                    m_entriesToDeliver.clear();
+                    // Swap the lists to deliver all current entries in a single go...
+                    entriesToDeliver = m_entriesToDeliver;
+                    m_entriesToDeliver = m_entriesDelivering;
+                    m_entriesDelivering = entriesToDeliver;
                 }
             }
 
-            if (!entriesToDeliver.isEmpty())
+            if (entriesToDeliver != null)
             {
-                // Take a snapshot of all current listeners and deliver all
-                // pending messages to them...
-                List<LogListener> listeners = new ArrayList<>();
-                synchronized (m_listeners)
-                {
-                    listeners.addAll(m_listeners);
-                }
+                deliver(entriesToDeliver);
+                entriesToDeliver.clear();
+            }
+        }
+    }
 
-                Iterator<LogEntry> entriesIt = entriesToDeliver.iterator();
-                while (entriesIt.hasNext())
-                {
-                    LogEntry entry = entriesIt.next();
+    /**
+     * Delivers the entries to the current listeners.
+     * @param entries the entries to deliver
+     */
+    private void deliver(final List<LogEntry> entries)
+    {
+        for (int i = 0; i < entries.size(); i++)
+        {
+            LogEntry entry = entries.get(i);
 
-                    Iterator<LogListener> listenerIt = listeners.iterator();
-                    while (listenerIt.hasNext())
-                    {
-                        LogListener listener = listenerIt.next();
+            Iterator<LogListener> listenerIt = m_listeners.iterator();
+            while (listenerIt.hasNext())
+            {
+                LogListener listener = listenerIt.next();
 
-                        try
-                        {
-                            listener.logged(entry);
-                        }
-                        catch (Throwable t)
-                        {
-                            System.err.println("Logger failed to log with " + t.getMessage());
-                            t.printStackTrace(System.err);
-                        }
-                    }
+                try
+                {
+                    listener.logged(entry);
+                }
+                catch (Throwable t)
+                {
+                    System.err.println("Logger failed to log with " + t.getMessage());
+                    t.printStackTrace(System.err);
                 }
             }
         }
@@ -19,29 +19,38 @@
 package org.apache.felix.log;
 
 import java.util.Enumeration;
+import java.util.NoSuchElementException;
 
 import org.osgi.service.log.LogEntry;
 
 /**
- * Implementation of the {@link Enumeration} interface for a linked list of
- * {@link LogNode} entries.
+ * Implementation of the {@link Enumeration} interface reading the
+ * {@link LogNode} entries of a {@link LogRingBuffer} from the most recent
+ * to the oldest position.
  */
 final class LogNodeEnumeration implements Enumeration<LogEntry>
 {
-    /** The next node. */
-    private LogNode m_next;
-    /** The last node. */
-    private final LogNode m_last;
+    /** The buffer. */
+    private final LogRingBuffer m_buffer;
+    /** The oldest position to return. */
+    private final long m_last;
+    /** The position of the next node to read. */
+    private long m_position;
+    /** The next entry. */
+    private LogEntry m_next;
 
     /**
      * Creates a new instance.
-     * @param start the first node to return
-     * @param end the last node to return
+     * @param buffer the buffer
+     * @param start the position of the first node to return
+     * @param last the position of the last node to return
      */
-    LogNodeEnumeration(final LogNode start, final LogNode end)
+    LogNodeEnumeration(final LogRingBuffer buffer, final long start, final long last)
     {
-        m_next = start;
-        m_last = end;
+        m_buffer = buffer;
+        m_position = start;
+        m_last = last;
+        m_next = advance();
     }
 
     /**
@@ -56,22 +65,41 @@ final class LogNodeEnumeration implements Enumeration<LogEntry>
     /**
      * Returns the current element and moves onto the next element.
      * @return the current element
+     * @throws NoSuchElementException if there are no more elements
      */
     public LogEntry nextElement()
     {
-        LogEntry result = null;
-
-        if (m_next == m_last)
+        LogEntry result = m_next;
+        if (result == null)
         {
-            result = m_next.getEntry();
-            m_next = null;
+            throw new NoSuchElementException();
         }
-        else if (m_next != null)
+        m_next = advance();
+        return result;
+    }
+
+    /**
+     * Reads the next entry which is still in the buffer.
+     * @return the next entry or <code>null</code> if there is none
+     */
+    private LogEntry advance()
+    {
+        while (m_position >= m_last)
         {
-            result = m_next.getEntry();
-            m_next = m_next.getNextNode();
+            LogNode node = m_buffer.getNode(m_position--);
+            if (node == null || node.getPosition() < m_position + 1)
+            {
+                // the entry for this position is not published yet
+                continue;
+            }
+            if (node.getPosition() > m_position + 1)
+            {
+                // the buffer has wrapped, the remaining entries are gone
+                m_position = m_last - 1;
+                return null;
+            }
+            return node.getEntry();
         }
-
-        return result;
+        return null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.log;
+
+import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.osgi.service.log.LogEntry;
+
+/**
+ * A bounded buffer holding the most recent log entries.  Writers claim a
+ * position with a single atomic increment and publish the entry into the slot
+ * for that position, overwriting the oldest entry; no lock is taken.  A slot
+ * is never replaced by an entry older than the one it holds.
+ */
+final class LogRingBuffer
+{
+    /** The slots of the buffer. */
+    private final AtomicReferenceArray<LogNode> m_nodes;
+    /** The position of the next entry. */
+    private final AtomicLong m_next = new AtomicLong();
+
+    /**
+     * Create a new instance.
+     * @param capacity the maximum number of entries
+     */
+    LogRingBuffer(final int capacity)
+    {
+        m_nodes = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Adds the entry to the buffer, replacing the oldest entry if the buffer
+     * is full.
+     * @param entry the entry to add
+     */
+    void add(final LogEntry entry)
+    {
+        publish(claim(), entry);
+    }
+
+    /**
+     * Claims the position of the next entry.
+     * @return the position
+     */
+    long claim()
+    {
+        return m_next.getAndIncrement();
+    }
+
+    /**
+     * Publishes the entry into the slot of the claimed position, unless a
+     * writer which lapped this one already stored a newer entry there.
+     * @param position the claimed position
+     * @param entry the entry
+     */
+    void publish(final long position, final LogEntry entry)
+    {
+        LogNode node = new LogNode(position, entry);
+        int index = index(position);
+        LogNode current;
+        do
+        {
+            current = m_nodes.get(index);
+            if (current != null && current.getPosition() > position)
+            {
+                return;
+            }
+        }
+        while (!m_nodes.compareAndSet(index, current, node));
+    }
+
+    /**
+     * Removes all entries from the buffer.
+     */
+    void clear()
+    {
+        for (int i = 0; i < m_nodes.length(); i++)
+        {
+            m_nodes.set(i, null);
+        }
+    }
+
+    /**
+     * Returns an enumeration of the entries most recent first.  The entries
+     * are read from the buffer while enumerating: entries added afterwards
+     * are not returned and entries which have been overwritten in the
+     * meantime end the enumeration.
+     * @return an enumeration of the entries most recent first
+     */
+    Enumeration<LogEntry> getEntries()
+    {
+        long end = m_next.get();
+        return new LogNodeEnumeration(this, end - 1, Math.max(0, end - m_nodes.length()));
+    }
+
+    /**
+     * Returns the node at the given position.
+     * @param position the position
+     * @return the node in the slot of the position, which might have been
+     * written for another position or <code>null</code>
+     */
+    LogNode getNode(final long position)
+    {
+        return m_nodes.get(index(position));
+    }
+
+    private int index(final long position)
+    {
+        return (int) (position % m_nodes.length());
+    }
+}
\ No newline at end of file
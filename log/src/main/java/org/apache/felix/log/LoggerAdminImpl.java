@@ -105,14 +105,13 @@ public class LoggerAdminImpl implements LoggerAdmin {
     }
 
     LoggerContext getLoggerContext(Bundle bundle, String name) {
-        String loggerContextName = String.format(
-            "%s|%s|%s", bundle.getSymbolicName(), bundle.getVersion(), bundle.getLocation());
+        String loggerContextName =
+            bundle.getSymbolicName() + '|' + bundle.getVersion() + '|' + bundle.getLocation();
 
         LoggerContext loggerContext = getLoggerContext(loggerContextName);
 
         if (loggerContext.isEmpty()) {
-            loggerContextName = String.format(
-                "%s|%s", bundle.getSymbolicName(), bundle.getVersion());
+            loggerContextName = bundle.getSymbolicName() + '|' + bundle.getVersion();
 
             loggerContext = getLoggerContext(loggerContextName);
         }
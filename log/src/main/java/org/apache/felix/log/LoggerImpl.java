@@ -18,9 +18,6 @@
  */
 package org.apache.felix.log;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.osgi.framework.Bundle;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.log.LogLevel;
@@ -29,10 +26,7 @@ import org.osgi.service.log.LoggerConsumer;
 
 public class LoggerImpl implements Logger {
 
-    private static final String ESCAPE = "\\";
-    private static final String MAX_CHAR = "\uFFFF";
-    private static final String BRACE_CLOSE = "}";
-    private static final String BRACE_OPEN = "{";
+    private static final Object[] NO_ARGS = new Object[0];
 
     protected final String m_name;
     protected final Bundle m_bundle;
@@ -57,7 +51,7 @@ public class LoggerImpl implements Logger {
     }
 
     void trace(String message, ServiceReference<?> serviceReference, Throwable t) {
-        if (!isTraceEnabled()) return;
+        if (!isLogged(LogLevel.TRACE)) return;
         m_log.log(m_name, m_bundle, serviceReference, LogLevel.TRACE, message, t);
     }
 
@@ -68,20 +62,23 @@ public class LoggerImpl implements Logger {
 
     @Override
     public void trace(String format, Object arg) {
+        if (!isLogged(LogLevel.TRACE)) return;
         LogParameters logParameters = getLogParameters(arg);
-        trace(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.TRACE, format(format, logParameters), logParameters.t);
     }
 
     @Override
     public void trace(String format, Object arg1, Object arg2) {
+        if (!isLogged(LogLevel.TRACE)) return;
         LogParameters logParameters = getLogParameters(arg1, arg2);
-        trace(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.TRACE, format(format, logParameters), logParameters.t);
     }
 
     @Override
     public void trace(String format, Object... arguments) {
+        if (!isLogged(LogLevel.TRACE)) return;
         LogParameters logParameters = getLogParameters(arguments);
-        trace(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.TRACE, format(format, logParameters), logParameters.t);
     }
 
     @Override
@@ -97,7 +94,7 @@ public class LoggerImpl implements Logger {
     }
 
     void debug(String message, ServiceReference<?> serviceReference, Throwable t) {
-        if (!isDebugEnabled()) return;
+        if (!isLogged(LogLevel.DEBUG)) return;
         m_log.log(m_name, m_bundle, serviceReference, LogLevel.DEBUG, message, t);
     }
 
@@ -108,20 +105,23 @@ public class LoggerImpl implements Logger {
 
     @Override
     public void debug(String format, Object arg) {
+        if (!isLogged(LogLevel.DEBUG)) return;
         LogParameters logParameters = getLogParameters(arg);
-        debug(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.DEBUG, format(format, logParameters), logParameters.t);
     }
 
     @Override
     public void debug(String format, Object arg1, Object arg2) {
+        if (!isLogged(LogLevel.DEBUG)) return;
         LogParameters logParameters = getLogParameters(arg1, arg2);
-        debug(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.DEBUG, format(format, logParameters), logParameters.t);
     }
 
     @Override
     public void debug(String format, Object... arguments) {
+        if (!isLogged(LogLevel.DEBUG)) return;
         LogParameters logParameters = getLogParameters(arguments);
-        debug(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.DEBUG, format(format, logParameters), logParameters.t);
     }
 
     @Override
@@ -137,7 +137,7 @@ public class LoggerImpl implements Logger {
     }
 
     void info(String message, ServiceReference<?> serviceReference, Throwable t) {
-        if (!isInfoEnabled()) return;
+        if (!isLogged(LogLevel.INFO)) return;
         m_log.log(m_name, m_bundle, serviceReference, LogLevel.INFO, message, t);
     }
 
@@ -148,20 +148,23 @@ public class LoggerImpl implements Logger {
 
     @Override
     public void info(String format, Object arg) {
+        if (!isLogged(LogLevel.INFO)) return;
         LogParameters logParameters = getLogParameters(arg);
-        info(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.INFO, format(format, logParameters), logParameters.t);
     }
 
     @Override
     public void info(String format, Object arg1, Object arg2) {
+        if (!isLogged(LogLevel.INFO)) return;
         LogParameters logParameters = getLogParameters(arg1, arg2);
-        info(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.INFO, format(format, logParameters), logParameters.t);
     }
 
     @Override
     public void info(String format, Object... arguments) {
+        if (!isLogged(LogLevel.INFO)) return;
         LogParameters logParameters = getLogParameters(arguments);
-        info(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.INFO, format(format, logParameters), logParameters.t);
     }
 
     @Override
@@ -177,7 +180,7 @@ public class LoggerImpl implements Logger {
     }
 
     void warn(String message, ServiceReference<?> serviceReference, Throwable t) {
-        if (!isWarnEnabled()) return;
+        if (!isLogged(LogLevel.WARN)) return;
         m_log.log(m_name, m_bundle, serviceReference, LogLevel.WARN, message, t);
     }
 
@@ -188,20 +191,23 @@ public class LoggerImpl implements Logger {
 
     @Override
     public void warn(String format, Object arg) {
+        if (!isLogged(LogLevel.WARN)) return;
         LogParameters logParameters = getLogParameters(arg);
-        warn(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.WARN, format(format, logParameters), logParameters.t);
     }
 
     @Override
     public void warn(String format, Object arg1, Object arg2) {
+        if (!isLogged(LogLevel.WARN)) return;
         LogParameters logParameters = getLogParameters(arg1, arg2);
-        warn(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.WARN, format(format, logParameters), logParameters.t);
     }
 
     @Override
     public void warn(String format, Object... arguments) {
+        if (!isLogged(LogLevel.WARN)) return;
         LogParameters logParameters = getLogParameters(arguments);
-        warn(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.WARN, format(format, logParameters), logParameters.t);
     }
 
     @Override
@@ -217,7 +223,7 @@ public class LoggerImpl implements Logger {
     }
 
     void error(String message, ServiceReference<?> serviceReference, Throwable t) {
-        if (!isErrorEnabled()) return;
+        if (!isLogged(LogLevel.ERROR)) return;
         m_log.log(m_name, m_bundle, serviceReference, LogLevel.ERROR, message, t);
     }
 
@@ -228,20 +234,23 @@ public class LoggerImpl implements Logger {
 
     @Override
     public void error(String format, Object arg) {
+        if (!isLogged(LogLevel.ERROR)) return;
         LogParameters logParameters = getLogParameters(arg);
-        error(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.ERROR, format(format, logParameters), logParameters.t);
     }
 
     @Override
     public void error(String format, Object arg1, Object arg2) {
+        if (!isLogged(LogLevel.ERROR)) return;
         LogParameters logParameters = getLogParameters(arg1, arg2);
-        error(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.ERROR, format(format, logParameters), logParameters.t);
     }
 
     @Override
     public void error(String format, Object... arguments) {
+        if (!isLogged(LogLevel.ERROR)) return;
         LogParameters logParameters = getLogParameters(arguments);
-        error(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.ERROR, format(format, logParameters), logParameters.t);
     }
 
     @Override
@@ -262,20 +271,23 @@ public class LoggerImpl implements Logger {
 
     @Override
     public void audit(String format, Object arg) {
+        if (!isLogged(LogLevel.AUDIT)) return;
         LogParameters logParameters = getLogParameters(arg);
-        audit(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.AUDIT, format(format, logParameters), logParameters.t);
     }
 
     @Override
     public void audit(String format, Object arg1, Object arg2) {
+        if (!isLogged(LogLevel.AUDIT)) return;
         LogParameters logParameters = getLogParameters(arg1, arg2);
-        audit(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.AUDIT, format(format, logParameters), logParameters.t);
     }
 
     @Override
     public void audit(String format, Object... arguments) {
+        if (!isLogged(LogLevel.AUDIT)) return;
         LogParameters logParameters = getLogParameters(arguments);
-        audit(format(format, logParameters), logParameters.sr, logParameters.t);
+        m_log.log(m_name, m_bundle, logParameters.sr, LogLevel.AUDIT, format(format, logParameters), logParameters.t);
     }
 
     public void log(
@@ -284,7 +296,16 @@ public class LoggerImpl implements Logger {
         final ServiceReference<?> sr,
         final Throwable exception) {
 
-        m_log.addEntry(new LogEntryImpl(m_name, m_bundle, sr, level, message, exception, Log.getStackTraceElement()));
+        m_log.addEntry(new LogEntryImpl(m_name, m_bundle, sr, level, message, exception, m_log.captureLocation()));
+    }
+
+    /**
+     * Determines whether a message of the level is logged, so that its
+     * arguments need to be processed.
+     */
+    boolean isLogged(LogLevel level) {
+        return m_log.isRecorded(level) && (level == LogLevel.AUDIT ||
+            m_loggerAdmin.getLoggerContext(m_bundle, m_name).getEffectiveLogLevel(m_name).implies(level));
     }
 
     LogParameters getLogParameters(Object arg) {
@@ -301,11 +322,11 @@ public class LoggerImpl implements Logger {
 
     LogParameters getLogParameters0(Object... arguments) {
         if (arguments == null || arguments.length == 0) {
-            return new LogParameters(null, null, null);
+            return new LogParameters(NO_ARGS, null, null);
         }
         ServiceReference<?> sr = null;
         Throwable t = null;
-        List<Object> args = new ArrayList<>();
+        int count = 0;
         for (Object arg : arguments) {
             if (t == null && arg instanceof Throwable) {
                 t = (Throwable)arg;
@@ -314,53 +335,35 @@ public class LoggerImpl implements Logger {
                 sr = (ServiceReference<?>)arg;
             }
             else if (arg != null) {
-                args.add(arg);
+                count++;
             }
         }
-        return new LogParameters(args.toArray(), sr, t);
-    }
-
-    String format(String format, LogParameters logParameters) {
-        StringBuilder sb = new StringBuilder();
-        int offset = 0;
-        int length = format.length();
-        String previous = MAX_CHAR;
-        boolean escape = false;
-        int argIndex = 0;
-        while (offset < length) {
-            int curChar = format.codePointAt(offset);
-            offset += Character.charCount(curChar);
-            String cur = new String(Character.toChars(curChar));
-
-            if (argIndex == logParameters.args.length) {
-                sb.append(cur);
-            }
-            else if (escape) {
-                escape = false;
-                sb.append(cur);
-                previous = MAX_CHAR;
-            }
-            else if (ESCAPE.equals(cur)) {
-                escape = true;
-                previous = ESCAPE;
-            }
-            else if (BRACE_OPEN.equals(cur)) {
-                if (BRACE_OPEN.equals(previous)) {
-                    sb.append(previous);
-                }
-                previous = BRACE_OPEN;
+        if (count == arguments.length) {
+            return new LogParameters(arguments, null, null);
+        }
+        if (count == 0) {
+            return new LogParameters(NO_ARGS, sr, t);
+        }
+        Object[] args = new Object[count];
+        boolean skipThrowable = t != null;
+        boolean skipServiceReference = sr != null;
+        count = 0;
+        for (Object arg : arguments) {
+            if (skipThrowable && arg instanceof Throwable) {
+                skipThrowable = false;
             }
-            else if (BRACE_CLOSE.equals(cur) && BRACE_OPEN.equals(previous)) {
-                sb.append(logParameters.args[argIndex++]);
-                previous = MAX_CHAR;
+            else if (skipServiceReference && arg instanceof ServiceReference) {
+                skipServiceReference = false;
             }
-            else {
-                sb.append(cur);
-                previous = MAX_CHAR;
+            else if (arg != null) {
+                args[count++] = arg;
             }
         }
+        return new LogParameters(args, sr, t);
+    }
 
-        return sb.toString();
+    String format(String format, LogParameters logParameters) {
+        return FormatTemplate.get(format).format(logParameters.args);
     }
 
     static class LogParameters {
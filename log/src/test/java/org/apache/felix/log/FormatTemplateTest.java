@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.log;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class FormatTemplateTest {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private static final String MAX_CHAR = "\uFFFF";
+
+    /** The pattern, the arguments and the expected message. */
+    private static final Object[][] CASES = {
+        { "no placeholders", args("a"), "no placeholders" },
+        { "{}", NO_ARGS, "{}" },
+        { "{}", args((Object) null), "null" },
+        { "{}{}", args("a", "b"), "ab" },
+        { "a {} b {} c", args("x", "y"), "a x b y c" },
+        // escaped placeholders
+        { "\\{}", args("a"), "{}" },
+        { "\\{} {}", args("a"), "{} a" },
+        { "\\\\{}", args("a"), "\\a" },
+        { "\\{{}", args("a"), "{a" },
+        // a brace before a placeholder
+        { "{{}", args("a"), "{a" },
+        { "{{{}", args("a"), "{{a" },
+        // a lone brace is dropped
+        { "a { b {}", args("x"), "a  b x" },
+        { "{ }", args("a"), " }" },
+        { "trailing {", args("a"), "trailing " },
+        // more placeholders than arguments
+        { "{} and {} and {}", args("a", "b"), "a and b and {}" },
+        // the rest of the pattern is raw once the arguments are used
+        { "{} \\{} {{} {", args("a"), "a \\{} {{} {" },
+        { "{}}", args("a"), "a}" },
+        // supplementary characters
+        { "\uD83D\uDE00 {} \uD83D\uDE00", args("a"), "\uD83D\uDE00 a \uD83D\uDE00" },
+        { "\\\uD83D\uDE00{}", args("a"), "\uD83D\uDE00a" },
+    };
+
+    @Test
+    public void testFormat() {
+        for (Object[] c : CASES) {
+            String pattern = (String) c[0];
+            Object[] args = (Object[]) c[1];
+            assertEquals(pattern, c[2], FormatTemplate.get(pattern).format(args));
+        }
+    }
+
+    @Test
+    public void testSameAsPerCodePointFormat() {
+        for (Object[] c : CASES) {
+            String pattern = (String) c[0];
+            Object[] args = (Object[]) c[1];
+            assertEquals(pattern, formatPerCodePoint(pattern, args), FormatTemplate.get(pattern).format(args));
+        }
+    }
+
+    private static Object[] args(Object... args) {
+        return args;
+    }
+
+    /**
+     * The formatter used before patterns were compiled into templates.
+     */
+    private static String formatPerCodePoint(String format, Object[] args) {
+        StringBuilder sb = new StringBuilder();
+        int offset = 0;
+        int length = format.length();
+        String previous = MAX_CHAR;
+        boolean escape = false;
+        int argIndex = 0;
+        while (offset < length) {
+            int curChar = format.codePointAt(offset);
+            offset += Character.charCount(curChar);
+            String cur = new String(Character.toChars(curChar));
+
+            if (argIndex == args.length) {
+                sb.append(cur);
+            }
+            else if (escape) {
+                escape = false;
+                sb.append(cur);
+                previous = MAX_CHAR;
+            }
+            else if ("\\".equals(cur)) {
+                escape = true;
+                previous = "\\";
+            }
+            else if ("{".equals(cur)) {
+                if ("{".equals(previous)) {
+                    sb.append(previous);
+                }
+                previous = "{";
+            }
+            else if ("}".equals(cur) && "{".equals(previous)) {
+                sb.append(args[argIndex++]);
+                previous = MAX_CHAR;
+            }
+            else {
+                sb.append(cur);
+                previous = MAX_CHAR;
+            }
+        }
+
+        return sb.toString();
+    }
+
+}
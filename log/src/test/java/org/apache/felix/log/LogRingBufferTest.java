@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogLevel;
+
+public class LogRingBufferTest
+{
+    @Test
+    public void testWraparound()
+    {
+        LogRingBuffer buffer = new LogRingBuffer(3);
+        assertFalse(buffer.getEntries().hasMoreElements());
+
+        for (int i = 0; i < 5; i++)
+        {
+            buffer.add(entry("m" + i));
+        }
+        assertEquals(messages("m4", "m3", "m2"), messages(buffer.getEntries()));
+
+        buffer.add(entry("m5"));
+        assertEquals(messages("m5", "m4", "m3"), messages(buffer.getEntries()));
+    }
+
+    @Test
+    public void testNextElementWhenEmpty()
+    {
+        Enumeration<LogEntry> entries = new LogRingBuffer(2).getEntries();
+        try
+        {
+            entries.nextElement();
+            fail("Expected NoSuchElementException");
+        }
+        catch (NoSuchElementException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLappedWriter()
+    {
+        LogRingBuffer buffer = new LogRingBuffer(2);
+        // a writer claims a position but publishes only after others lapped it
+        long slow = buffer.claim();
+        buffer.add(entry("m1"));
+        buffer.add(entry("m2"));
+        buffer.publish(slow, entry("m0"));
+
+        assertEquals(messages("m2", "m1"), messages(buffer.getEntries()));
+    }
+
+    @Test
+    public void testLappedReader()
+    {
+        LogRingBuffer buffer = new LogRingBuffer(3);
+        for (int i = 0; i < 3; i++)
+        {
+            buffer.add(entry("m" + i));
+        }
+
+        Enumeration<LogEntry> entries = buffer.getEntries();
+        assertEquals("m2", entries.nextElement().getMessage());
+        // the writers overwrite the entries the reader has not read yet
+        for (int i = 3; i < 6; i++)
+        {
+            buffer.add(entry("m" + i));
+        }
+        // the reader returns the entry it already read ahead, then stops
+        // instead of returning newer entries out of order
+        assertEquals(messages("m1"), messages(entries));
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception
+    {
+        final int writers = 4;
+        final int count = 20000;
+        final LogRingBuffer buffer = new LogRingBuffer(64);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<String>();
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < writers; t++)
+        {
+            final int writer = t;
+            threads.add(new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    await(start);
+                    for (int i = 0; i < count; i++)
+                    {
+                        buffer.add(entry(writer + ":" + i));
+                    }
+                }
+            });
+        }
+        Thread reader = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                await(start);
+                while (!done.get() && failure.get() == null)
+                {
+                    String error = check(buffer.getEntries(), 64);
+                    if (error != null)
+                    {
+                        failure.compareAndSet(null, error);
+                    }
+                }
+            }
+        };
+
+        for (Thread thread : threads)
+        {
+            thread.start();
+        }
+        reader.start();
+        start.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        done.set(true);
+        reader.join();
+
+        assertEquals(null, failure.get());
+        // once the writers are done the buffer holds the most recent entries
+        List<String> last = messages(buffer.getEntries());
+        assertEquals(64, last.size());
+        assertEquals(null, check(buffer.getEntries(), 64));
+    }
+
+    @Test
+    public void testClear()
+    {
+        LogRingBuffer buffer = new LogRingBuffer(3);
+        for (int i = 0; i < 5; i++)
+        {
+            buffer.add(entry("m" + i));
+        }
+        buffer.clear();
+        assertFalse(buffer.getEntries().hasMoreElements());
+
+        buffer.add(entry("m5"));
+        assertEquals(messages("m5"), messages(buffer.getEntries()));
+    }
+
+    @Test
+    public void testLogSizes()
+    {
+        // the log keeps as many entries as configured
+        int[] sizes = { 1, 2, 5, -1 };
+        for (int s = 0; s < sizes.length; s++)
+        {
+            Log log = new Log(sizes[s], false, false);
+            List<String> expected = new ArrayList<String>();
+            for (int i = 0; i < 6; i++)
+            {
+                log.log(null, null, null, LogLevel.INFO, "m" + i, null);
+                expected.add(0, "m" + i);
+            }
+            int size = sizes[s] < 0 ? expected.size() : sizes[s];
+            assertEquals(expected.subList(0, size), messages(log.getEntries()));
+
+            // entries are retrieved again after the log has been cleared
+            log.close();
+            assertFalse(log.getEntries().hasMoreElements());
+            log.log(null, null, null, LogLevel.INFO, "m6", null);
+            assertEquals(messages("m6"), messages(log.getEntries()));
+        }
+    }
+
+    /**
+     * Checks that the entries are complete and most recent first for each
+     * writer.
+     * @return the error or <code>null</code>
+     */
+    private static String check(final Enumeration<LogEntry> entries, final int capacity)
+    {
+        Map<String, Integer> last = new HashMap<String, Integer>();
+        int n = 0;
+        while (entries.hasMoreElements())
+        {
+            LogEntry entry = entries.nextElement();
+            if (entry == null || entry.getMessage() == null || entry.getLogLevel() != LogLevel.INFO)
+            {
+                return "Incomplete entry " + entry;
+            }
+            String[] parts = entry.getMessage().split(":");
+            int i = Integer.parseInt(parts[1]);
+            Integer previous = last.put(parts[0], i);
+            if (previous != null && previous <= i)
+            {
+                return "Entry " + entry.getMessage() + " after " + parts[0] + ":" + previous;
+            }
+            if (++n > capacity)
+            {
+                return "More than " + capacity + " entries";
+            }
+        }
+        return null;
+    }
+
+    private static void await(final CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static LogEntry entry(final String message)
+    {
+        return new LogEntryImpl(null, null, null, LogLevel.INFO, message, null, null);
+    }
+
+    private static List<String> messages(final String... messages)
+    {
+        List<String> list = new ArrayList<String>();
+        for (String message : messages)
+        {
+            list.add(message);
+        }
+        return list;
+    }
+
+    private static List<String> messages(final Enumeration<LogEntry> entries)
+    {
+        List<String> list = new ArrayList<String>();
+        while (entries.hasMoreElements())
+        {
+            LogEntry entry = entries.nextElement();
+            assertNotNull(entry);
+            list.add(entry.getMessage());
+        }
+        return list;
+    }
+}
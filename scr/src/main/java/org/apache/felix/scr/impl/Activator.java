@@ -18,6 +18,7 @@
  */
 package org.apache.felix.scr.impl;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,9 +29,12 @@ import java.util.concurrent.locks.ReentrantLock;
 import org.apache.felix.scr.impl.config.ScrConfigurationImpl;
 import org.apache.felix.scr.impl.inject.ClassUtils;
 import org.apache.felix.scr.impl.logger.ScrLogger;
+import org.apache.felix.scr.impl.runtime.ScrMetricsImpl;
 import org.apache.felix.scr.impl.runtime.ServiceComponentRuntimeImpl;
+import org.apache.felix.scr.info.ScrMetrics;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
 import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.framework.wiring.BundleRevision;
@@ -73,8 +77,16 @@ public class Activator extends AbstractExtender
 
     private ServiceRegistration<ServiceComponentRuntime> m_runtime_reg;
 
+    private ServiceRegistration<ScrMetrics> m_metrics_reg;
+
     private ComponentCommands m_componentCommands;
 
+    // cache of the component metadata, null if not caching
+    private volatile ComponentMetadataCache m_metadataCache;
+
+    // enables the components of bundles concurrently, null if not enabled
+    private ParallelActivator m_parallelActivator;
+
     public Activator()
     {
         m_configuration = new ScrConfigurationImpl( this );
@@ -159,19 +171,36 @@ public class Activator extends AbstractExtender
                 m_componentRegistry.getServiceRegistrationProperties() );
         m_componentRegistry.setRegistration(m_runtime_reg);
 
+        final ScrMetricsImpl metrics = new ScrMetricsImpl( m_componentRegistry, m_configuration );
+        m_metrics_reg = m_context.registerService( ScrMetrics.class, metrics, null );
+
         // log SCR startup
         logger.log( LogService.LOG_INFO, " Version = {0}",
             null, m_bundle.getVersion().toString() );
 
+        // prepare the metadata cache in the bundle data area
+        final File cacheDirectory = m_configuration.cacheMetadata() ? m_context.getDataFile( "metadata" ) : null;
+        m_metadataCache = cacheDirectory == null ? null : new ComponentMetadataCache( cacheDirectory, m_bundle, logger );
+        if ( m_metadataCache != null )
+        {
+            // drop the metadata of bundles uninstalled while SCR was not running
+            m_metadataCache.prune( m_globalContext.getBundles() );
+        }
+
         // create and start the component actor
         m_componentActor = new ComponentActorThread( this.logger );
         Thread t = new Thread( m_componentActor, "SCR Component Actor" );
         t.setDaemon( true );
         t.start();
 
+        if ( m_configuration.parallelActivation() > 0 )
+        {
+            m_parallelActivator = new ParallelActivator( m_configuration.parallelActivation() );
+        }
+
         super.doStart();
 
-        m_componentCommands = new ComponentCommands(m_context, runtime, m_configuration);
+        m_componentCommands = new ComponentCommands(m_context, runtime, metrics, m_configuration, m_metadataCache);
         m_componentCommands.register();
         m_componentCommands.updateProvideScrInfoService(m_configuration.infoAsService());
     }
@@ -183,6 +212,18 @@ public class Activator extends AbstractExtender
         m_configuration.stop();
     }
 
+    @Override
+    public void bundleChanged(final BundleEvent event)
+    {
+        super.bundleChanged( event );
+
+        final ComponentMetadataCache metadataCache = m_metadataCache;
+        if ( event.getType() == BundleEvent.UNINSTALLED && metadataCache != null )
+        {
+            metadataCache.remove( event.getBundle() );
+        }
+    }
+
     /**
      * Unregisters this instance as a bundle listener and unloads all components
      * which have been registered during the active life time of the SCR
@@ -198,6 +239,11 @@ public class Activator extends AbstractExtender
         {
             m_componentCommands.unregister();
         }
+        if ( m_metrics_reg != null )
+        {
+            m_metrics_reg.unregister();
+            m_metrics_reg = null;
+        }
         if ( m_runtime_reg != null )
         {
             m_runtime_reg.unregister();
@@ -216,6 +262,13 @@ public class Activator extends AbstractExtender
             m_componentActor = null;
         }
 
+        // stop the parallel activator threads
+        if ( m_parallelActivator != null )
+        {
+            m_parallelActivator.shutdown();
+            m_parallelActivator = null;
+        }
+
         // close the LogService tracker now
         if ( logger != null )
         {
@@ -377,7 +430,7 @@ public class Activator extends AbstractExtender
         try
         {
             BundleComponentActivator ga = new BundleComponentActivator( this.logger, m_componentRegistry, m_componentActor,
-                context, m_configuration );
+                context, m_configuration, m_metadataCache, m_parallelActivator );
             ga.initialEnable();
 
             // replace bundle activator in the map
@@ -96,6 +96,12 @@ public class BundleComponentActivator implements ComponentActivator
 
     private final BundleLogger logger;
 
+    // the cache of the validated metadata, null if not caching
+    private final ComponentMetadataCache m_metadataCache;
+
+    // enables the components concurrently, null to enable them one after the other
+    private final ParallelActivator m_parallelActivator;
+
     private static class ListenerInfo implements ServiceListener
     {
         private Map<Filter, List<ExtendedServiceListener<ExtendedServiceEvent>>> filterMap = new HashMap<>();
@@ -238,6 +244,10 @@ public class BundleComponentActivator implements ComponentActivator
      *      register components with to ensure uniqueness of component names
      *      and to ensure configuration updates.
      * @param   context  The bundle context owning the components
+     * @param metadataCache The cache of the component metadata or
+     *      <code>null</code> to always parse the descriptors
+     * @param parallelActivator The activator to enable the components
+     *      concurrently or <code>null</code> to enable them one after the other
      *
      * @throws ComponentException if any error occurrs initializing this class
      */
@@ -245,7 +255,9 @@ public class BundleComponentActivator implements ComponentActivator
             final ComponentRegistry componentRegistry,
             final ComponentActorThread componentActor,
             final BundleContext context,
-            final ScrConfiguration configuration)
+            final ScrConfiguration configuration,
+            final ComponentMetadataCache metadataCache,
+            final ParallelActivator parallelActivator)
     throws ComponentException
     {
         // create a logger on behalf of the bundle
@@ -257,6 +269,8 @@ public class BundleComponentActivator implements ComponentActivator
         m_bundle = context.getBundle();
 
         m_configuration = configuration;
+        m_metadataCache = metadataCache;
+        m_parallelActivator = parallelActivator;
 
         logger.log( LogService.LOG_DEBUG, "BundleComponentActivator : Bundle active", null);
 
@@ -296,6 +310,14 @@ public class BundleComponentActivator implements ComponentActivator
         // 112.4.1: The value of the the header is a comma separated list of XML entries within the Bundle
         StringTokenizer st = new StringTokenizer( descriptorLocations, ", " );
 
+        // metadata from the cache and metadata to be cached by descriptor key
+        final Map<String, List<ComponentMetadata>> cached = m_metadataCache == null
+                ? Collections.<String, List<ComponentMetadata>>emptyMap()
+                : m_metadataCache.load( m_bundle, m_configuration );
+        final Map<String, List<ComponentMetadata>> toCache = new HashMap<>();
+        final Map<String, Integer> occurrences = new HashMap<>();
+        boolean parsed = false;
+
         while ( st.hasMoreTokens() )
         {
             String descriptorLocation = st.nextToken();
@@ -312,7 +334,34 @@ public class BundleComponentActivator implements ComponentActivator
             // load from the descriptors
             for ( URL descriptorURL : descriptorURLs )
             {
-                loadDescriptor( descriptorURL );
+                final String key = getDescriptorKey( descriptorURL, occurrences );
+                final List<ComponentMetadata> metadataList = cached.get( key );
+                if ( metadataList != null )
+                {
+                    m_metadataCache.descriptorCached();
+                    logger.log( LogService.LOG_DEBUG, "BundleComponentActivator : Using cached metadata of descriptor ''{0}''",
+                        null, key );
+                    toCache.put( key, metadataList );
+                    registerComponents( metadataList );
+                }
+                else
+                {
+                    parsed = true;
+                    loadDescriptor( descriptorURL, key, toCache );
+                }
+            }
+        }
+
+        // update the cache if anything has changed
+        if ( m_metadataCache != null && ( parsed || toCache.size() != cached.size() ) )
+        {
+            if ( toCache.isEmpty() )
+            {
+                m_metadataCache.remove( m_bundle );
+            }
+            else
+            {
+                m_metadataCache.store( m_bundle, m_configuration, toCache );
             }
         }
     }
@@ -324,6 +373,7 @@ public class BundleComponentActivator implements ComponentActivator
     void initialEnable()
     {
         //enable all the enabled components
+        final List<ComponentHolder<?>> enabled = new ArrayList<>();
         for ( ComponentHolder<?> componentHolder : m_holders )
         {
             logger.log( LogService.LOG_DEBUG, "BundleComponentActivator : May enable component holder {0}", null,
@@ -331,31 +381,7 @@ public class BundleComponentActivator implements ComponentActivator
 
             if ( componentHolder.getComponentMetadata().isEnabled() )
             {
-                logger.log( LogService.LOG_DEBUG, "BundleComponentActivator :Enabling component holder {0}", null,
-                    componentHolder.getComponentMetadata().getName() );
-
-                try
-                {
-                    componentHolder.enableComponents( false );
-                }
-                catch ( Throwable t )
-                {
-                    // caught on unhandled RuntimeException or Error
-                    // (e.g. ClassDefNotFoundError)
-
-                    // make sure the component is properly disabled, just in case
-                    try
-                    {
-                        componentHolder.disableComponents( false );
-                    }
-                    catch ( Throwable ignore )
-                    {
-                    }
-
-                    logger.log( LogService.LOG_ERROR,
-                        "BundleComponentActivator : Unexpected failure enabling component holder {0}", t,
-                        componentHolder.getComponentMetadata().getName() );
-                }
+                enabled.add( componentHolder );
             }
             else
             {
@@ -364,6 +390,50 @@ public class BundleComponentActivator implements ComponentActivator
                     componentHolder.getComponentMetadata().getName() );
             }
         }
+
+        if ( m_parallelActivator != null && enabled.size() > 1 )
+        {
+            m_parallelActivator.enable( this, enabled );
+        }
+        else
+        {
+            for ( ComponentHolder<?> componentHolder : enabled )
+            {
+                enableComponentHolder( componentHolder );
+            }
+        }
+    }
+
+    /**
+     * Enables the components of the holder during the initial enable.
+     */
+    void enableComponentHolder( final ComponentHolder<?> componentHolder )
+    {
+        logger.log( LogService.LOG_DEBUG, "BundleComponentActivator :Enabling component holder {0}", null,
+            componentHolder.getComponentMetadata().getName() );
+
+        try
+        {
+            componentHolder.enableComponents( false );
+        }
+        catch ( Throwable t )
+        {
+            // caught on unhandled RuntimeException or Error
+            // (e.g. ClassDefNotFoundError)
+
+            // make sure the component is properly disabled, just in case
+            try
+            {
+                componentHolder.disableComponents( false );
+            }
+            catch ( Throwable ignore )
+            {
+            }
+
+            logger.log( LogService.LOG_ERROR,
+                "BundleComponentActivator : Unexpected failure enabling component holder {0}", t,
+                componentHolder.getComponentMetadata().getName() );
+        }
     }
 
     /**
@@ -411,8 +481,36 @@ public class BundleComponentActivator implements ComponentActivator
         return urls.toArray( new URL[urls.size()] );
     }
 
-    private void loadDescriptor(final URL descriptorURL)
+    /**
+     * Returns the key of a descriptor in the metadata cache. Descriptors of
+     * the bundle and of its fragments may have the same path, so the path is
+     * followed by the number of descriptors with this path found before. The
+     * entry URL is not used as it identifies the framework instance, which
+     * changes when the framework is restarted.
+     *
+     * @param occurrences The number of descriptors found so far by path
+     */
+    static String getDescriptorKey(final URL descriptorURL, final Map<String, Integer> occurrences)
     {
+        final String path = descriptorURL.getPath();
+        final Integer count = occurrences.get( path );
+        occurrences.put( path, count == null ? 1 : count + 1 );
+        return count == null ? path : path + "#" + count;
+    }
+
+    /**
+     * Parses the descriptor, validates the component metadata and registers
+     * the valid components. Invalid components are logged and skipped.
+     *
+     * @param key The key of the descriptor in the metadata cache
+     * @param toCache The metadata to be cached by descriptor key, the
+     *      metadata of the descriptor is only added if all its components
+     *      are valid
+     */
+    private void loadDescriptor(final URL descriptorURL, final String key,
+            final Map<String, List<ComponentMetadata>> toCache)
+    {
+        final long start = System.nanoTime();
         // simple path for log messages
         final String descriptorLocation = descriptorURL.getPath();
 
@@ -430,42 +528,36 @@ public class BundleComponentActivator implements ComponentActivator
 
             // 112.4.2 Component descriptors may contain a single, root component element
             // or one or more component elements embedded in a larger document
+            final List<ComponentMetadata> validated = new ArrayList<>();
+            boolean valid = true;
             for ( ComponentMetadata metadata : handler.getComponentMetadataList() )
             {
-                final ComponentLogger componentLogger = new ComponentLogger(metadata, logger);
-                ComponentRegistryKey key = null;
                 try
                 {
                     // validate the component metadata
                     metadata.validate( );
-
-                    // check and reserve the component name (validate ensures it's never null)
-                    key = m_componentRegistry.checkComponentName( m_bundle, metadata.getName() );
-
-                    // Request creation of the component manager
-                    ComponentHolder<?> holder = m_componentRegistry.createComponentHolder( this, metadata, componentLogger );
-
-                    // register the component after validation
-                    m_componentRegistry.registerComponentHolder( key, holder );
-                    m_holders.add( holder );
-
-                    componentLogger.log( LogService.LOG_DEBUG,
-                        "BundleComponentActivator : ComponentHolder created.", null );
-
+                    validated.add( metadata );
                 }
                 catch ( Throwable t )
                 {
                     // There is a problem with this particular component, we'll log the error
                     // and proceed to the next one
-                    componentLogger.log( LogService.LOG_ERROR, "Cannot register component", t );
-
-                    // make sure the name is not reserved any more
-                    if ( key != null )
-                    {
-                        m_componentRegistry.unregisterComponentHolder( key );
-                    }
+                    new ComponentLogger( metadata, logger ).log( LogService.LOG_ERROR, "Cannot register component", t );
+                    valid = false;
                 }
             }
+
+            if ( m_metadataCache != null )
+            {
+                m_metadataCache.descriptorParsed( System.nanoTime() - start );
+            }
+
+            // don't cache descriptors with invalid components to report them again
+            if ( valid )
+            {
+                toCache.put( key, validated );
+            }
+            registerComponents( validated );
         }
         catch ( IOException ex )
         {
@@ -493,6 +585,46 @@ public class BundleComponentActivator implements ComponentActivator
         }
     }
 
+    /**
+     * Creates and registers the component holders for the validated metadata.
+     */
+    private void registerComponents(final List<ComponentMetadata> metadataList)
+    {
+        for ( ComponentMetadata metadata : metadataList )
+        {
+            final ComponentLogger componentLogger = new ComponentLogger(metadata, logger);
+            ComponentRegistryKey key = null;
+            try
+            {
+                // check and reserve the component name (validate ensures it's never null)
+                key = m_componentRegistry.checkComponentName( m_bundle, metadata.getName() );
+
+                // Request creation of the component manager
+                ComponentHolder<?> holder = m_componentRegistry.createComponentHolder( this, metadata, componentLogger );
+
+                // register the component after validation
+                m_componentRegistry.registerComponentHolder( key, holder );
+                m_holders.add( holder );
+
+                componentLogger.log( LogService.LOG_DEBUG,
+                    "BundleComponentActivator : ComponentHolder created.", null );
+
+            }
+            catch ( Throwable t )
+            {
+                // There is a problem with this particular component, we'll log the error
+                // and proceed to the next one
+                componentLogger.log( LogService.LOG_ERROR, "Cannot register component", t );
+
+                // make sure the name is not reserved any more
+                if ( key != null )
+                {
+                    m_componentRegistry.unregisterComponentHolder( key );
+                }
+            }
+        }
+    }
+
     /**
     * Dispose of this component activator instance and all the component
     * managers.
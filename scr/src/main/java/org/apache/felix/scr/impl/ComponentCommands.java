@@ -34,9 +34,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.felix.scr.impl.manager.ScrConfiguration;
+import org.apache.felix.scr.info.ComponentMetricsDTO;
+import org.apache.felix.scr.info.LatencyDTO;
 import org.apache.felix.scr.info.ScrInfo;
+import org.apache.felix.scr.info.ScrMetrics;
 import org.apache.felix.service.command.Converter;
 import org.apache.felix.service.command.Descriptor;
 import org.osgi.framework.Bundle;
@@ -63,7 +67,9 @@ public class ComponentCommands {
 
     private final BundleContext context;
     private final ServiceComponentRuntime scr;
+    private final ScrMetrics scrMetrics;
     private final ScrConfiguration scrConfig;
+    private final ComponentMetadataCache metadataCache;
 
     private final Comparator<ComponentConfigurationDTO> configDtoComparator = new Comparator<ComponentConfigurationDTO>() {
         @Override
@@ -135,9 +141,16 @@ public class ComponentCommands {
     }
 
     protected ComponentCommands(BundleContext context, ServiceComponentRuntime scr, ScrConfiguration scrConfig) {
+        this(context, scr, null, scrConfig, null);
+    }
+
+    protected ComponentCommands(BundleContext context, ServiceComponentRuntime scr, ScrMetrics scrMetrics,
+            ScrConfiguration scrConfig, ComponentMetadataCache metadataCache) {
         this.context = context;
         this.scr = scr;
+        this.scrMetrics = scrMetrics;
         this.scrConfig = scrConfig;
+        this.metadataCache = metadataCache;
     }
 
     @Descriptor("List all components")
@@ -226,9 +239,22 @@ public class ComponentCommands {
         out.put("Stop timeout ms", Long.toString(scrConfig.stopTimeout()));
         out.put("Global extender", Boolean.toString(scrConfig.globalExtender()));
         out.put("Info Service registered", scrConfig.infoAsService() ? "Supported" : "Unsupported");
+        out.put("Cache component metadata", Boolean.toString(metadataCache != null));
+        out.put("Parallel activation threads", Integer.toString(scrConfig.parallelActivation()));
+        out.put("Component metrics", Boolean.toString(scrConfig.metrics()));
 
         StringBuilder builder = new StringBuilder();
         printColumnsAligned("SCR Configuration", out, '=', builder);
+
+        if (metadataCache != null) {
+            Map<String,String> cache = new LinkedHashMap<>();
+            cache.put("Parsed descriptors", Long.toString(metadataCache.getParsedDescriptors()));
+            cache.put("Parse time ms", Long.toString(TimeUnit.NANOSECONDS.toMillis(metadataCache.getParseTime())));
+            cache.put("Cached descriptors", Long.toString(metadataCache.getCachedDescriptors()));
+            cache.put("Cache read time ms", Long.toString(TimeUnit.NANOSECONDS.toMillis(metadataCache.getCacheTime())));
+            builder.append("\n\n");
+            printColumnsAligned("Component Metadata Cache", cache, '=', builder);
+        }
         return builder.toString();
     }
 
@@ -312,6 +338,11 @@ public class ComponentCommands {
                 if (pids != null && pids.length > 0) {
                     builder.append(", ").append("PID(s): ").append(Arrays.toString(pids));
                 }
+                ComponentMetricsDTO metrics = getMetrics(dto.id);
+                if (metrics != null && metrics.activation.count > 0) {
+                    builder.append(", ").append("Activation: ").append(formatMillis(metrics.activation.total / metrics.activation.count))
+                        .append(" avg, ").append(formatMillis(metrics.activation.max)).append(" max");
+                }
                 break;
             case Converter.PART:
                 break;
@@ -376,10 +407,44 @@ public class ComponentCommands {
             if (configDto.failure != null) {
                 out.put("Failure", configDto.failure);
             }
+
+            // Print Metrics
+            ComponentMetricsDTO metrics = getMetrics(configDto.id);
+            if (metrics != null) {
+                out.put("Metrics", printMetrics(metrics));
+            }
             printColumnsAligned(title, out, '-', builder);
         }
     }
 
+    private ComponentMetricsDTO getMetrics(long id) {
+        return scrMetrics == null ? null : scrMetrics.getComponentMetrics(id);
+    }
+
+    String printMetrics(ComponentMetricsDTO metrics) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("state changes=").append(metrics.stateChanges);
+        printLatency("activate", metrics.activation, sb);
+        printLatency("deactivate", metrics.deactivation, sb);
+        printLatency("modified", metrics.modification, sb);
+        printLatency("bind", metrics.bind, sb);
+        printLatency("updated", metrics.updated, sb);
+        printLatency("unbind", metrics.unbind, sb);
+        return sb.toString();
+    }
+
+    private void printLatency(String operation, LatencyDTO latency, StringBuilder sb) {
+        if (latency.count > 0) {
+            sb.append(String.format("%n" + INDENT_1 + "%s: count=%d avg=%s p50=%s p99=%s max=%s", operation, latency.count,
+                formatMillis(latency.total / latency.count), formatMillis(latency.p50), formatMillis(latency.p99),
+                formatMillis(latency.max)));
+        }
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.3fms", nanos / 1000000.0);
+    }
+
     String printPublishedServices(ServiceReference<?>[] serviceRefs) {
         StringBuilder sb = new StringBuilder();
 
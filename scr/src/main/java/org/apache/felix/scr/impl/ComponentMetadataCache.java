@@ -0,0 +1,354 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.felix.scr.impl.logger.ScrLogger;
+import org.apache.felix.scr.impl.manager.ScrConfiguration;
+import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.namespace.HostNamespace;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
+import org.osgi.service.log.LogService;
+
+/**
+ * The <code>ComponentMetadataCache</code> keeps the validated component
+ * metadata of the component descriptors of each bundle in a file in the
+ * data area of the SCR bundle. As long as neither the bundle, its attached
+ * fragments nor the SCR bundle have been modified, the descriptors of the
+ * bundle need not be parsed and validated again when the bundle is started. The file of a bundle
+ * is removed when the bundle is uninstalled, files of bundles uninstalled
+ * while SCR was not running are removed when SCR is started.
+ * <p>
+ * The cache also collects the time spent to get the metadata of bundles,
+ * either by parsing the descriptors or by reading the cache.
+ */
+public class ComponentMetadataCache
+{
+
+    // version of the cache file format
+    private static final int FORMAT_VERSION = 2;
+
+    // extension of the cache files
+    private static final String FILE_EXT = ".ser";
+
+    // extension of the cache files while they are being written
+    private static final String TMP_EXT = ".tmp";
+
+    // the package of the cached metadata classes
+    private static final String METADATA_PACKAGE = ComponentMetadata.class.getPackage().getName() + ".";
+
+    private final File m_directory;
+
+    // identifies the SCR bundle which wrote a cache file
+    private final String m_scrVersion;
+
+    private final ScrLogger m_logger;
+
+    private final AtomicLong m_parsedDescriptors = new AtomicLong();
+
+    private final AtomicLong m_parseTime = new AtomicLong();
+
+    private final AtomicLong m_cachedDescriptors = new AtomicLong();
+
+    private final AtomicLong m_cacheTime = new AtomicLong();
+
+    /**
+     * Creates a cache keeping its files in the given directory.
+     *
+     * @param directory The directory of the cache files, created if needed
+     * @param scrBundle The SCR bundle, cache files written by another
+     *      version of it are ignored
+     * @param logger The logger
+     */
+    public ComponentMetadataCache(final File directory, final Bundle scrBundle, final ScrLogger logger)
+    {
+        m_directory = directory;
+        m_scrVersion = scrBundle.getVersion() + "/" + scrBundle.getLastModified();
+        m_logger = logger;
+    }
+
+    /**
+     * Returns the cached metadata of the bundle by descriptor key. The
+     * cached metadata is only returned if neither the bundle nor its attached
+     * fragments have been modified and the configuration affecting the
+     * metadata has not changed since the metadata has been stored.
+     *
+     * @return The cached metadata, an empty map if nothing is cached.
+     */
+    public Map<String, List<ComponentMetadata>> load(final Bundle bundle, final ScrConfiguration configuration)
+    {
+        final File file = getFile( bundle );
+        if ( !file.isFile() )
+        {
+            return Collections.emptyMap();
+        }
+
+        final long start = System.nanoTime();
+        ObjectInputStream in = null;
+        try
+        {
+            in = new MetadataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+            if ( in.readInt() == FORMAT_VERSION
+                && m_scrVersion.equals( in.readUTF() )
+                && in.readLong() == bundle.getLastModified()
+                && getFragments( bundle ).equals( in.readUTF() )
+                && in.readBoolean() == configuration.isFactoryEnabled()
+                && in.readBoolean() == configuration.keepInstances() )
+            {
+                @SuppressWarnings("unchecked")
+                final Map<String, List<ComponentMetadata>> descriptors = (Map<String, List<ComponentMetadata>>) in.readObject();
+                m_cacheTime.addAndGet( System.nanoTime() - start );
+                return descriptors;
+            }
+        }
+        catch ( final Exception e )
+        {
+            m_logger.log( LogService.LOG_DEBUG, "Ignoring unreadable component metadata cache {0}", e, file );
+        }
+        finally
+        {
+            close( in );
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Stores the validated metadata of the bundle by descriptor key,
+     * replacing any metadata stored before.
+     */
+    public void store(final Bundle bundle, final ScrConfiguration configuration,
+            final Map<String, List<ComponentMetadata>> descriptors)
+    {
+        final File file = getFile( bundle );
+        final File tmpFile = new File( m_directory, file.getName() + TMP_EXT );
+        ObjectOutputStream out = null;
+        try
+        {
+            m_directory.mkdirs();
+            out = new ObjectOutputStream( new BufferedOutputStream( new FileOutputStream( tmpFile ) ) );
+            out.writeInt( FORMAT_VERSION );
+            out.writeUTF( m_scrVersion );
+            out.writeLong( bundle.getLastModified() );
+            out.writeUTF( getFragments( bundle ) );
+            out.writeBoolean( configuration.isFactoryEnabled() );
+            out.writeBoolean( configuration.keepInstances() );
+            out.writeObject( new HashMap<>( descriptors ) );
+            out.close();
+            out = null;
+
+            if ( ( file.exists() && !file.delete() ) || !tmpFile.renameTo( file ) )
+            {
+                throw new IOException( "Cannot replace " + file );
+            }
+        }
+        catch ( final IOException e )
+        {
+            m_logger.log( LogService.LOG_WARNING, "Cannot write component metadata cache {0}", e, file );
+        }
+        finally
+        {
+            close( out );
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Removes the cached metadata of the bundle.
+     */
+    public void remove(final Bundle bundle)
+    {
+        getFile( bundle ).delete();
+    }
+
+    /**
+     * Removes the cached metadata of all bundles which are not among the
+     * given installed bundles, as well as any left over temporary files.
+     */
+    public void prune(final Bundle[] installed)
+    {
+        final File[] files = m_directory.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        final Set<String> names = new HashSet<>();
+        for ( final Bundle bundle : installed )
+        {
+            names.add( getFile( bundle ).getName() );
+        }
+        for ( final File file : files )
+        {
+            if ( !names.contains( file.getName() ) && ( file.getName().endsWith( FILE_EXT )
+                || file.getName().endsWith( TMP_EXT ) ) )
+            {
+                m_logger.log( LogService.LOG_DEBUG, "Removing component metadata cache {0}", null, file );
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Records the time spent to parse and validate a descriptor.
+     */
+    public void descriptorParsed(final long nanos)
+    {
+        m_parsedDescriptors.incrementAndGet();
+        m_parseTime.addAndGet( nanos );
+    }
+
+    /**
+     * Records that the metadata of a descriptor has been taken from the cache.
+     */
+    public void descriptorCached()
+    {
+        m_cachedDescriptors.incrementAndGet();
+    }
+
+    /**
+     * The number of descriptors which have been parsed.
+     */
+    public long getParsedDescriptors()
+    {
+        return m_parsedDescriptors.get();
+    }
+
+    /**
+     * The time in nanoseconds spent to parse and validate descriptors.
+     */
+    public long getParseTime()
+    {
+        return m_parseTime.get();
+    }
+
+    /**
+     * The number of descriptors whose metadata has been taken from the cache.
+     */
+    public long getCachedDescriptors()
+    {
+        return m_cachedDescriptors.get();
+    }
+
+    /**
+     * The time in nanoseconds spent to read the metadata from the cache.
+     */
+    public long getCacheTime()
+    {
+        return m_cacheTime.get();
+    }
+
+    /**
+     * Returns the ids and modification times of the fragments attached to
+     * the bundle, in the order in which their entries are found.
+     */
+    static String getFragments(final Bundle bundle)
+    {
+        final StringBuilder buf = new StringBuilder();
+        final BundleWiring wiring = bundle.adapt( BundleWiring.class );
+        final List<BundleWire> wires = wiring == null ? null : wiring.getProvidedWires( HostNamespace.HOST_NAMESPACE );
+        if ( wires != null )
+        {
+            for ( final BundleWire wire : wires )
+            {
+                final Bundle fragment = wire.getRequirer().getBundle();
+                buf.append( fragment.getBundleId() ).append( '/' ).append( fragment.getLastModified() ).append( ',' );
+            }
+        }
+        return buf.toString();
+    }
+
+    private File getFile(final Bundle bundle)
+    {
+        return new File( m_directory, bundle.getBundleId() + FILE_EXT );
+    }
+
+    private static void close(final Closeable closeable)
+    {
+        if ( closeable != null )
+        {
+            try
+            {
+                closeable.close();
+            }
+            catch ( final IOException ignore )
+            {
+            }
+        }
+    }
+
+    /**
+     * Object input stream resolving the metadata classes through the SCR
+     * class loader and refusing any classes which can't be part of the
+     * metadata.
+     */
+    private static class MetadataInputStream extends ObjectInputStream
+    {
+        MetadataInputStream(final InputStream in) throws IOException
+        {
+            super( in );
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException
+        {
+            String name = desc.getName();
+            while ( name.startsWith( "[" ) )
+            {
+                name = name.substring( 1 );
+            }
+            if ( name.startsWith( "L" ) && name.endsWith( ";" ) )
+            {
+                name = name.substring( 1, name.length() - 1 );
+            }
+            if ( name.length() > 1 && !name.startsWith( "java.lang." ) && !name.startsWith( "java.util." )
+                && !name.startsWith( METADATA_PACKAGE ) )
+            {
+                throw new InvalidClassException( desc.getName(), "Unexpected class in component metadata cache" );
+            }
+            try
+            {
+                return Class.forName( desc.getName(), false, ComponentMetadataCache.class.getClassLoader() );
+            }
+            catch ( final ClassNotFoundException cnfe )
+            {
+                return super.resolveClass( desc );
+            }
+        }
+    }
+}
@@ -0,0 +1,490 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.felix.scr.impl.logger.BundleLogger;
+import org.apache.felix.scr.impl.manager.ComponentHolder;
+import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.apache.felix.scr.impl.metadata.ReferenceMetadata;
+import org.apache.felix.scr.impl.metadata.ServiceMetadata;
+import org.osgi.service.log.LogService;
+
+/**
+ * The <code>ParallelActivator</code> enables the components of a starting
+ * bundle concurrently on a bounded thread pool.
+ * <p>
+ * The components are ordered by their mandatory references: a component
+ * is only enabled once all components of the bundle providing a service
+ * it mandatorily references have been enabled. Independent components
+ * are enabled at the same time. Components taking part in a reference
+ * cycle are enabled without ordering among each other, the cycle is
+ * resolved by the component managers as usual.
+ * <p>
+ * The thread starting the bundle waits for the components to be enabled,
+ * but stops waiting if no component has been enabled within the lock
+ * timeout. The threads of the pool still enable the remaining components,
+ * as the thread would have when enabling them sequentially. Only once the
+ * bundle component activator has been disposed, the components not enabled
+ * yet are skipped. Once all components are enabled, the critical path, that is the
+ * chain of dependent components which took the longest time to enable, is
+ * logged.
+ */
+class ParallelActivator
+{
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final int m_threads;
+
+    private final ThreadPoolExecutor m_executor;
+
+    ParallelActivator( final int threads )
+    {
+        m_threads = threads;
+        m_executor = new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+            {
+                @Override
+                public Thread newThread( final Runnable r )
+                {
+                    final Thread t = new ActivatorThread( ParallelActivator.this, r );
+                    t.setDaemon( true );
+                    return t;
+                }
+            } );
+        m_executor.allowCoreThreadTimeOut( true );
+    }
+
+    /**
+     * Stops the threads once they have enabled the components currently
+     * being enabled.
+     */
+    void shutdown()
+    {
+        m_executor.shutdown();
+    }
+
+    /**
+     * Enables the component holders of the bundle of the activator. The
+     * holders are enabled in the calling thread if this is one of the threads
+     * of this activator, for example because a component starts a bundle
+     * when it is activated.
+     *
+     * @return <code>true</code> if all holders have been enabled,
+     *      <code>false</code> if waiting has been stopped because no holder
+     *      has been enabled within the lock timeout or because the activator
+     *      has been disposed.
+     */
+    boolean enable( final BundleComponentActivator activator, final List<ComponentHolder<?>> holders )
+    {
+        final BundleLogger logger = activator.getLogger();
+        final Thread current = Thread.currentThread();
+        if ( current instanceof ActivatorThread && ( ( ActivatorThread ) current ).m_owner == this )
+        {
+            for ( ComponentHolder<?> holder : holders )
+            {
+                activator.enableComponentHolder( holder );
+            }
+            return true;
+        }
+
+        final Run run = new Run( activator, buildGraph( holders ) );
+        final long start = System.nanoTime();
+        if ( !run.await( activator.getConfiguration().lockTimeout() ) )
+        {
+            return false;
+        }
+
+        if ( logger.isLogEnabled( LogService.LOG_INFO ) )
+        {
+            final long elapsed = System.nanoTime() - start;
+            final List<Node> path = run.getCriticalPath();
+            final StringBuilder buf = new StringBuilder();
+            long total = 0;
+            long critical = 0;
+            for ( Node node : run.m_nodes )
+            {
+                total += node.m_duration;
+            }
+            for ( Node node : path )
+            {
+                if ( buf.length() > 0 )
+                {
+                    buf.append( " -> " );
+                }
+                buf.append( node.getName() );
+                critical += node.m_duration;
+            }
+            logger.log( LogService.LOG_INFO,
+                "Enabled {0} components on {1} threads in {2} ms ({3} ms in total), critical path of {4} ms: {5}",
+                null, holders.size(), m_threads, TimeUnit.NANOSECONDS.toMillis( elapsed ),
+                TimeUnit.NANOSECONDS.toMillis( total ), TimeUnit.NANOSECONDS.toMillis( critical ), buf );
+        }
+        return true;
+    }
+
+    /**
+     * Builds the graph of the holders in which each holder depends on the
+     * holders providing a service it mandatorily references. Dependencies
+     * between holders taking part in or depending on a cycle are removed.
+     */
+    static List<Node> buildGraph( final List<ComponentHolder<?>> holders )
+    {
+        final List<Node> nodes = new ArrayList<>( holders.size() );
+        final Map<String, List<Node>> providers = new HashMap<>();
+        for ( ComponentHolder<?> holder : holders )
+        {
+            final Node node = new Node( holder );
+            nodes.add( node );
+
+            final ComponentMetadata metadata = holder.getComponentMetadata();
+            final ServiceMetadata serviceMetadata = metadata.getServiceMetadata();
+            if ( !metadata.isFactory() && serviceMetadata != null )
+            {
+                for ( String service : serviceMetadata.getProvides() )
+                {
+                    List<Node> list = providers.get( service );
+                    if ( list == null )
+                    {
+                        list = new ArrayList<>();
+                        providers.put( service, list );
+                    }
+                    list.add( node );
+                }
+            }
+        }
+
+        for ( Node node : nodes )
+        {
+            for ( ReferenceMetadata reference : node.m_holder.getComponentMetadata().getDependencies() )
+            {
+                final List<Node> list = reference.isOptional() ? null : providers.get( reference.getInterface() );
+                if ( list != null )
+                {
+                    for ( Node provider : list )
+                    {
+                        if ( provider != node )
+                        {
+                            node.m_dependencies.add( provider );
+                        }
+                    }
+                }
+            }
+        }
+
+        // sort topologically to find the holders in or behind a cycle
+        final Map<Node, Integer> pending = new HashMap<>();
+        final List<Node> sorted = new ArrayList<>( nodes.size() );
+        for ( Node node : nodes )
+        {
+            pending.put( node, node.m_dependencies.size() );
+            for ( Node dependency : node.m_dependencies )
+            {
+                dependency.m_dependents.add( node );
+            }
+            if ( node.m_dependencies.isEmpty() )
+            {
+                sorted.add( node );
+            }
+        }
+        for ( int i = 0; i < sorted.size(); i++ )
+        {
+            for ( Node dependent : sorted.get( i ).m_dependents )
+            {
+                final int count = pending.get( dependent ) - 1;
+                pending.put( dependent, count );
+                if ( count == 0 )
+                {
+                    sorted.add( dependent );
+                }
+            }
+        }
+        if ( sorted.size() < nodes.size() )
+        {
+            final Set<Node> unsorted = new LinkedHashSet<>( nodes );
+            unsorted.removeAll( sorted );
+            for ( Node node : unsorted )
+            {
+                node.m_dependencies.removeAll( unsorted );
+                node.m_dependents.removeAll( unsorted );
+            }
+        }
+        return nodes;
+    }
+
+    static final class Node
+    {
+        private final ComponentHolder<?> m_holder;
+
+        // the holders this holder depends on, a set to ignore duplicates
+        private final Set<Node> m_dependencies = new LinkedHashSet<>();
+
+        private final Set<Node> m_dependents = new LinkedHashSet<>();
+
+        // the number of dependencies not enabled yet, guarded by the run
+        private int m_pending;
+
+        // the time in nanoseconds to enable the holder
+        private long m_duration;
+
+        Node( final ComponentHolder<?> holder )
+        {
+            m_holder = holder;
+        }
+
+        String getName()
+        {
+            return m_holder.getComponentMetadata().getName();
+        }
+
+        Set<Node> getDependencies()
+        {
+            return m_dependencies;
+        }
+    }
+
+    /**
+     * The enabling of the holders of one bundle.
+     */
+    private final class Run
+    {
+        private final BundleComponentActivator m_activator;
+
+        private final List<Node> m_nodes;
+
+        // the nodes in the order in which they have been enabled
+        private final List<Node> m_enabled;
+
+        // set once the activator has been disposed, the pending holders are skipped
+        private volatile boolean m_cancelled;
+
+        Run( final BundleComponentActivator activator, final List<Node> nodes )
+        {
+            m_activator = activator;
+            m_nodes = nodes;
+            m_enabled = new ArrayList<>( nodes.size() );
+
+            final List<Node> ready = new ArrayList<>();
+            synchronized ( this )
+            {
+                for ( Node node : nodes )
+                {
+                    node.m_pending = node.m_dependencies.size();
+                    if ( node.m_pending == 0 )
+                    {
+                        ready.add( node );
+                    }
+                }
+            }
+            submit( ready );
+        }
+
+        private void submit( final List<Node> ready )
+        {
+            for ( final Node node : ready )
+            {
+                final Runnable task = new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if ( isCancelled() )
+                        {
+                            return;
+                        }
+                        final long start = System.nanoTime();
+                        try
+                        {
+                            m_activator.enableComponentHolder( node.m_holder );
+                        }
+                        finally
+                        {
+                            enabled( node, System.nanoTime() - start );
+                        }
+                    }
+
+                    @Override
+                    public String toString()
+                    {
+                        return "Parallel Enable: " + node.getName();
+                    }
+                };
+                try
+                {
+                    m_executor.execute( task );
+                }
+                catch ( final RejectedExecutionException ree )
+                {
+                    // SCR is stopping, enable in the calling thread
+                    task.run();
+                }
+            }
+        }
+
+        private void enabled( final Node node, final long duration )
+        {
+            final List<Node> ready = new ArrayList<>();
+            synchronized ( this )
+            {
+                node.m_duration = duration;
+                m_enabled.add( node );
+                for ( Node dependent : node.m_dependents )
+                {
+                    if ( --dependent.m_pending == 0 )
+                    {
+                        ready.add( dependent );
+                    }
+                }
+                notifyAll();
+            }
+            if ( !isCancelled() )
+            {
+                submit( ready );
+            }
+        }
+
+        /**
+         * Returns <code>true</code> if the pending holders must not be
+         * enabled anymore. The thread waiting is woken up if this is
+         * because the activator has been disposed.
+         */
+        private boolean isCancelled()
+        {
+            if ( !m_cancelled && !m_activator.isActive() )
+            {
+                synchronized ( this )
+                {
+                    m_cancelled = true;
+                    notifyAll();
+                }
+            }
+            return m_cancelled;
+        }
+
+        /**
+         * Waits for all holders to be enabled as long as at least one holder
+         * is enabled within the timeout.
+         */
+        synchronized boolean await( final long timeout )
+        {
+            int enabled = m_enabled.size();
+            long deadline = System.currentTimeMillis() + timeout;
+            while ( m_enabled.size() < m_nodes.size() )
+            {
+                if ( m_cancelled )
+                {
+                    return false;
+                }
+                if ( m_enabled.size() > enabled )
+                {
+                    enabled = m_enabled.size();
+                    deadline = System.currentTimeMillis() + timeout;
+                }
+                final long wait = deadline - System.currentTimeMillis();
+                if ( wait <= 0 )
+                {
+                    final List<String> names = new ArrayList<>();
+                    for ( Node node : m_nodes )
+                    {
+                        if ( !m_enabled.contains( node ) )
+                        {
+                            names.add( node.getName() );
+                        }
+                    }
+                    m_activator.getLogger().log( LogService.LOG_ERROR,
+                        "Components {0} not enabled within {1} ms, continuing without waiting for them", null,
+                        names, timeout );
+                    return false;
+                }
+                try
+                {
+                    wait( wait );
+                }
+                catch ( final InterruptedException ie )
+                {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the chain of dependent holders which took the longest
+         * time to enable. Must only be called once all holders are enabled.
+         */
+        synchronized List<Node> getCriticalPath()
+        {
+            // the holders are enabled after their dependencies
+            final Map<Node, Long> length = new HashMap<>();
+            final Map<Node, Node> predecessor = new HashMap<>();
+            Node last = null;
+            for ( Node node : m_enabled )
+            {
+                long longest = 0;
+                for ( Node dependency : node.m_dependencies )
+                {
+                    if ( length.get( dependency ) > longest )
+                    {
+                        longest = length.get( dependency );
+                        predecessor.put( node, dependency );
+                    }
+                }
+                length.put( node, longest + node.m_duration );
+                if ( last == null || length.get( node ) > length.get( last ) )
+                {
+                    last = node;
+                }
+            }
+
+            final List<Node> path = new ArrayList<>();
+            for ( Node node = last; node != null; node = predecessor.get( node ) )
+            {
+                path.add( node );
+            }
+            Collections.reverse( path );
+            return path;
+        }
+    }
+
+    private static class ActivatorThread extends Thread
+    {
+        private final ParallelActivator m_owner;
+
+        ActivatorThread( final ParallelActivator owner, final Runnable r )
+        {
+            super( r, "SCR Component Activator " + THREAD_COUNTER.incrementAndGet() );
+            m_owner = owner;
+        }
+    }
+}
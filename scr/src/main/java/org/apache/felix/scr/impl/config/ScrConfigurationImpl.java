@@ -89,6 +89,12 @@ public class ScrConfigurationImpl implements ScrConfiguration
 
     private Boolean globalExtender;
 
+    private boolean cacheMetadata = true;
+
+    private int parallelActivation;
+
+    private volatile boolean metrics;
+
     private volatile BundleContext bundleContext;
 
     private volatile ServiceRegistration<?> managedServiceRef;
@@ -175,6 +181,9 @@ public class ScrConfigurationImpl implements ScrConfiguration
                         stopTimeout = DEFAULT_STOP_TIMEOUT_MILLISECONDS;
                         serviceChangecountTimeout = DEFAULT_SERVICE_CHANGECOUNT_TIMEOUT_MILLISECONDS;
                         newGlobalExtender = false;
+                        cacheMetadata = true;
+                        parallelActivation = 0;
+                        metrics = false;
                     }
                     else
                     {
@@ -186,6 +195,9 @@ public class ScrConfigurationImpl implements ScrConfiguration
                         stopTimeout = getDefaultStopTimeout();
                         serviceChangecountTimeout = getServiceChangecountTimeout();
                         newGlobalExtender = getDefaultGlobalExtender();
+                        cacheMetadata = getDefaultCacheMetadata();
+                        parallelActivation = getParallelActivation( bundleContext.getProperty( PROP_PARALLEL_ACTIVATION ) );
+                        metrics = VALUE_TRUE.equalsIgnoreCase( bundleContext.getProperty( PROP_METRICS ) );
                     }
                 }
                 else
@@ -204,6 +216,9 @@ public class ScrConfigurationImpl implements ScrConfiguration
                 timeout = ( Long ) config.get( PROP_STOP_TIMEOUT );
                 stopTimeout = timeout == null? DEFAULT_STOP_TIMEOUT_MILLISECONDS: timeout;
                 newGlobalExtender = VALUE_TRUE.equalsIgnoreCase( String.valueOf( config.get( PROP_GLOBAL_EXTENDER) ) );
+                cacheMetadata = !"false".equalsIgnoreCase( String.valueOf( config.get( PROP_CACHE_METADATA ) ) );
+                parallelActivation = getParallelActivation( config.get( PROP_PARALLEL_ACTIVATION ) );
+                metrics = VALUE_TRUE.equalsIgnoreCase( String.valueOf( config.get( PROP_METRICS ) ) );
             }
             if ( scrCommand != null )
             {
@@ -273,6 +288,24 @@ public class ScrConfigurationImpl implements ScrConfiguration
         return serviceChangecountTimeout;
     }
 
+    @Override
+    public boolean cacheMetadata()
+    {
+        return cacheMetadata;
+    }
+
+    @Override
+    public int parallelActivation()
+    {
+        return parallelActivation;
+    }
+
+    @Override
+    public boolean metrics()
+    {
+        return metrics;
+    }
+
     private boolean getDefaultFactoryEnabled()
     {
         return VALUE_TRUE.equals( bundleContext.getProperty( PROP_FACTORY_ENABLED ) );
@@ -330,6 +363,31 @@ public class ScrConfigurationImpl implements ScrConfiguration
         return VALUE_TRUE.equalsIgnoreCase( bundleContext.getProperty( PROP_GLOBAL_EXTENDER) );
     }
 
+    private boolean getDefaultCacheMetadata()
+    {
+        return !"false".equalsIgnoreCase( bundleContext.getProperty( PROP_CACHE_METADATA ) );
+    }
+
+    private int getParallelActivation( final Object threadsObject )
+    {
+        if ( threadsObject instanceof Number )
+        {
+            return Math.max( 0, ( ( Number ) threadsObject ).intValue() );
+        }
+        if ( threadsObject != null )
+        {
+            try
+            {
+                return Math.max( 0, Integer.parseInt( threadsObject.toString().trim() ) );
+            }
+            catch ( NumberFormatException nfe )
+            {
+                // not a number, don't enable concurrently
+            }
+        }
+        return 0;
+    }
+
     private int getLogLevel( final Object levelObject )
     {
         if ( levelObject != null )
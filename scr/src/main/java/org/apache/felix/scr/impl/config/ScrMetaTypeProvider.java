@@ -123,6 +123,33 @@ class ScrMetaTypeProvider implements MetaTypeProvider
                 "Whether to extend all bundles whether or not visible to this bundle.",
                 false ) );
 
+        adList.add( new AttributeDefinitionImpl(
+                ScrConfiguration.PROP_CACHE_METADATA,
+                "Cache Component Metadata",
+                "Whether to keep the validated component metadata of bundles in the data area of this bundle. "
+                    + "The component descriptors of a bundle are only parsed again if the bundle has been modified. "
+                    + "The default is to cache the metadata.",
+                this.configuration.cacheMetadata() ) );
+
+        adList.add( new AttributeDefinitionImpl(
+                ScrConfiguration.PROP_PARALLEL_ACTIVATION,
+                "Parallel Activation Threads",
+                "The number of threads used to enable the components of a starting bundle concurrently. Components "
+                    + "are only enabled once the components of the bundle providing their mandatory references are "
+                    + "enabled. The default of 0 enables the components one after the other. Changes take effect "
+                    + "when this bundle is restarted.",
+                AttributeDefinition.INTEGER,
+                new String[] { String.valueOf(this.configuration.parallelActivation())},
+                0, null, null) );
+
+        adList.add( new AttributeDefinitionImpl(
+                ScrConfiguration.PROP_METRICS,
+                "Component Metrics",
+                "Whether to record the durations of the activation, deactivation, modification and (un)binding of "
+                    + "components. The durations are reported by the scr:info and scr:list commands and the ScrMetrics "
+                    + "service. The default is to not record durations.",
+                this.configuration.metrics() ) );
+
         return new ObjectClassDefinition()
         {
 
@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.inject;
+
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+
+
+/**
+ * The <code>MethodInvoker</code> calls a resolved component method through
+ * a method handle. The handle is adapted to take and return plain objects
+ * such that methods with up to two parameters, which covers the common
+ * bind method signatures, can be called without allocating an argument
+ * array.
+ * <p>
+ * If no method handle can be created for the method, for example because
+ * the method is not accessible or static, the method is called through
+ * reflection. The method is also called through reflection if the target
+ * or the arguments do not match the parameters of the method, such that
+ * conversions are done and mismatches are reported by
+ * <code>Method.invoke</code>: an <code>IllegalArgumentException</code> or a
+ * <code>NullPointerException</code> for a missing target. Only exceptions
+ * thrown by the method itself are wrapped in an
+ * <code>InvocationTargetException</code>.
+ * <p>
+ * The calls to <code>MethodHandle.invokeExact</code> are signature
+ * polymorphic and thus not known to the API signature check.
+ */
+public final class MethodInvoker
+{
+
+    private final Method m_method;
+
+    private final int m_parameterCount;
+
+    // the types of the parameters, primitive types replaced by their wrappers
+    private final Class<?>[] m_argumentTypes;
+
+    // whether the parameters are of a primitive type, not accepting null
+    private final boolean[] m_primitive;
+
+    // the method handle of type (Object, Object...)Object with the
+    // parameters of the method, null to use reflection
+    private final MethodHandle m_handle;
+
+    // the method handle of type (Object, Object[])Object, null to use reflection
+    private final MethodHandle m_spreader;
+
+
+    public MethodInvoker( final Method method )
+    {
+        m_method = method;
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        m_parameterCount = parameterTypes.length;
+        m_argumentTypes = new Class<?>[m_parameterCount];
+        m_primitive = new boolean[m_parameterCount];
+        for ( int i = 0; i < m_parameterCount; i++ )
+        {
+            m_primitive[i] = parameterTypes[i].isPrimitive();
+            m_argumentTypes[i] = m_primitive[i]
+                    ? MethodType.methodType( parameterTypes[i] ).wrap().returnType() : parameterTypes[i];
+        }
+
+        MethodHandle handle = null;
+        MethodHandle spreader = null;
+        if ( !Modifier.isStatic( method.getModifiers() ) )
+        {
+            try
+            {
+                // the method has been made accessible, so no access check is done
+                handle = MethodHandles.lookup().unreflect( method )
+                        .asType( MethodType.genericMethodType( m_parameterCount + 1 ) );
+                spreader = handle.asSpreader( Object[].class, m_parameterCount );
+            }
+            catch ( final Exception e )
+            {
+                // for example IllegalAccessException or WrongMethodTypeException,
+                // fall back to reflection
+                handle = null;
+                spreader = null;
+            }
+        }
+        m_handle = handle;
+        m_spreader = spreader;
+    }
+
+
+    public Method getMethod()
+    {
+        return m_method;
+    }
+
+
+    public int getParameterCount()
+    {
+        return m_parameterCount;
+    }
+
+
+    /**
+     * Calls a method without parameters.
+     */
+    @IgnoreJRERequirement // signature polymorphic invokeExact
+    public Object invoke( final Object target ) throws InvocationTargetException, IllegalAccessException
+    {
+        if ( m_handle == null || !isTarget( target ) )
+        {
+            return invokeReflective( target, new Object[0] );
+        }
+        try
+        {
+            return ( Object ) m_handle.invokeExact( target );
+        }
+        catch ( final Throwable t )
+        {
+            throw new InvocationTargetException( t );
+        }
+    }
+
+
+    /**
+     * Calls a method with a single parameter.
+     */
+    @IgnoreJRERequirement // signature polymorphic invokeExact
+    public Object invoke( final Object target, final Object arg ) throws InvocationTargetException, IllegalAccessException
+    {
+        if ( m_handle == null || !isTarget( target ) || !isArgument( 0, arg ) )
+        {
+            return invokeReflective( target, new Object[] { arg } );
+        }
+        try
+        {
+            return ( Object ) m_handle.invokeExact( target, arg );
+        }
+        catch ( final Throwable t )
+        {
+            throw new InvocationTargetException( t );
+        }
+    }
+
+
+    /**
+     * Calls a method with two parameters.
+     */
+    @IgnoreJRERequirement // signature polymorphic invokeExact
+    public Object invoke( final Object target, final Object arg0, final Object arg1 )
+            throws InvocationTargetException, IllegalAccessException
+    {
+        if ( m_handle == null || !isTarget( target ) || !isArgument( 0, arg0 ) || !isArgument( 1, arg1 ) )
+        {
+            return invokeReflective( target, new Object[] { arg0, arg1 } );
+        }
+        try
+        {
+            return ( Object ) m_handle.invokeExact( target, arg0, arg1 );
+        }
+        catch ( final Throwable t )
+        {
+            throw new InvocationTargetException( t );
+        }
+    }
+
+
+    /**
+     * Calls a method with any number of parameters.
+     */
+    @IgnoreJRERequirement // signature polymorphic invokeExact
+    public Object invoke( final Object target, final Object[] args ) throws InvocationTargetException, IllegalAccessException
+    {
+        if ( m_spreader == null || !isTarget( target ) || !isArguments( args ) )
+        {
+            return invokeReflective( target, args );
+        }
+        try
+        {
+            return ( Object ) m_spreader.invokeExact( target, args );
+        }
+        catch ( final Throwable t )
+        {
+            throw new InvocationTargetException( t );
+        }
+    }
+
+
+    private boolean isTarget( final Object target )
+    {
+        return m_method.getDeclaringClass().isInstance( target );
+    }
+
+
+    private boolean isArgument( final int index, final Object arg )
+    {
+        return arg == null ? !m_primitive[index] : m_argumentTypes[index].isInstance( arg );
+    }
+
+
+    private boolean isArguments( final Object[] args )
+    {
+        if ( args == null || args.length != m_parameterCount )
+        {
+            return false;
+        }
+        for ( int i = 0; i < args.length; i++ )
+        {
+            if ( !isArgument( i, args[i] ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private Object invokeReflective( final Object target, final Object[] args )
+            throws InvocationTargetException, IllegalAccessException
+    {
+        return m_method.invoke( target, args );
+    }
+}
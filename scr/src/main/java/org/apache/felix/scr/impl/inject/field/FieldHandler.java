@@ -19,6 +19,9 @@
 package org.apache.felix.scr.impl.inject.field;
 
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
@@ -40,6 +43,7 @@ import org.apache.felix.scr.impl.logger.ComponentLogger;
 import org.apache.felix.scr.impl.manager.ComponentContextImpl;
 import org.apache.felix.scr.impl.manager.RefPair;
 import org.apache.felix.scr.impl.metadata.ReferenceMetadata;
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.log.LogService;
 
@@ -57,6 +61,12 @@ public class FieldHandler
     /** The field used for the injection. */
     private volatile Field field;
 
+    /** The setter of type (Object, Object)void for the field, null to use reflection. */
+    private volatile MethodHandle fieldSetter;
+
+    /** The getter of type (Object)Object for the field, null to use reflection. */
+    private volatile MethodHandle fieldGetter;
+
     /** Value type. */
     private volatile ValueType valueType;
 
@@ -293,9 +303,23 @@ public class FieldHandler
         return MethodResult.VOID;
     }
 
+    @IgnoreJRERequirement // signature polymorphic invokeExact
     private void setFieldValue(final Object componentInstance, final Object value)
     throws InvocationTargetException
     {
+        final MethodHandle setter = this.fieldSetter;
+        if ( setter != null )
+        {
+            try
+            {
+                setter.invokeExact(componentInstance, value);
+                return;
+            }
+            catch ( final Throwable t )
+            {
+                throw new InvocationTargetException(t);
+            }
+        }
         try
         {
             field.set(componentInstance, value);
@@ -310,9 +334,22 @@ public class FieldHandler
         }
     }
 
+    @IgnoreJRERequirement // signature polymorphic invokeExact
     private Object getFieldValue(final Object componentInstance)
     throws InvocationTargetException
     {
+        final MethodHandle getter = this.fieldGetter;
+        if ( getter != null )
+        {
+            try
+            {
+                return (Object) getter.invokeExact(componentInstance);
+            }
+            catch ( final Throwable t )
+            {
+                throw new InvocationTargetException(t);
+            }
+        }
         try
         {
             return field.get(componentInstance);
@@ -434,11 +471,40 @@ public class FieldHandler
         return this.state.fieldExists( this, logger );
     }
 
+    /**
+     * Creates the method handles to access the field, which has been made
+     * accessible. If the handles can't be created, the field is accessed
+     * through reflection.
+     */
+    private void createAccessors(final Field f)
+    {
+        if ( Modifier.isStatic(f.getModifiers()) )
+        {
+            fieldGetter = null;
+            fieldSetter = null;
+            return;
+        }
+        try
+        {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            fieldGetter = lookup.unreflectGetter(f).asType(MethodType.methodType(Object.class, Object.class));
+            fieldSetter = Modifier.isFinal(f.getModifiers()) ? null
+                : lookup.unreflectSetter(f).asType(MethodType.methodType(void.class, Object.class, Object.class));
+        }
+        catch ( final IllegalAccessException iae )
+        {
+            fieldGetter = null;
+            fieldSetter = null;
+        }
+    }
+
     synchronized void setSearchResult(FieldSearchResult result, ComponentLogger logger)
     {
         if (result == null)
         {
             field = null;
+            fieldSetter = null;
+            fieldGetter = null;
             valueType = null;
             state = NotFound.INSTANCE;
             // TODO - will component really fail?
@@ -448,6 +514,7 @@ public class FieldHandler
         else
         {
             field = result.field;
+            createAccessors(result.field);
             if (!result.usable)
             {
                 valueType = ValueType.ignore;
@@ -254,39 +254,28 @@ public class ActivateMethod extends BaseMethod<ActivatorParameter, Object> imple
 
 
     @Override
-    protected Object[] getParameters( Method method, ActivatorParameter rawParameter )
+    protected Object getParameter( final int index, final Class<?> parameterType, final ActivatorParameter ap )
     {
-        final Class<?>[] parameterTypes = method.getParameterTypes();
-        final ActivatorParameter ap = rawParameter;
-        final Object[] param = new Object[parameterTypes.length];
-        for ( int i = 0; i < param.length; i++ )
+        if ( parameterType == ClassUtils.COMPONENT_CONTEXT_CLASS )
         {
-            if ( parameterTypes[i] == ClassUtils.COMPONENT_CONTEXT_CLASS )
-            {
-                param[i] = ap.getComponentContext();
-            }
-            else if ( parameterTypes[i] == ClassUtils.BUNDLE_CONTEXT_CLASS )
-            {
-                param[i] = ap.getComponentContext().getBundleContext();
-            }
-            else if ( parameterTypes[i] == ClassUtils.MAP_CLASS )
-            {
-                // note: getProperties() returns a ReadOnlyDictionary which is a Map
-                param[i] = ap.getComponentContext().getProperties();
-            }
-            else if ( parameterTypes[i] == ClassUtils.INTEGER_CLASS || parameterTypes[i] == Integer.TYPE )
-            {
-                param[i] = ap.getReason();
-            }
-            else
-            {
-                param[i] = Annotations.toObject(parameterTypes[i],
-                    (Map<String, Object>) ap.getComponentContext().getProperties(),
-                    ap.getComponentContext().getBundleContext().getBundle(), m_supportsInterfaces);
-            }
+            return ap.getComponentContext();
         }
-
-        return param;
+        else if ( parameterType == ClassUtils.BUNDLE_CONTEXT_CLASS )
+        {
+            return ap.getComponentContext().getBundleContext();
+        }
+        else if ( parameterType == ClassUtils.MAP_CLASS )
+        {
+            // note: getProperties() returns a ReadOnlyDictionary which is a Map
+            return ap.getComponentContext().getProperties();
+        }
+        else if ( parameterType == ClassUtils.INTEGER_CLASS || parameterType == Integer.TYPE )
+        {
+            return ap.getReason();
+        }
+        return Annotations.toObject(parameterType,
+            (Map<String, Object>) ap.getComponentContext().getProperties(),
+            ap.getComponentContext().getBundleContext().getBundle(), m_supportsInterfaces);
     }
 
 
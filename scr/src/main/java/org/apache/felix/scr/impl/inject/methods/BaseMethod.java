@@ -29,6 +29,7 @@ import java.util.Map;
 
 import org.apache.felix.scr.impl.inject.BaseParameter;
 import org.apache.felix.scr.impl.inject.ClassUtils;
+import org.apache.felix.scr.impl.inject.MethodInvoker;
 import org.apache.felix.scr.impl.inject.MethodResult;
 import org.apache.felix.scr.impl.logger.ComponentLogger;
 import org.apache.felix.scr.impl.metadata.DSVersion;
@@ -49,6 +50,10 @@ public abstract class BaseMethod<P extends BaseParameter, T>
 
     private volatile Method m_method;
 
+    private volatile MethodInvoker m_invoker;
+
+    private volatile Class<?>[] m_parameterTypes;
+
     private final boolean m_methodRequired;
 
     private volatile State m_state;
@@ -110,6 +115,8 @@ public abstract class BaseMethod<P extends BaseParameter, T>
         if (m_method != null)
         {
             setTypes(methodInfo.getTypes());
+            m_parameterTypes = m_method.getParameterTypes();
+            m_invoker = new MethodInvoker( m_method );
             m_state = Resolved.INSTANCE;
             logger.log( LogService.LOG_DEBUG, "Found {0} method: {1}", null,
                     getMethodNamePrefix(), m_method );
@@ -218,36 +225,82 @@ public abstract class BaseMethod<P extends BaseParameter, T>
     private MethodResult invokeMethod(final Object componentInstance, final P rawParameter )
             throws InvocationTargetException
     {
+        final ComponentLogger logger = rawParameter.getComponentContext().getLogger();
+        if ( componentInstance == null )
+        {
+            logger.log( LogService.LOG_WARNING, "Method {0}: {1} cannot be called on null object",
+                    null,
+                            getMethodNamePrefix(), getMethodName() );
+            return MethodResult.VOID;
+        }
+
+        // methods with up to two parameters are called without an array
+        final MethodInvoker invoker = m_invoker;
+        final int count = invoker.getParameterCount();
+        Object[] params = null;
+        Object param0 = null;
+        Object param1 = null;
         try
         {
-            if ( componentInstance != null )
+            if ( count > 2 )
             {
-                final Object[] params = getParameters(m_method, rawParameter);
-                rawParameter.getComponentContext().getLogger().log( LogService.LOG_DEBUG, "invoking {0}: {1}: parameters {2}", null,
-                        getMethodNamePrefix(), getMethodName(), Arrays.asList( params ) );
-                Object result = m_method.invoke(componentInstance, params);
-                rawParameter.getComponentContext().getLogger().log( LogService.LOG_DEBUG, "invoked {0}: {1}", null,
-                        getMethodNamePrefix(), getMethodName() );
-                return new MethodResult((m_method.getReturnType() != Void.TYPE), (Map<String, Object>) result);
+                params = getParameters( rawParameter );
             }
-            else
+            else if ( count > 0 )
             {
-                rawParameter.getComponentContext().getLogger().log( LogService.LOG_WARNING, "Method {0}: {1} cannot be called on null object",
-                        null,
-                                getMethodNamePrefix(), getMethodName() );
+                param0 = getParameter( 0, m_parameterTypes[0], rawParameter );
+                if ( count > 1 )
+                {
+                    param1 = getParameter( 1, m_parameterTypes[1], rawParameter );
+                }
             }
         }
         catch ( IllegalStateException ise )
         {
-            rawParameter.getComponentContext().getLogger().log( LogService.LOG_DEBUG, ise.getMessage(), null );
+            logger.log( LogService.LOG_DEBUG, ise.getMessage(), null );
             return null;
         }
+
+        try
+        {
+            if ( logger.isLogEnabled( LogService.LOG_DEBUG ) )
+            {
+                final Object[] logParams = ( params != null ) ? params : Arrays.copyOf( new Object[] { param0, param1 }, count );
+                logger.log( LogService.LOG_DEBUG, "invoking {0}: {1}: parameters {2}", null,
+                        getMethodNamePrefix(), getMethodName(), Arrays.asList( logParams ) );
+            }
+            final Object result;
+            switch ( count )
+            {
+                case 0:
+                    result = invoker.invoke( componentInstance );
+                    break;
+                case 1:
+                    result = invoker.invoke( componentInstance, param0 );
+                    break;
+                case 2:
+                    result = invoker.invoke( componentInstance, param0, param1 );
+                    break;
+                default:
+                    result = invoker.invoke( componentInstance, params );
+            }
+            if ( logger.isLogEnabled( LogService.LOG_DEBUG ) )
+            {
+                logger.log( LogService.LOG_DEBUG, "invoked {0}: {1}", null,
+                        getMethodNamePrefix(), getMethodName() );
+            }
+            if ( invoker.getMethod().getReturnType() == Void.TYPE )
+            {
+                return MethodResult.VOID;
+            }
+            return new MethodResult( true, ( Map<String, Object> ) result );
+        }
         catch ( IllegalAccessException ex )
         {
             // 112.3.1 If the method is not is not declared protected or
             // public, SCR must log an error message with the log service,
             // if present, and ignore the method
-            rawParameter.getComponentContext().getLogger().log( LogService.LOG_DEBUG, "Method {0} cannot be called", ex,
+            logger.log( LogService.LOG_DEBUG, "Method {0} cannot be called", ex,
                     getMethodName() );
         }
         catch ( InvocationTargetException ex )
@@ -271,14 +324,35 @@ public abstract class BaseMethod<P extends BaseParameter, T>
 
     /**
      * Returns the parameter array created from the <code>rawParameter</code>
-     * using the actual parameter type list of the <code>method</code>.
-     * @param method
+     * using the actual parameter type list of the resolved method.
      * @param rawParameter
      * @return
      * @throws IllegalStateException If the required parameters cannot be
      *      extracted from the <code>rawParameter</code>
      */
-    protected abstract Object[] getParameters( Method method, P rawParameter );
+    final Object[] getParameters( P rawParameter )
+    {
+        final Class<?>[] parameterTypes = m_parameterTypes;
+        final Object[] params = new Object[parameterTypes.length];
+        for ( int i = 0; i < params.length; i++ )
+        {
+            params[i] = getParameter( i, parameterTypes[i], rawParameter );
+        }
+        return params;
+    }
+
+
+    /**
+     * Returns the parameter at the given position of the resolved method
+     * created from the <code>rawParameter</code>.
+     * @param index The position of the parameter
+     * @param parameterType The declared type of the parameter
+     * @param rawParameter
+     * @return
+     * @throws IllegalStateException If the required parameter cannot be
+     *      extracted from the <code>rawParameter</code>
+     */
+    protected abstract Object getParameter( int index, Class<?> parameterType, P rawParameter );
 
 
     protected String getMethodNamePrefix()
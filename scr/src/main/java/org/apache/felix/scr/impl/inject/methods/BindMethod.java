@@ -29,8 +29,6 @@ import org.apache.felix.scr.impl.inject.BindParameters;
 import org.apache.felix.scr.impl.inject.ClassUtils;
 import org.apache.felix.scr.impl.inject.ValueUtils;
 import org.apache.felix.scr.impl.logger.ComponentLogger;
-import org.apache.felix.scr.impl.manager.ComponentContextImpl;
-import org.apache.felix.scr.impl.manager.RefPair;
 import org.apache.felix.scr.impl.metadata.DSVersion;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.log.LogService;
@@ -668,18 +666,10 @@ implements org.apache.felix.scr.impl.inject.ReferenceMethod
     }
 
     @Override
-    protected Object[] getParameters( Method method, BindParameters bp )
+    protected Object getParameter( final int index, final Class<?> parameterType, final BindParameters bp )
     {
-        ComponentContextImpl<?> key = bp.getComponentContext();
-        Object[] result = new Object[ m_paramTypes.size()];
-        RefPair<?, ?> refPair = bp.getRefPair();
-        int i = 0;
-        for ( ValueUtils.ValueType pt: m_paramTypes )
-        {
-            result[i] = ValueUtils.getValue(getComponentClass().getName(), pt, method.getParameterTypes()[i], key, refPair);
-            i++;
-        }
-        return result;
+        return ValueUtils.getValue( getComponentClass().getName(), m_paramTypes.get( index ), parameterType,
+                bp.getComponentContext(), bp.getRefPair() );
     }
 
 
@@ -162,6 +162,9 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
 
     private volatile String failureReason;
 
+    // the durations of the life cycle operations, created when first recorded
+    private final AtomicReference<ComponentMetrics> m_metrics = new AtomicReference<>();
+
     /**
      * The constructor receives both the container and the methods.
      *
@@ -220,6 +223,36 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
         }
     }
 
+    /**
+     * Returns the metrics recorded for this component, <code>null</code>
+     * if metrics have never been enabled while this component was managed.
+     */
+    @Override
+    public ComponentMetrics getMetrics()
+    {
+        return m_metrics.get();
+    }
+
+    /**
+     * Returns the metrics to record a duration or state change in, or
+     * <code>null</code> if metrics are disabled.
+     */
+    final ComponentMetrics getRecordingMetrics()
+    {
+        final ScrConfiguration configuration = m_container.getActivator().getConfiguration();
+        if (configuration == null || !configuration.metrics())
+        {
+            return null;
+        }
+        final ComponentMetrics metrics = m_metrics.get();
+        if (metrics != null)
+        {
+            return metrics;
+        }
+        m_metrics.compareAndSet(null, new ComponentMetrics());
+        return m_metrics.get();
+    }
+
     final long getLockTimeout()
     {
         //for tests....
@@ -1413,6 +1446,11 @@ public abstract class AbstractComponentManager<S> implements ComponentManager<S>
         if (state.compareAndSet(previousState, newState))
         {
             m_container.getLogger().log(LogService.LOG_DEBUG, "Changed state from {0} to {1}", null, previousState, newState );
+            final ComponentMetrics metrics = getRecordingMetrics();
+            if (metrics != null)
+            {
+                metrics.stateChanged();
+            }
             if ( newState == State.active || newState == State.unsatisfiedReference )
             {
                 this.failureReason = null;
@@ -45,4 +45,6 @@ public interface ComponentManager<S> {
 
     ServiceReference<S> getRegisteredServiceReference();
 
+    ComponentMetrics getMetrics();
+
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.manager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The <code>ComponentMetrics</code> keep the durations of the life cycle
+ * operations and the number of state changes of a component manager. They
+ * are only created and updated while metrics are enabled in the
+ * {@link ScrConfiguration}.
+ */
+public class ComponentMetrics
+{
+
+    private final LatencyHistogram m_activation = new LatencyHistogram();
+
+    private final LatencyHistogram m_deactivation = new LatencyHistogram();
+
+    private final LatencyHistogram m_modification = new LatencyHistogram();
+
+    private final LatencyHistogram m_bind = new LatencyHistogram();
+
+    private final LatencyHistogram m_updated = new LatencyHistogram();
+
+    private final LatencyHistogram m_unbind = new LatencyHistogram();
+
+    private final AtomicLong m_stateChanges = new AtomicLong();
+
+    public LatencyHistogram getActivation()
+    {
+        return m_activation;
+    }
+
+    public LatencyHistogram getDeactivation()
+    {
+        return m_deactivation;
+    }
+
+    public LatencyHistogram getModification()
+    {
+        return m_modification;
+    }
+
+    public LatencyHistogram getBind()
+    {
+        return m_bind;
+    }
+
+    public LatencyHistogram getUpdated()
+    {
+        return m_updated;
+    }
+
+    public LatencyHistogram getUnbind()
+    {
+        return m_unbind;
+    }
+
+    void stateChanged()
+    {
+        m_stateChanges.incrementAndGet();
+    }
+
+    public long getStateChanges()
+    {
+        return m_stateChanges.get();
+    }
+}
@@ -1810,8 +1810,14 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
             return false;
 
         }
+        final ComponentMetrics metrics = m_componentManager.getRecordingMetrics();
+        final long start = metrics == null ? 0 : System.nanoTime();
         MethodResult result = bindMethod.invoke(componentContext.getImplementationObject(false),
             new BindParameters(componentContext, refPair), MethodResult.VOID);
+        if (metrics != null)
+        {
+            metrics.getBind().record(System.nanoTime() - start);
+        }
         if (result == null)
         {
             return false;
@@ -1856,8 +1862,14 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
                 return false;
 
             }
+            final ComponentMetrics metrics = m_componentManager.getRecordingMetrics();
+            final long start = metrics == null ? 0 : System.nanoTime();
             final MethodResult methodResult = m_bindMethods.getUpdated().invoke(
                 componentContext.getImplementationObject(false), new BindParameters(componentContext, refPair), MethodResult.VOID);
+            if (metrics != null)
+            {
+                metrics.getUpdated().record(System.nanoTime() - start);
+            }
             if (methodResult != null)
             {
                 m_componentManager.setServiceProperties(methodResult, trackingCount);
@@ -1924,8 +1936,14 @@ public class DependencyManager<S, T> implements ReferenceManager<S, T>
                 return;
 
             }
+            final ComponentMetrics metrics = m_componentManager.getRecordingMetrics();
+            final long start = metrics == null ? 0 : System.nanoTime();
             MethodResult methodResult = m_bindMethods.getUnbind().invoke(
                 componentContext.getImplementationObject(false), new BindParameters(componentContext, refPair), MethodResult.VOID);
+            if (metrics != null)
+            {
+                metrics.getUnbind().record(System.nanoTime() - start);
+            }
             if (methodResult != null)
             {
                 m_componentManager.setServiceProperties(methodResult, trackingCount);
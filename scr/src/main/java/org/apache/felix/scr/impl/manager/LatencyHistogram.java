@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.manager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The <code>LatencyHistogram</code> records durations in buckets of powers
+ * of two nanoseconds. Recording a duration takes a few atomic increments
+ * and never allocates.
+ */
+public class LatencyHistogram
+{
+
+    // bucket i holds the durations d with 2^(i-1) <= d < 2^i, bucket 0 holds 0,
+    // durations are never negative so 64 buckets are enough
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray m_buckets = new AtomicLongArray( BUCKETS );
+
+    private final AtomicLong m_count = new AtomicLong();
+
+    private final AtomicLong m_total = new AtomicLong();
+
+    private final AtomicLong m_max = new AtomicLong();
+
+    /**
+     * Records a duration in nanoseconds, negative durations are recorded as 0.
+     */
+    public void record( final long nanos )
+    {
+        final long duration = Math.max( 0, nanos );
+        m_buckets.incrementAndGet( BUCKETS - Long.numberOfLeadingZeros( duration ) );
+        m_count.incrementAndGet();
+        m_total.addAndGet( duration );
+        long max = m_max.get();
+        while ( duration > max && !m_max.compareAndSet( max, duration ) )
+        {
+            max = m_max.get();
+        }
+    }
+
+    public long getCount()
+    {
+        return m_count.get();
+    }
+
+    public long getTotal()
+    {
+        return m_total.get();
+    }
+
+    public long getMax()
+    {
+        return m_max.get();
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the durations in
+     * nanoseconds, which is never above the longest duration.
+     * @param percentile the percentile between 0 and 100
+     */
+    public long getPercentile( final double percentile )
+    {
+        final long[] buckets = new long[BUCKETS];
+        long count = 0;
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            buckets[i] = m_buckets.get( i );
+            count += buckets[i];
+        }
+        if ( count == 0 )
+        {
+            return 0;
+        }
+
+        final long rank = Math.max( 1, ( long ) Math.ceil( count * percentile / 100 ) );
+        long seen = 0;
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            seen += buckets[i];
+            if ( seen >= rank )
+            {
+                return Math.min( ( 1L << i ) - 1, getMax() );
+            }
+        }
+        return getMax();
+    }
+}
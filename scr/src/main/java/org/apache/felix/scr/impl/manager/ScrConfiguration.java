@@ -68,6 +68,12 @@ public interface ScrConfiguration
 
     String PROP_SERVICE_CHANGECOUNT_TIMEOUT = "ds.service.changecount.timeout";
 
+    String PROP_CACHE_METADATA = "ds.cache.metadata";
+
+    String PROP_PARALLEL_ACTIVATION = "ds.parallel.activation";
+
+    String PROP_METRICS = "ds.metrics";
+
     /**
      * Returns the current log level.
      * @return
@@ -97,4 +103,26 @@ public interface ScrConfiguration
      */
     long serviceChangecountTimeout();
 
+    /**
+     * Whether the validated component metadata of bundles is cached in
+     * the data area of the SCR bundle.
+     * @since 2.2
+     */
+    boolean cacheMetadata();
+
+    /**
+     * The number of threads used to enable the components of a starting
+     * bundle concurrently, <code>0</code> to enable them one after the
+     * other in the thread starting the bundle.
+     * @since 2.2
+     */
+    int parallelActivation();
+
+    /**
+     * Whether the durations of the life cycle operations of the components
+     * are recorded.
+     * @since 2.2
+     */
+    boolean metrics();
+
 }
@@ -222,8 +222,25 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
     }
 
 
-    @SuppressWarnings("unchecked")
     protected S createImplementationObject( Bundle usingBundle, SetImplementationObject<S> setter, ComponentContextImpl<S> componentContext )
+    {
+        final ComponentMetrics metrics = getRecordingMetrics();
+        final long start = metrics == null ? 0 : System.nanoTime();
+        try
+        {
+            return doCreateImplementationObject( usingBundle, setter, componentContext );
+        }
+        finally
+        {
+            if ( metrics != null )
+            {
+                metrics.getActivation().record( System.nanoTime() - start );
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private S doCreateImplementationObject( Bundle usingBundle, SetImplementationObject<S> setter, ComponentContextImpl<S> componentContext )
     {
         S implementationObject = null;
 
@@ -405,6 +422,8 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
             // don't care for the result, the error (acccording to 112.5.12 If the deactivate
             // method throws an exception, SCR must log an error message containing the
             // exception with the Log Service and continue) has already been logged
+            final ComponentMetrics metrics = getRecordingMetrics();
+            final long start = metrics == null ? 0 : System.nanoTime();
             final MethodResult result = getComponentMethods().getDeactivateMethod().invoke( implementationObject,
                     componentContext, reason, null );
             if ( result != null )
@@ -416,6 +435,10 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
             {
                 md.close( componentContext, componentContext.getEdgeInfo( md ) );
             }
+            if ( metrics != null )
+            {
+                metrics.getDeactivation().record( System.nanoTime() - start );
+            }
         }
 
     }
@@ -789,7 +812,13 @@ public class SingleComponentManager<S> extends AbstractComponentManager<S> imple
         try
         {
             //cf 112.5.12 where invoking modified method before updating target services is specified.
+            final ComponentMetrics metrics = getRecordingMetrics();
+            final long start = metrics == null ? 0 : System.nanoTime();
             final MethodResult result = invokeModifiedMethod();
+            if ( metrics != null )
+            {
+                metrics.getModification().record( System.nanoTime() - start );
+            }
             updateTargets( props );
             if ( result == null )
             {
@@ -18,6 +18,7 @@
  */
 package org.apache.felix.scr.impl.metadata;
 
+import java.io.Serializable;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -25,8 +26,10 @@ import java.util.TreeSet;
  * Information associated to a dependency
  *
  */
-public class ReferenceMetadata
+public class ReferenceMetadata implements Serializable
 {
+	private static final long serialVersionUID = 1L;
+
 	public enum ReferenceScope {bundle, prototype, prototype_required}
 
     // constant for option single reference - 0..1
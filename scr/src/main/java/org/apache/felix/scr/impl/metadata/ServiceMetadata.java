@@ -18,6 +18,7 @@
  */
 package org.apache.felix.scr.impl.metadata;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,7 +27,9 @@ import java.util.List;
  * by a component
  *
  */
-public class ServiceMetadata {
+public class ServiceMetadata implements Serializable {
+    private static final long serialVersionUID = 1L;
+
 
     public enum Scope { singleton, bundle, prototype}
 
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.runtime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.felix.scr.impl.ComponentRegistry;
+import org.apache.felix.scr.impl.manager.ComponentHolder;
+import org.apache.felix.scr.impl.manager.ComponentManager;
+import org.apache.felix.scr.impl.manager.ComponentMetrics;
+import org.apache.felix.scr.impl.manager.LatencyHistogram;
+import org.apache.felix.scr.impl.manager.ScrConfiguration;
+import org.apache.felix.scr.info.ComponentMetricsDTO;
+import org.apache.felix.scr.info.LatencyDTO;
+import org.apache.felix.scr.info.ScrMetrics;
+import org.osgi.framework.Bundle;
+
+/**
+ * The <code>ScrMetricsImpl</code> collects the metrics recorded by the
+ * component managers of the components in the component registry.
+ */
+public class ScrMetricsImpl implements ScrMetrics
+{
+
+    private static final Comparator<ComponentMetricsDTO> BY_ID = new Comparator<ComponentMetricsDTO>()
+    {
+        @Override
+        public int compare(final ComponentMetricsDTO o1, final ComponentMetricsDTO o2)
+        {
+            return Long.compare( o1.id, o2.id );
+        }
+    };
+
+    private final ComponentRegistry componentRegistry;
+
+    private final ScrConfiguration configuration;
+
+    public ScrMetricsImpl(final ComponentRegistry componentRegistry, final ScrConfiguration configuration)
+    {
+        this.componentRegistry = componentRegistry;
+        this.configuration = configuration;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return configuration.metrics();
+    }
+
+    @Override
+    public Collection<ComponentMetricsDTO> getComponentMetrics(final Bundle... bundles)
+    {
+        final List<ComponentHolder<?>> holders;
+        if ( bundles == null || bundles.length == 0 )
+        {
+            holders = componentRegistry.getComponentHolders();
+        }
+        else
+        {
+            holders = componentRegistry.getComponentHolders( bundles );
+        }
+
+        final List<ComponentMetricsDTO> result = new ArrayList<>();
+        for ( final ComponentHolder<?> holder : holders )
+        {
+            for ( final ComponentManager<?> manager : holder.getComponents() )
+            {
+                final ComponentMetricsDTO dto = toDTO( holder, manager );
+                if ( dto != null )
+                {
+                    result.add( dto );
+                }
+            }
+        }
+        Collections.sort( result, BY_ID );
+        return result;
+    }
+
+    @Override
+    public ComponentMetricsDTO getComponentMetrics(final long id)
+    {
+        for ( final ComponentHolder<?> holder : componentRegistry.getComponentHolders() )
+        {
+            for ( final ComponentManager<?> manager : holder.getComponents() )
+            {
+                if ( manager.getId() == id )
+                {
+                    return toDTO( holder, manager );
+                }
+            }
+        }
+        return null;
+    }
+
+    private ComponentMetricsDTO toDTO(final ComponentHolder<?> holder, final ComponentManager<?> manager)
+    {
+        final ComponentMetrics metrics = manager.getMetrics();
+        if ( metrics == null )
+        {
+            return null;
+        }
+
+        final ComponentMetricsDTO dto = new ComponentMetricsDTO();
+        dto.id = manager.getId();
+        dto.name = holder.getComponentMetadata().getName();
+        try
+        {
+            dto.bundle = holder.getActivator().getBundleContext().getBundle().getBundleId();
+        }
+        catch ( final IllegalStateException ise )
+        {
+            // the bundle is being stopped
+            dto.bundle = -1;
+        }
+        dto.stateChanges = metrics.getStateChanges();
+        dto.activation = toDTO( metrics.getActivation() );
+        dto.deactivation = toDTO( metrics.getDeactivation() );
+        dto.modification = toDTO( metrics.getModification() );
+        dto.bind = toDTO( metrics.getBind() );
+        dto.updated = toDTO( metrics.getUpdated() );
+        dto.unbind = toDTO( metrics.getUnbind() );
+        return dto;
+    }
+
+    static LatencyDTO toDTO(final LatencyHistogram histogram)
+    {
+        final LatencyDTO dto = new LatencyDTO();
+        dto.count = histogram.getCount();
+        dto.total = histogram.getTotal();
+        dto.max = histogram.getMax();
+        dto.p50 = histogram.getPercentile( 50 );
+        dto.p90 = histogram.getPercentile( 90 );
+        dto.p99 = histogram.getPercentile( 99 );
+        return dto;
+    }
+}
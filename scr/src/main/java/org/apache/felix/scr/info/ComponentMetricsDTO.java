@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.info;
+
+import org.osgi.dto.DTO;
+
+/**
+ * The durations of the life cycle operations of a component configuration.
+ *
+ * @since 1.1
+ */
+public class ComponentMetricsDTO extends DTO
+{
+
+    /**
+     * The id of the component configuration.
+     */
+    public long id;
+
+    /**
+     * The name of the component.
+     */
+    public String name;
+
+    /**
+     * The id of the bundle declaring the component.
+     */
+    public long bundle;
+
+    /**
+     * The number of state changes of the component configuration.
+     */
+    public long stateChanges;
+
+    /**
+     * Creating the component instances including binding the references
+     * and calling the activate method.
+     */
+    public LatencyDTO activation;
+
+    /**
+     * Calling the deactivate method and unbinding the references.
+     */
+    public LatencyDTO deactivation;
+
+    /**
+     * Calling the modified method.
+     */
+    public LatencyDTO modification;
+
+    /**
+     * Binding a service to an active component instance.
+     */
+    public LatencyDTO bind;
+
+    /**
+     * Updating the properties of a service bound to an active component
+     * instance.
+     */
+    public LatencyDTO updated;
+
+    /**
+     * Unbinding a service from an active component instance.
+     */
+    public LatencyDTO unbind;
+}
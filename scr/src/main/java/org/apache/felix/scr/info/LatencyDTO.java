@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.info;
+
+import org.osgi.dto.DTO;
+
+/**
+ * The distribution of the durations of an operation. The durations are
+ * kept in buckets of powers of two nanoseconds, so the percentiles are
+ * upper bounds which are at most twice the actual value.
+ *
+ * @since 1.1
+ */
+public class LatencyDTO extends DTO
+{
+
+    /**
+     * The number of recorded durations.
+     */
+    public long count;
+
+    /**
+     * The sum of the recorded durations in nanoseconds.
+     */
+    public long total;
+
+    /**
+     * The longest recorded duration in nanoseconds.
+     */
+    public long max;
+
+    /**
+     * The median duration in nanoseconds.
+     */
+    public long p50;
+
+    /**
+     * The 90th percentile of the durations in nanoseconds.
+     */
+    public long p90;
+
+    /**
+     * The 99th percentile of the durations in nanoseconds.
+     */
+    public long p99;
+}
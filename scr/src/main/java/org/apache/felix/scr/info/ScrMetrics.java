@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.info;
+
+import java.util.Collection;
+
+import org.osgi.framework.Bundle;
+
+/**
+ * Service providing the durations of the life cycle operations of the
+ * component configurations managed by the Service Component Runtime.
+ * <p>
+ * The durations are only recorded while metrics are enabled with the
+ * <code>ds.metrics</code> configuration property. Durations recorded before
+ * metrics have been disabled are still reported.
+ *
+ * @since 1.1
+ */
+public interface ScrMetrics
+{
+
+    /**
+     * Whether the durations are currently recorded.
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns the metrics of the component configurations of the given
+     * bundles, or of all bundles if no bundle is given. Component
+     * configurations without any recorded duration are omitted.
+     * @param bundles the bundles of the components
+     * @return the metrics, sorted by component configuration id
+     */
+    Collection<ComponentMetricsDTO> getComponentMetrics(Bundle... bundles);
+
+    /**
+     * Returns the metrics of the component configuration with the given id.
+     * @param id the id of the component configuration
+     * @return the metrics or <code>null</code> if there is no such
+     *      component configuration or no duration has been recorded for it
+     */
+    ComponentMetricsDTO getComponentMetrics(long id);
+
+}
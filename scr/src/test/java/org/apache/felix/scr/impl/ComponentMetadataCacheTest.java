@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.felix.scr.impl.logger.MockBundleLogger;
+import org.apache.felix.scr.impl.logger.MockScrLogger;
+import org.apache.felix.scr.impl.manager.ScrConfiguration;
+import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.apache.felix.scr.impl.metadata.ReferenceMetadata;
+import org.apache.felix.scr.impl.parser.KXml2SAXParser;
+import org.apache.felix.scr.impl.xml.XmlHandler;
+import org.mockito.Mockito;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Version;
+import org.osgi.framework.namespace.HostNamespace;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
+
+import junit.framework.TestCase;
+
+public class ComponentMetadataCacheTest extends TestCase
+{
+
+    private static final String DESCRIPTOR = "/integration_test_circular.xml";
+
+    private File directory;
+
+    private Bundle scrBundle;
+
+    private Bundle bundle;
+
+    private ScrConfiguration configuration;
+
+    private ComponentMetadataCache cache;
+
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        directory = File.createTempFile( "scr-metadata", "" );
+        directory.delete();
+
+        scrBundle = Mockito.mock( Bundle.class );
+        Mockito.when( scrBundle.getVersion() ).thenReturn( new Version( "2.1.15" ) );
+        Mockito.when( scrBundle.getLastModified() ).thenReturn( 10L );
+
+        bundle = Mockito.mock( Bundle.class );
+        Mockito.when( bundle.getBundleId() ).thenReturn( 42L );
+        Mockito.when( bundle.getLastModified() ).thenReturn( 20L );
+
+        configuration = Mockito.mock( ScrConfiguration.class );
+
+        cache = new ComponentMetadataCache( directory, scrBundle, new MockScrLogger() );
+    }
+
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        final File[] files = directory.listFiles();
+        for ( int i = 0; files != null && i < files.length; i++ )
+        {
+            files[i].delete();
+        }
+        directory.delete();
+
+        super.tearDown();
+    }
+
+
+    public void test_store_and_load() throws Exception
+    {
+        assertTrue( cache.load( bundle, configuration ).isEmpty() );
+
+        final List<ComponentMetadata> metadataList = parse();
+        final Map<String, List<ComponentMetadata>> descriptors = new HashMap<>();
+        descriptors.put( DESCRIPTOR, metadataList );
+        cache.store( bundle, configuration, descriptors );
+
+        final Map<String, List<ComponentMetadata>> loaded = cache.load( bundle, configuration );
+        assertEquals( descriptors.keySet(), loaded.keySet() );
+
+        final List<ComponentMetadata> loadedList = loaded.get( DESCRIPTOR );
+        assertEquals( metadataList.size(), loadedList.size() );
+        for ( int i = 0; i < metadataList.size(); i++ )
+        {
+            final ComponentMetadata expected = metadataList.get( i );
+            final ComponentMetadata actual = loadedList.get( i );
+            assertEquals( expected.getName(), actual.getName() );
+            assertEquals( expected.getImplementationClassName(), actual.getImplementationClassName() );
+            assertEquals( expected.getDSVersion(), actual.getDSVersion() );
+            assertEquals( expected.getProperties().keySet(), actual.getProperties().keySet() );
+            assertEquals( expected.getDependencies().size(), actual.getDependencies().size() );
+            for ( int j = 0; j < expected.getDependencies().size(); j++ )
+            {
+                final ReferenceMetadata expectedRef = expected.getDependencies().get( j );
+                final ReferenceMetadata actualRef = actual.getDependencies().get( j );
+                assertEquals( expectedRef.getName(), actualRef.getName() );
+                assertEquals( expectedRef.getCardinality(), actualRef.getCardinality() );
+                assertEquals( expectedRef.getTarget(), actualRef.getTarget() );
+            }
+
+            // cached metadata is validated already
+            actual.validate();
+        }
+    }
+
+
+    public void test_modified_bundle() throws Exception
+    {
+        store();
+
+        Mockito.when( bundle.getLastModified() ).thenReturn( 21L );
+        assertTrue( cache.load( bundle, configuration ).isEmpty() );
+    }
+
+
+    public void test_modified_fragment() throws Exception
+    {
+        final Bundle fragment = Mockito.mock( Bundle.class );
+        Mockito.when( fragment.getBundleId() ).thenReturn( 43L );
+        Mockito.when( fragment.getLastModified() ).thenReturn( 30L );
+        final BundleRevision revision = Mockito.mock( BundleRevision.class );
+        Mockito.when( revision.getBundle() ).thenReturn( fragment );
+        final BundleWire wire = Mockito.mock( BundleWire.class );
+        Mockito.when( wire.getRequirer() ).thenReturn( revision );
+        final BundleWiring wiring = Mockito.mock( BundleWiring.class );
+        Mockito.when( wiring.getProvidedWires( HostNamespace.HOST_NAMESPACE ) ).thenReturn( Arrays.asList( wire ) );
+
+        // a fragment is attached
+        store();
+        Mockito.when( bundle.adapt( BundleWiring.class ) ).thenReturn( wiring );
+        assertTrue( cache.load( bundle, configuration ).isEmpty() );
+
+        // the fragment is updated
+        store();
+        Mockito.when( fragment.getLastModified() ).thenReturn( 31L );
+        assertTrue( cache.load( bundle, configuration ).isEmpty() );
+    }
+
+
+    public void test_same_path_in_fragment() throws Exception
+    {
+        final URL hostDescriptor = new URL( "http://uuid-42/OSGI-INF/components.xml" );
+        final URL fragmentDescriptor = new URL( "http://uuid-43/OSGI-INF/components.xml" );
+        final Map<String, Integer> occurrences = new HashMap<>();
+        final String hostKey = BundleComponentActivator.getDescriptorKey( hostDescriptor, occurrences );
+        final String fragmentKey = BundleComponentActivator.getDescriptorKey( fragmentDescriptor, occurrences );
+        assertFalse( hostKey.equals( fragmentKey ) );
+
+        final List<ComponentMetadata> hostMetadata = parse();
+        final List<ComponentMetadata> fragmentMetadata = new ArrayList<>( parse().subList( 0, 1 ) );
+        final Map<String, List<ComponentMetadata>> descriptors = new HashMap<>();
+        descriptors.put( hostKey, hostMetadata );
+        descriptors.put( fragmentKey, fragmentMetadata );
+        cache.store( bundle, configuration, descriptors );
+
+        final Map<String, List<ComponentMetadata>> loaded = cache.load( bundle, configuration );
+        assertEquals( hostMetadata.size(), loaded.get( hostKey ).size() );
+        assertEquals( fragmentMetadata.size(), loaded.get( fragmentKey ).size() );
+
+        // the keys do not depend on the framework instance
+        occurrences.clear();
+        assertEquals( hostKey, BundleComponentActivator.getDescriptorKey(
+            new URL( "http://other-42/OSGI-INF/components.xml" ), occurrences ) );
+        assertEquals( fragmentKey, BundleComponentActivator.getDescriptorKey(
+            new URL( "http://other-43/OSGI-INF/components.xml" ), occurrences ) );
+    }
+
+
+    public void test_modified_scr_bundle() throws Exception
+    {
+        store();
+
+        Mockito.when( scrBundle.getLastModified() ).thenReturn( 11L );
+        final ComponentMetadataCache other = new ComponentMetadataCache( directory, scrBundle, new MockScrLogger() );
+        assertTrue( other.load( bundle, configuration ).isEmpty() );
+    }
+
+
+    public void test_modified_configuration() throws Exception
+    {
+        store();
+
+        Mockito.when( configuration.keepInstances() ).thenReturn( true );
+        assertTrue( cache.load( bundle, configuration ).isEmpty() );
+    }
+
+
+    public void test_corrupt_cache() throws Exception
+    {
+        store();
+
+        final FileOutputStream out = new FileOutputStream( new File( directory, "42.ser" ) );
+        out.write( "corrupt".getBytes( "UTF-8" ) );
+        out.close();
+        assertTrue( cache.load( bundle, configuration ).isEmpty() );
+    }
+
+
+    public void test_remove() throws Exception
+    {
+        store();
+
+        cache.remove( bundle );
+        assertTrue( cache.load( bundle, configuration ).isEmpty() );
+    }
+
+
+    public void test_prune() throws Exception
+    {
+        store();
+        final Bundle other = Mockito.mock( Bundle.class );
+        Mockito.when( other.getBundleId() ).thenReturn( 43L );
+        Mockito.when( other.getLastModified() ).thenReturn( 20L );
+        final Map<String, List<ComponentMetadata>> descriptors = new HashMap<>();
+        descriptors.put( DESCRIPTOR, parse() );
+        cache.store( other, configuration, descriptors );
+        new File( directory, "44.ser.tmp" ).createNewFile();
+
+        // bundle 43 has been uninstalled
+        cache.prune( new Bundle[] { scrBundle, bundle } );
+        assertFalse( cache.load( bundle, configuration ).isEmpty() );
+        assertTrue( cache.load( other, configuration ).isEmpty() );
+        assertFalse( new File( directory, "43.ser" ).exists() );
+        assertFalse( new File( directory, "44.ser.tmp" ).exists() );
+    }
+
+
+    private void store() throws Exception
+    {
+        final Map<String, List<ComponentMetadata>> descriptors = new HashMap<>();
+        descriptors.put( DESCRIPTOR, parse() );
+        cache.store( bundle, configuration, descriptors );
+        assertFalse( cache.load( bundle, configuration ).isEmpty() );
+    }
+
+
+    private List<ComponentMetadata> parse() throws Exception
+    {
+        final BufferedReader in = new BufferedReader( new InputStreamReader(
+            getClass().getResourceAsStream( DESCRIPTOR ), "UTF-8" ) );
+        try
+        {
+            final XmlHandler handler = new XmlHandler( new MockBundle(), new MockBundleLogger(), false, false );
+            new KXml2SAXParser( in ).parseXML( handler );
+            final List<ComponentMetadata> metadataList = handler.getComponentMetadataList();
+            for ( ComponentMetadata metadata : metadataList )
+            {
+                metadata.validate();
+            }
+            return metadataList;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.felix.scr.impl.ParallelActivator.Node;
+import org.apache.felix.scr.impl.logger.BundleLogger;
+import org.apache.felix.scr.impl.manager.ComponentHolder;
+import org.apache.felix.scr.impl.manager.ScrConfiguration;
+import org.apache.felix.scr.impl.metadata.ComponentMetadata;
+import org.apache.felix.scr.impl.metadata.ReferenceMetadata;
+import org.apache.felix.scr.impl.metadata.ServiceMetadata;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import junit.framework.TestCase;
+
+public class ParallelActivatorTest extends TestCase
+{
+
+    private final List<ComponentHolder<?>> holders = new ArrayList<>();
+
+    private final List<String> enabled = Collections.synchronizedList( new ArrayList<String>() );
+
+    private final AtomicBoolean active = new AtomicBoolean( true );
+
+
+    public void test_mandatory_references() throws Exception
+    {
+        holder( "a", "A" );
+        holder( "b", "B", "A" );
+        holder( "c", "C", "A", "B" );
+        holder( "d", null );
+
+        final Map<String, List<String>> graph = buildGraph();
+        assertEquals( Arrays.<String>asList(), graph.get( "a" ) );
+        assertEquals( Arrays.asList( "a" ), graph.get( "b" ) );
+        assertEquals( Arrays.asList( "a", "b" ), graph.get( "c" ) );
+        assertEquals( Arrays.<String>asList(), graph.get( "d" ) );
+    }
+
+
+    public void test_optional_and_external_references() throws Exception
+    {
+        holder( "a", "A" );
+        final ComponentHolder<?> b = holder( "b", "B" );
+        final ReferenceMetadata optional = reference( "A" );
+        Mockito.when( optional.isOptional() ).thenReturn( true );
+        final List<ReferenceMetadata> dependencies = Arrays.asList( optional, reference( "X" ) );
+        Mockito.when( b.getComponentMetadata().getDependencies() ).thenReturn( dependencies );
+
+        final Map<String, List<String>> graph = buildGraph();
+        assertEquals( Arrays.<String>asList(), graph.get( "b" ) );
+    }
+
+
+    public void test_cycle() throws Exception
+    {
+        holder( "a", "A" );
+        holder( "b", "B", "A", "C" );
+        holder( "c", "C", "B" );
+        holder( "d", "D", "C" );
+
+        final Map<String, List<String>> graph = buildGraph();
+        assertEquals( Arrays.<String>asList(), graph.get( "a" ) );
+        // the dependency outside of the cycle is kept
+        assertEquals( Arrays.asList( "a" ), graph.get( "b" ) );
+        assertEquals( Arrays.<String>asList(), graph.get( "c" ) );
+        assertEquals( Arrays.<String>asList(), graph.get( "d" ) );
+    }
+
+
+    public void test_enable_along_dependencies() throws Exception
+    {
+        holder( "a", "A" );
+        holder( "b", "B", "A" );
+        holder( "c", "C", "A", "B" );
+        holder( "d", null );
+        final BundleComponentActivator activator = activator( 10000, new Answer<Object>()
+        {
+            @Override
+            public Object answer( final InvocationOnMock invocation ) throws Throwable
+            {
+                // give the dependents a chance to run too early
+                Thread.sleep( 20 );
+                return null;
+            }
+        } );
+
+        final ParallelActivator parallelActivator = new ParallelActivator( 4 );
+        try
+        {
+            assertTrue( parallelActivator.enable( activator, holders ) );
+        }
+        finally
+        {
+            parallelActivator.shutdown();
+        }
+
+        assertEquals( 4, enabled.size() );
+        assertTrue( enabled.indexOf( "a" ) < enabled.indexOf( "b" ) );
+        assertTrue( enabled.indexOf( "b" ) < enabled.indexOf( "c" ) );
+    }
+
+
+    public void test_enable_after_timeout() throws Exception
+    {
+        final ComponentHolder<?> a = holder( "a", "A" );
+        final ComponentHolder<?> b = holder( "b", "B", "A" );
+        final ComponentHolder<?> c = holder( "c", "C", "B" );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final BundleComponentActivator activator = activator( 100, new Answer<Object>()
+        {
+            @Override
+            public Object answer( final InvocationOnMock invocation ) throws Throwable
+            {
+                if ( invocation.getArgument( 0 ) == a )
+                {
+                    // an activation slower than the lock timeout
+                    release.await();
+                }
+                return null;
+            }
+        } );
+
+        final ParallelActivator parallelActivator = new ParallelActivator( 2 );
+        try
+        {
+            assertFalse( parallelActivator.enable( activator, holders ) );
+            release.countDown();
+
+            // the dependents are still enabled once waiting has timed out
+            Mockito.verify( activator, Mockito.timeout( 5000 ) ).enableComponentHolder( b );
+            Mockito.verify( activator, Mockito.timeout( 5000 ) ).enableComponentHolder( c );
+        }
+        finally
+        {
+            release.countDown();
+            parallelActivator.shutdown();
+        }
+        assertEquals( Arrays.asList( "a", "b", "c" ), enabled );
+    }
+
+
+    public void test_enable_disposed() throws Exception
+    {
+        final ComponentHolder<?> a = holder( "a", "A" );
+        final ComponentHolder<?> b = holder( "b", "B", "A" );
+        holder( "c", "C", "B" );
+        final BundleComponentActivator activator = activator( 10000, new Answer<Object>()
+        {
+            @Override
+            public Object answer( final InvocationOnMock invocation ) throws Throwable
+            {
+                if ( invocation.getArgument( 0 ) == a )
+                {
+                    // the bundle is stopped while its components are enabled
+                    active.set( false );
+                }
+                return null;
+            }
+        } );
+
+        final ParallelActivator parallelActivator = new ParallelActivator( 2 );
+        final long start = System.nanoTime();
+        try
+        {
+            assertFalse( parallelActivator.enable( activator, holders ) );
+        }
+        finally
+        {
+            parallelActivator.shutdown();
+        }
+
+        // waiting stops without running into the timeout
+        assertTrue( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) < 5000 );
+        Mockito.verify( activator, Mockito.after( 200 ).never() ).enableComponentHolder( b );
+        assertEquals( Arrays.asList( "a" ), enabled );
+    }
+
+
+    private BundleComponentActivator activator( final long lockTimeout, final Answer<Object> enable )
+    {
+        final ScrConfiguration configuration = Mockito.mock( ScrConfiguration.class );
+        Mockito.when( configuration.lockTimeout() ).thenReturn( lockTimeout );
+
+        final BundleComponentActivator activator = Mockito.mock( BundleComponentActivator.class );
+        Mockito.when( activator.getConfiguration() ).thenReturn( configuration );
+        Mockito.when( activator.getLogger() ).thenReturn( Mockito.mock( BundleLogger.class ) );
+        Mockito.when( activator.isActive() ).thenAnswer( new Answer<Boolean>()
+        {
+            @Override
+            public Boolean answer( final InvocationOnMock invocation )
+            {
+                return active.get();
+            }
+        } );
+        Mockito.doAnswer( new Answer<Object>()
+        {
+            @Override
+            public Object answer( final InvocationOnMock invocation ) throws Throwable
+            {
+                final ComponentHolder<?> holder = invocation.getArgument( 0 );
+                enabled.add( holder.getComponentMetadata().getName() );
+                return enable.answer( invocation );
+            }
+        } ).when( activator ).enableComponentHolder( Mockito.<ComponentHolder<?>>any() );
+        return activator;
+    }
+
+
+    private Map<String, List<String>> buildGraph()
+    {
+        final Map<String, List<String>> graph = new HashMap<>();
+        for ( Node node : ParallelActivator.buildGraph( holders ) )
+        {
+            final List<String> dependencies = new ArrayList<>();
+            for ( Node dependency : node.getDependencies() )
+            {
+                dependencies.add( dependency.getName() );
+            }
+            graph.put( node.getName(), dependencies );
+        }
+        return graph;
+    }
+
+
+    private ComponentHolder<?> holder( final String name, final String service, final String... references )
+    {
+        final ComponentMetadata metadata = Mockito.mock( ComponentMetadata.class );
+        Mockito.when( metadata.getName() ).thenReturn( name );
+        if ( service != null )
+        {
+            final ServiceMetadata serviceMetadata = Mockito.mock( ServiceMetadata.class );
+            Mockito.when( serviceMetadata.getProvides() ).thenReturn( new String[] { service } );
+            Mockito.when( metadata.getServiceMetadata() ).thenReturn( serviceMetadata );
+        }
+        final List<ReferenceMetadata> dependencies = new ArrayList<>();
+        for ( String reference : references )
+        {
+            dependencies.add( reference( reference ) );
+        }
+        Mockito.when( metadata.getDependencies() ).thenReturn( dependencies );
+
+        final ComponentHolder<?> holder = Mockito.mock( ComponentHolder.class );
+        Mockito.when( holder.getComponentMetadata() ).thenReturn( metadata );
+        holders.add( holder );
+        return holder;
+    }
+
+
+    private static ReferenceMetadata reference( final String service )
+    {
+        final ReferenceMetadata reference = Mockito.mock( ReferenceMetadata.class );
+        Mockito.when( reference.getInterface() ).thenReturn( service );
+        return reference;
+    }
+}
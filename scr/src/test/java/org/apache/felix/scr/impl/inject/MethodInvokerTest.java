@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.inject;
+
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+
+public class MethodInvokerTest extends TestCase
+{
+
+    private final Target m_target = new Target();
+
+
+    public void test_no_parameter() throws Exception
+    {
+        assertNull( invoker( "none" ).invoke( m_target ) );
+        assertEquals( "none", m_target.m_called );
+    }
+
+
+    public void test_single_parameter() throws Exception
+    {
+        assertNull( invoker( "single", Object.class ).invoke( m_target, "a" ) );
+        assertEquals( "single a", m_target.m_called );
+    }
+
+
+    public void test_primitive_parameter() throws Exception
+    {
+        invoker( "primitive", Integer.TYPE ).invoke( m_target, Integer.valueOf( 5 ) );
+        assertEquals( "primitive 5", m_target.m_called );
+    }
+
+
+    public void test_two_parameters() throws Exception
+    {
+        invoker( "two", Object.class, Map.class ).invoke( m_target, "a", Collections.emptyMap() );
+        assertEquals( "two a {}", m_target.m_called );
+    }
+
+
+    public void test_array_parameters() throws Exception
+    {
+        final MethodInvoker invoker = invoker( "three", Object.class, Object.class, Object.class );
+        assertEquals( 3, invoker.getParameterCount() );
+        invoker.invoke( m_target, new Object[] { "a", "b", "c" } );
+        assertEquals( "three a b c", m_target.m_called );
+    }
+
+
+    public void test_return_value() throws Exception
+    {
+        assertEquals( Collections.singletonMap( "key", "value" ), invoker( "map" ).invoke( m_target ) );
+    }
+
+
+    public void test_exception() throws Exception
+    {
+        try
+        {
+            invoker( "fail" ).invoke( m_target );
+            fail( "Expected InvocationTargetException" );
+        }
+        catch ( InvocationTargetException ite )
+        {
+            assertTrue( ite.getCause() instanceof IllegalStateException );
+        }
+    }
+
+
+    public void test_exception_of_conversion_type() throws Exception
+    {
+        // thrown by the method, not by the conversion of the arguments
+        try
+        {
+            invoker( "cast", Object.class ).invoke( m_target, "a" );
+            fail( "Expected InvocationTargetException" );
+        }
+        catch ( InvocationTargetException ite )
+        {
+            assertTrue( ite.getCause() instanceof ClassCastException );
+        }
+    }
+
+
+    public void test_wrong_parameter_type() throws Exception
+    {
+        try
+        {
+            invoker( "two", Object.class, Map.class ).invoke( m_target, "a", "b" );
+            fail( "Expected IllegalArgumentException" );
+        }
+        catch ( IllegalArgumentException iae )
+        {
+            // expected
+        }
+    }
+
+
+    public void test_null_primitive_parameter() throws Exception
+    {
+        try
+        {
+            invoker( "primitive", Integer.TYPE ).invoke( m_target, ( Object ) null );
+            fail( "Expected IllegalArgumentException" );
+        }
+        catch ( IllegalArgumentException iae )
+        {
+            // expected
+        }
+    }
+
+
+    public void test_wrong_parameter_count() throws Exception
+    {
+        try
+        {
+            invoker( "three", Object.class, Object.class, Object.class ).invoke( m_target, new Object[] { "a" } );
+            fail( "Expected IllegalArgumentException" );
+        }
+        catch ( IllegalArgumentException iae )
+        {
+            // expected
+        }
+    }
+
+
+    public void test_wrong_target() throws Exception
+    {
+        try
+        {
+            invoker( "none" ).invoke( "target" );
+            fail( "Expected IllegalArgumentException" );
+        }
+        catch ( IllegalArgumentException iae )
+        {
+            // expected
+        }
+    }
+
+
+    public void test_static_method() throws Exception
+    {
+        invoker( "stat", Object.class ).invoke( m_target, "a" );
+        assertEquals( "stat a", Target.s_called );
+    }
+
+
+    private static MethodInvoker invoker( final String name, final Class<?>... parameterTypes ) throws Exception
+    {
+        final Method method = Target.class.getDeclaredMethod( name, parameterTypes );
+        method.setAccessible( true );
+        return new MethodInvoker( method );
+    }
+
+    private static class Target
+    {
+        private static String s_called;
+
+        private String m_called;
+
+        private static void stat( Object a )
+        {
+            s_called = "stat " + a;
+        }
+
+        private void none()
+        {
+            m_called = "none";
+        }
+
+        private void single( Object a )
+        {
+            m_called = "single " + a;
+        }
+
+        private void primitive( int a )
+        {
+            m_called = "primitive " + a;
+        }
+
+        private void two( Object a, Map<?, ?> b )
+        {
+            m_called = "two " + a + " " + b;
+        }
+
+        private void three( Object a, Object b, Object c )
+        {
+            m_called = "three " + a + " " + b + " " + c;
+        }
+
+        private Map<String, Object> map()
+        {
+            return Collections.<String, Object>singletonMap( "key", "value" );
+        }
+
+        private void fail()
+        {
+            throw new IllegalStateException( "failed" );
+        }
+
+        private void cast( Object a )
+        {
+            m_called = ( String ) ( Object ) Integer.valueOf( a.hashCode() );
+        }
+    }
+}
@@ -78,6 +78,21 @@ public class MockScrLogger extends ScrLogger
             public boolean globalExtender() {
                 return false;
             }
+
+            @Override
+            public boolean cacheMetadata() {
+                return false;
+            }
+
+            @Override
+            public int parallelActivation() {
+                return 0;
+            }
+
+            @Override
+            public boolean metrics() {
+                return false;
+            }
         }, new MockBundleContext(new MockBundle()));
     }
 }
\ No newline at end of file
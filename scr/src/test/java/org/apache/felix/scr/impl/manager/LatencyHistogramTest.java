@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.felix.scr.impl.manager;
+
+import junit.framework.TestCase;
+
+public class LatencyHistogramTest extends TestCase
+{
+
+    public void test_empty()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals( 0, histogram.getCount() );
+        assertEquals( 0, histogram.getTotal() );
+        assertEquals( 0, histogram.getMax() );
+        assertEquals( 0, histogram.getPercentile( 50 ) );
+        assertEquals( 0, histogram.getPercentile( 99 ) );
+    }
+
+
+    public void test_record()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for ( int i = 1; i <= 100; i++ )
+        {
+            histogram.record( i * 1000L );
+        }
+
+        assertEquals( 100, histogram.getCount() );
+        assertEquals( 5050000L, histogram.getTotal() );
+        assertEquals( 100000L, histogram.getMax() );
+
+        // percentiles are upper bounds within a power of two
+        final long p50 = histogram.getPercentile( 50 );
+        assertTrue( String.valueOf( p50 ), p50 >= 50000L && p50 < 2 * 50000L );
+        final long p99 = histogram.getPercentile( 99 );
+        assertTrue( String.valueOf( p99 ), p99 >= 99000L && p99 <= 100000L );
+        assertEquals( 100000L, histogram.getPercentile( 100 ) );
+    }
+
+
+    public void test_extremes()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record( -5 );
+        histogram.record( 0 );
+        histogram.record( Long.MAX_VALUE );
+
+        assertEquals( 3, histogram.getCount() );
+        assertEquals( Long.MAX_VALUE, histogram.getMax() );
+        assertEquals( 0, histogram.getPercentile( 50 ) );
+        assertEquals( Long.MAX_VALUE, histogram.getPercentile( 99 ) );
+    }
+
+
+    public void test_component_metrics()
+    {
+        final ComponentMetrics metrics = new ComponentMetrics();
+        metrics.stateChanged();
+        metrics.stateChanged();
+        metrics.getActivation().record( 2000 );
+        metrics.getBind().record( 10 );
+        metrics.getBind().record( 30 );
+
+        assertEquals( 2, metrics.getStateChanges() );
+        assertEquals( 1, metrics.getActivation().getCount() );
+        assertEquals( 2000, metrics.getActivation().getMax() );
+        assertEquals( 2, metrics.getBind().getCount() );
+        assertEquals( 40, metrics.getBind().getTotal() );
+        assertEquals( 0, metrics.getUnbind().getCount() );
+    }
+}